@@ -0,0 +1,71 @@
+package com.spring.eac.ai.advisor;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClientRequest;
+import org.springframework.ai.chat.client.ChatClientResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAdvisorChain;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the request rewriting of {@link ReReadingAdvisor}: one {@code adviseCall} against a chain that answers
+ * immediately, so the score is the prompt rewrite plus the advisor's own overhead. Its logger is raised to WARN, as
+ * console output would dominate the score.
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec -Djmh.includes=ReReadingAdvisorBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReReadingAdvisorBenchmark {
+
+    private ReReadingAdvisor advisor;
+    private ChatClientRequest request;
+    private CallAdvisorChain chain;
+
+    @Setup
+    public void setUp() {
+        ((Logger) LoggerFactory.getLogger(ReReadingAdvisor.class)).setLevel(Level.WARN);
+        advisor = ReReadingAdvisor.builder().build();
+        request = ChatClientRequest.builder()
+                .prompt(new Prompt("What is the cheapest truck that can tow the Sportsman 212 Open?"))
+                .context(Map.of("conversation_id", "benchmark"))
+                .build();
+        ChatClientResponse response = ChatClientResponse.builder()
+                .chatResponse(new ChatResponse(List.of(new Generation(new AssistantMessage("The F-150.")))))
+                .build();
+        chain = new CallAdvisorChain() {
+            @Override
+            public ChatClientResponse nextCall(ChatClientRequest chatClientRequest) {
+                return response;
+            }
+
+            @Override
+            public List<CallAdvisor> getCallAdvisors() {
+                return List.of();
+            }
+        };
+    }
+
+    @Benchmark
+    public ChatClientResponse adviseCall() {
+        return advisor.adviseCall(request, chain);
+    }
+}
@@ -0,0 +1,70 @@
+package com.spring.eac.ai.benchmark;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Offline {@link EmbeddingModel} for benchmarks: the same text always gets the same embedding.
+ * <p>
+ * Texts are hashed onto one of {@code clusters} random centres plus per-text noise, so neighbourhoods look more like
+ * real document embeddings than uniformly random vectors do.
+ */
+public class DeterministicEmbeddingModel implements EmbeddingModel {
+
+    private final int dimensions;
+    private final float[][] centres;
+
+    public DeterministicEmbeddingModel(int dimensions, int clusters) {
+        this.dimensions = dimensions;
+        this.centres = new float[clusters][];
+        SplittableRandom random = new SplittableRandom(1);
+        for (int i = 0; i < clusters; i++) {
+            centres[i] = gaussian(random, 1);
+        }
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<Embedding> embeddings = new ArrayList<>();
+        for (int i = 0; i < request.getInstructions().size(); i++) {
+            embeddings.add(new Embedding(embed(request.getInstructions().get(i)), i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(String text) {
+        SplittableRandom random = new SplittableRandom(text.hashCode());
+        float[] centre = centres[random.nextInt(centres.length)];
+        float[] embedding = gaussian(random, 0.5);
+        for (int i = 0; i < dimensions; i++) {
+            embedding[i] += centre[i];
+        }
+        return embedding;
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getText());
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    private float[] gaussian(SplittableRandom random, double deviation) {
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) (deviation * random.nextGaussian());
+        }
+        return vector;
+    }
+}
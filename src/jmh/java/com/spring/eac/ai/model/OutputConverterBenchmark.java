@@ -0,0 +1,65 @@
+package com.spring.eac.ai.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.ai.converter.BeanOutputConverter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link BeanOutputConverter#convert(String)} on typical model answers for {@link GetCapitalResponse} and
+ * {@link CapitalWithInfo}, with and without the Markdown code fence models often wrap JSON in, and of creating a
+ * converter, which generates the JSON schema of the format instructions.
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec -Djmh.includes=OutputConverterBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OutputConverterBenchmark {
+
+    private static final String CAPITAL_RESPONSE = """
+            {"answer": "Lisbon"}""";
+
+    private static final String CAPITAL_WITH_INFO = """
+            {"stateOrCountry": "Portugal", "capital": "Lisbon", "population": 545923, "region": "Southern Europe",
+             "language": "Portuguese", "currency": "Euro"}""";
+
+    private static final String FENCED_CAPITAL_WITH_INFO = "```json\n" + CAPITAL_WITH_INFO + "\n```";
+
+    private BeanOutputConverter<GetCapitalResponse> capitalResponseConverter;
+    private BeanOutputConverter<CapitalWithInfo> capitalWithInfoConverter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        capitalResponseConverter = new BeanOutputConverter<>(GetCapitalResponse.class);
+        capitalWithInfoConverter = new BeanOutputConverter<>(CapitalWithInfo.class);
+    }
+
+    @Benchmark
+    public GetCapitalResponse convertCapitalResponse() {
+        return capitalResponseConverter.convert(CAPITAL_RESPONSE);
+    }
+
+    @Benchmark
+    public CapitalWithInfo convertCapitalWithInfo() {
+        return capitalWithInfoConverter.convert(CAPITAL_WITH_INFO);
+    }
+
+    @Benchmark
+    public CapitalWithInfo convertFencedCapitalWithInfo() {
+        return capitalWithInfoConverter.convert(FENCED_CAPITAL_WITH_INFO);
+    }
+
+    @Benchmark
+    public String createCapitalWithInfoConverter() {
+        return new BeanOutputConverter<>(CapitalWithInfo.class).getFormat();
+    }
+}
@@ -0,0 +1,133 @@
+package com.spring.eac.ai.service;
+
+import com.spring.eac.ai.function.WeatherServiceFunction;
+import com.spring.eac.ai.model.QRCodeResponse;
+import com.spring.eac.ai.model.WeatherRequest;
+import com.spring.eac.ai.property.ApplicationProperties;
+import com.spring.eac.ai.tool.DateTimeTools;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.advisor.PromptChatMemoryAdvisor;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.ModelOptionsUtils;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.tool.StaticToolCallbackProvider;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.ai.tool.function.FunctionToolCallback;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of the tool calling clients, against a chat model that answers immediately, so the score is the
+ * client side of a request: building the request, its tool definitions and the advisor chain. The {@code *PerRequest}
+ * benchmarks build the tool callbacks, their JSON schema and the {@link ChatClient} on every call, as the services did;
+ * the others use the clients of the {@link ChatClientRegistry}. Add {@code -prof gc} to compare the bytes allocated per
+ * request.
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec -Djmh.includes=ChatClientRegistryBenchmark -Djmh.args="-f 1 -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChatClientRegistryBenchmark {
+
+    private static final String API_KEY = "benchmark";
+
+    private ChatModel chatModel;
+    private ChatMemory chatMemory;
+    private ToolCallbackProvider toolCallbackProvider;
+    private ChatClientRegistry registry;
+
+    @Setup
+    public void setUp() {
+        ChatResponse response = new ChatResponse(List.of(new Generation(new AssistantMessage("Sunny, 24 °C."))));
+        chatModel = new ChatModel() {
+            @Override
+            public ChatResponse call(Prompt prompt) {
+                return response;
+            }
+
+            @Override
+            public ChatOptions getDefaultOptions() {
+                return ToolCallingChatOptions.builder().build();
+            }
+        };
+        chatMemory = MessageWindowChatMemory.builder().build();
+        // Stands in for the MCP and customer score tools
+        toolCallbackProvider = new StaticToolCallbackProvider(FunctionToolCallback
+                .builder("customerScore", (String name) -> 42)
+                .description("Score of a customer")
+                .inputType(String.class)
+                .build());
+        registry = new ChatClientRegistry(chatModel, chatMemory,
+                ApplicationProperties.builder().ninjasApiKey(API_KEY).build(),
+                request -> new QRCodeResponse(new byte[0]),
+                toolCallbackProvider);
+    }
+
+    @Benchmark
+    public String weatherPerRequest() {
+        FunctionToolCallback<?, ?> functionToolCallback = FunctionToolCallback
+                .builder("CurrentWeather", new WeatherServiceFunction(API_KEY))
+                .description("Get the current weather for a location base on location, city, coordinates like latitude and longitude.")
+                .inputType(WeatherRequest.class)
+                .inputSchema(ModelOptionsUtils.getJsonSchema(WeatherRequest.class, false))
+                .build();
+        ChatClient chatClient = ChatClient.builder(chatModel)
+                .defaultToolCallbacks(functionToolCallback)
+                .build();
+        return weather(chatClient);
+    }
+
+    @Benchmark
+    public String weather() {
+        return weather(registry.weather());
+    }
+
+    @Benchmark
+    public String searchPerRequest() {
+        ChatClient chatClient = ChatClient.builder(chatModel)
+                .defaultToolCallbacks(toolCallbackProvider.getToolCallbacks())
+                .defaultAdvisors(PromptChatMemoryAdvisor.builder(chatMemory).conversationId("benchmark").build())
+                .defaultTools(new DateTimeTools())
+                .build();
+        return search(chatClient);
+    }
+
+    @Benchmark
+    public String search() {
+        return search(registry.search());
+    }
+
+    private static String weather(ChatClient chatClient) {
+        return chatClient.prompt("What is the weather in Lisbon?")
+                .system("You are a helpful AI assistant that answers questions about the weather.")
+                .call()
+                .content();
+    }
+
+    private String search(ChatClient chatClient) {
+        String content = chatClient.prompt("What is the score of Jane Doe?")
+                .advisors(a -> a.param(ChatMemory.CONVERSATION_ID, "benchmark"))
+                .call()
+                .content();
+        // Keeps the memory window from growing across invocations
+        chatMemory.clear("benchmark");
+        return content;
+    }
+}
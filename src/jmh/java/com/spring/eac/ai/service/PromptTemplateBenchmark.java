@@ -0,0 +1,89 @@
+package com.spring.eac.ai.service;
+
+import com.spring.eac.ai.model.GetCapitalResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.chat.prompt.PromptTemplate;
+import org.springframework.ai.converter.BeanOutputConverter;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of rendering the {@code templates/*.st} prompts of {@link OpenAIChatService}. The {@code *FromResource}
+ * benchmarks build the {@link PromptTemplate} from the classpath resource on every call, as the service does per
+ * request; the others render a template read once, which is the lower bound a cached template could reach.
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec -Djmh.includes=PromptTemplateBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PromptTemplateBenchmark {
+
+    private static final int DOCUMENTS = 4;
+
+    private Resource capitalPrompt;
+    private Resource ragPrompt;
+    private Resource systemMessage;
+    private String capitalPromptText;
+    private String ragPromptText;
+    private String format;
+    private String documents;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        capitalPrompt = new ClassPathResource("templates/get-capital-prompt.st");
+        ragPrompt = new ClassPathResource("templates/rag-prompt-template.st");
+        systemMessage = new ClassPathResource("templates/system-message.st");
+        capitalPromptText = capitalPrompt.getContentAsString(StandardCharsets.UTF_8);
+        ragPromptText = ragPrompt.getContentAsString(StandardCharsets.UTF_8);
+        format = new BeanOutputConverter<>(GetCapitalResponse.class).getFormat();
+
+        // Roughly the size of the chunks the RAG prompt is filled with
+        StringJoiner joiner = new StringJoiner("\n");
+        for (int i = 0; i < DOCUMENTS; i++) {
+            joiner.add(("The Sportsman 212 Open weighs 3,458 lbs as tested and is rated for a 200 hp outboard. "
+                    + "Towing it takes a truck rated for at least 5,000 lbs. ").repeat(20));
+        }
+        documents = joiner.toString();
+    }
+
+    @Benchmark
+    public Prompt capitalPromptFromResource() {
+        return new PromptTemplate(capitalPrompt).create(Map.of("stateOrCountry", "Portugal", "format", format));
+    }
+
+    @Benchmark
+    public Prompt capitalPrompt() {
+        return new PromptTemplate(capitalPromptText).create(Map.of("stateOrCountry", "Portugal", "format", format));
+    }
+
+    @Benchmark
+    public Prompt ragPromptFromResource() {
+        return new PromptTemplate(ragPrompt).create(Map.of("input", "Which truck can tow the boat?", "documents", documents));
+    }
+
+    @Benchmark
+    public Prompt ragPrompt() {
+        return new PromptTemplate(ragPromptText).create(Map.of("input", "Which truck can tow the boat?", "documents", documents));
+    }
+
+    @Benchmark
+    public Prompt systemMessageFromResource() {
+        return new PromptTemplate(systemMessage).create();
+    }
+}
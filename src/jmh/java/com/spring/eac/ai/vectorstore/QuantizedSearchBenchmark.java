@@ -0,0 +1,115 @@
+package com.spring.eac.ai.vectorstore;
+
+import com.spring.eac.ai.benchmark.DeterministicEmbeddingModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Full-precision vs. int8-quantized scan of a {@link MappedVectorStore} at {@code topK=4}, as used by
+ * {@code OpenAIChatService.getAnswer}. Besides the search latency, the setup prints the bytes scanned per row and
+ * recall@4 of the quantized store against the exact one.
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec -Djmh.includes=QuantizedSearchBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QuantizedSearchBenchmark {
+
+    private static final int TOP_K = 4;
+    private static final int QUERIES = 200;
+
+    @Param({"384", "1536"})
+    int dimensions;
+
+    @Param({"20000"})
+    int rows;
+
+    @Param({"4"})
+    int oversampling;
+
+    private Path directory;
+    private MappedVectorStore exact;
+    private MappedVectorStore quantized;
+    private SearchRequest[] requests;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("quantized-benchmark");
+        DeterministicEmbeddingModel embeddingModel = new DeterministicEmbeddingModel(dimensions, 64);
+
+        exact = MappedVectorStore.builder(embeddingModel).path(directory.resolve("store")).build();
+        List<Document> documents = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            documents.add(new Document("doc-" + i, "document " + i, Map.of()));
+        }
+        exact.add(documents);
+        exact.save();
+        quantized = MappedVectorStore.builder(embeddingModel)
+                .path(directory.resolve("store"))
+                .quantization(oversampling)
+                .build();
+        quantized.load();
+
+        requests = new SearchRequest[QUERIES];
+        int hits = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            requests[i] = SearchRequest.builder().query("question " + i).topK(TOP_K).similarityThresholdAll().build();
+            List<String> expected = exact.similaritySearch(requests[i]).stream().map(Document::getId).toList();
+            hits += (int) quantized.similaritySearch(requests[i]).stream()
+                    .map(Document::getId)
+                    .filter(expected::contains)
+                    .count();
+        }
+
+        long vectorBytes = Files.size(directory.resolve("store.vec"));
+        long quantizedBytes = Files.size(directory.resolve("store.q8"));
+        System.out.printf("%n[dimensions=%d] bytes per row: float %d, int8 %d (%.2fx smaller); recall@%d %.4f%n",
+                dimensions, vectorBytes / rows, quantizedBytes / rows, vectorBytes / (double) quantizedBytes, TOP_K,
+                hits / (double) (QUERIES * TOP_K));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public List<Document> fullPrecision() {
+        return exact.similaritySearch(nextRequest());
+    }
+
+    @Benchmark
+    public List<Document> quantized() {
+        return quantized.similaritySearch(nextRequest());
+    }
+
+    private SearchRequest nextRequest() {
+        next = (next + 1) % QUERIES;
+        return requests[next];
+    }
+}
@@ -0,0 +1,99 @@
+package com.spring.eac.ai.vectorstore;
+
+import com.spring.eac.ai.benchmark.DeterministicEmbeddingModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Latency of one exact scan of a {@link MappedVectorStore} split into {@code threads} shards, each scored on its own
+ * worker of a dedicated pool, from 1 (the sequential scan) to 32 threads. Compare the scores across {@code threads}
+ * for the speedup; it flattens once the shards outnumber the physical cores or memory bandwidth runs out.
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec -Djmh.includes=ShardedSearchBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ShardedSearchBenchmark {
+
+    private static final int TOP_K = 4;
+    private static final int QUERIES = 200;
+
+    @Param({"1", "2", "4", "8", "16", "32"})
+    int threads;
+
+    @Param({"384"})
+    int dimensions;
+
+    @Param({"100000"})
+    int rows;
+
+    private Path directory;
+    private ForkJoinPool pool;
+    private MappedVectorStore store;
+    private SearchRequest[] requests;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("sharded-benchmark");
+        DeterministicEmbeddingModel embeddingModel = new DeterministicEmbeddingModel(dimensions, 64);
+
+        MappedVectorStore writer = MappedVectorStore.builder(embeddingModel).path(directory.resolve("store")).build();
+        List<Document> documents = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            documents.add(new Document("doc-" + i, "document " + i, Map.of()));
+        }
+        writer.add(documents);
+        writer.save();
+
+        pool = new ForkJoinPool(threads);
+        store = MappedVectorStore.builder(embeddingModel)
+                .path(directory.resolve("store"))
+                .parallelSearch(threads, 1024)
+                .searchPool(pool)
+                .build();
+        store.load();
+
+        requests = new SearchRequest[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            requests[i] = SearchRequest.builder().query("question " + i).topK(TOP_K).similarityThresholdAll().build();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        pool.shutdown();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public List<Document> search() {
+        next = (next + 1) % QUERIES;
+        return store.similaritySearch(requests[next]);
+    }
+}
@@ -0,0 +1,69 @@
+package com.spring.eac.ai.vectorstore;
+
+import com.spring.eac.ai.benchmark.DeterministicEmbeddingModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of {@link SimpleVectorStore#similaritySearch(SearchRequest)}, Spring AI's in-memory store that the
+ * {@link MappedVectorStore} replaced, at several corpus sizes. The score includes embedding the query with the
+ * {@link DeterministicEmbeddingModel}, which is cheap next to the scan; compare with {@link ShardedSearchBenchmark}
+ * at one thread for the local store.
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec -Djmh.includes=SimpleVectorStoreSearchBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SimpleVectorStoreSearchBenchmark {
+
+    private static final int TOP_K = 4;
+    private static final int QUERIES = 200;
+
+    @Param({"1000", "10000", "50000"})
+    int rows;
+
+    @Param({"384"})
+    int dimensions;
+
+    private SimpleVectorStore store;
+    private SearchRequest[] requests;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = SimpleVectorStore.builder(new DeterministicEmbeddingModel(dimensions, 64)).build();
+        List<Document> documents = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            documents.add(new Document("doc-" + i, "document " + i, Map.of()));
+        }
+        store.add(documents);
+
+        requests = new SearchRequest[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            requests[i] = SearchRequest.builder().query("question " + i).topK(TOP_K).similarityThresholdAll().build();
+        }
+    }
+
+    @Benchmark
+    public List<Document> search() {
+        next = (next + 1) % QUERIES;
+        return store.similaritySearch(requests[next]);
+    }
+}
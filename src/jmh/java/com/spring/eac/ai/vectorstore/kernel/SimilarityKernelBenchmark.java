@@ -0,0 +1,73 @@
+package com.spring.eac.ai.vectorstore.kernel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scalar vs. Vector API cosine similarity at common embedding sizes (all-MiniLM, text-embedding-3-small/-large).
+ * <p>
+ * {@code cosinePrecomputedNorms} is what a store scan pays per row; {@code cosineRecomputedNorms} is the cost
+ * before norms were stored with the rows.
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec -Djmh.includes=SimilarityKernelBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SimilarityKernelBenchmark {
+
+    @Param({"384", "1536", "3072"})
+    int dimensions;
+
+    @Param({"scalar", "vector-api"})
+    String kernelName;
+
+    private SimilarityKernel kernel;
+    private float[] query;
+    private float[] row;
+    private float queryNorm;
+    private float rowNorm;
+
+    @Setup
+    public void setUp() {
+        kernel = switch (kernelName) {
+            case "scalar" -> new ScalarSimilarityKernel();
+            case "vector-api" -> new VectorApiSimilarityKernel();
+            default -> throw new IllegalArgumentException("Unknown kernel " + kernelName);
+        };
+        SplittableRandom random = new SplittableRandom(17);
+        query = new float[dimensions];
+        row = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            query[i] = (float) random.nextDouble(-1, 1);
+            row[i] = (float) random.nextDouble(-1, 1);
+        }
+        queryNorm = kernel.norm(query);
+        rowNorm = kernel.norm(row);
+    }
+
+    @Benchmark
+    public float dot() {
+        return kernel.dot(query, row);
+    }
+
+    @Benchmark
+    public double cosinePrecomputedNorms() {
+        return kernel.cosine(query, queryNorm, row, rowNorm);
+    }
+
+    @Benchmark
+    public double cosineRecomputedNorms() {
+        return kernel.cosine(query, kernel.norm(query), row, kernel.norm(row));
+    }
+}
@@ -0,0 +1,164 @@
+package com.spring.eac.ai.bootstrap;
+
+import com.spring.eac.ai.ingestion.CsvDocumentReader;
+import com.spring.eac.ai.ingestion.IngestionManifest;
+import com.spring.eac.ai.ingestion.IngestionPipeline;
+import com.spring.eac.ai.ingestion.IngestionResult;
+import com.spring.eac.ai.ingestion.IngestionTarget;
+import com.spring.eac.ai.property.ApplicationProperties;
+import com.spring.eac.ai.retrieval.Bm25Index;
+import com.spring.eac.ai.vectorstore.MappedVectorStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.reader.tika.TikaDocumentReader;
+import org.springframework.ai.transformer.splitter.TextSplitter;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads the local vector store and ingests {@code documentsToLoad} into it in the background, reporting progress to
+ * the {@link VectorStoreWarmup}. With a {@link WatchedDirectoryIngestion}, the watched files are loaded as well and
+ * later changes go through the same pipeline.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "sfg.aiapp", name = {"vector-store-local", "vector-store-enabled"}, havingValue = "true")
+public class LoadLocalVectorStore implements CommandLineRunner {
+
+    private final MappedVectorStore store;
+    private final EmbeddingModel embeddingModel;
+    private final ApplicationProperties applicationProperties;
+    private final Bm25Index bm25Index;
+    private final MeterRegistry meterRegistry;
+    private final VectorStoreWarmup vectorStoreWarmup;
+    private final ObjectProvider<WatchedDirectoryIngestion> watchedDirectoryIngestion;
+
+    public LoadLocalVectorStore(MappedVectorStore store, EmbeddingModel embeddingModel,
+                                ApplicationProperties applicationProperties, ObjectProvider<Bm25Index> bm25Index,
+                                MeterRegistry meterRegistry, VectorStoreWarmup vectorStoreWarmup,
+                                ObjectProvider<WatchedDirectoryIngestion> watchedDirectoryIngestion) {
+        this.store = store;
+        this.embeddingModel = embeddingModel;
+        this.applicationProperties = applicationProperties;
+        // Only built for hybrid retrieval
+        this.bm25Index = bm25Index.getIfAvailable();
+        this.meterRegistry = meterRegistry;
+        this.vectorStoreWarmup = vectorStoreWarmup;
+        this.watchedDirectoryIngestion = watchedDirectoryIngestion;
+        // The web server starts before runners do, so the store is not ready from the first request on
+        vectorStoreWarmup.expect();
+    }
+
+    @Override
+    public void run(String... args) {
+        vectorStoreWarmup.start(warmup -> {
+            try {
+                load(warmup);
+            } catch (Exception | Error e) {
+                // Changes of the watched directory wait for a pipeline this load will never hand over
+                watchedDirectoryIngestion.ifAvailable(watched -> watched.failed(e));
+                throw e;
+            }
+        });
+    }
+
+    void load(VectorStoreWarmup warmup) throws Exception {
+        warmup.phase(VectorStoreWarmup.Phase.LOADING);
+        File legacyJsonFile = new File(applicationProperties.getVectorStorePath());
+        WatchedDirectoryIngestion watched = watchedDirectoryIngestion.getIfAvailable();
+        List<Resource> documentsToLoad = new ArrayList<>(applicationProperties.getDocumentsToLoad());
+        if (watched != null) {
+            documentsToLoad.addAll(watched.start());
+        }
+        ApplicationProperties.Ingestion ingestion = applicationProperties.getIngestion();
+        IngestionManifest manifest = IngestionManifest.load(Paths.get(ingestion.getManifestPath()));
+        if (manifest.exists() && bm25Index != null && !bm25Index.exists()) {
+            // Chunks ingested before the lexical index existed are missing from it
+            log.warn("No lexical index next to the ingestion manifest, reading documentsToLoad again");
+            manifest = IngestionManifest.empty(Paths.get(ingestion.getManifestPath()));
+        }
+
+        if (!documentsToLoad.isEmpty() && !manifest.exists() && (store.exists() || legacyJsonFile.exists())) {
+            // Rows written before the manifest have random ids, so they are replaced once instead of being diffed
+            log.warn("No ingestion manifest at {}, rebuilding the vector store from documentsToLoad", ingestion.getManifestPath());
+        } else if (store.exists()) {
+            store.load();
+        } else if (legacyJsonFile.exists()) {
+            log.info("Migrating JSON vector store {} to the binary format", legacyJsonFile);
+            store.importJson(legacyJsonFile);
+            store.save();
+        }
+
+        if (documentsToLoad.isEmpty() && watched == null) {
+            return;
+        }
+
+        log.debug("Loading documents into vector store");
+        warmup.phase(VectorStoreWarmup.Phase.INGESTING);
+        // TextSplitter textSplitter = new TokenTextSplitter();
+        TextSplitter textSplitter = TokenTextSplitter.builder()
+                .withChunkSize(7000)
+                .withMinChunkSizeChars(500)
+                .withMinChunkLengthToEmbed(5)
+                .withMaxNumChunks(10000)
+                .withKeepSeparator(true)
+                .build();
+
+        ApplicationProperties.Csv csv = ingestion.getCsv();
+        IngestionTarget target = IngestionTarget.of(store, embeddingModel);
+        if (bm25Index != null) {
+            target = IngestionTarget.indexing(target, bm25Index);
+        }
+        IngestionPipeline pipeline = IngestionPipeline.builder(target)
+                .documentReader(CsvDocumentReader.forCsvFiles(csv.getTextColumns(), csv.getMetadataColumns(),
+                        csv.getRowsPerDocument(), TikaDocumentReader::new))
+                .textSplitter(textSplitter)
+                .readConcurrency(ingestion.getReadConcurrency())
+                .embeddingConcurrency(ingestion.getEmbeddingConcurrency())
+                .queueCapacity(ingestion.getQueueCapacity())
+                .maxBatchTokens(ingestion.getMaxBatchTokens())
+                .manifest(manifest)
+                .meterRegistry(meterRegistry)
+                .build();
+        IngestionResult result = pipeline.ingest(documentsToLoad);
+
+        // The manifest must never describe chunks the saved store does not have
+        warmup.phase(VectorStoreWarmup.Phase.SAVING);
+        if (result.changed() || !store.exists()) {
+            store.save();
+        }
+        if (bm25Index != null && (result.changed() || !bm25Index.exists())) {
+            bm25Index.save();
+        }
+        manifest.save();
+
+        if (watched != null) {
+            IngestionManifest watchedManifest = manifest;
+            watched.ready(pipeline, update -> saveUpdate(update, watchedManifest));
+        }
+    }
+
+    private void saveUpdate(IngestionResult result, IngestionManifest manifest) {
+        if (!result.changed()) {
+            return;
+        }
+        // Logged writes are durable already; without the log the store is saved before the manifest refers to them
+        if (!applicationProperties.getWriteAheadLog().isEnabled()) {
+            store.save();
+        }
+        if (bm25Index != null) {
+            bm25Index.save();
+        }
+        manifest.save();
+    }
+}
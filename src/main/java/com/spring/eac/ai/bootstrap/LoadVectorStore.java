@@ -1,21 +1,34 @@
 package com.spring.eac.ai.bootstrap;
 
+import com.spring.eac.ai.ingestion.BulkVectorStoreTarget;
+import com.spring.eac.ai.ingestion.CsvDocumentReader;
+import com.spring.eac.ai.ingestion.IngestionManifest;
+import com.spring.eac.ai.ingestion.IngestionPipeline;
+import com.spring.eac.ai.ingestion.IngestionResult;
+import com.spring.eac.ai.ingestion.IngestionTarget;
 import com.spring.eac.ai.property.ApplicationProperties;
+import com.spring.eac.ai.retrieval.Bm25Index;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.milvus.client.MilvusServiceClient;
+import io.milvus.grpc.FlushResponse;
+import io.milvus.param.R;
+import io.milvus.param.collection.FlushParam;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.ai.document.Document;
 import org.springframework.ai.reader.tika.TikaDocumentReader;
 import org.springframework.ai.transformer.splitter.TextSplitter;
 import org.springframework.ai.transformer.splitter.TokenTextSplitter;
 import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.milvus.autoconfigure.MilvusVectorStoreProperties;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
 
-import java.time.Instant;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
 
 /**
  * Created by jt, Spring Framework Guru.
@@ -27,52 +40,135 @@ public class LoadVectorStore implements CommandLineRunner {
 
     private final VectorStore vectorStore;
     private final ApplicationProperties applicationProperties;
+    private final Bm25Index bm25Index;
+    private final MeterRegistry meterRegistry;
+    private final VectorStoreWarmup vectorStoreWarmup;
+    private final ObjectProvider<WatchedDirectoryIngestion> watchedDirectoryIngestion;
+    private final ObjectProvider<MilvusVectorStoreProperties> milvusProperties;
 
-    public LoadVectorStore(VectorStore vectorStore, ApplicationProperties applicationProperties) {
+    public LoadVectorStore(VectorStore vectorStore, ApplicationProperties applicationProperties,
+                           ObjectProvider<Bm25Index> bm25Index, MeterRegistry meterRegistry,
+                           VectorStoreWarmup vectorStoreWarmup,
+                           ObjectProvider<WatchedDirectoryIngestion> watchedDirectoryIngestion,
+                           ObjectProvider<MilvusVectorStoreProperties> milvusProperties) {
         this.vectorStore = vectorStore;
         this.applicationProperties = applicationProperties;
+        // Only built for hybrid retrieval
+        this.bm25Index = bm25Index.getIfAvailable();
+        this.meterRegistry = meterRegistry;
+        this.vectorStoreWarmup = vectorStoreWarmup;
+        this.watchedDirectoryIngestion = watchedDirectoryIngestion;
+        this.milvusProperties = milvusProperties;
+        vectorStoreWarmup.expect();
     }
 
     @Override
-    public void run(String... args) throws Exception {
-
-        if (vectorStore.similaritySearch("Sportsman").isEmpty()) {
-            log.info("Loading documents into vector store");
-
-            applicationProperties.getDocumentsToLoad().forEach(document -> {
-                log.info("Loading document: {}", document.getFilename());
+    public void run(String... args) {
+        // Ingests in the background, RAG answers follow sfg.aiapp.warmup until it is done
+        vectorStoreWarmup.start(warmup -> {
+            try {
+                load(warmup);
+            } catch (Exception | Error e) {
+                // Changes of the watched directory wait for a pipeline this load will never hand over
+                watchedDirectoryIngestion.ifAvailable(watched -> watched.failed(e));
+                throw e;
+            }
+        });
+    }
 
-                TikaDocumentReader documentReader = new TikaDocumentReader(document);
-                List<Document> documents = documentReader.get();
+    private void load(VectorStoreWarmup warmup) throws Exception {
 
-                TextSplitter textSplitter = TokenTextSplitter.builder()
-                        .withChunkSize(500)
-                        .withMinChunkSizeChars(100)
-                        .withMinChunkLengthToEmbed(5)
-                        .withMaxNumChunks(10000)
-                        .withKeepSeparator(true)
-                        .build();
+        log.info("Loading documents into vector store");
+        warmup.phase(VectorStoreWarmup.Phase.INGESTING);
 
-                // Split documents into chunks
-                List<Document> chunks = new ArrayList<>();
-                for (Document doc : documents) {
-                    List<Document> documentChunks = textSplitter.split(doc);
+        TextSplitter textSplitter = TokenTextSplitter.builder()
+                .withChunkSize(500)
+                .withMinChunkSizeChars(100)
+                .withMinChunkLengthToEmbed(5)
+                .withMaxNumChunks(10000)
+                .withKeepSeparator(true)
+                .build();
 
-                    // Add metadata to each chunk
-                    documentChunks.forEach(chunk -> {
-                        Map<String, Object> chunkMetadata = new HashMap<>(chunk.getMetadata());
-                        chunkMetadata.put("source_file", document.getFilename());
-                        chunkMetadata.put("ingestion_timestamp", Instant.now().toString());
-                        chunk.getMetadata().putAll(chunkMetadata);
-                    });
+        // Unchanged documents are skipped by content hash; without a manifest each source is replaced once by filter
+        ApplicationProperties.Ingestion ingestion = applicationProperties.getIngestion();
+        IngestionManifest manifest = IngestionManifest.load(Paths.get(ingestion.getManifestPath()));
+        if (manifest.exists() && bm25Index != null && !bm25Index.exists()) {
+            // Chunks ingested before the lexical index existed are missing from it
+            log.warn("No lexical index next to the ingestion manifest, reading documentsToLoad again");
+            manifest = IngestionManifest.empty(Paths.get(ingestion.getManifestPath()));
+        }
+        WatchedDirectoryIngestion watched = watchedDirectoryIngestion.getIfAvailable();
+        List<Resource> documentsToLoad = new ArrayList<>(applicationProperties.getDocumentsToLoad());
+        if (watched != null) {
+            documentsToLoad.addAll(watched.start());
+        }
+        ApplicationProperties.Csv csv = ingestion.getCsv();
+        ApplicationProperties.Bulk bulk = ingestion.getBulk();
+        MilvusVectorStoreProperties milvus = milvusProperties.getIfAvailable();
+        BulkVectorStoreTarget.Builder target = BulkVectorStoreTarget.builder(vectorStore)
+                .maxRows(bulk.getMaxRows())
+                .maxBytes(bulk.getMaxBytes().toBytes())
+                .maxInFlight(bulk.getMaxInFlight())
+                .maxAttempts(bulk.getMaxAttempts())
+                .retryBackoff(bulk.getRetryBackoff())
+                .meterRegistry(meterRegistry);
+        if (milvus != null) {
+            target.embeddingDimensions(milvus.getEmbeddingDimension())
+                    .onFlush(() -> flush(milvus));
+        }
+        IngestionTarget ingestionTarget = target.build();
+        if (bm25Index != null) {
+            ingestionTarget = IngestionTarget.indexing(ingestionTarget, bm25Index);
+        }
+        IngestionPipeline pipeline = IngestionPipeline.builder(ingestionTarget)
+                .documentReader(CsvDocumentReader.forCsvFiles(csv.getTextColumns(), csv.getMetadataColumns(),
+                        csv.getRowsPerDocument(), TikaDocumentReader::new))
+                .textSplitter(textSplitter)
+                .readConcurrency(ingestion.getReadConcurrency())
+                .embeddingConcurrency(ingestion.getEmbeddingConcurrency())
+                .queueCapacity(ingestion.getQueueCapacity())
+                .maxBatchTokens(ingestion.getMaxBatchTokens())
+                .manifest(manifest)
+                .meterRegistry(meterRegistry)
+                .build();
+        IngestionResult result = pipeline.ingest(documentsToLoad);
+        warmup.phase(VectorStoreWarmup.Phase.SAVING);
+        if (bm25Index != null && (result.changed() || !bm25Index.exists())) {
+            bm25Index.save();
+        }
+        manifest.save();
 
-                    chunks.addAll(documentChunks);
+        if (watched != null) {
+            IngestionManifest watchedManifest = manifest;
+            watched.ready(pipeline, update -> {
+                if (update.changed()) {
+                    if (bm25Index != null) {
+                        bm25Index.save();
+                    }
+                    watchedManifest.save();
                 }
-
-                vectorStore.add(chunks);
             });
         }
 
         log.info("Vector store loaded");
     }
-}
\ No newline at end of file
+
+    /**
+     * Seals the segments written by a load, so Milvus indexes them once instead of as they grow.
+     */
+    private void flush(MilvusVectorStoreProperties milvus) {
+        Optional<MilvusServiceClient> client = vectorStore.getNativeClient();
+        if (client.isEmpty()) {
+            return;
+        }
+        R<FlushResponse> response = client.get().flush(FlushParam.newBuilder()
+                .withDatabaseName(milvus.getDatabaseName())
+                .addCollectionName(milvus.getCollectionName())
+                .build());
+        if (response.getStatus() != R.Status.Success.getCode()) {
+            throw new IllegalStateException("Milvus flush of " + milvus.getCollectionName() + " failed: "
+                    + response.getMessage());
+        }
+        log.info("Flushed Milvus collection {}", milvus.getCollectionName());
+    }
+}
@@ -0,0 +1,134 @@
+package com.spring.eac.ai.bootstrap;
+
+import com.spring.eac.ai.property.ApplicationProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tracks the background loading of the vector store, so the web server accepts traffic before the store is warm.
+ * <p>
+ * A loader {@link #expect() announces} itself while the context starts, before any request can arrive, and later
+ * {@link #start(Loader) runs} on a virtual thread, reporting its {@link Phase}. Endpoints that do not need the store
+ * are served all along; RAG answers check {@link #isReady()}. As the {@code vectorStoreWarmup} health indicator it
+ * reports the phase and the ingestion progress, and is {@code OUT_OF_SERVICE} until ready when
+ * {@code sfg.aiapp.warmup.gate-readiness} is set.
+ */
+@Slf4j
+@Component
+public class VectorStoreWarmup implements HealthIndicator {
+
+    private final ApplicationProperties.Warmup warmup;
+    private final MeterRegistry meterRegistry;
+    private volatile Phase phase = Phase.READY;
+    private volatile Instant startedAt;
+    private volatile Duration took;
+    private volatile Throwable failure;
+
+    public VectorStoreWarmup(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this.warmup = applicationProperties.getWarmup();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Marks the store as not ready until a loader passed to {@link #start(Loader)} completes.
+     */
+    public void expect() {
+        phase = Phase.PENDING;
+    }
+
+    /**
+     * Runs {@code loader} on a virtual thread and returns immediately; the store is ready once it returns.
+     */
+    public Thread start(Loader loader) {
+        expect();
+        startedAt = Instant.now();
+        return Thread.ofVirtual().name("vector-store-warmup").start(() -> {
+            try {
+                loader.load(this);
+                took = Duration.between(startedAt, Instant.now());
+                phase = Phase.READY;
+                log.info("Vector store ready after {} ms", took.toMillis());
+            } catch (Throwable e) {
+                failure = e;
+                phase = Phase.FAILED;
+                log.error("Vector store warmup failed, RAG answers stay unavailable", e);
+            }
+        });
+    }
+
+    /**
+     * Reports the current step of the loader.
+     */
+    public void phase(Phase phase) {
+        log.debug("Vector store warmup: {}", phase);
+        this.phase = phase;
+    }
+
+    public Phase phase() {
+        return phase;
+    }
+
+    public boolean isReady() {
+        return phase == Phase.READY;
+    }
+
+    @Override
+    public Health health() {
+        Phase current = phase;
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("phase", current);
+        if (startedAt != null) {
+            Duration elapsed = took != null ? took : Duration.between(startedAt, Instant.now());
+            details.put("elapsedMs", elapsed.toMillis());
+        }
+        details.put("documentsRead", count("ingestion.documents"));
+        details.put("chunksEmbedded", count("ingestion.chunks"));
+        details.put("chunksWritten", count("ingestion.chunks.written"));
+
+        Health.Builder health;
+        if (current == Phase.READY) {
+            health = Health.up();
+        } else if (current == Phase.FAILED) {
+            health = Health.down(failure);
+        } else {
+            health = warmup.isGateReadiness() ? Health.status(Status.OUT_OF_SERVICE) : Health.up();
+        }
+        return health.withDetails(details).build();
+    }
+
+    private long count(String name) {
+        Counter counter = meterRegistry.find(name).counter();
+        return counter == null ? 0 : (long) counter.count();
+    }
+
+    /**
+     * Step of the background load.
+     */
+    public enum Phase {
+        PENDING,
+        LOADING,
+        INGESTING,
+        SAVING,
+        READY,
+        FAILED
+    }
+
+    /**
+     * Loading work of a vector store, run once in the background.
+     */
+    @FunctionalInterface
+    public interface Loader {
+
+        void load(VectorStoreWarmup warmup) throws Exception;
+    }
+}
@@ -0,0 +1,109 @@
+package com.spring.eac.ai.bootstrap;
+
+import com.spring.eac.ai.ingestion.DirectoryWatcher;
+import com.spring.eac.ai.ingestion.IngestionPipeline;
+import com.spring.eac.ai.ingestion.IngestionResult;
+import com.spring.eac.ai.property.ApplicationProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the active vector store in sync with {@code sfg.aiapp.ingestion.watch.directory}, and publishes the
+ * progress as the {@code ingestion} actuator endpoint.
+ * <p>
+ * The vector store loaders {@link #start()} the watcher before their initial load, which includes the files already
+ * in the directory, and hand over their {@link IngestionPipeline} once it is done. Changes seen in between wait, so
+ * live updates never run concurrently with the initial load, and files are keyed by name like
+ * {@code documentsToLoad}. When the initial load {@link #failed(Throwable) fails}, changes fail right away instead of
+ * waiting for a pipeline that never comes, and the endpoint reports the failure.
+ */
+@Slf4j
+@Component
+@Endpoint(id = "ingestion")
+@ConditionalOnProperty(prefix = "sfg.aiapp.ingestion.watch", name = "enabled", havingValue = "true")
+public class WatchedDirectoryIngestion implements DisposableBean {
+
+    private final DirectoryWatcher watcher;
+    private final CompletableFuture<Updater> updater = new CompletableFuture<>();
+
+    public WatchedDirectoryIngestion(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        ApplicationProperties.Watch watch = applicationProperties.getIngestion().getWatch();
+        this.watcher = DirectoryWatcher.builder(Paths.get(watch.getDirectory()), this::update)
+                .debounce(watch.getDebounce())
+                .meterRegistry(meterRegistry)
+                .build();
+    }
+
+    /**
+     * Starts watching the directory.
+     *
+     * @return the files already in the directory, to be included in the initial load
+     */
+    public List<Resource> start() throws IOException {
+        watcher.start();
+        return watcher.files().stream().<Resource>map(FileSystemResource::new).toList();
+    }
+
+    /**
+     * Applies changes of the directory through {@code pipeline} from now on, calling {@code afterUpdate} after each
+     * batch so the caller can save the store, the lexical index and the manifest.
+     */
+    public void ready(IngestionPipeline pipeline, Consumer<IngestionResult> afterUpdate) {
+        updater.complete(new Updater(pipeline, afterUpdate));
+    }
+
+    /**
+     * Reports that the initial load failed, so no change is applied until the next startup loads the files again.
+     */
+    public void failed(Throwable cause) {
+        if (updater.completeExceptionally(cause)) {
+            log.warn("Initial load failed, changes of the watched directory are not ingested until restart");
+        }
+    }
+
+    @ReadOperation
+    public DirectoryWatcher.Stats ingestion() {
+        DirectoryWatcher.Stats stats = watcher.stats();
+        if (updater.isCompletedExceptionally() && stats.lastFailure() == null) {
+            return stats.withLastFailure("Initial load failed: " + updater.exceptionNow());
+        }
+        return stats;
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        watcher.close();
+    }
+
+    private void update(List<Path> changed, List<Path> deleted) throws Exception {
+        Updater current;
+        try {
+            current = updater.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Initial load failed, changes are ingested on the next startup", e.getCause());
+        }
+        List<Resource> resources = changed.stream().<Resource>map(FileSystemResource::new).toList();
+        List<String> sources = deleted.stream().map(file -> file.getFileName().toString()).toList();
+        log.info("Ingesting changes of watched directory: changed {}, deleted {}", resources, sources);
+        IngestionResult result = current.pipeline().update(resources, sources);
+        current.afterUpdate().accept(result);
+    }
+
+    private record Updater(IngestionPipeline pipeline, Consumer<IngestionResult> afterUpdate) {
+    }
+}
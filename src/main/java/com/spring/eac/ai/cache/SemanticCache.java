@@ -0,0 +1,345 @@
+package com.spring.eac.ai.cache;
+
+import com.spring.eac.ai.embedding.QueryEmbeddingCache;
+import com.spring.eac.ai.vectorstore.kernel.SimilarityKernel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.util.Assert;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cache of model responses looked up by the meaning of the question rather than its exact text, so paraphrases of an
+ * earlier question ("capital of France", "What's France's capital city?") skip the LLM call.
+ * <p>
+ * The question is embedded and compared by cosine similarity against the questions of the cached entries, a small
+ * flat index scanned with the {@link SimilarityKernel}; the most similar entry at or above the similarity threshold
+ * is returned. Entries only match within their partition, e.g. the retrieval mode of a RAG question, and when the
+ * match key of both questions is equal, e.g. the normalized entity of a capital question or the model numbers of a
+ * product question, which embeddings of short texts barely tell apart ("North Dakota", "South Dakota"). They expire
+ * after a time to live and, when a version supplier is given, as soon as the version changes, e.g. after the vector
+ * store answers are based on was written. The least recently used entries are evicted beyond the maximum size. Hits,
+ * misses, evictions, the size, the similarity of hits and the model latency saved by hits are published as
+ * {@code semantic.cache.*} meters tagged with the cache name.
+ * <p>
+ * An exact cache skips the embedding: the match key alone finds the entry in a hash lookup. It suits questions that
+ * are a bare key anyway, such as the state or country of a capital question, where only the same key may hit.
+ *
+ * @param <T> cached response type
+ */
+@Slf4j
+public class SemanticCache<T> {
+
+    private static final SimilarityKernel KERNEL = SimilarityKernel.detect();
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+(?:[-.][\\p{L}\\p{N}]+)*");
+
+    private final String name;
+    private final EmbeddingModel embeddingModel;
+    private final boolean enabled;
+    private final double similarityThreshold;
+    private final Duration timeToLive;
+    private final Function<String, String> matchKey;
+    private final boolean exact;
+    private final LongSupplier version;
+    private final Clock clock;
+    private final AtomicLong nextId = new AtomicLong();
+    private final Map<Object, Entry<T>> entries;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final DistributionSummary hitSimilarity;
+    private final Timer latencySaved;
+
+    private SemanticCache(Builder<T> builder) {
+        this.name = builder.name;
+        this.embeddingModel = builder.embeddingModel;
+        this.enabled = builder.enabled;
+        this.similarityThreshold = builder.similarityThreshold;
+        this.timeToLive = builder.timeToLive;
+        this.matchKey = builder.matchKey;
+        this.exact = builder.exact;
+        this.version = builder.version;
+        this.clock = builder.clock;
+        int maxEntries = builder.maxEntries;
+
+        MeterRegistry meterRegistry = builder.meterRegistry;
+        this.hits = meterRegistry.counter("semantic.cache.hits", "cache", name);
+        this.misses = meterRegistry.counter("semantic.cache.misses", "cache", name);
+        this.evictions = meterRegistry.counter("semantic.cache.evictions", "cache", name);
+        this.hitSimilarity = DistributionSummary.builder("semantic.cache.similarity")
+                .description("Similarity of the cached question to the asked one, for hits")
+                .tag("cache", name)
+                .register(meterRegistry);
+        this.latencySaved = Timer.builder("semantic.cache.latency.saved")
+                .description("Duration of the model call a hit replaced")
+                .tag("cache", name)
+                .register(meterRegistry);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Entry<T>> eldest) {
+                if (size() > maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        Gauge.builder("semantic.cache.size", this, SemanticCache::size)
+                .tag("cache", name)
+                .register(meterRegistry);
+    }
+
+    public static <T> Builder<T> builder(String name, EmbeddingModel embeddingModel) {
+        return new Builder<>(name, embeddingModel);
+    }
+
+    public T get(String question, Supplier<T> call) {
+        return get("", question, call);
+    }
+
+    /**
+     * The question after Unicode normalization, trimming, whitespace collapsing and lower-casing; as a match key,
+     * only the same question in another spelling hits.
+     */
+    public static String normalizedText(String question) {
+        return QueryEmbeddingCache.normalize(question);
+    }
+
+    /**
+     * The distinct words of the question that contain a digit, such as model numbers ("212", "f-150") and years,
+     * sorted; as a match key, questions about different products or periods never share an answer.
+     */
+    public static String identifiers(String question) {
+        Set<String> identifiers = new TreeSet<>();
+        Matcher matcher = WORD.matcher(normalizedText(question));
+        while (matcher.find()) {
+            String word = matcher.group();
+            if (word.chars().anyMatch(Character::isDigit)) {
+                identifiers.add(word);
+            }
+        }
+        return String.join(" ", identifiers);
+    }
+
+    /**
+     * The cached response to the question most similar to {@code question} within {@code partition}, or the result
+     * of {@code call}, which is cached unless it is {@code null}. Exceptions of {@code call} are not cached.
+     */
+    public T get(String partition, String question, Supplier<T> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        String key = matchKey.apply(question);
+        if (exact) {
+            return getExact(new ExactKey(partition, key), question, call);
+        }
+        float[] embedding = embeddingModel.embed(question);
+        float norm = KERNEL.norm(embedding);
+        // Read before calling: a write racing with the call makes the new entry stale instead of wrongly current
+        long currentVersion = version.getAsLong();
+        Instant now = clock.instant();
+
+        Entry<T> best = null;
+        double bestSimilarity = Double.NEGATIVE_INFINITY;
+        synchronized (entries) {
+            for (Iterator<Entry<T>> iterator = entries.values().iterator(); iterator.hasNext(); ) {
+                Entry<T> entry = iterator.next();
+                if (!entry.expiresAt().isAfter(now) || entry.version() != currentVersion) {
+                    iterator.remove();
+                    continue;
+                }
+                if (!entry.partition().equals(partition) || !entry.matchKey().equals(key)) {
+                    continue;
+                }
+                double similarity = KERNEL.cosine(embedding, norm, entry.embedding(), entry.norm());
+                if (similarity > bestSimilarity) {
+                    best = entry;
+                    bestSimilarity = similarity;
+                }
+            }
+            if (best != null && bestSimilarity >= similarityThreshold) {
+                // Refresh the recency of the hit for eviction
+                entries.get(best.id());
+            }
+        }
+        if (best != null && bestSimilarity >= similarityThreshold) {
+            return hit(best, question, bestSimilarity);
+        }
+        return miss(nextId.incrementAndGet(), partition, key, question, embedding, norm, currentVersion, now, call);
+    }
+
+    private T getExact(ExactKey key, String question, Supplier<T> call) {
+        long currentVersion = version.getAsLong();
+        Instant now = clock.instant();
+        Entry<T> entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && (!entry.expiresAt().isAfter(now) || entry.version() != currentVersion)) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+        if (entry != null) {
+            return hit(entry, question, 1);
+        }
+        return miss(key, key.partition(), key.matchKey(), question, null, 0, currentVersion, now, call);
+    }
+
+    private T hit(Entry<T> entry, String question, double similarity) {
+        hits.increment();
+        hitSimilarity.record(similarity);
+        latencySaved.record(entry.callNanos(), TimeUnit.NANOSECONDS);
+        log.debug("Semantic cache {} hit: '{}' matched '{}' ({})", name, question, entry.question(), similarity);
+        return entry.value();
+    }
+
+    private T miss(Object id, String partition, String key, String question, float[] embedding, float norm,
+                   long currentVersion, Instant now, Supplier<T> call) {
+        misses.increment();
+        long start = System.nanoTime();
+        T value = call.get();
+        long callNanos = System.nanoTime() - start;
+        if (value != null) {
+            synchronized (entries) {
+                entries.put(id, new Entry<>(id, partition, key, question, embedding, norm, value, currentVersion,
+                        now.plus(timeToLive), callNanos));
+            }
+        }
+        return value;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    private record Entry<T>(Object id, String partition, String matchKey, String question, float[] embedding, float norm,
+                            T value, long version, Instant expiresAt, long callNanos) {
+    }
+
+    private record ExactKey(String partition, String matchKey) {
+    }
+
+    public static final class Builder<T> {
+
+        private final String name;
+        private final EmbeddingModel embeddingModel;
+        private boolean enabled = true;
+        private double similarityThreshold = 0.95;
+        private Duration timeToLive = Duration.ofHours(1);
+        private int maxEntries = 1000;
+        private Function<String, String> matchKey = question -> "";
+        private boolean exact;
+        private LongSupplier version = () -> 0;
+        private Clock clock = Clock.systemUTC();
+        private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        private Builder(String name, EmbeddingModel embeddingModel) {
+            Assert.hasText(name, "name must not be empty");
+            Assert.notNull(embeddingModel, "embeddingModel must not be null");
+            this.name = name;
+            this.embeddingModel = embeddingModel;
+        }
+
+        /**
+         * When disabled, every call goes to the model and nothing is embedded.
+         */
+        public Builder<T> enabled(boolean enabled) {
+            this.enabled = enabled;
+            return this;
+        }
+
+        /**
+         * Lowest cosine similarity of a cached question to the asked one that counts as the same question.
+         */
+        public Builder<T> similarityThreshold(double similarityThreshold) {
+            Assert.isTrue(similarityThreshold > 0 && similarityThreshold <= 1, "similarityThreshold must be in (0, 1]");
+            this.similarityThreshold = similarityThreshold;
+            return this;
+        }
+
+        public Builder<T> timeToLive(Duration timeToLive) {
+            Assert.isTrue(timeToLive != null && timeToLive.isPositive(), "timeToLive must be positive");
+            this.timeToLive = timeToLive;
+            return this;
+        }
+
+        public Builder<T> maxEntries(int maxEntries) {
+            Assert.isTrue(maxEntries > 0, "maxEntries must be positive");
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        /**
+         * Part of the question that must be equal for a hit in addition to the similarity, such as
+         * {@link #normalizedText(String)} or {@link #identifiers(String)}.
+         */
+        public Builder<T> matchKey(Function<String, String> matchKey) {
+            Assert.notNull(matchKey, "matchKey must not be null");
+            this.matchKey = matchKey;
+            return this;
+        }
+
+        /**
+         * When exact, the question is not embedded and only an equal match key within the partition hits, looked up
+         * by hash; the similarity threshold does not apply.
+         */
+        public Builder<T> exact(boolean exact) {
+            this.exact = exact;
+            return this;
+        }
+
+        /**
+         * Version of the data responses depend on; entries cached under another version are never returned.
+         */
+        public Builder<T> version(LongSupplier version) {
+            Assert.notNull(version, "version must not be null");
+            this.version = version;
+            return this;
+        }
+
+        public Builder<T> clock(Clock clock) {
+            Assert.notNull(clock, "clock must not be null");
+            this.clock = clock;
+            return this;
+        }
+
+        public Builder<T> meterRegistry(MeterRegistry meterRegistry) {
+            Assert.notNull(meterRegistry, "meterRegistry must not be null");
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        public SemanticCache<T> build() {
+            return new SemanticCache<>(this);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.spring.eac.ai.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical calls: while a call for a key is in flight, further callers with the same key wait
+ * for it and share its result instead of making their own, so a burst of identical questions costs one model call.
+ * <p>
+ * The first caller, the leader, runs the call on its own thread; nothing is cached, the key is free again as soon as
+ * the call ends. An exception of the call is thrown to the leader and to every waiting caller. A waiting caller that
+ * is interrupted stops waiting with a {@link CancellationException} without affecting the call or the other callers.
+ * Upstream calls, the calls avoided and the calls in flight are published as {@code single.flight.*} meters tagged
+ * with the name.
+ *
+ * @param <T> result type
+ */
+@Slf4j
+public class SingleFlight<T> {
+
+    private final String name;
+    private final boolean enabled;
+    private final Map<String, CompletableFuture<T>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter calls;
+    private final Counter coalesced;
+
+    private SingleFlight(Builder<T> builder) {
+        this.name = builder.name;
+        this.enabled = builder.enabled;
+
+        MeterRegistry meterRegistry = builder.meterRegistry;
+        this.calls = meterRegistry.counter("single.flight.calls", "name", name);
+        this.coalesced = Counter.builder("single.flight.coalesced")
+                .description("Calls avoided by waiting for an identical call in flight")
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("single.flight.in.flight", inFlight, Map::size)
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    public static <T> Builder<T> builder(String name) {
+        return new Builder<>(name);
+    }
+
+    /**
+     * SHA-256 of {@code parts}, a compact key for long rendered prompts.
+     */
+    public static String key(String... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+                // Separates the parts, so ("ab", "c") and ("a", "bc") differ
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * The result of {@code call}, or of the identical call in flight for {@code key}.
+     */
+    public T execute(String key, Supplier<T> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        CompletableFuture<T> future = new CompletableFuture<>();
+        CompletableFuture<T> leader = inFlight.putIfAbsent(key, future);
+        if (leader != null) {
+            coalesced.increment();
+            log.debug("Single flight {}: waiting for the call in flight for {}", name, key);
+            return await(leader);
+        }
+
+        calls.increment();
+        try {
+            T value = call.get();
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private T await(CompletableFuture<T> leader) {
+        try {
+            return leader.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the call in flight");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public static final class Builder<T> {
+
+        private final String name;
+        private boolean enabled = true;
+        private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        private Builder(String name) {
+            Assert.hasText(name, "name must not be empty");
+            this.name = name;
+        }
+
+        /**
+         * When disabled, every caller makes its own call.
+         */
+        public Builder<T> enabled(boolean enabled) {
+            this.enabled = enabled;
+            return this;
+        }
+
+        public Builder<T> meterRegistry(MeterRegistry meterRegistry) {
+            Assert.notNull(meterRegistry, "meterRegistry must not be null");
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        public SingleFlight<T> build() {
+            return new SingleFlight<>(this);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.spring.eac.ai.config;
+
+import com.spring.eac.ai.embedding.CachingEmbeddingModel;
+import com.spring.eac.ai.embedding.QueryEmbeddingCache;
+import com.spring.eac.ai.property.ApplicationProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.util.StringUtils;
+
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Puts the embedding caches in front of the configured embedding model, whichever provider
+ * {@code spring.ai.model.embedding} selects: the in-memory {@link QueryEmbeddingCache} for similarity search queries,
+ * then the on-disk {@link CachingEmbeddingModel}. The outermost layer is the primary {@link EmbeddingModel}, so the
+ * local store, the Milvus store and query embedding all go through it.
+ */
+@Configuration
+public class EmbeddingCacheConfig {
+
+    @Bean
+    @Primary
+    public EmbeddingModel primaryEmbeddingModel(ObjectProvider<EmbeddingModel> embeddingModels,
+                                                ApplicationProperties applicationProperties,
+                                                Environment environment,
+                                                MeterRegistry meterRegistry) {
+        EmbeddingModel embeddingModel = configured(embeddingModels);
+
+        ApplicationProperties.EmbeddingCache embeddingCache = applicationProperties.getEmbeddingCache();
+        if (embeddingCache.isEnabled()) {
+            embeddingModel = CachingEmbeddingModel.builder(embeddingModel)
+                    .path(Paths.get(embeddingCache.getPath()))
+                    .defaultModel(modelName(environment, embeddingModel))
+                    .maxEntries(embeddingCache.getMaxEntries())
+                    .meterRegistry(meterRegistry)
+                    .build();
+        }
+
+        ApplicationProperties.QueryEmbeddingCache queryEmbeddingCache = applicationProperties.getQueryEmbeddingCache();
+        if (!queryEmbeddingCache.isEnabled()) {
+            return embeddingModel;
+        }
+        return QueryEmbeddingCache.builder(embeddingModel)
+                .maxEntries(queryEmbeddingCache.getMaxEntries())
+                .timeToLive(queryEmbeddingCache.getTimeToLive())
+                .meterRegistry(meterRegistry)
+                .build();
+    }
+
+    /**
+     * The provider's embedding model. The provider bean and aliases of it, such as the ones of the test
+     * configuration, are the same instance; this bean is not a candidate of its own provider.
+     */
+    static EmbeddingModel configured(ObjectProvider<EmbeddingModel> embeddingModels) {
+        Set<EmbeddingModel> candidates = Collections.newSetFromMap(new IdentityHashMap<>());
+        embeddingModels.orderedStream().forEach(candidates::add);
+        if (candidates.size() != 1) {
+            throw new IllegalStateException("Expected one configured EmbeddingModel to cache, found "
+                    + candidates.size() + ": " + List.copyOf(candidates));
+        }
+        return candidates.iterator().next();
+    }
+
+    /**
+     * Model configured for the selected provider, {@code spring.ai.<provider>.embedding.options.model}, part of every
+     * cache key so switching models never returns embeddings of another one; the class name when the provider's
+     * default model is used.
+     */
+    static String modelName(Environment environment, EmbeddingModel embeddingModel) {
+        String provider = environment.getProperty("spring.ai.model.embedding", "openai");
+        String model = environment.getProperty("spring.ai." + provider + ".embedding.options.model");
+        return StringUtils.hasText(model) ? model : embeddingModel.getClass().getName();
+    }
+}
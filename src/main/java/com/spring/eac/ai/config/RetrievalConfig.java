@@ -0,0 +1,78 @@
+package com.spring.eac.ai.config;
+
+import com.knuddels.jtokkit.api.EncodingType;
+import com.spring.eac.ai.property.ApplicationProperties;
+import com.spring.eac.ai.retrieval.Bm25Index;
+import com.spring.eac.ai.retrieval.ContextPacker;
+import com.spring.eac.ai.retrieval.DocumentLookup;
+import com.spring.eac.ai.retrieval.MilvusDocumentLookup;
+import com.spring.eac.ai.vectorstore.CachingVectorStore;
+import com.spring.eac.ai.vectorstore.MappedVectorStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.milvus.client.MilvusServiceClient;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.milvus.MilvusVectorStore;
+import org.springframework.ai.vectorstore.milvus.autoconfigure.MilvusVectorStoreProperties;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Paths;
+import java.util.Optional;
+
+@Configuration
+public class RetrievalConfig {
+
+    /**
+     * BM25 index of the ingested chunks, filled by the same ingestion runs as the vector store. Only built for hybrid
+     * retrieval; its results are read from the vector store by id.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "sfg.aiapp.retrieval", name = "mode", havingValue = "hybrid")
+    public Bm25Index bm25Index(ApplicationProperties applicationProperties, VectorStore vectorStore,
+                               ObjectProvider<MilvusVectorStoreProperties> milvusProperties) {
+        Bm25Index bm25Index = new Bm25Index(Paths.get(applicationProperties.getRetrieval().getLexicalIndexPath()),
+                documentLookup(vectorStore, milvusProperties.getIfAvailable()));
+        if (bm25Index.exists()) {
+            bm25Index.load();
+        }
+        return bm25Index;
+    }
+
+    private static DocumentLookup documentLookup(VectorStore vectorStore, MilvusVectorStoreProperties milvus) {
+        VectorStore store = vectorStore instanceof CachingVectorStore caching ? caching.getDelegate() : vectorStore;
+        if (store instanceof MappedVectorStore mapped) {
+            return mapped::documents;
+        }
+        Optional<MilvusServiceClient> client = store instanceof MilvusVectorStore ? store.getNativeClient() : Optional.empty();
+        if (client.isPresent() && milvus != null) {
+            return new MilvusDocumentLookup(client.get(), milvus);
+        }
+        throw new IllegalStateException("Hybrid retrieval needs the local vector store or Milvus, not "
+                + store.getName());
+    }
+
+    /**
+     * Token budget of the RAG prompt documents, counted with the tokenizer of the configured chat model, whichever
+     * provider {@code spring.ai.model.chat} selects; models without a known encoding are counted with
+     * {@code cl100k_base}.
+     */
+    @Bean
+    public ContextPacker contextPacker(ApplicationProperties applicationProperties, ChatModel chatModel,
+                                       MeterRegistry meterRegistry) {
+        ApplicationProperties.ContextPacking contextPacking = applicationProperties.getRetrieval().getContextPacking();
+        ChatOptions options = chatModel.getDefaultOptions();
+        EncodingType encoding = contextPacking.getEncoding() != null
+                ? contextPacking.getEncoding()
+                : ContextPacker.encodingFor(options == null ? null : options.getModel());
+        return ContextPacker.builder()
+                .tokenCountEstimator(new JTokkitTokenCountEstimator(encoding))
+                .maxTokens(contextPacking.isEnabled() ? contextPacking.getMaxTokens() : Integer.MAX_VALUE)
+                .meterRegistry(meterRegistry)
+                .build();
+    }
+}
@@ -0,0 +1,36 @@
+package com.spring.eac.ai.config;
+
+import com.spring.eac.ai.property.ApplicationProperties;
+import com.spring.eac.ai.vectorstore.CachingVectorStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.List;
+
+/**
+ * Puts the {@link CachingVectorStore} in front of whichever vector store is configured, the local store or Milvus,
+ * as the primary {@link VectorStore}. Retrieval and the Milvus loader go through it; the local loader writes to the
+ * store directly and invalidates entries through the store version.
+ */
+@Configuration
+public class SearchCacheConfig {
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(prefix = "sfg.aiapp.search-cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public CachingVectorStore cachingVectorStore(List<VectorStore> vectorStores, ApplicationProperties applicationProperties,
+                                                 MeterRegistry meterRegistry) {
+        // The list holds every vector store but this one
+        if (vectorStores.size() != 1) {
+            throw new IllegalStateException("Expected one vector store to cache but found " + vectorStores.size());
+        }
+        return CachingVectorStore.builder(vectorStores.get(0))
+                .maxEntries(applicationProperties.getSearchCache().getMaxEntries())
+                .meterRegistry(meterRegistry)
+                .build();
+    }
+}
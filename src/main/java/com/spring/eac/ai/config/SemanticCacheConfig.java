@@ -0,0 +1,77 @@
+package com.spring.eac.ai.config;
+
+import com.spring.eac.ai.cache.SemanticCache;
+import com.spring.eac.ai.model.Answer;
+import com.spring.eac.ai.model.CapitalWithInfo;
+import com.spring.eac.ai.model.GetCapitalResponse;
+import com.spring.eac.ai.property.ApplicationProperties;
+import com.spring.eac.ai.vectorstore.CachingVectorStore;
+import com.spring.eac.ai.vectorstore.MappedVectorStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Semantic response caches of {@link com.spring.eac.ai.service.OpenAIChatService}, one per endpoint. Questions are
+ * embedded with the primary {@link EmbeddingModel}, so a RAG question is embedded once for the cache and the search;
+ * the capital caches match the normalized state or country exactly and embed nothing.
+ */
+@Configuration
+public class SemanticCacheConfig {
+
+    @Bean
+    public SemanticCache<Answer> answerCache(EmbeddingModel embeddingModel, VectorStore vectorStore,
+                                             ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        // Answers are based on the retrieved documents; Milvus without the search cache has no version, only the TTL
+        LongSupplier version = vectorStore instanceof CachingVectorStore caching ? caching::version
+                : vectorStore instanceof MappedVectorStore mapped ? mapped::version
+                : () -> 0;
+        ApplicationProperties.SemanticCache semanticCache = applicationProperties.getSemanticCache();
+        return endpoint(SemanticCache.<Answer>builder("answer", embeddingModel), semanticCache.isEnabled(),
+                semanticCache.getAnswer(), meterRegistry)
+                // "Sportsman 212" and "Sportsman 232" questions are near-identical embeddings with different answers
+                .matchKey(SemanticCache::identifiers)
+                .version(version)
+                .build();
+    }
+
+    @Bean
+    public SemanticCache<GetCapitalResponse> capitalCache(EmbeddingModel embeddingModel,
+                                                          ApplicationProperties applicationProperties,
+                                                          MeterRegistry meterRegistry) {
+        ApplicationProperties.SemanticCache semanticCache = applicationProperties.getSemanticCache();
+        return endpoint(SemanticCache.<GetCapitalResponse>builder("capital", embeddingModel), semanticCache.isEnabled(),
+                semanticCache.getCapital(), meterRegistry)
+                // The question is the bare state or country: only the same entity may hit, "South Dakota" never
+                // returns the capital of "North Dakota", so embedding it would buy nothing
+                .matchKey(SemanticCache::normalizedText)
+                .exact(true)
+                .build();
+    }
+
+    @Bean
+    public SemanticCache<CapitalWithInfo> capitalWithInfoCache(EmbeddingModel embeddingModel,
+                                                               ApplicationProperties applicationProperties,
+                                                               MeterRegistry meterRegistry) {
+        ApplicationProperties.SemanticCache semanticCache = applicationProperties.getSemanticCache();
+        return endpoint(SemanticCache.<CapitalWithInfo>builder("capital-with-info", embeddingModel),
+                semanticCache.isEnabled(), semanticCache.getCapitalWithInfo(), meterRegistry)
+                .matchKey(SemanticCache::normalizedText)
+                .exact(true)
+                .build();
+    }
+
+    private static <T> SemanticCache.Builder<T> endpoint(SemanticCache.Builder<T> builder, boolean enabled,
+                                                         ApplicationProperties.SemanticCacheEndpoint endpoint,
+                                                         MeterRegistry meterRegistry) {
+        return builder.enabled(enabled)
+                .similarityThreshold(endpoint.getSimilarityThreshold())
+                .timeToLive(endpoint.getTimeToLive())
+                .maxEntries(endpoint.getMaxEntries())
+                .meterRegistry(meterRegistry);
+    }
+}
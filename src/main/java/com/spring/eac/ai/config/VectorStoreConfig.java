@@ -1,12 +1,10 @@
 package com.spring.eac.ai.config;
 
 import com.spring.eac.ai.property.ApplicationProperties;
+import com.spring.eac.ai.vectorstore.MappedVectorStore;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.embedding.EmbeddingModel;
-import org.springframework.ai.reader.tika.TikaDocumentReader;
-import org.springframework.ai.transformer.splitter.TextSplitter;
-import org.springframework.ai.transformer.splitter.TokenTextSplitter;
 import org.springframework.ai.vectorstore.SearchRequest;
 import org.springframework.ai.vectorstore.SimpleVectorStore;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -20,6 +18,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Created by jt, Spring Framework Guru.
@@ -31,8 +30,23 @@ public class VectorStoreConfig {
 
     @Bean
     @ConditionalOnProperty(prefix = "sfg.aiapp", name = "vector-store-enabled", havingValue = "true")
-    public SimpleVectorStore simpleVectorStore(EmbeddingModel embeddingModel, ApplicationProperties applicationProperties) {
-        return getSimpleVectorStore(embeddingModel, applicationProperties);
+    public MappedVectorStore localVectorStore(EmbeddingModel embeddingModel, ApplicationProperties applicationProperties,
+                                              ForkJoinPool vectorSearchPool) {
+        // Loaded and filled in the background by LoadLocalVectorStore
+        return getLocalVectorStore(embeddingModel, applicationProperties, vectorSearchPool);
+    }
+
+    /**
+     * Pool scoring the shards of local store scans, kept apart from the common pool used by parallel streams.
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(prefix = "sfg.aiapp", name = "vector-store-enabled", havingValue = "true")
+    public ForkJoinPool vectorSearchPool(ApplicationProperties applicationProperties) {
+        return new ForkJoinPool(searchShards(applicationProperties.getParallelSearch()));
+    }
+
+    private static int searchShards(ApplicationProperties.ParallelSearch parallelSearch) {
+        return parallelSearch.getShards() > 0 ? parallelSearch.getShards() : Runtime.getRuntime().availableProcessors();
     }
 
     @Bean
@@ -41,12 +55,39 @@ public class VectorStoreConfig {
         return mockVectorStore(embeddingModel);
     }
 
-    private static SimpleVectorStore getSimpleVectorStore(EmbeddingModel embeddingModel, ApplicationProperties applicationProperties) {
-        SimpleVectorStore store = SimpleVectorStore.builder(embeddingModel).build();
-
+    private static MappedVectorStore getLocalVectorStore(EmbeddingModel embeddingModel, ApplicationProperties applicationProperties,
+                                                         ForkJoinPool vectorSearchPool) {
         // Get the vector store path
         String vectorStorePath = applicationProperties.getVectorStorePath();
 
+        MappedVectorStore.Builder builder = MappedVectorStore.builder(embeddingModel)
+                .path(Paths.get(vectorStorePath));
+
+        ApplicationProperties.Hnsw hnsw = applicationProperties.getHnsw();
+        if (hnsw.isEnabled()) {
+            builder.hnsw(hnsw.getM(), hnsw.getEfConstruction(), hnsw.getEf());
+        }
+
+        ApplicationProperties.Quantization quantization = applicationProperties.getQuantization();
+        if (quantization.isEnabled()) {
+            builder.quantization(quantization.getOversampling());
+        }
+
+        ApplicationProperties.MetadataIndex metadataIndex = applicationProperties.getMetadataIndex();
+        builder.metadataIndex(metadataIndex.getKeys())
+                .preFilterSelectivity(metadataIndex.getPreFilterSelectivity());
+
+        ApplicationProperties.WriteAheadLog writeAheadLog = applicationProperties.getWriteAheadLog();
+        if (writeAheadLog.isEnabled()) {
+            builder.writeAheadLog(writeAheadLog.getSnapshotInterval());
+        }
+
+        ApplicationProperties.ParallelSearch parallelSearch = applicationProperties.getParallelSearch();
+        builder.parallelSearch(searchShards(parallelSearch), parallelSearch.getMinShardRows())
+                .searchPool(vectorSearchPool);
+
+        MappedVectorStore store = builder.build();
+
         // Create parent directories if they don't exist
         try {
             Path directory = Paths.get(vectorStorePath).getParent();
@@ -59,38 +100,6 @@ public class VectorStoreConfig {
             throw new RuntimeException("Failed to create directory for vector store", e);
         }
 
-        File vectorStoreFile = new File(vectorStorePath);
-
-        if (vectorStoreFile.exists()) {
-            store.load(vectorStoreFile);
-        } else {
-            log.debug("Loading documents into vector store");
-            applicationProperties.getDocumentsToLoad().forEach(document -> {
-                log.debug("Loading document: " + document.getFilename());
-                TikaDocumentReader documentReader = new TikaDocumentReader(document);
-                List<Document> docs = documentReader.get();
-                // TextSplitter textSplitter = new TokenTextSplitter();
-                TextSplitter textSplitter = TokenTextSplitter.builder()
-                        .withChunkSize(7000)
-                        .withMinChunkSizeChars(500)
-                        .withMinChunkLengthToEmbed(5)
-                        .withMaxNumChunks(10000)
-                        .withKeepSeparator(true)
-                        .build();
-
-                List<Document> splitDocs = textSplitter.apply(docs);
-                store.add(splitDocs);
-
-//                TokenCountBatchingStrategy batchingStrategy = new TokenCountBatchingStrategy();
-//                batchingStrategy.batch(splitDocs).forEach(documents -> {
-//                    log.info("Storing {} documents in vector store:", documents.size());
-//                    store.add(documents);
-//                });
-            });
-
-            store.save(vectorStoreFile);
-        }
-
         return store;
     }
 
@@ -1,5 +1,6 @@
 package com.spring.eac.ai.controller;
 
+import com.spring.eac.ai.exception.GlobalExceptionHandler.ErrorResponse;
 import com.spring.eac.ai.model.*;
 import com.spring.eac.ai.service.OpenAIChatService;
 import lombok.RequiredArgsConstructor;
@@ -7,8 +8,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 
 import java.util.UUID;
 
@@ -18,6 +22,9 @@ import java.util.UUID;
 public class QuestionController {
 
     private static final Logger log = LoggerFactory.getLogger(QuestionController.class);
+    // Provider and internal exception messages stay in the log, like on the non-streaming endpoints
+    private static final ErrorResponse STREAM_FAILED = new ErrorResponse(
+            "The answer could not be completed, please try again.", "Stream Failed");
     private final OpenAIChatService openAIChatService;
 
     @PostMapping("/capitalWithInfo")
@@ -38,6 +45,18 @@ public class QuestionController {
         return answer;
     }
 
+    /**
+     * {@link #askQuestion(Question)} streamed as Server-Sent Events, one {@link Answer} fragment per event. Fragments
+     * are JSON so their leading whitespace survives the SSE framing; the next one is only requested once the previous
+     * one was written to the client. A failure ends the stream with an {@code error} event holding an
+     * {@link ErrorResponse}.
+     */
+    @PostMapping(path = "/ask/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<?>> askQuestionStream(@RequestBody Question question) {
+        log.info("Received question to stream: {}", question);
+        return toEvents(openAIChatService.streamAnswer(question));
+    }
+
     @PostMapping("/search")
     public ResponseEntity<Answer> search(
             @RequestBody Question question,
@@ -54,4 +73,32 @@ public class QuestionController {
 
         return new ResponseEntity<>(answer, headers, HttpStatus.OK);
     }
+
+    /**
+     * {@link #search(Question, String)} streamed as Server-Sent Events like {@link #askQuestionStream(Question)}.
+     */
+    @PostMapping(path = "/search/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<?>>> searchStream(
+            @RequestBody Question question,
+            @RequestParam(required = false) String userId) {
+
+        if (userId == null || userId.isEmpty()) {
+            userId = UUID.randomUUID().toString();
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("X-Conversation-Id", userId);
+
+        return new ResponseEntity<>(toEvents(openAIChatService.streamSearch(userId, question)), headers, HttpStatus.OK);
+    }
+
+    private static Flux<ServerSentEvent<?>> toEvents(Flux<String> fragments) {
+        return fragments
+                .<ServerSentEvent<?>>map(fragment -> ServerSentEvent.builder(new Answer(fragment)).build())
+                // The status is already sent, so a failure mid-answer can only be reported as an event
+                .onErrorResume(e -> {
+                    log.error("Streaming the answer failed", e);
+                    return Flux.just(ServerSentEvent.builder(STREAM_FAILED).event("error").build());
+                });
+    }
 }
\ No newline at end of file
@@ -0,0 +1,225 @@
+package com.spring.eac.ai.embedding;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.metadata.EmptyUsage;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.embedding.EmbeddingResponseMetadata;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link EmbeddingModel} decorator that keeps the embeddings it has seen in a bounded LRU map backed by an append-only
+ * file, so re-ingesting unchanged chunks and embedding repeated questions do not call the delegate again.
+ * <p>
+ * Entries are keyed by the embedding model name and the SHA-256 of the text; only the texts of a request that miss
+ * the cache are sent to the delegate, in one call. Hits and misses are published as {@code embedding.cache.*} meters.
+ * The file is rewritten without evicted entries once it holds twice as many records as the cache, and on
+ * {@link #close()}.
+ */
+@Slf4j
+public class CachingEmbeddingModel implements EmbeddingModel, AutoCloseable {
+
+    private final EmbeddingModel delegate;
+    private final String defaultModel;
+    private final int maxEntries;
+    private final Map<String, float[]> entries;
+    private final EmbeddingCacheFile file;
+    private final Counter hits;
+    private final Counter misses;
+    private boolean closed;
+
+    private CachingEmbeddingModel(Builder builder) {
+        this.delegate = builder.delegate;
+        this.defaultModel = builder.defaultModel;
+        this.maxEntries = builder.maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        try {
+            this.file = EmbeddingCacheFile.open(builder.path, entries::put);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open embedding cache " + builder.path, e);
+        }
+        log.info("Embedding cache {} holds {} embeddings", builder.path, entries.size());
+
+        this.hits = builder.meterRegistry.counter("embedding.cache.hits");
+        this.misses = builder.meterRegistry.counter("embedding.cache.misses");
+        builder.meterRegistry.gauge("embedding.cache.size", this, CachingEmbeddingModel::size);
+    }
+
+    public static Builder builder(EmbeddingModel delegate) {
+        return new Builder(delegate);
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        String model = request.getOptions() != null && StringUtils.hasText(request.getOptions().getModel())
+                ? request.getOptions().getModel() : defaultModel;
+        List<String> texts = request.getInstructions();
+        List<String> keys = texts.stream().map(text -> key(model, text)).toList();
+
+        float[][] embeddings = new float[texts.size()][];
+        List<Integer> missing = new ArrayList<>();
+        synchronized (entries) {
+            for (int i = 0; i < keys.size(); i++) {
+                embeddings[i] = entries.get(keys.get(i));
+                if (embeddings[i] == null) {
+                    missing.add(i);
+                }
+            }
+        }
+        hits.increment(texts.size() - missing.size());
+        misses.increment(missing.size());
+
+        EmbeddingResponseMetadata metadata = new EmbeddingResponseMetadata(model, new EmptyUsage());
+        if (!missing.isEmpty()) {
+            EmbeddingResponse response = delegate.call(new EmbeddingRequest(
+                    missing.stream().map(texts::get).toList(), request.getOptions()));
+            List<Embedding> results = response.getResults();
+            Assert.isTrue(results.size() == missing.size(), "Embedding model returned " + results.size()
+                    + " embeddings for " + missing.size() + " texts");
+            for (int i = 0; i < missing.size(); i++) {
+                embeddings[missing.get(i)] = results.get(i).getOutput();
+            }
+            put(missing.stream().map(keys::get).toList(), missing.stream().map(i -> embeddings[i]).toList());
+            metadata = response.getMetadata();
+        }
+
+        List<Embedding> results = new ArrayList<>(texts.size());
+        for (int i = 0; i < embeddings.length; i++) {
+            results.add(new Embedding(embeddings[i], i));
+        }
+        return new EmbeddingResponse(results, metadata);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embed(document.getFormattedContent(MetadataMode.EMBED));
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Drops evicted entries from the cache file. Later calls do nothing.
+     */
+    @Override
+    public void close() {
+        synchronized (entries) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                file.rewrite(entries);
+                file.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write embedding cache", e);
+            }
+        }
+    }
+
+    private void put(List<String> keys, List<float[]> embeddings) {
+        synchronized (entries) {
+            try {
+                for (int i = 0; i < keys.size(); i++) {
+                    entries.put(keys.get(i), embeddings.get(i));
+                    file.append(keys.get(i), embeddings.get(i));
+                }
+                if (file.records() > 2 * maxEntries) {
+                    file.rewrite(entries);
+                }
+            } catch (IOException e) {
+                // The embeddings are still valid, the next start just has to fetch them again
+                log.warn("Failed to write embedding cache: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static String key(String model, String text) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return model + ':' + HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public static final class Builder {
+
+        private final EmbeddingModel delegate;
+        private Path path;
+        private String defaultModel = "default";
+        private int maxEntries = 10_000;
+        private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        private Builder(EmbeddingModel delegate) {
+            Assert.notNull(delegate, "delegate must not be null");
+            this.delegate = delegate;
+        }
+
+        /**
+         * File the cache is loaded from and appended to.
+         */
+        public Builder path(Path path) {
+            this.path = path;
+            return this;
+        }
+
+        /**
+         * Model name used in the key when a request does not name one, i.e. the delegate's default model.
+         */
+        public Builder defaultModel(String defaultModel) {
+            this.defaultModel = defaultModel;
+            return this;
+        }
+
+        public Builder maxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        public CachingEmbeddingModel build() {
+            Assert.notNull(path, "path must not be null");
+            Assert.hasText(defaultModel, "defaultModel must not be empty");
+            Assert.isTrue(maxEntries > 0, "maxEntries must be positive");
+            return new CachingEmbeddingModel(this);
+        }
+    }
+}
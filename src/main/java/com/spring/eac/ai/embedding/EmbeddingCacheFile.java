@@ -0,0 +1,136 @@
+package com.spring.eac.ai.embedding;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Append-only file of cached embeddings.
+ * <p>
+ * Layout: {@code [magic:int][version:int]} followed by records of
+ * {@code [keyLength:short][key:utf8][dimensions:int][dimensions * float]}, all little-endian. A record cut short by a
+ * crash is dropped, together with anything after it, the next time the file is opened. Entries evicted from the
+ * in-memory cache stay in the file until it is rewritten by {@link #rewrite(Map)}.
+ */
+@Slf4j
+final class EmbeddingCacheFile implements Closeable {
+
+    static final int MAGIC = 0x454d4231; // "EMB1"
+    static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+
+    private final Path path;
+    private FileChannel channel;
+    private int records;
+
+    private EmbeddingCacheFile(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Opens or creates the file at {@code path} and passes every complete record to {@code consumer}, oldest first.
+     */
+    static EmbeddingCacheFile open(Path path, BiConsumer<String, float[]> consumer) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        EmbeddingCacheFile file = new EmbeddingCacheFile(path);
+        file.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (file.channel.size() == 0) {
+            file.channel.write(header());
+        } else {
+            file.readRecords(consumer);
+        }
+        return file;
+    }
+
+    private void readRecords(BiConsumer<String, float[]> consumer) throws IOException {
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Not an embedding cache file: " + path);
+        }
+        long end = buffer.position();
+        try {
+            while (buffer.hasRemaining()) {
+                byte[] key = new byte[Short.toUnsignedInt(buffer.getShort())];
+                buffer.get(key);
+                int dimensions = buffer.getInt();
+                if (dimensions < 0 || (long) dimensions * Float.BYTES > buffer.remaining()) {
+                    throw new BufferUnderflowException();
+                }
+                float[] embedding = new float[dimensions];
+                buffer.asFloatBuffer().get(embedding);
+                buffer.position(buffer.position() + embedding.length * Float.BYTES);
+                consumer.accept(new String(key, StandardCharsets.UTF_8), embedding);
+                records++;
+                end = buffer.position();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Dropping truncated record at byte {} of embedding cache {}", end, path);
+            channel.truncate(end);
+        }
+        channel.position(end);
+    }
+
+    /**
+     * Number of records in the file, including ones that were overwritten or evicted since it was last rewritten.
+     */
+    int records() {
+        return records;
+    }
+
+    void append(String key, float[] embedding) throws IOException {
+        channel.write(record(key, embedding));
+        records++;
+    }
+
+    /**
+     * Replaces the file with one record per entry of {@code entries}, in iteration order.
+     */
+    void rewrite(Map<String, float[]> entries) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write(header());
+            for (Map.Entry<String, float[]> entry : entries.entrySet()) {
+                out.write(record(entry.getKey(), entry.getValue()));
+            }
+        }
+        channel.close();
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        records = entries.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static ByteBuffer header() {
+        return ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN).putInt(MAGIC).putInt(VERSION).flip();
+    }
+
+    private static ByteBuffer record(String key, float[] embedding) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(Short.BYTES + keyBytes.length + Integer.BYTES + embedding.length * Float.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .putShort((short) keyBytes.length)
+                .put(keyBytes)
+                .putInt(embedding.length);
+        buffer.asFloatBuffer().put(embedding);
+        return buffer.position(buffer.limit()).flip();
+    }
+}
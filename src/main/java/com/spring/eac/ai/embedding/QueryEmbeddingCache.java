@@ -0,0 +1,171 @@
+package com.spring.eac.ai.embedding;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.util.Assert;
+
+import java.text.Normalizer;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * {@link EmbeddingModel} decorator that remembers the embeddings of single texts, which is how vector stores embed
+ * the query of a similarity search.
+ * <p>
+ * Only {@link #embed(String)} is cached; batched requests, i.e. ingestion, go straight to the delegate. Texts are
+ * normalized before lookup (Unicode NFKC, trimmed, whitespace collapsed, lower case), so questions that differ only
+ * in spacing or capitalization share an entry. Entries expire after a time to live and the least recently used ones
+ * are evicted beyond the maximum size. Hits, misses, the size and the hit ratio are published as
+ * {@code embedding.query.cache.*} meters. Closing it closes the delegate, e.g. a {@link CachingEmbeddingModel}.
+ */
+public class QueryEmbeddingCache implements EmbeddingModel, AutoCloseable {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final EmbeddingModel delegate;
+    private final Duration timeToLive;
+    private final Clock clock;
+    private final Map<String, Entry> entries;
+    private final Counter hits;
+    private final Counter misses;
+
+    private QueryEmbeddingCache(Builder builder) {
+        this.delegate = builder.delegate;
+        this.timeToLive = builder.timeToLive;
+        this.clock = builder.clock;
+        int maxEntries = builder.maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+
+        MeterRegistry meterRegistry = builder.meterRegistry;
+        this.hits = meterRegistry.counter("embedding.query.cache.hits");
+        this.misses = meterRegistry.counter("embedding.query.cache.misses");
+        meterRegistry.gauge("embedding.query.cache.size", this, QueryEmbeddingCache::size);
+        meterRegistry.gauge("embedding.query.cache.hit.ratio", this, QueryEmbeddingCache::hitRatio);
+    }
+
+    public static Builder builder(EmbeddingModel delegate) {
+        return new Builder(delegate);
+    }
+
+    @Override
+    public float[] embed(String text) {
+        String key = normalize(text);
+        Instant now = clock.instant();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt().isAfter(now)) {
+                hits.increment();
+                return entry.embedding();
+            }
+        }
+        misses.increment();
+        float[] embedding = delegate.embed(text);
+        synchronized (entries) {
+            entries.put(key, new Entry(embedding, now.plus(timeToLive)));
+        }
+        return embedding;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return delegate.call(request);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return delegate.embed(document);
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Share of {@link #embed(String)} calls answered from the cache since startup.
+     */
+    public double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    /**
+     * Lookup key of a query: Unicode NFKC, trimmed, whitespace collapsed to single spaces, lower case.
+     */
+    public static String normalize(String text) {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).strip();
+        return WHITESPACE.matcher(normalized).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    private record Entry(float[] embedding, Instant expiresAt) {
+    }
+
+    public static final class Builder {
+
+        private final EmbeddingModel delegate;
+        private int maxEntries = 1000;
+        private Duration timeToLive = Duration.ofHours(1);
+        private Clock clock = Clock.systemUTC();
+        private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        private Builder(EmbeddingModel delegate) {
+            Assert.notNull(delegate, "delegate must not be null");
+            this.delegate = delegate;
+        }
+
+        public Builder maxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        public Builder timeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+            return this;
+        }
+
+        public Builder clock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        public QueryEmbeddingCache build() {
+            Assert.isTrue(maxEntries > 0, "maxEntries must be positive");
+            Assert.isTrue(timeToLive != null && timeToLive.isPositive(), "timeToLive must be positive");
+            Assert.notNull(clock, "clock must not be null");
+            return new QueryEmbeddingCache(this);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.spring.eac.ai.exception;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -39,4 +40,25 @@ public class GlobalExceptionHandler {
 
         return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
     }
+
+    /**
+     * Handles VectorStoreWarmingException and returns HTTP 503 Service Unavailable
+     * Used while the vector store is still loading, with a Retry-After header telling clients when to come back
+     *
+     * @param ex The VectorStoreWarmingException thrown
+     * @return ResponseEntity with error details, a Retry-After header and HTTP 503 status
+     */
+    @ExceptionHandler(VectorStoreWarmingException.class)
+    public ResponseEntity<ErrorResponse> handleVectorStoreWarmingException(VectorStoreWarmingException ex) {
+        log.info("Rejected request while the vector store warms up: {}", ex.getMessage());
+
+        ErrorResponse error = new ErrorResponse(
+                ex.getMessage(),
+                "Warming Up"
+        );
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())))
+                .body(error);
+    }
 }
@@ -0,0 +1,20 @@
+package com.spring.eac.ai.exception;
+
+import java.time.Duration;
+
+/**
+ * Thrown for a RAG request while the vector store is still loading in the background.
+ */
+public class VectorStoreWarmingException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public VectorStoreWarmingException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
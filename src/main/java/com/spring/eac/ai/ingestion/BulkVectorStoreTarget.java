@@ -0,0 +1,296 @@
+package com.spring.eac.ai.ingestion;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+import org.springframework.util.Assert;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link IngestionTarget} that bulk loads a {@link VectorStore} which embeds inside {@link VectorStore#add(List)},
+ * such as Milvus.
+ * <p>
+ * Chunks are regrouped into inserts of at most {@code maxRows} rows and {@code maxBytes} estimated bytes (id, text,
+ * metadata and embedding), independently of the token batches of the pipeline, and at most {@code maxInFlight}
+ * inserts run at a time; {@link #write(List, List)} blocks while they are all busy, which throttles the pipeline.
+ * Failed inserts are retried with exponential backoff up to {@code maxAttempts}; since Milvus does not enforce unique
+ * ids, a retry first deletes its ids, replacing what an earlier attempt may have written; first attempts only add.
+ * {@link #flush()} writes the last partial insert, waits for all of them and then runs the {@code onFlush} callback
+ * once, e.g. a Milvus flush that seals the segments so the index is built once for the whole load. Published as
+ * {@code ingestion.bulk.*} meters.
+ */
+@Slf4j
+public class BulkVectorStoreTarget implements IngestionTarget {
+
+    private final VectorStore vectorStore;
+    private final int maxRows;
+    private final long maxBytes;
+    private final int maxInFlight;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final int embeddingBytes;
+    private final Runnable onFlush;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore inFlight;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    // Chunks of the next insert; only touched by the single writer stage
+    private List<Document> pending = new ArrayList<>();
+    private long pendingBytes;
+
+    private final Timer insertTimer;
+    private final Counter rowsCounter;
+    private final Counter retriesCounter;
+
+    private BulkVectorStoreTarget(Builder builder) {
+        this.vectorStore = builder.vectorStore;
+        this.maxRows = builder.maxRows;
+        this.maxBytes = builder.maxBytes;
+        this.maxInFlight = builder.maxInFlight;
+        this.maxAttempts = builder.maxAttempts;
+        this.retryBackoff = builder.retryBackoff;
+        this.embeddingBytes = builder.embeddingDimensions * Float.BYTES;
+        this.onFlush = builder.onFlush;
+        this.inFlight = new Semaphore(maxInFlight);
+
+        MeterRegistry meterRegistry = builder.meterRegistry;
+        this.insertTimer = meterRegistry.timer("ingestion.bulk.insert");
+        this.rowsCounter = meterRegistry.counter("ingestion.bulk.rows");
+        this.retriesCounter = meterRegistry.counter("ingestion.bulk.retries");
+        Gauge.builder("ingestion.bulk.in.flight", inFlight, permits -> maxInFlight - permits.availablePermits())
+                .description("Inserts running at the moment")
+                .register(meterRegistry);
+    }
+
+    public static Builder builder(VectorStore vectorStore) {
+        return new Builder(vectorStore);
+    }
+
+    @Override
+    public List<float[]> embed(List<Document> batch) {
+        // The store embeds while inserting
+        return null;
+    }
+
+    @Override
+    public void write(List<Document> batch, List<float[]> embeddings) {
+        rethrowFailure();
+        for (Document document : batch) {
+            long bytes = estimateBytes(document);
+            if (!pending.isEmpty() && (pending.size() >= maxRows || pendingBytes + bytes > maxBytes)) {
+                submit();
+            }
+            pending.add(document);
+            pendingBytes += bytes;
+        }
+        if (pending.size() >= maxRows) {
+            submit();
+        }
+    }
+
+    /**
+     * Inserts the remaining chunks, waits for every insert and runs the {@code onFlush} callback.
+     *
+     * @throws IllegalStateException when an insert failed after all its attempts
+     */
+    @Override
+    public void flush() {
+        if (!pending.isEmpty()) {
+            submit();
+        }
+        inFlight.acquireUninterruptibly(maxInFlight);
+        inFlight.release(maxInFlight);
+        rethrowFailure();
+        onFlush.run();
+    }
+
+    @Override
+    public void delete(List<String> ids) {
+        vectorStore.delete(ids);
+    }
+
+    @Override
+    public void deleteSource(String sourceFile) {
+        vectorStore.delete(new FilterExpressionBuilder().eq(SOURCE_FILE, sourceFile).build());
+    }
+
+    private void submit() {
+        List<Document> insert = pending;
+        pending = new ArrayList<>();
+        pendingBytes = 0;
+        inFlight.acquireUninterruptibly();
+        if (failure.get() != null) {
+            inFlight.release();
+            rethrowFailure();
+        }
+        executor.execute(() -> {
+            try {
+                insert(insert);
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private void insert(List<Document> insert) throws InterruptedException {
+        List<String> ids = insert.stream().map(Document::getId).toList();
+        for (int attempt = 1; ; attempt++) {
+            boolean retry = attempt > 1;
+            try {
+                insertTimer.record(() -> {
+                    if (retry) {
+                        vectorStore.delete(ids);
+                    }
+                    vectorStore.add(insert);
+                });
+                rowsCounter.increment(insert.size());
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    throw new IllegalStateException("Insert of " + insert.size() + " chunks failed after " + attempt
+                            + " attempts", e);
+                }
+                Duration backoff = retryBackoff.multipliedBy(1L << (attempt - 1));
+                log.warn("Insert of {} chunks failed (attempt {} of {}), retrying in {} ms: {}", insert.size(), attempt,
+                        maxAttempts, backoff.toMillis(), e.getMessage());
+                retriesCounter.increment();
+                Thread.sleep(backoff);
+            }
+        }
+    }
+
+    /**
+     * Reports a failed insert once, dropping the chunks not submitted yet, so the next run starts clean.
+     */
+    private void rethrowFailure() {
+        Throwable e = failure.getAndSet(null);
+        if (e != null) {
+            pending = new ArrayList<>();
+            pendingBytes = 0;
+            if (e instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Bulk insert failed", e);
+        }
+    }
+
+    private long estimateBytes(Document document) {
+        long bytes = document.getId().length() + embeddingBytes;
+        if (document.getText() != null) {
+            bytes += document.getText().getBytes(StandardCharsets.UTF_8).length;
+        }
+        for (Map.Entry<String, Object> entry : document.getMetadata().entrySet()) {
+            // Serialized as JSON: quotes, colon and comma around each key and value
+            bytes += entry.getKey().length() + String.valueOf(entry.getValue()).length() + 6;
+        }
+        return bytes;
+    }
+
+    public static final class Builder {
+
+        private final VectorStore vectorStore;
+        private int maxRows = 500;
+        private long maxBytes = 4 * 1024 * 1024;
+        private int maxInFlight = 4;
+        private int maxAttempts = 3;
+        private Duration retryBackoff = Duration.ofMillis(500);
+        private int embeddingDimensions = 1536;
+        private Runnable onFlush = () -> {
+        };
+        private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        private Builder(VectorStore vectorStore) {
+            Assert.notNull(vectorStore, "vectorStore must not be null");
+            this.vectorStore = vectorStore;
+        }
+
+        /**
+         * Upper bound on the rows of one insert.
+         */
+        public Builder maxRows(int maxRows) {
+            Assert.isTrue(maxRows > 0, "maxRows must be positive");
+            this.maxRows = maxRows;
+            return this;
+        }
+
+        /**
+         * Upper bound on the estimated bytes of one insert; a single larger chunk is inserted alone.
+         */
+        public Builder maxBytes(long maxBytes) {
+            Assert.isTrue(maxBytes > 0, "maxBytes must be positive");
+            this.maxBytes = maxBytes;
+            return this;
+        }
+
+        /**
+         * Number of inserts running at the same time.
+         */
+        public Builder maxInFlight(int maxInFlight) {
+            Assert.isTrue(maxInFlight > 0, "maxInFlight must be positive");
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * Attempts of one insert, the first included.
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            Assert.isTrue(maxAttempts > 0, "maxAttempts must be positive");
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * Wait before the first retry; doubled for every further one.
+         */
+        public Builder retryBackoff(Duration retryBackoff) {
+            Assert.isTrue(retryBackoff != null && !retryBackoff.isNegative(), "retryBackoff must not be negative");
+            this.retryBackoff = retryBackoff;
+            return this;
+        }
+
+        /**
+         * Dimensions of the stored embeddings, for the byte estimate.
+         */
+        public Builder embeddingDimensions(int embeddingDimensions) {
+            this.embeddingDimensions = embeddingDimensions;
+            return this;
+        }
+
+        /**
+         * Runs once all inserts of a {@link #flush()} succeeded.
+         */
+        public Builder onFlush(Runnable onFlush) {
+            Assert.notNull(onFlush, "onFlush must not be null");
+            this.onFlush = onFlush;
+            return this;
+        }
+
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            Assert.notNull(meterRegistry, "meterRegistry must not be null");
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        public BulkVectorStoreTarget build() {
+            return new BulkVectorStoreTarget(this);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.spring.eac.ai.ingestion;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentReader;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads a UTF-8 CSV file with a header row record by record, emitting one {@link Document} per row or per group of
+ * {@code rowsPerDocument} rows, so exports of any size are read in constant memory and rows are never cut in half.
+ * <p>
+ * The document text lists the text columns as {@code column: value} lines, rows of a group separated by a blank line;
+ * only this text is embedded. The metadata columns become document metadata, together with {@value #ROW}, the
+ * 1-based number of the first data row. For a group of rows, only the metadata values shared by every row are kept.
+ */
+@Slf4j
+public class CsvDocumentReader implements StreamingDocumentReader {
+
+    public static final String ROW = "csv_row";
+
+    private final Resource resource;
+    private final List<String> textColumns;
+    private final List<String> metadataColumns;
+    private final int rowsPerDocument;
+
+    /**
+     * @param textColumns     columns embedded as the document text; empty for all columns
+     * @param metadataColumns columns copied to the metadata; empty for all columns that are not text columns
+     */
+    public CsvDocumentReader(Resource resource, List<String> textColumns, List<String> metadataColumns,
+                             int rowsPerDocument) {
+        Assert.notNull(resource, "resource must not be null");
+        Assert.isTrue(rowsPerDocument >= 1, "rowsPerDocument must be at least 1");
+        this.resource = resource;
+        this.textColumns = List.copyOf(textColumns);
+        this.metadataColumns = List.copyOf(metadataColumns);
+        this.rowsPerDocument = rowsPerDocument;
+    }
+
+    public CsvDocumentReader(Resource resource) {
+        this(resource, List.of(), List.of(), 1);
+    }
+
+    /**
+     * Reader choosing a {@link CsvDocumentReader} with these options for {@code .csv} files and {@code otherwise}
+     * for every other resource.
+     */
+    public static Function<Resource, DocumentReader> forCsvFiles(List<String> textColumns, List<String> metadataColumns,
+                                                                 int rowsPerDocument,
+                                                                 Function<Resource, DocumentReader> otherwise) {
+        return resource -> isCsv(resource)
+                ? new CsvDocumentReader(resource, textColumns, metadataColumns, rowsPerDocument)
+                : otherwise.apply(resource);
+    }
+
+    static boolean isCsv(Resource resource) {
+        String filename = resource.getFilename();
+        return filename != null && filename.toLowerCase(Locale.ROOT).endsWith(".csv");
+    }
+
+    @Override
+    public Stream<Document> stream() {
+        CsvParser parser;
+        List<String> header;
+        try {
+            parser = new CsvParser(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8), ',');
+            header = parser.next();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read CSV header of " + resource.getDescription(), e);
+        }
+        if (header == null) {
+            close(parser);
+            return Stream.empty();
+        }
+        if (!header.isEmpty() && header.get(0).startsWith("\uFEFF")) {
+            header.set(0, header.get(0).substring(1));
+        }
+
+        List<Column> text = columns(header, textColumns, List.of());
+        if (text.isEmpty()) {
+            log.warn("None of the text columns {} is in the header of {}, embedding every column", textColumns,
+                    resource.getDescription());
+            text = columns(header, List.of(), List.of());
+        }
+        List<Column> metadata = columns(header, metadataColumns, text.stream().map(Column::name).toList());
+        Rows rows = new Rows(parser, text, metadata);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(rows, Spliterator.ORDERED | Spliterator.NONNULL),
+                        false)
+                .onClose(() -> close(parser));
+    }
+
+    /**
+     * Indexes of the {@code wanted} header columns in their configured order; all columns not in {@code excluded}
+     * when nothing is configured.
+     */
+    private List<Column> columns(List<String> header, List<String> wanted, List<String> excluded) {
+        List<Column> columns = new ArrayList<>();
+        if (wanted.isEmpty()) {
+            for (int i = 0; i < header.size(); i++) {
+                if (!excluded.contains(header.get(i))) {
+                    columns.add(new Column(header.get(i), i));
+                }
+            }
+            return columns;
+        }
+        for (String name : wanted) {
+            int index = header.indexOf(name);
+            if (index < 0) {
+                log.debug("Column {} is not in the header of {}", name, resource.getDescription());
+            } else {
+                columns.add(new Column(name, index));
+            }
+        }
+        return columns;
+    }
+
+    private static void close(CsvParser parser) {
+        try {
+            parser.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record Column(String name, int index) {
+    }
+
+    /**
+     * Groups the parsed rows into documents, reading ahead at most one group.
+     */
+    private final class Rows implements Iterator<Document> {
+
+        private final CsvParser parser;
+        private final List<Column> text;
+        private final List<Column> metadata;
+        private int row;
+        private Document next;
+        private boolean done;
+
+        private Rows(CsvParser parser, List<Column> text, List<Column> metadata) {
+            this.parser = parser;
+            this.text = text;
+            this.metadata = metadata;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !done) {
+                next = readGroup();
+                done = next == null;
+            }
+            return next != null;
+        }
+
+        @Override
+        public Document next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Document document = next;
+            next = null;
+            return document;
+        }
+
+        private Document readGroup() {
+            StringBuilder content = new StringBuilder();
+            Map<String, Object> shared = null;
+            int firstRow = 0;
+            int grouped = 0;
+            while (grouped < rowsPerDocument) {
+                List<String> fields = readRow();
+                if (fields == null) {
+                    break;
+                }
+                row++;
+                String rowText = rowText(fields);
+                if (rowText.isEmpty()) {
+                    continue;
+                }
+                Map<String, Object> values = new HashMap<>();
+                for (Column column : metadata) {
+                    String value = field(fields, column);
+                    if (!value.isEmpty()) {
+                        values.put(column.name(), value);
+                    }
+                }
+                if (shared == null) {
+                    shared = values;
+                    firstRow = row;
+                } else {
+                    shared.entrySet().removeIf(entry -> !Objects.equals(values.get(entry.getKey()), entry.getValue()));
+                    content.append("\n\n");
+                }
+                content.append(rowText);
+                grouped++;
+            }
+            if (shared == null) {
+                return null;
+            }
+            shared.put(ROW, firstRow);
+            return new Document(content.toString(), shared);
+        }
+
+        private List<String> readRow() {
+            try {
+                List<String> fields = parser.next();
+                // Skip blank lines between records
+                while (fields != null && fields.size() == 1 && fields.get(0).isBlank()) {
+                    fields = parser.next();
+                }
+                return fields;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read row " + (row + 1) + " of " + resource.getDescription(), e);
+            }
+        }
+
+        private String rowText(List<String> fields) {
+            StringBuilder rowText = new StringBuilder();
+            for (Column column : text) {
+                String value = field(fields, column);
+                if (!value.isEmpty()) {
+                    if (!rowText.isEmpty()) {
+                        rowText.append('\n');
+                    }
+                    rowText.append(column.name()).append(": ").append(value);
+                }
+            }
+            return rowText.toString();
+        }
+
+        private static String field(List<String> fields, Column column) {
+            return column.index() < fields.size() ? fields.get(column.index()).strip() : "";
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.spring.eac.ai.ingestion;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 records one at a time: fields may be quoted, with {@code ""} for a quote and line breaks inside
+ * quotes, and records end with LF, CRLF or CR. Only the current record is held in memory.
+ */
+final class CsvParser implements Closeable {
+
+    private final BufferedReader reader;
+    private final char delimiter;
+    private long record;
+
+    CsvParser(Reader reader, char delimiter) {
+        this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * The fields of the next record, or {@code null} at the end of the input. An empty line is a record with one
+     * empty field.
+     */
+    List<String> next() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean read = false;
+        for (int c = reader.read(); c != -1; c = reader.read()) {
+            read = true;
+            if (quoted) {
+                if (c != '"') {
+                    field.append((char) c);
+                } else if (peek() == '"') {
+                    reader.read();
+                    field.append('"');
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r' && peek() == '\n') {
+                    reader.read();
+                }
+                fields.add(field.toString());
+                record++;
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+        }
+        if (quoted) {
+            throw new IOException("Unterminated quoted field in record " + (record + 1));
+        }
+        if (!read) {
+            return null;
+        }
+        fields.add(field.toString());
+        record++;
+        return fields;
+    }
+
+    private int peek() throws IOException {
+        reader.mark(1);
+        int c = reader.read();
+        reader.reset();
+        return c;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,346 @@
+package com.spring.eac.ai.ingestion;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.Assert;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Watches the files of a directory with a {@link WatchService} and reports them in debounced batches.
+ * <p>
+ * Every create, modify or delete event only marks its file as pending. A file is reported once no event touched it
+ * for the debounce period, so a file that is still being copied is read once it is complete, and the files that
+ * became quiet together are reported as one batch: as changed when the file exists, as deleted when it is gone. A
+ * lost event ({@code OVERFLOW}) marks every file in the directory and every file known to be gone as pending. Hidden
+ * files, editor backups ({@code ~}) and subdirectories are ignored. Progress is published as
+ * {@code ingestion.watch.*} meters and as {@link Stats}.
+ */
+@Slf4j
+public class DirectoryWatcher implements Closeable {
+
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(10);
+
+    private final Path directory;
+    private final Listener listener;
+    private final long debounceNanos;
+    // Last event time of every pending file; guarded by itself
+    private final Map<Path, Long> pending = new HashMap<>();
+    // Files reported or found at start, to tell a deletion from a file that never was complete
+    private final Set<Path> known = new HashSet<>();
+
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong filesChanged = new AtomicLong();
+    private final AtomicLong filesDeleted = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong busyNanos = new AtomicLong();
+    private volatile int inFlight;
+    private volatile Instant lastBatchAt;
+    private volatile String lastFailure;
+    private volatile Duration lastBatchDuration = Duration.ZERO;
+
+    private final Counter changedCounter;
+    private final Counter deletedCounter;
+    private final Counter failureCounter;
+    private final Timer batchTimer;
+
+    private WatchService watchService;
+    private Thread thread;
+
+    private DirectoryWatcher(Builder builder) {
+        this.directory = builder.directory;
+        this.listener = builder.listener;
+        this.debounceNanos = builder.debounce.toNanos();
+        MeterRegistry meterRegistry = builder.meterRegistry;
+        this.changedCounter = meterRegistry.counter("ingestion.watch.files", "change", "changed");
+        this.deletedCounter = meterRegistry.counter("ingestion.watch.files", "change", "deleted");
+        this.failureCounter = meterRegistry.counter("ingestion.watch.failures");
+        this.batchTimer = meterRegistry.timer("ingestion.watch.batch");
+        Gauge.builder("ingestion.watch.backlog", this, DirectoryWatcher::backlog)
+                .description("Files waiting to be ingested or deleted")
+                .register(meterRegistry);
+    }
+
+    public static Builder builder(Path directory, Listener listener) {
+        return new Builder(directory, listener);
+    }
+
+    /**
+     * Creates the directory if needed and starts watching it on a daemon thread. Files already in the directory are
+     * not reported; {@link #files()} lists them for the initial load.
+     */
+    public synchronized void start() throws IOException {
+        Assert.state(thread == null, "Watcher already started");
+        Files.createDirectories(directory);
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        // Listed after registering, so a file created in between is at worst reported once more
+        known.addAll(files());
+        thread = Thread.ofPlatform().daemon().name("ingestion-watcher").start(this::watch);
+        log.info("Watching {} for documents to ingest", directory);
+    }
+
+    /**
+     * Files of the directory that are watched, in name order.
+     */
+    public List<Path> files() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> Files.isRegularFile(file) && accepts(file)).sorted().toList();
+        }
+    }
+
+    public boolean isRunning() {
+        Thread current = thread;
+        return current != null && current.isAlive();
+    }
+
+    /**
+     * Files waiting for their debounce period to end or being processed.
+     */
+    public int backlog() {
+        synchronized (pending) {
+            return pending.size() + inFlight;
+        }
+    }
+
+    public Stats stats() {
+        long busy = busyNanos.get();
+        long processed = filesChanged.get() + filesDeleted.get();
+        double filesPerSecond = busy == 0 ? 0 : processed * 1e9 / busy;
+        return new Stats(directory.toString(), isRunning(), backlog(), events.get(), batches.get(), filesChanged.get(),
+                filesDeleted.get(), failures.get(), lastFailure, lastBatchAt, lastBatchDuration.toMillis(),
+                filesPerSecond);
+    }
+
+    /**
+     * Stops watching and waits a little for the batch in progress to end.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(CLOSE_TIMEOUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void watch() {
+        // Wake up often enough to end a debounce period close to on time
+        long pollMillis = Math.clamp(TimeUnit.NANOSECONDS.toMillis(debounceNanos) / 4, 10, 500);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.poll(pollMillis, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    record(key);
+                    if (!key.reset()) {
+                        log.warn("Watched directory {} is no longer accessible, stopping the watcher", directory);
+                        return;
+                    }
+                }
+                flush();
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            log.debug("Stopped watching {}", directory);
+        }
+    }
+
+    private void record(WatchKey key) {
+        long now = System.nanoTime();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            events.incrementAndGet();
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                log.warn("Lost file events in {}, checking every file again", directory);
+                rescan(now);
+                continue;
+            }
+            Path file = directory.resolve((Path) event.context());
+            if (accepts(file)) {
+                synchronized (pending) {
+                    pending.put(file, now);
+                }
+            }
+        }
+    }
+
+    private void rescan(long now) {
+        Set<Path> files = new HashSet<>(known);
+        try {
+            files.addAll(files());
+        } catch (IOException e) {
+            log.warn("Could not list {}: {}", directory, e.getMessage());
+        }
+        synchronized (pending) {
+            files.forEach(file -> pending.put(file, now));
+        }
+    }
+
+    /**
+     * Reports the files whose debounce period ended as one batch.
+     */
+    private void flush() {
+        long now = System.nanoTime();
+        List<Path> quiet = new ArrayList<>();
+        synchronized (pending) {
+            for (Iterator<Map.Entry<Path, Long>> iterator = pending.entrySet().iterator(); iterator.hasNext(); ) {
+                Map.Entry<Path, Long> entry = iterator.next();
+                if (now - entry.getValue() >= debounceNanos) {
+                    quiet.add(entry.getKey());
+                    iterator.remove();
+                }
+            }
+            inFlight = quiet.size();
+        }
+        if (quiet.isEmpty()) {
+            return;
+        }
+
+        List<Path> changed = new ArrayList<>();
+        List<Path> deleted = new ArrayList<>();
+        for (Path file : quiet.stream().sorted().toList()) {
+            if (Files.isRegularFile(file)) {
+                changed.add(file);
+            } else if (!Files.exists(file) && known.contains(file)) {
+                deleted.add(file);
+            }
+        }
+        try {
+            if (!changed.isEmpty() || !deleted.isEmpty()) {
+                process(changed, deleted);
+            }
+        } finally {
+            inFlight = 0;
+        }
+    }
+
+    private void process(List<Path> changed, List<Path> deleted) {
+        long start = System.nanoTime();
+        try {
+            listener.onChange(changed, deleted);
+            known.addAll(changed);
+            deleted.forEach(known::remove);
+            filesChanged.addAndGet(changed.size());
+            filesDeleted.addAndGet(deleted.size());
+            changedCounter.increment(changed.size());
+            deletedCounter.increment(deleted.size());
+        } catch (Exception e) {
+            // Not retried: the next event of a file, or the next startup, picks it up again
+            failures.incrementAndGet();
+            failureCounter.increment();
+            lastFailure = e.toString();
+            log.error("Failed to ingest changes of {} (changed {}, deleted {})", directory, changed, deleted, e);
+        } finally {
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+            busyNanos.addAndGet(elapsed.toNanos());
+            batchTimer.record(elapsed);
+            batches.incrementAndGet();
+            lastBatchDuration = elapsed;
+            lastBatchAt = Instant.now();
+        }
+    }
+
+    private static boolean accepts(Path file) {
+        String name = file.getFileName().toString();
+        return !name.startsWith(".") && !name.endsWith("~");
+    }
+
+    /**
+     * Receives each debounced batch on the watcher thread; batches never overlap.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void onChange(List<Path> changed, List<Path> deleted) throws Exception;
+    }
+
+    /**
+     * Snapshot of the watcher's progress.
+     *
+     * @param backlog files waiting for their debounce period to end or being processed
+     * @param events file events received
+     * @param batches batches reported to the listener
+     * @param filesChanged created or modified files ingested
+     * @param filesDeleted deleted files removed
+     * @param failures batches the listener failed
+     * @param lastFailure exception of the last failed batch, or {@code null}
+     * @param lastBatchAt end of the last batch, or {@code null}
+     * @param lastBatchMillis duration of the last batch
+     * @param filesPerSecond files processed per second spent in the listener
+     */
+    public record Stats(String directory, boolean running, int backlog, long events, long batches, long filesChanged,
+                        long filesDeleted, long failures, String lastFailure, Instant lastBatchAt,
+                        long lastBatchMillis, double filesPerSecond) {
+
+        public Stats withLastFailure(String lastFailure) {
+            return new Stats(directory, running, backlog, events, batches, filesChanged, filesDeleted, failures,
+                    lastFailure, lastBatchAt, lastBatchMillis, filesPerSecond);
+        }
+    }
+
+    public static final class Builder {
+
+        private final Path directory;
+        private final Listener listener;
+        private Duration debounce = Duration.ofSeconds(2);
+        private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        private Builder(Path directory, Listener listener) {
+            Assert.notNull(directory, "directory must not be null");
+            Assert.notNull(listener, "listener must not be null");
+            this.directory = directory;
+            this.listener = listener;
+        }
+
+        /**
+         * Quiet period after the last event of a file before it is reported.
+         */
+        public Builder debounce(Duration debounce) {
+            Assert.isTrue(debounce != null && !debounce.isNegative(), "debounce must not be negative");
+            this.debounce = debounce;
+            return this;
+        }
+
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            Assert.notNull(meterRegistry, "meterRegistry must not be null");
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        public DirectoryWatcher build() {
+            return new DirectoryWatcher(this);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.spring.eac.ai.ingestion;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Record of what an {@link IngestionPipeline} has written to a vector store: for every source resource, the SHA-256
+ * of its content and the id and SHA-256 of each of its chunks.
+ * <p>
+ * The pipeline uses it to skip resources whose content did not change, to embed only the chunks it has not seen
+ * before, and to delete chunks that disappeared. The manifest is a small JSON file saved by the caller once the
+ * store itself is durable.
+ */
+@Slf4j
+public class IngestionManifest {
+
+    private static final TypeReference<Map<String, Source>> SOURCES_TYPE = new TypeReference<>() {
+    };
+
+    private final Path path;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, Source> sources;
+    private final boolean existed;
+
+    private IngestionManifest(Path path, Map<String, Source> sources, boolean existed) {
+        this.path = path;
+        this.sources = new ConcurrentHashMap<>(sources);
+        this.existed = existed;
+    }
+
+    /**
+     * Reads the manifest at {@code path}, or starts an empty one when the file does not exist yet.
+     */
+    public static IngestionManifest load(Path path) {
+        if (!Files.exists(path)) {
+            return new IngestionManifest(path, Map.of(), false);
+        }
+        try {
+            Map<String, Source> sources = new ObjectMapper().readValue(path.toFile(), SOURCES_TYPE);
+            log.info("Read ingestion manifest with {} sources from {}", sources.size(), path);
+            return new IngestionManifest(path, sources, true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read ingestion manifest " + path, e);
+        }
+    }
+
+    /**
+     * Starts an empty manifest at {@code path} regardless of the file, e.g. because another index written by the
+     * pipeline is missing and every resource has to be read again.
+     */
+    public static IngestionManifest empty(Path path) {
+        return new IngestionManifest(path, Map.of(), false);
+    }
+
+    /**
+     * Whether the manifest was read from disk. A store that has documents but no manifest was loaded before
+     * manifests existed, so the pipeline cannot know which of its chunks are current.
+     */
+    public boolean exists() {
+        return existed;
+    }
+
+    public Source source(String name) {
+        return sources.get(name);
+    }
+
+    public Set<String> sourceNames() {
+        return Set.copyOf(sources.keySet());
+    }
+
+    void put(String name, Source source) {
+        sources.put(name, source);
+    }
+
+    void remove(String name) {
+        sources.remove(name);
+    }
+
+    /**
+     * Writes the manifest next to its file and moves it into place.
+     */
+    public void save() {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(tmp.toFile(), new TreeMap<>(sources));
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to save ingestion manifest " + path, e);
+        }
+    }
+
+    static String sha256(byte[] content) {
+        return HexFormat.of().formatHex(sha256Digest().digest(content));
+    }
+
+    /**
+     * SHA-256 of everything left in {@code content}, read in small blocks.
+     */
+    static String sha256(InputStream content) throws IOException {
+        MessageDigest digest = sha256Digest();
+        byte[] buffer = new byte[64 * 1024];
+        for (int read = content.read(buffer); read != -1; read = content.read(buffer)) {
+            digest.update(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    static String sha256(String content) {
+        return sha256(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param hash SHA-256 of the resource content
+     * @param chunks chunk id to SHA-256 of the chunk text
+     */
+    public record Source(String hash, Map<String, String> chunks) {
+    }
+}
@@ -0,0 +1,561 @@
+package com.spring.eac.ai.ingestion;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentReader;
+import org.springframework.ai.document.MetadataMode;
+import org.springframework.ai.reader.tika.TikaDocumentReader;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.ai.transformer.splitter.TextSplitter;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Loads resources into a vector store through four concurrent stages connected by bounded queues:
+ * <ol>
+ *     <li>read: each resource is parsed by its own {@link DocumentReader}, up to {@code readConcurrency} at a time</li>
+ *     <li>split: documents are cut into chunks by the {@link TextSplitter}, except those of a
+ *     {@link StreamingDocumentReader}, which reads them lazily and already sized as chunks</li>
+ *     <li>embed: chunks are grouped into batches of at most {@code maxBatchTokens} estimated tokens, and up to
+ *     {@code embeddingConcurrency} batches are embedded at a time</li>
+ *     <li>write: embedded batches are handed to the {@link IngestionTarget} by a single writer</li>
+ * </ol>
+ * Every stage runs on virtual threads, and the bounded queues make a slow stage throttle the ones before it instead of
+ * buffering the whole corpus. Progress is published as {@code ingestion.*} meters.
+ * <p>
+ * Chunk ids are derived from the source file name and the chunk text, so re-reading an unchanged chunk yields the
+ * same id. With an {@link IngestionManifest}, resources whose content hash is unchanged are not even parsed, only
+ * chunks missing from the manifest are embedded, and chunks that are no longer produced are deleted by id. Files are
+ * hashed while streaming and then read again, other resources are buffered once for both.
+ */
+@Slf4j
+public class IngestionPipeline {
+
+    private final IngestionTarget target;
+    private final Function<Resource, DocumentReader> documentReader;
+    private final TextSplitter textSplitter;
+    private final TokenCountEstimator tokenCountEstimator;
+    private final int readConcurrency;
+    private final int embeddingConcurrency;
+    private final int queueCapacity;
+    private final int maxBatchTokens;
+    private final MeterRegistry meterRegistry;
+    private final IngestionManifest manifest;
+    // Run whose queues the gauges report, null between runs
+    private volatile Run current;
+
+    private IngestionPipeline(Builder builder) {
+        Assert.notNull(builder.target, "target must not be null");
+        Assert.isTrue(builder.readConcurrency > 0, "readConcurrency must be positive");
+        Assert.isTrue(builder.embeddingConcurrency > 0, "embeddingConcurrency must be positive");
+        Assert.isTrue(builder.queueCapacity > 0, "queueCapacity must be positive");
+        Assert.isTrue(builder.maxBatchTokens > 0, "maxBatchTokens must be positive");
+        this.target = builder.target;
+        this.documentReader = builder.documentReader;
+        this.textSplitter = builder.textSplitter;
+        this.tokenCountEstimator = builder.tokenCountEstimator;
+        this.readConcurrency = builder.readConcurrency;
+        this.embeddingConcurrency = builder.embeddingConcurrency;
+        this.queueCapacity = builder.queueCapacity;
+        this.maxBatchTokens = builder.maxBatchTokens;
+        this.meterRegistry = builder.meterRegistry;
+        this.manifest = builder.manifest;
+        gauge("documents", run -> run.documentQueue);
+        gauge("chunks", run -> run.chunkQueue);
+        gauge("batches", run -> run.batchQueue);
+    }
+
+    /**
+     * Registered once per pipeline: every run has its own queues, and a gauge registered again under the same name
+     * and tags would keep reporting the first one.
+     */
+    private void gauge(String queue, Function<Run, BlockingQueue<?>> runQueue) {
+        Gauge.builder("ingestion.queue.size", this, pipeline -> {
+                    Run run = pipeline.current;
+                    return run == null ? 0 : runQueue.apply(run).size();
+                })
+                .tag("queue", queue)
+                .register(meterRegistry);
+    }
+
+    public static Builder builder(IngestionTarget target) {
+        return new Builder(target);
+    }
+
+    /**
+     * Runs all stages until every chunk of {@code resources} has been written, or rethrows the first failure of any
+     * stage after stopping the others. On success, stale chunks are deleted and the manifest is updated in memory;
+     * the caller saves it once the store is durable.
+     */
+    public IngestionResult ingest(List<Resource> resources) {
+        return run(resources, null);
+    }
+
+    /**
+     * Ingests only the {@code changed} resources and deletes every chunk of the {@code removedSources} file names,
+     * leaving the other sources alone, unlike {@link #ingest(List)}, which treats its resources as the full set.
+     * Meant for live updates of a few files after the initial load.
+     */
+    public IngestionResult update(List<Resource> changed, Collection<String> removedSources) {
+        return run(changed, Set.copyOf(removedSources));
+    }
+
+    /**
+     * @param removedSources sources to delete, or {@code null} to delete every manifest source missing from
+     *                       {@code resources}
+     */
+    private IngestionResult run(List<Resource> resources, Set<String> removedSources) {
+        Run run = new Run();
+        long start = System.nanoTime();
+        current = run;
+        try (ExecutorService executor = run.executor) {
+            run.stage(() -> run.read(resources));
+            run.stage(run::split);
+            run.stage(run::embed);
+            run.stage(run::write);
+            run.awaitStages();
+        } finally {
+            current = null;
+        }
+
+        Throwable failure = run.failure.get();
+        if (failure != null) {
+            if (failure instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Ingestion failed", failure);
+        }
+        int deleted;
+        if (manifest != null) {
+            deleted = updateManifest(run, removedSources);
+        } else {
+            // Without a manifest the chunk ids are unknown, the target deletes by source
+            deleted = 0;
+            if (removedSources != null) {
+                removedSources.forEach(target::deleteSource);
+            }
+        }
+
+        IngestionResult result = new IngestionResult(resources.size(), run.documents.get(), run.chunksWritten.get(),
+                run.batches.get(), run.tokens.get(), run.unchangedResources.get(), run.unchangedChunks.get(), deleted,
+                Duration.ofNanos(System.nanoTime() - start));
+        log.info("Ingested {} resources ({} unchanged): {} documents, {} chunks in {} batches ({} unchanged, {} deleted), "
+                        + "{} tokens in {} ms ({} chunks/s, {} tokens/s)",
+                result.resources(), result.unchangedResources(), result.documents(), result.chunks(), result.batches(),
+                result.unchangedChunks(), result.deletedChunks(), result.tokens(), result.elapsed().toMillis(),
+                Math.round(result.chunksPerSecond()), Math.round(result.tokensPerSecond()));
+        return result;
+    }
+
+    /**
+     * Records the chunks of every re-read source and deletes the chunks that are gone, including all chunks of
+     * removed sources: the given ones, or those that are no longer configured.
+     *
+     * @return number of deleted chunks
+     */
+    private int updateManifest(Run run, Set<String> removedSources) {
+        List<String> stale = new ArrayList<>();
+        run.sourceHashes.forEach((source, hash) -> {
+            Map<String, String> chunks = run.sourceChunks.getOrDefault(source, Map.of());
+            IngestionManifest.Source previous = manifest.source(source);
+            if (previous != null) {
+                previous.chunks().keySet().stream().filter(id -> !chunks.containsKey(id)).forEach(stale::add);
+            }
+            manifest.put(source, new IngestionManifest.Source(hash, chunks));
+        });
+        if (removedSources == null) {
+            for (String source : manifest.sourceNames()) {
+                if (!run.sources.contains(source)) {
+                    log.info("Source {} is no longer configured, deleting its chunks", source);
+                    stale.addAll(manifest.source(source).chunks().keySet());
+                    manifest.remove(source);
+                }
+            }
+        } else {
+            for (String source : removedSources) {
+                IngestionManifest.Source previous = manifest.source(source);
+                if (previous != null) {
+                    log.info("Source {} was removed, deleting its chunks", source);
+                    stale.addAll(previous.chunks().keySet());
+                    manifest.remove(source);
+                }
+            }
+        }
+        if (!stale.isEmpty()) {
+            target.delete(stale);
+        }
+        return stale.size();
+    }
+
+    private record EmbeddedBatch(List<Document> documents, List<float[]> embeddings) {
+    }
+
+    /**
+     * Document of the read stage; {@code split} is false for documents that are already chunks.
+     */
+    private record ReadDocument(Document document, boolean split) {
+    }
+
+    /**
+     * Queues, counters and threads of a single {@link #ingest(List)} or {@link #update(List, Collection)} call.
+     */
+    private final class Run {
+
+        // Identity-compared end-of-stream markers
+        private final Document endOfDocuments = new Document("end-of-documents");
+        private final ReadDocument endOfRead = new ReadDocument(endOfDocuments, false);
+        private final EmbeddedBatch endOfBatches = new EmbeddedBatch(List.of(), null);
+
+        private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        // Stages and the read and embedding tasks they spawn each register; the caller is the initial party
+        private final Phaser running = new Phaser(1);
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final BlockingQueue<ReadDocument> documentQueue = new ArrayBlockingQueue<>(queueCapacity);
+        private final BlockingQueue<Document> chunkQueue = new ArrayBlockingQueue<>(queueCapacity);
+        private final BlockingQueue<EmbeddedBatch> batchQueue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity / 16));
+
+        private final AtomicLong documents = new AtomicLong();
+        private final AtomicLong chunksWritten = new AtomicLong();
+        private final AtomicLong batches = new AtomicLong();
+        private final AtomicLong tokens = new AtomicLong();
+        private final AtomicLong unchangedResources = new AtomicLong();
+        private final AtomicLong unchangedChunks = new AtomicLong();
+
+        // Every configured source; content hash and current chunks (id to text hash) of the ones read in this run
+        private final Set<String> sources = ConcurrentHashMap.newKeySet();
+        private final Map<String, String> sourceHashes = new ConcurrentHashMap<>();
+        private final Map<String, Map<String, String>> sourceChunks = new ConcurrentHashMap<>();
+        private final Map<String, Integer> occurrences = new HashMap<>();
+
+        private final Counter documentsCounter = meterRegistry.counter("ingestion.documents");
+        private final Counter chunksCounter = meterRegistry.counter("ingestion.chunks");
+        private final Counter tokensCounter = meterRegistry.counter("ingestion.embedding.tokens");
+        private final Counter writtenCounter = meterRegistry.counter("ingestion.chunks.written");
+        private final Timer embeddingTimer = meterRegistry.timer("ingestion.embedding.batch");
+        private final Timer writeTimer = meterRegistry.timer("ingestion.write.batch");
+
+        /**
+         * Runs {@code body} on its own thread; the first failure of any stage interrupts all the others.
+         */
+        private void stage(ThrowingRunnable body) {
+            running.register();
+            try {
+                executor.execute(() -> {
+                    try {
+                        body.run();
+                    } catch (Throwable e) {
+                        fail(e);
+                    } finally {
+                        running.arriveAndDeregister();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Only after another stage failed and shut the executor down
+                running.arriveAndDeregister();
+                fail(e);
+            }
+        }
+
+        private void fail(Throwable e) {
+            if (failure.compareAndSet(null, e)) {
+                executor.shutdownNow();
+            }
+        }
+
+        private void awaitStages() {
+            running.arriveAndAwaitAdvance();
+        }
+
+        private void read(List<Resource> resources) throws InterruptedException {
+            Semaphore permits = new Semaphore(readConcurrency);
+            for (Resource resource : resources) {
+                permits.acquire();
+                stage(() -> {
+                    try {
+                        readResource(resource);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+            permits.acquire(readConcurrency);
+            documentQueue.put(endOfRead);
+        }
+
+        private void readResource(Resource resource) throws IOException, InterruptedException {
+            String source = resource.getFilename();
+            sources.add(source);
+            Resource input = resource;
+            if (manifest != null) {
+                String hash;
+                if (resource.isFile()) {
+                    try (InputStream content = resource.getInputStream()) {
+                        hash = IngestionManifest.sha256(content);
+                    }
+                } else {
+                    // Parse the bytes that were hashed, not a second download
+                    byte[] content = resource.getContentAsByteArray();
+                    hash = IngestionManifest.sha256(content);
+                    input = new ByteArrayResource(content, resource.getDescription()) {
+                        @Override
+                        public String getFilename() {
+                            return source;
+                        }
+                    };
+                }
+                IngestionManifest.Source previous = manifest.source(source);
+                if (previous != null && previous.hash().equals(hash)) {
+                    log.info("Document {} is unchanged, skipping it", source);
+                    unchangedResources.incrementAndGet();
+                    return;
+                }
+                if (!manifest.exists()) {
+                    // Chunks written before the manifest existed have ids it does not know
+                    target.deleteSource(source);
+                }
+                sourceHashes.put(source, hash);
+            }
+
+            log.info("Loading document: {}", source);
+            String ingestedAt = Instant.now().toString();
+            DocumentReader reader = documentReader.apply(input);
+            if (reader instanceof StreamingDocumentReader streamingReader) {
+                try (Stream<Document> stream = streamingReader.stream()) {
+                    for (Iterator<Document> iterator = stream.iterator(); iterator.hasNext(); ) {
+                        publish(iterator.next(), source, ingestedAt, false);
+                    }
+                }
+            } else {
+                for (Document document : reader.get()) {
+                    publish(document, source, ingestedAt, true);
+                }
+            }
+        }
+
+        private void publish(Document document, String source, String ingestedAt, boolean split)
+                throws InterruptedException {
+            document.getMetadata().put(IngestionTarget.SOURCE_FILE, source);
+            document.getMetadata().put("ingestion_timestamp", ingestedAt);
+            documents.incrementAndGet();
+            documentsCounter.increment();
+            documentQueue.put(new ReadDocument(document, split));
+        }
+
+        private void split() throws InterruptedException {
+            for (ReadDocument read = documentQueue.take(); read != endOfRead; read = documentQueue.take()) {
+                List<Document> chunks = read.split() ? textSplitter.split(read.document()) : List.of(read.document());
+                for (Document chunk : chunks) {
+                    chunksCounter.increment();
+                    Document identified = identify(chunk);
+                    if (identified == null) {
+                        unchangedChunks.incrementAndGet();
+                    } else {
+                        chunkQueue.put(identified);
+                    }
+                }
+            }
+            chunkQueue.put(endOfDocuments);
+        }
+
+        /**
+         * Gives {@code chunk} an id derived from its source, its text and how often that text already occurred in the
+         * source, and records it for the manifest.
+         *
+         * @return the chunk with its id, or {@code null} when the manifest shows it is already stored
+         */
+        private Document identify(Document chunk) {
+            String source = (String) chunk.getMetadata().get(IngestionTarget.SOURCE_FILE);
+            String hash = IngestionManifest.sha256(chunk.getText());
+            int occurrence = occurrences.merge(source + '\n' + hash, 1, Integer::sum);
+            String id = UUID.nameUUIDFromBytes((source + '\n' + hash + '\n' + occurrence).getBytes(StandardCharsets.UTF_8))
+                    .toString();
+            sourceChunks.computeIfAbsent(source, key -> new LinkedHashMap<>()).put(id, hash);
+
+            IngestionManifest.Source previous = manifest == null ? null : manifest.source(source);
+            if (previous != null && previous.chunks().containsKey(id)) {
+                return null;
+            }
+            Document identified = chunk.mutate().id(id).build();
+            identified.setContentFormatter(chunk.getContentFormatter());
+            return identified;
+        }
+
+        private void embed() throws InterruptedException {
+            Semaphore permits = new Semaphore(embeddingConcurrency);
+            List<Document> batch = new ArrayList<>();
+            int batchTokens = 0;
+            for (Document chunk = chunkQueue.take(); chunk != endOfDocuments; chunk = chunkQueue.take()) {
+                int chunkTokens = tokenCountEstimator.estimate(chunk.getFormattedContent(MetadataMode.EMBED));
+                if (chunkTokens > maxBatchTokens) {
+                    throw new IllegalArgumentException("Chunk " + chunk.getId() + " has " + chunkTokens
+                            + " tokens, more than the " + maxBatchTokens + " allowed in one embedding batch");
+                }
+                if (batchTokens + chunkTokens > maxBatchTokens) {
+                    submit(batch, batchTokens, permits);
+                    batch = new ArrayList<>();
+                    batchTokens = 0;
+                }
+                batch.add(chunk);
+                batchTokens += chunkTokens;
+            }
+            if (!batch.isEmpty()) {
+                submit(batch, batchTokens, permits);
+            }
+            // Wait for the batches still being embedded before closing the queue
+            permits.acquire(embeddingConcurrency);
+            batchQueue.put(endOfBatches);
+        }
+
+        private void submit(List<Document> batch, int batchTokens, Semaphore permits) throws InterruptedException {
+            permits.acquire();
+            stage(() -> {
+                try {
+                    List<float[]> embeddings = embeddingTimer.recordCallable(() -> target.embed(batch));
+                    batches.incrementAndGet();
+                    tokens.addAndGet(batchTokens);
+                    tokensCounter.increment(batchTokens);
+                    batchQueue.put(new EmbeddedBatch(batch, embeddings));
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+
+        private void write() throws InterruptedException {
+            for (EmbeddedBatch batch = batchQueue.take(); batch != endOfBatches; batch = batchQueue.take()) {
+                EmbeddedBatch current = batch;
+                writeTimer.record(() -> target.write(current.documents(), current.embeddings()));
+                chunksWritten.addAndGet(batch.documents().size());
+                writtenCounter.increment(batch.documents().size());
+            }
+            // Targets that write asynchronously must be done before stale chunks are deleted and the manifest updated
+            target.flush();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+
+    public static final class Builder {
+
+        private final IngestionTarget target;
+        private Function<Resource, DocumentReader> documentReader = TikaDocumentReader::new;
+        private TextSplitter textSplitter = new TokenTextSplitter();
+        private TokenCountEstimator tokenCountEstimator = new JTokkitTokenCountEstimator();
+        private int readConcurrency = 2;
+        private int embeddingConcurrency = 4;
+        private int queueCapacity = 256;
+        // Same budget as TokenCountBatchingStrategy: the OpenAI limit of 8191 tokens minus a 10% reserve
+        private int maxBatchTokens = 7371;
+        private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        private IngestionManifest manifest;
+
+        private Builder(IngestionTarget target) {
+            this.target = target;
+        }
+
+        /**
+         * Reader used for each resource; defaults to {@link TikaDocumentReader}.
+         */
+        public Builder documentReader(Function<Resource, DocumentReader> documentReader) {
+            this.documentReader = documentReader;
+            return this;
+        }
+
+        public Builder textSplitter(TextSplitter textSplitter) {
+            this.textSplitter = textSplitter;
+            return this;
+        }
+
+        public Builder tokenCountEstimator(TokenCountEstimator tokenCountEstimator) {
+            this.tokenCountEstimator = tokenCountEstimator;
+            return this;
+        }
+
+        /**
+         * Number of resources parsed at the same time.
+         */
+        public Builder readConcurrency(int readConcurrency) {
+            this.readConcurrency = readConcurrency;
+            return this;
+        }
+
+        /**
+         * Number of embedding requests in flight at the same time.
+         */
+        public Builder embeddingConcurrency(int embeddingConcurrency) {
+            this.embeddingConcurrency = embeddingConcurrency;
+            return this;
+        }
+
+        /**
+         * Capacity of the document and chunk queues between the stages.
+         */
+        public Builder queueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * Upper bound on the estimated tokens of one embedding request.
+         */
+        public Builder maxBatchTokens(int maxBatchTokens) {
+            this.maxBatchTokens = maxBatchTokens;
+            return this;
+        }
+
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        /**
+         * Enables incremental ingestion against {@code manifest}, which is updated by every successful run.
+         */
+        public Builder manifest(IngestionManifest manifest) {
+            this.manifest = manifest;
+            return this;
+        }
+
+        public IngestionPipeline build() {
+            return new IngestionPipeline(this);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.spring.eac.ai.ingestion;
+
+import java.time.Duration;
+
+/**
+ * Counts of one {@link IngestionPipeline#ingest(java.util.List)} run.
+ *
+ * @param resources resources read
+ * @param documents documents produced by the document reader
+ * @param chunks chunks written to the target
+ * @param batches embedding batches
+ * @param tokens estimated tokens sent to the embedding model
+ * @param unchangedResources resources skipped because their content hash matched the manifest
+ * @param unchangedChunks chunks of re-read resources that were already stored
+ * @param deletedChunks chunks deleted because their source no longer produces them
+ * @param elapsed wall-clock time of the run
+ */
+public record IngestionResult(int resources, long documents, long chunks, long batches, long tokens,
+                              long unchangedResources, long unchangedChunks, long deletedChunks, Duration elapsed) {
+
+    /**
+     * Whether the run wrote or deleted anything, i.e. whether the store needs to be saved.
+     */
+    public boolean changed() {
+        return chunks > 0 || deletedChunks > 0 || unchangedResources < resources;
+    }
+
+    public double chunksPerSecond() {
+        return perSecond(chunks);
+    }
+
+    public double tokensPerSecond() {
+        return perSecond(tokens);
+    }
+
+    private double perSecond(long count) {
+        long millis = elapsed.toMillis();
+        return millis == 0 ? count : count * 1000.0 / millis;
+    }
+}
@@ -0,0 +1,152 @@
+package com.spring.eac.ai.ingestion;
+
+import com.spring.eac.ai.retrieval.Bm25Index;
+import com.spring.eac.ai.vectorstore.MappedVectorStore;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.embedding.TokenCountBatchingStrategy;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import java.util.List;
+
+/**
+ * Where an {@link IngestionPipeline} sends its batches.
+ * <p>
+ * {@link #embed(List)} runs on the embedding stage, concurrently for several batches; {@link #write(List, List)} runs
+ * on the single writer stage, in the order the embeddings complete.
+ */
+public interface IngestionTarget {
+
+    /**
+     * Metadata key holding the file name of the resource a chunk was read from.
+     */
+    String SOURCE_FILE = "source_file";
+
+    /**
+     * Embeds one token-count batch.
+     *
+     * @return one embedding per document, or {@code null} when the target embeds while writing
+     */
+    List<float[]> embed(List<Document> batch);
+
+    /**
+     * Stores a batch returned by {@link #embed(List)}.
+     */
+    void write(List<Document> batch, List<float[]> embeddings);
+
+    /**
+     * Called by the writer stage after the last batch of a run; returns once everything written is stored.
+     */
+    default void flush() {
+    }
+
+    /**
+     * Deletes chunks that are no longer produced by their source.
+     */
+    void delete(List<String> ids);
+
+    /**
+     * Deletes every chunk whose {@code source_file} metadata is {@code sourceFile}. Used once per source when there
+     * is no manifest yet, to drop chunks written with ids the manifest does not know.
+     */
+    void deleteSource(String sourceFile);
+
+    /**
+     * Also writes every chunk to {@code lexicalIndex} once {@code target} has stored it, and deletes from both.
+     */
+    static IngestionTarget indexing(IngestionTarget target, Bm25Index lexicalIndex) {
+        return new IngestionTarget() {
+            @Override
+            public List<float[]> embed(List<Document> batch) {
+                return target.embed(batch);
+            }
+
+            @Override
+            public void write(List<Document> batch, List<float[]> embeddings) {
+                target.write(batch, embeddings);
+                lexicalIndex.add(batch);
+            }
+
+            @Override
+            public void flush() {
+                target.flush();
+            }
+
+            @Override
+            public void delete(List<String> ids) {
+                target.delete(ids);
+                lexicalIndex.delete(ids);
+            }
+
+            @Override
+            public void deleteSource(String sourceFile) {
+                target.deleteSource(sourceFile);
+                lexicalIndex.deleteSource(sourceFile);
+            }
+        };
+    }
+
+    /**
+     * Target for the local store: embeddings are computed by the embedding stage and handed to
+     * {@link MappedVectorStore#add(List, List)}, so writes never wait on the embedding API.
+     */
+    static IngestionTarget of(MappedVectorStore store, EmbeddingModel embeddingModel) {
+        TokenCountBatchingStrategy batchingStrategy = new TokenCountBatchingStrategy();
+        return new IngestionTarget() {
+            @Override
+            public List<float[]> embed(List<Document> batch) {
+                return embeddingModel.embed(batch, EmbeddingOptionsBuilder.builder().build(), batchingStrategy);
+            }
+
+            @Override
+            public void write(List<Document> batch, List<float[]> embeddings) {
+                store.add(batch, embeddings);
+            }
+
+            @Override
+            public void delete(List<String> ids) {
+                store.delete(ids);
+            }
+
+            @Override
+            public void deleteSource(String sourceFile) {
+                store.delete(new FilterExpressionBuilder().eq(SOURCE_FILE, sourceFile).build());
+            }
+        };
+    }
+
+    /**
+     * Target for any other {@link VectorStore}, e.g. Milvus. Such stores embed inside {@link VectorStore#add(List)},
+     * so the add runs on the embedding stage, at the embedding concurrency, and the writer stage has nothing left to do.
+     * Ids are deleted before they are added because stores such as Milvus do not enforce unique ids, which makes a
+     * retried batch replace its earlier copy instead of duplicating it. {@link BulkVectorStoreTarget} regroups and
+     * bounds the inserts of large loads instead.
+     */
+    static IngestionTarget of(VectorStore vectorStore) {
+        return new IngestionTarget() {
+            @Override
+            public List<float[]> embed(List<Document> batch) {
+                vectorStore.delete(batch.stream().map(Document::getId).toList());
+                vectorStore.add(batch);
+                return null;
+            }
+
+            @Override
+            public void write(List<Document> batch, List<float[]> embeddings) {
+                // Already written by embed
+            }
+
+            @Override
+            public void delete(List<String> ids) {
+                vectorStore.delete(ids);
+            }
+
+            @Override
+            public void deleteSource(String sourceFile) {
+                vectorStore.delete(new FilterExpressionBuilder().eq(SOURCE_FILE, sourceFile).build());
+            }
+        };
+    }
+}
@@ -0,0 +1,28 @@
+package com.spring.eac.ai.ingestion;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentReader;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * {@link DocumentReader} producing its documents lazily, so a resource never has to fit in memory.
+ * <p>
+ * The documents are already sized for embedding: the {@link IngestionPipeline} hands them to the embedding stage
+ * without running its text splitter.
+ */
+public interface StreamingDocumentReader extends DocumentReader {
+
+    /**
+     * Documents of the resource, read as the stream is consumed. The stream holds the resource open until closed.
+     */
+    Stream<Document> stream();
+
+    @Override
+    default List<Document> get() {
+        try (Stream<Document> documents = stream()) {
+            return documents.toList();
+        }
+    }
+}
@@ -1,4 +1,11 @@
 package com.spring.eac.ai.model;
 
-public record Question(String question) {
+/**
+ * @param retrieval retrieval mode for this question, or {@code null} for the configured default
+ */
+public record Question(String question, RetrievalMode retrieval) {
+
+    public Question(String question) {
+        this(question, null);
+    }
 }
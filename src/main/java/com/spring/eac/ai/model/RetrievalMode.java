@@ -0,0 +1,17 @@
+package com.spring.eac.ai.model;
+
+/**
+ * How the documents for a RAG answer are retrieved.
+ */
+public enum RetrievalMode {
+
+    /**
+     * Embedding similarity search only.
+     */
+    VECTOR,
+
+    /**
+     * Embedding similarity and BM25 rankings fused with reciprocal rank fusion.
+     */
+    HYBRID
+}
@@ -1,12 +1,16 @@
 package com.spring.eac.ai.property;
 
+import com.knuddels.jtokkit.api.EncodingType;
+import com.spring.eac.ai.model.RetrievalMode;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.core.io.Resource;
+import org.springframework.util.unit.DataSize;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -30,4 +34,323 @@ public class ApplicationProperties {
 
     @Builder.Default
     private List<Resource> documentsToLoad = new ArrayList<>();
-}
\ No newline at end of file
+
+    @Builder.Default
+    private Hnsw hnsw = new Hnsw();
+
+    @Builder.Default
+    private Quantization quantization = new Quantization();
+
+    @Builder.Default
+    private MetadataIndex metadataIndex = new MetadataIndex();
+
+    @Builder.Default
+    private ParallelSearch parallelSearch = new ParallelSearch();
+
+    @Builder.Default
+    private WriteAheadLog writeAheadLog = new WriteAheadLog();
+
+    @Builder.Default
+    private Warmup warmup = new Warmup();
+
+    @Builder.Default
+    private Retrieval retrieval = new Retrieval();
+
+    @Builder.Default
+    private Ingestion ingestion = new Ingestion();
+
+    @Builder.Default
+    private EmbeddingCache embeddingCache = new EmbeddingCache();
+
+    @Builder.Default
+    private QueryEmbeddingCache queryEmbeddingCache = new QueryEmbeddingCache();
+
+    @Builder.Default
+    private SearchCache searchCache = new SearchCache();
+
+    @Builder.Default
+    private SemanticCache semanticCache = new SemanticCache();
+
+    @Builder.Default
+    private SingleFlight singleFlight = new SingleFlight();
+
+    /**
+     * HNSW index of the local vector store, tuned with the same knobs as the Milvus index.
+     */
+    @Data
+    public static class Hnsw {
+
+        private boolean enabled = true;
+
+        private int m = 16;
+
+        private int efConstruction = 200;
+
+        private int ef = 64;
+    }
+
+    /**
+     * Int8 quantization of the local vector store; searches re-rank {@code topK * oversampling} candidates with the
+     * full-precision embeddings.
+     */
+    @Data
+    public static class Quantization {
+
+        private boolean enabled = false;
+
+        private int oversampling = 4;
+    }
+
+    /**
+     * Inverted indexes on metadata keys of the local store, used to plan filtered similarity searches.
+     */
+    @Data
+    public static class MetadataIndex {
+
+        private List<String> keys = new ArrayList<>(List.of("source_file", "ingestion_timestamp"));
+
+        private double preFilterSelectivity = 0.1;
+    }
+
+    /**
+     * Sharded scans of the local store; {@code shards = 0} uses one shard per available processor.
+     */
+    @Data
+    public static class ParallelSearch {
+
+        private int shards = 0;
+
+        private int minShardRows = 4096;
+    }
+
+    /**
+     * Write-ahead log of the local store; logged changes are folded into the store files by background snapshots.
+     */
+    @Data
+    public static class WriteAheadLog {
+
+        private boolean enabled = true;
+
+        private Duration snapshotInterval = Duration.ofMinutes(5);
+    }
+
+    /**
+     * Background loading of the vector store: whether readiness waits for it and how RAG answers behave meanwhile.
+     */
+    @Data
+    public static class Warmup {
+
+        private boolean gateReadiness = false;
+
+        private AskBehavior askBehavior = AskBehavior.REJECT;
+
+        private Duration retryAfter = Duration.ofSeconds(30);
+
+        private String message = "The knowledge base is still loading, please try again in a moment.";
+
+        public enum AskBehavior {
+            /**
+             * Respond with 503 Service Unavailable and a Retry-After header.
+             */
+            REJECT,
+            /**
+             * Answer from the model alone, without retrieved documents.
+             */
+            WITHOUT_DOCUMENTS,
+            /**
+             * Answer with the configured message.
+             */
+            MESSAGE
+        }
+    }
+
+    /**
+     * Default retrieval mode of RAG answers and the BM25 index used by hybrid retrieval, which is only built when
+     * the default mode is hybrid.
+     */
+    @Data
+    public static class Retrieval {
+
+        private RetrievalMode mode = RetrievalMode.VECTOR;
+
+        private int candidates = 20;
+
+        private int rrfK = 60;
+
+        private String lexicalIndexPath = "vector-store/bm25.json";
+
+        private Mmr mmr = new Mmr();
+
+        private ContextPacking contextPacking = new ContextPacking();
+    }
+
+    /**
+     * Maximal marginal relevance re-ranking of the retrieved documents: {@code fetchMultiplier * topK} candidates are
+     * retrieved and {@code topK} of them picked, trading relevance against redundancy with {@code lambda}.
+     */
+    @Data
+    public static class Mmr {
+
+        private boolean enabled = true;
+
+        private double lambda = 0.5;
+
+        private int fetchMultiplier = 5;
+    }
+
+    /**
+     * Token budget of the retrieved documents in the RAG prompt; {@code encoding} defaults to the one of the chat model.
+     */
+    @Data
+    public static class ContextPacking {
+
+        private boolean enabled = true;
+
+        private int maxTokens = 3000;
+
+        private EncodingType encoding;
+    }
+
+    /**
+     * Concurrency and batching of the ingestion pipeline that loads {@code documentsToLoad}.
+     */
+    @Data
+    public static class Ingestion {
+
+        private int readConcurrency = 2;
+
+        private int embeddingConcurrency = 4;
+
+        private int queueCapacity = 256;
+
+        private int maxBatchTokens = 7371;
+
+        private String manifestPath = "vector-store/ingestion-manifest.json";
+
+        private Csv csv = new Csv();
+
+        private Watch watch = new Watch();
+
+        private Bulk bulk = new Bulk();
+    }
+
+    /**
+     * Inserts into Milvus: regrouped by rows and bytes, a bounded number at a time, retried idempotently by chunk id.
+     */
+    @Data
+    public static class Bulk {
+
+        private int maxRows = 500;
+
+        private DataSize maxBytes = DataSize.ofMegabytes(4);
+
+        private int maxInFlight = 4;
+
+        private int maxAttempts = 3;
+
+        private Duration retryBackoff = Duration.ofMillis(500);
+    }
+
+    /**
+     * Live ingestion of a directory: created and modified files are ingested and deleted ones removed from the active
+     * vector store once no event touched them for the debounce period.
+     */
+    @Data
+    public static class Watch {
+
+        private boolean enabled = false;
+
+        private String directory = "documents";
+
+        private Duration debounce = Duration.ofSeconds(2);
+    }
+
+    /**
+     * Row-by-row reading of {@code .csv} resources; empty column lists select every column (minus the text columns
+     * for metadata).
+     */
+    @Data
+    public static class Csv {
+
+        private List<String> textColumns = new ArrayList<>();
+
+        private List<String> metadataColumns = new ArrayList<>();
+
+        private int rowsPerDocument = 1;
+    }
+
+    /**
+     * On-disk cache of embeddings in front of the embedding model, shared by ingestion and query embedding.
+     */
+    @Data
+    public static class EmbeddingCache {
+
+        private boolean enabled = true;
+
+        private String path = "vector-store/embedding-cache.bin";
+
+        private int maxEntries = 10000;
+    }
+
+    /**
+     * In-memory cache of similarity search query embeddings, keyed by the normalized query text.
+     */
+    @Data
+    public static class QueryEmbeddingCache {
+
+        private boolean enabled = true;
+
+        private int maxEntries = 1000;
+
+        private Duration timeToLive = Duration.ofHours(1);
+    }
+
+    /**
+     * In-memory cache of similarity search results, invalidated by any write to the vector store.
+     */
+    @Data
+    public static class SearchCache {
+
+        private boolean enabled = true;
+
+        private int maxEntries = 1000;
+    }
+
+    /**
+     * Responses reused for questions whose embedding is close enough to an earlier one, per endpoint. Capitals are
+     * looked up by the normalized state or country alone, without embedding, so their similarity threshold is unused;
+     * RAG answers only hit for the same model numbers and are dropped after any write to the vector store.
+     */
+    @Data
+    public static class SemanticCache {
+
+        private boolean enabled = true;
+
+        private SemanticCacheEndpoint answer = new SemanticCacheEndpoint(0.98, Duration.ofMinutes(10), 500);
+
+        private SemanticCacheEndpoint capital = new SemanticCacheEndpoint(0.95, Duration.ofHours(24), 1000);
+
+        private SemanticCacheEndpoint capitalWithInfo = new SemanticCacheEndpoint(0.95, Duration.ofHours(24), 1000);
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SemanticCacheEndpoint {
+
+        private double similarityThreshold = 0.95;
+
+        private Duration timeToLive = Duration.ofHours(1);
+
+        private int maxEntries = 1000;
+    }
+
+    /**
+     * Concurrent identical model calls, same rendered prompt and options, share one upstream call.
+     */
+    @Data
+    public static class SingleFlight {
+
+        private boolean enabled = true;
+    }
+}
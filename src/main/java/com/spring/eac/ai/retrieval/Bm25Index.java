@@ -0,0 +1,341 @@
+package com.spring.eac.ai.retrieval;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionConverter;
+import org.springframework.ai.vectorstore.filter.converter.SimpleVectorStoreFilterExpressionConverter;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import static com.spring.eac.ai.ingestion.IngestionTarget.SOURCE_FILE;
+
+/**
+ * In-memory lexical index ranking chunks with Okapi BM25, kept next to the vector store and fed by the same ingestion
+ * runs, so both share chunk ids.
+ * <p>
+ * Text is lower-cased and split on anything that is not a letter or digit; common English stop words are dropped.
+ * Only the postings are kept: the term frequencies and length of each chunk and its source file, so chunks of a source
+ * can be deleted. Text and metadata of the best chunks are read from the vector store by id through a
+ * {@link DocumentLookup} when a search returns them, and the postings are persisted as a JSON file. Exact title and
+ * name matches, which embeddings tend to blur, rank high here.
+ */
+@Slf4j
+public class Bm25Index {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Set<String> STOP_WORDS = Set.of("a", "an", "and", "are", "as", "at", "be", "by", "for",
+            "from", "in", "is", "it", "of", "on", "or", "that", "the", "this", "to", "was", "what", "which", "with");
+    private static final TypeReference<List<Entry>> ENTRIES_TYPE = new TypeReference<>() {
+    };
+    private static final TypeReference<List<LegacyEntry>> LEGACY_ENTRIES_TYPE = new TypeReference<>() {
+    };
+
+    private final Path path;
+    private final DocumentLookup documentLookup;
+    private final double k1;
+    private final double b;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SpelExpressionParser expressionParser = new SpelExpressionParser();
+    private final FilterExpressionConverter filterExpressionConverter = new SimpleVectorStoreFilterExpressionConverter();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Chunk> chunks = new LinkedHashMap<>();
+    private final Map<String, Map<Chunk, Integer>> postings = new HashMap<>();
+    private long totalLength;
+
+    /**
+     * @param documentLookup reads text and metadata of search results from the vector store
+     * @param k1             term frequency saturation, typically 1.2
+     * @param b              document length normalization, typically 0.75
+     */
+    public Bm25Index(Path path, DocumentLookup documentLookup, double k1, double b) {
+        this.path = path;
+        this.documentLookup = documentLookup;
+        this.k1 = k1;
+        this.b = b;
+    }
+
+    public Bm25Index(Path path, DocumentLookup documentLookup) {
+        this(path, documentLookup, 1.2, 0.75);
+    }
+
+    public boolean exists() {
+        return Files.exists(path);
+    }
+
+    /**
+     * Reads the postings saved at the index path.
+     */
+    public void load() {
+        try {
+            JsonNode root = objectMapper.readTree(path.toFile());
+            if (root.isArray() && !root.isEmpty() && root.get(0).has("text")) {
+                // Saved before only postings were kept: tokenize the stored text once more
+                List<LegacyEntry> entries = objectMapper.treeToValue(root, LEGACY_ENTRIES_TYPE);
+                add(entries.stream().map(entry -> new Document(entry.id(), entry.text(), entry.metadata())).toList());
+                log.info("Loaded lexical index with {} chunks of text from {}", entries.size(), path);
+                return;
+            }
+            List<Entry> entries = objectMapper.treeToValue(root, ENTRIES_TYPE);
+            lock.writeLock().lock();
+            try {
+                for (Entry entry : entries) {
+                    index(entry.id(), entry.source(), entry.terms());
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Loaded lexical index with {} chunks from {}", entries.size(), path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load lexical index from " + path, e);
+        }
+    }
+
+    /**
+     * Writes the postings next to the index file and moves it into place.
+     */
+    public void save() {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        lock.readLock().lock();
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            List<Entry> entries = chunks.values().stream()
+                    .map(chunk -> new Entry(chunk.id(), chunk.source(), chunk.frequencies()))
+                    .toList();
+            objectMapper.writeValue(tmp.toFile(), entries);
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Saved lexical index with {} chunks to {}", entries.size(), path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to save lexical index to " + path, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return chunks.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Indexes {@code documents}; a document with an existing id replaces it.
+     */
+    public void add(Collection<Document> documents) {
+        lock.writeLock().lock();
+        try {
+            for (Document document : documents) {
+                Map<String, Integer> frequencies = new HashMap<>();
+                tokenize(document.getText()).forEach(token -> frequencies.merge(token, 1, Integer::sum));
+                Object source = document.getMetadata().get(SOURCE_FILE);
+                index(document.getId(), source == null ? null : source.toString(), frequencies);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void delete(Collection<String> ids) {
+        lock.writeLock().lock();
+        try {
+            ids.forEach(this::remove);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes every chunk whose {@code source_file} metadata was {@code sourceFile} when it was added.
+     */
+    public void deleteSource(String sourceFile) {
+        lock.writeLock().lock();
+        try {
+            chunks.values().stream()
+                    .filter(chunk -> Objects.equals(chunk.source(), sourceFile))
+                    .map(Chunk::id)
+                    .toList()
+                    .forEach(this::remove);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The {@code topK} chunks with the highest BM25 score for {@code query}, best first, with the score set. Chunks
+     * the vector store no longer holds are skipped.
+     *
+     * @param filterExpression optional metadata filter, evaluated like the local vector store does
+     */
+    public List<Document> search(String query, int topK, Filter.Expression filterExpression) {
+        Predicate<Document> filter = filterPredicate(filterExpression);
+        List<Map.Entry<String, Double>> ranked = rank(query);
+        // Read from the store best first, a page at a time, until topK documents pass the filter
+        List<Document> documents = new ArrayList<>(Math.min(topK, ranked.size()));
+        for (int from = 0; from < ranked.size() && documents.size() < topK; from += topK) {
+            List<Map.Entry<String, Double>> page = ranked.subList(from, Math.min(from + topK, ranked.size()));
+            Map<String, Document> stored = documentLookup.documents(page.stream().map(Map.Entry::getKey).toList());
+            for (Map.Entry<String, Double> scored : page) {
+                Document document = stored.get(scored.getKey());
+                if (document != null && filter.test(document) && documents.size() < topK) {
+                    documents.add(document.mutate().score(scored.getValue()).build());
+                }
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * Ids of the chunks matching a term of {@code query} with their BM25 score, best first.
+     */
+    private List<Map.Entry<String, Double>> rank(String query) {
+        lock.readLock().lock();
+        try {
+            if (chunks.isEmpty()) {
+                return List.of();
+            }
+            double averageLength = (double) totalLength / chunks.size();
+            Map<Chunk, Double> scores = new HashMap<>();
+            for (String term : Set.copyOf(tokenize(query))) {
+                Map<Chunk, Integer> matching = postings.get(term);
+                if (matching == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (chunks.size() - matching.size() + 0.5) / (matching.size() + 0.5));
+                matching.forEach((chunk, frequency) -> {
+                    double norm = k1 * (1 - b + b * chunk.length() / averageLength);
+                    scores.merge(chunk, idf * frequency * (k1 + 1) / (frequency + norm), Double::sum);
+                });
+            }
+
+            List<Map.Entry<String, Double>> ranked = new ArrayList<>(scores.size());
+            scores.forEach((chunk, score) -> ranked.add(Map.entry(chunk.id(), score)));
+            ranked.sort(Map.Entry.<String, Double>comparingByValue(Comparator.reverseOrder()));
+            return ranked;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Indexes a chunk under the write lock; a chunk with the same id is replaced.
+     */
+    private void index(String id, String source, Map<String, Integer> frequencies) {
+        remove(id);
+        int length = frequencies.values().stream().mapToInt(Integer::intValue).sum();
+        Chunk chunk = new Chunk(id, source, length, frequencies);
+        chunks.put(id, chunk);
+        frequencies.forEach((term, frequency) -> postings.computeIfAbsent(term, t -> new HashMap<>()).put(chunk, frequency));
+        totalLength += length;
+    }
+
+    private void remove(String id) {
+        Chunk chunk = chunks.remove(id);
+        if (chunk == null) {
+            return;
+        }
+        for (String term : chunk.frequencies().keySet()) {
+            Map<Chunk, Integer> matching = postings.get(term);
+            matching.remove(chunk);
+            if (matching.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+        totalLength -= chunk.length();
+    }
+
+    private Predicate<Document> filterPredicate(Filter.Expression filterExpression) {
+        if (filterExpression == null) {
+            return document -> true;
+        }
+        Expression expression = expressionParser.parseExpression(
+                filterExpressionConverter.convertExpression(filterExpression));
+        return document -> {
+            StandardEvaluationContext context = new StandardEvaluationContext();
+            context.setVariable("metadata", document.getMetadata());
+            return Boolean.TRUE.equals(expression.getValue(context, Boolean.class));
+        };
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_WORD.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty() && !STOP_WORDS.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Indexed chunk; compared by identity so the postings of a replaced chunk never match its successor.
+     */
+    private static final class Chunk {
+
+        private final String id;
+        private final String source;
+        private final int length;
+        private final Map<String, Integer> frequencies;
+
+        private Chunk(String id, String source, int length, Map<String, Integer> frequencies) {
+            this.id = id;
+            this.source = source;
+            this.length = length;
+            this.frequencies = frequencies;
+        }
+
+        String id() {
+            return id;
+        }
+
+        String source() {
+            return source;
+        }
+
+        int length() {
+            return length;
+        }
+
+        Map<String, Integer> frequencies() {
+            return frequencies;
+        }
+    }
+
+    private record Entry(String id, String source, Map<String, Integer> terms) {
+    }
+
+    private record LegacyEntry(String id, String text, Map<String, Object> metadata) {
+    }
+}
@@ -0,0 +1,178 @@
+package com.spring.eac.ai.retrieval;
+
+import com.knuddels.jtokkit.api.EncodingType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.util.Assert;
+
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Packs retrieved documents into the {@code {documents}} slot of the RAG prompt within a token budget.
+ * <p>
+ * Documents are taken greedily in the order they are given, which is the ranking of the retriever: re-sorting by score
+ * would undo a reranking such as MMR that deliberately moves lower scored documents up. A document that does not fit in the remaining budget is cut
+ * after its last whole sentence that does, and skipped when not even its first sentence fits, so shorter documents
+ * further down can still use the room. Tokens are counted with the encoding of the chat model. The packed tokens and
+ * the tokens left out of each request are published as the {@code rag.context.tokens} and
+ * {@code rag.context.tokens.saved} summaries.
+ */
+@Slf4j
+public class ContextPacker {
+
+    private static final String SEPARATOR = "\n";
+
+    private final TokenCountEstimator tokenCountEstimator;
+    private final int maxTokens;
+    private final DistributionSummary packedTokens;
+    private final DistributionSummary savedTokens;
+    private final Counter trimmedDocuments;
+
+    private ContextPacker(Builder builder) {
+        this.tokenCountEstimator = builder.tokenCountEstimator;
+        this.maxTokens = builder.maxTokens;
+        this.packedTokens = DistributionSummary.builder("rag.context.tokens")
+                .description("Tokens of retrieved documents put in the RAG prompt")
+                .baseUnit("tokens")
+                .register(builder.meterRegistry);
+        this.savedTokens = DistributionSummary.builder("rag.context.tokens.saved")
+                .description("Tokens of retrieved documents left out of the RAG prompt by the budget")
+                .baseUnit("tokens")
+                .register(builder.meterRegistry);
+        this.trimmedDocuments = builder.meterRegistry.counter("rag.context.documents.trimmed");
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Encoding of the OpenAI chat model: {@code o200k_base} for the GPT-4o generation and later, {@code cl100k_base}
+     * before.
+     */
+    public static EncodingType encodingFor(String model) {
+        String name = model == null ? "" : model.toLowerCase(Locale.ROOT);
+        for (String prefix : List.of("gpt-4o", "gpt-4.1", "gpt-4.5", "gpt-5", "o1", "o3", "o4", "chatgpt-4o")) {
+            if (name.startsWith(prefix)) {
+                return EncodingType.O200K_BASE;
+            }
+        }
+        return EncodingType.CL100K_BASE;
+    }
+
+    public PackedContext pack(List<Document> documents) {
+        int separatorTokens = tokenCountEstimator.estimate(SEPARATOR);
+        List<String> texts = new ArrayList<>();
+        List<Document> packed = new ArrayList<>();
+        int used = 0;
+        int retrieved = 0;
+        for (Document document : documents) {
+            String text = document.getText();
+            if (text == null || text.isBlank()) {
+                continue;
+            }
+            int tokens = tokenCountEstimator.estimate(text);
+            retrieved += tokens;
+            int available = maxTokens - used - (texts.isEmpty() ? 0 : separatorTokens);
+            if (tokens > available) {
+                text = trim(text, available);
+                if (text.isEmpty()) {
+                    continue;
+                }
+                tokens = tokenCountEstimator.estimate(text);
+                trimmedDocuments.increment();
+            }
+            used += tokens + (texts.isEmpty() ? 0 : separatorTokens);
+            texts.add(text);
+            packed.add(document);
+        }
+
+        int packedOnly = used - Math.max(0, texts.size() - 1) * separatorTokens;
+        int saved = Math.max(0, retrieved - packedOnly);
+        packedTokens.record(used);
+        savedTokens.record(saved);
+        log.debug("Packed {} of {} documents into {} of {} tokens, {} tokens left out", packed.size(),
+                documents.size(), used, maxTokens, saved);
+        return new PackedContext(String.join(SEPARATOR, texts), packed, used, saved);
+    }
+
+    /**
+     * The longest run of whole leading sentences of {@code text} within {@code budget} tokens, or an empty string.
+     */
+    private String trim(String text, int budget) {
+        if (budget <= 0) {
+            return "";
+        }
+        BreakIterator sentences = BreakIterator.getSentenceInstance(Locale.ROOT);
+        sentences.setText(text);
+        List<Integer> ends = new ArrayList<>();
+        int start = 0;
+        int tokens = 0;
+        for (int end = sentences.next(); end != BreakIterator.DONE; end = sentences.next()) {
+            tokens += tokenCountEstimator.estimate(text.substring(start, end));
+            if (tokens > budget) {
+                break;
+            }
+            ends.add(end);
+            start = end;
+        }
+        // Sentence counts only approximate the count of the joined sentences
+        for (int i = ends.size() - 1; i >= 0; i--) {
+            String trimmed = text.substring(0, ends.get(i)).strip();
+            if (tokenCountEstimator.estimate(trimmed) <= budget) {
+                return trimmed;
+            }
+        }
+        return "";
+    }
+
+    /**
+     * Documents that made it into the prompt, joined as {@code text}, and the token counts of the request.
+     */
+    public record PackedContext(String text, List<Document> documents, int tokens, int tokensSaved) {
+    }
+
+    public static final class Builder {
+
+        private TokenCountEstimator tokenCountEstimator = new JTokkitTokenCountEstimator(EncodingType.O200K_BASE);
+        private int maxTokens = 3000;
+        private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        private Builder() {
+        }
+
+        public Builder tokenCountEstimator(TokenCountEstimator tokenCountEstimator) {
+            Assert.notNull(tokenCountEstimator, "tokenCountEstimator must not be null");
+            this.tokenCountEstimator = tokenCountEstimator;
+            return this;
+        }
+
+        /**
+         * Token budget of the packed documents, separators included.
+         */
+        public Builder maxTokens(int maxTokens) {
+            Assert.isTrue(maxTokens > 0, "maxTokens must be positive");
+            this.maxTokens = maxTokens;
+            return this;
+        }
+
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            Assert.notNull(meterRegistry, "meterRegistry must not be null");
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        public ContextPacker build() {
+            return new ContextPacker(this);
+        }
+    }
+}
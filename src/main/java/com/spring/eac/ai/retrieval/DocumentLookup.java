@@ -0,0 +1,18 @@
+package com.spring.eac.ai.retrieval;
+
+import org.springframework.ai.document.Document;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Reads documents of the vector store by id, for indexes that only keep ids, such as the {@link Bm25Index}.
+ */
+@FunctionalInterface
+public interface DocumentLookup {
+
+    /**
+     * The stored documents with these ids by id, leaving out ids the store does not hold.
+     */
+    Map<String, Document> documents(Collection<String> ids);
+}
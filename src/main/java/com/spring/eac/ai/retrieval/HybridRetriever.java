@@ -0,0 +1,104 @@
+package com.spring.eac.ai.retrieval;
+
+import com.spring.eac.ai.model.RetrievalMode;
+import com.spring.eac.ai.property.ApplicationProperties;
+import com.spring.eac.ai.vectorstore.CachingVectorStore;
+import com.spring.eac.ai.vectorstore.MappedVectorStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Retrieves the documents of a RAG answer from the vector store alone, or fused with the {@link Bm25Index} ranking.
+ * <p>
+ * Hybrid retrieval asks both indexes for their best {@code candidates} documents and combines the two rankings with
+ * reciprocal rank fusion: each document scores {@code sum(1 / (rrfK + rank))} over the rankings it appears in. Only
+ * ranks are used, so the incomparable cosine and BM25 scores need no calibration. The BM25 index only exists when
+ * hybrid is the configured mode; without it, questions asking for hybrid retrieval use the vector store alone.
+ */
+@Slf4j
+@Component
+public class HybridRetriever {
+
+    private final VectorStore vectorStore;
+    private final Bm25Index bm25Index;
+    private final ApplicationProperties.Retrieval retrieval;
+
+    public HybridRetriever(VectorStore vectorStore, ObjectProvider<Bm25Index> bm25Index,
+                           ApplicationProperties applicationProperties) {
+        this.vectorStore = vectorStore;
+        this.bm25Index = bm25Index.getIfAvailable();
+        this.retrieval = applicationProperties.getRetrieval();
+    }
+
+    /**
+     * @param mode retrieval mode, or {@code null} for the configured default
+     */
+    public List<Document> retrieve(SearchRequest request, RetrievalMode mode) {
+        return retrieve(request, mode, null);
+    }
+
+    /**
+     * @param mode  retrieval mode, or {@code null} for the configured default
+     * @param query embedding of the request query, or {@code null} to let the vector store embed it
+     */
+    public List<Document> retrieve(SearchRequest request, RetrievalMode mode, float[] query) {
+        RetrievalMode effective = mode == null ? retrieval.getMode() : mode;
+        if (effective == RetrievalMode.VECTOR || bm25Index == null) {
+            return similaritySearch(request, query);
+        }
+
+        int candidates = Math.max(request.getTopK(), retrieval.getCandidates());
+        List<Document> semantic = similaritySearch(SearchRequest.from(request).topK(candidates).build(), query);
+        List<Document> lexical = bm25Index.search(request.getQuery(), candidates,
+                request.hasFilterExpression() ? request.getFilterExpression() : null);
+        List<Document> fused = fuse(List.of(semantic, lexical), retrieval.getRrfK(), request.getTopK());
+        log.debug("Hybrid retrieval fused {} vector and {} BM25 candidates into {} documents", semantic.size(),
+                lexical.size(), fused.size());
+        return fused;
+    }
+
+    /**
+     * Searches with the given query embedding where the local store accepts one; other stores embed the query.
+     */
+    private List<Document> similaritySearch(SearchRequest request, float[] query) {
+        if (query != null && vectorStore instanceof CachingVectorStore caching) {
+            return caching.similaritySearch(request, query);
+        }
+        if (query != null && vectorStore instanceof MappedVectorStore mapped) {
+            return mapped.similaritySearch(request, query);
+        }
+        return vectorStore.similaritySearch(request);
+    }
+
+    /**
+     * Reciprocal rank fusion of {@code rankings}, best first, keeping the first copy of each document id.
+     */
+    static List<Document> fuse(List<List<Document>> rankings, int rrfK, int topK) {
+        Map<String, Double> scores = new HashMap<>();
+        Map<String, Document> documents = new LinkedHashMap<>();
+        for (List<Document> ranking : rankings) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                Document document = ranking.get(rank);
+                scores.merge(document.getId(), 1.0 / (rrfK + rank + 1), Double::sum);
+                documents.putIfAbsent(document.getId(), document);
+            }
+        }
+        List<String> ranked = new ArrayList<>(documents.keySet());
+        // Stable sort: ties keep the order of the first ranking
+        ranked.sort((a, b) -> Double.compare(scores.get(b), scores.get(a)));
+        return ranked.stream()
+                .limit(topK)
+                .map(id -> documents.get(id).mutate().score(scores.get(id)).build())
+                .toList();
+    }
+}
@@ -0,0 +1,67 @@
+package com.spring.eac.ai.retrieval;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.reflect.TypeToken;
+import io.milvus.client.MilvusServiceClient;
+import io.milvus.grpc.QueryResults;
+import io.milvus.param.R;
+import io.milvus.param.dml.QueryParam;
+import io.milvus.response.QueryResultsWrapper;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.milvus.autoconfigure.MilvusVectorStoreProperties;
+
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Reads documents from the Milvus collection of the vector store with one query on the id field.
+ */
+public class MilvusDocumentLookup implements DocumentLookup {
+
+    private static final Type METADATA_TYPE = new TypeToken<Map<String, Object>>() {
+    }.getType();
+
+    private final MilvusServiceClient client;
+    private final MilvusVectorStoreProperties properties;
+    private final Gson gson = new Gson();
+
+    public MilvusDocumentLookup(MilvusServiceClient client, MilvusVectorStoreProperties properties) {
+        this.client = client;
+        this.properties = properties;
+    }
+
+    @Override
+    public Map<String, Document> documents(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        String idField = properties.getIdFieldName();
+        String expression = ids.stream()
+                .map(id -> '"' + id.replace("\\", "\\\\").replace("\"", "\\\"") + '"')
+                .collect(Collectors.joining(", ", idField + " in [", "]"));
+        R<QueryResults> response = client.query(QueryParam.newBuilder()
+                .withDatabaseName(properties.getDatabaseName())
+                .withCollectionName(properties.getCollectionName())
+                .withExpr(expression)
+                .withOutFields(List.of(idField, properties.getContentFieldName(), properties.getMetadataFieldName()))
+                .build());
+        if (response.getStatus() != R.Status.Success.getCode()) {
+            throw new IllegalStateException("Milvus query of " + properties.getCollectionName() + " failed: "
+                    + response.getMessage());
+        }
+
+        Map<String, Document> documents = new HashMap<>();
+        for (QueryResultsWrapper.RowRecord row : new QueryResultsWrapper(response.getData()).getRowRecords()) {
+            String id = (String) row.get(idField);
+            Object metadata = row.get(properties.getMetadataFieldName());
+            documents.put(id, new Document(id, (String) row.get(properties.getContentFieldName()),
+                    metadata instanceof JsonElement json ? gson.fromJson(json, METADATA_TYPE) : Map.of()));
+        }
+        return documents;
+    }
+}
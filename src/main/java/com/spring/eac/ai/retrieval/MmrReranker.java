@@ -0,0 +1,148 @@
+package com.spring.eac.ai.retrieval;
+
+import com.spring.eac.ai.model.RetrievalMode;
+import com.spring.eac.ai.property.ApplicationProperties;
+import com.spring.eac.ai.vectorstore.CachingVectorStore;
+import com.spring.eac.ai.vectorstore.MappedVectorStore;
+import com.spring.eac.ai.vectorstore.kernel.SimilarityKernel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Re-ranks retrieved documents with maximal marginal relevance, so overlapping chunks of the same source do not fill
+ * the prompt with the same passage.
+ * <p>
+ * {@link #retrieve} over-fetches {@code fetchMultiplier * topK} candidates through the {@link HybridRetriever} and
+ * greedily picks {@code topK} of them: each step takes the candidate maximizing
+ * {@code lambda * sim(question, d) - (1 - lambda) * max sim(d, picked)}. The embeddings of the candidates come from
+ * the local {@link MappedVectorStore}; documents it does not hold, e.g. in Milvus, are embedded in one batch, which
+ * the embedding cache answers for ingested chunks. The question is embedded once and handed to the local store's
+ * search as well; Milvus embeds it on its own.
+ */
+@Slf4j
+@Component
+public class MmrReranker {
+
+    private static final SimilarityKernel KERNEL = SimilarityKernel.detect();
+
+    private final HybridRetriever hybridRetriever;
+    private final VectorStore vectorStore;
+    private final EmbeddingModel embeddingModel;
+    private final ApplicationProperties.Mmr mmr;
+
+    public MmrReranker(HybridRetriever hybridRetriever, VectorStore vectorStore, EmbeddingModel embeddingModel,
+                       ApplicationProperties applicationProperties) {
+        this.hybridRetriever = hybridRetriever;
+        this.vectorStore = vectorStore;
+        this.embeddingModel = embeddingModel;
+        this.mmr = applicationProperties.getRetrieval().getMmr();
+    }
+
+    /**
+     * The {@code topK} most relevant and mutually distinct documents for the request; the plain
+     * {@link HybridRetriever} ranking when re-ranking is disabled.
+     *
+     * @param mode retrieval mode, or {@code null} for the configured default
+     */
+    public List<Document> retrieve(SearchRequest request, RetrievalMode mode) {
+        if (!mmr.isEnabled() || mmr.getFetchMultiplier() <= 1) {
+            return hybridRetriever.retrieve(request, mode);
+        }
+        // Embedded once for both the search and the relevance term of MMR
+        float[] query = embeddingModel.embed(request.getQuery());
+        int candidates = request.getTopK() * mmr.getFetchMultiplier();
+        List<Document> fetched = hybridRetriever.retrieve(SearchRequest.from(request).topK(candidates).build(), mode,
+                query);
+        return rerank(query, fetched, request.getTopK());
+    }
+
+    /**
+     * Picks {@code topK} of {@code candidates} by maximal marginal relevance to the query embedding, in pick order.
+     */
+    public List<Document> rerank(float[] query, List<Document> candidates, int topK) {
+        if (candidates.size() <= 1) {
+            return candidates;
+        }
+        List<float[]> embeddings = embeddings(candidates);
+        int[] picked = select(query, embeddings, topK, mmr.getLambda());
+        List<Document> documents = new ArrayList<>(picked.length);
+        for (int candidate : picked) {
+            documents.add(candidates.get(candidate));
+        }
+        log.debug("MMR picked candidates {} of {}", Arrays.toString(picked), candidates.size());
+        return documents;
+    }
+
+    private List<float[]> embeddings(List<Document> candidates) {
+        VectorStore store = vectorStore instanceof CachingVectorStore caching ? caching.getDelegate() : vectorStore;
+        Map<String, float[]> stored = store instanceof MappedVectorStore mappedVectorStore
+                ? mappedVectorStore.embeddings(candidates.stream().map(Document::getId).toList())
+                : Map.of();
+        List<String> missing = candidates.stream()
+                .filter(document -> !stored.containsKey(document.getId()))
+                .map(Document::getText)
+                .toList();
+        List<float[]> embedded = missing.isEmpty() ? List.of() : embeddingModel.embed(missing);
+
+        List<float[]> embeddings = new ArrayList<>(candidates.size());
+        int next = 0;
+        for (Document candidate : candidates) {
+            float[] embedding = stored.get(candidate.getId());
+            embeddings.add(embedding != null ? embedding : embedded.get(next++));
+        }
+        return embeddings;
+    }
+
+    /**
+     * Indexes of the {@code topK} candidates picked by maximal marginal relevance, in pick order. Keeps the best
+     * similarity of every candidate to the picked ones up to date, so each step costs one cosine per candidate.
+     */
+    static int[] select(float[] query, List<float[]> candidates, int topK, double lambda) {
+        int count = candidates.size();
+        float queryNorm = KERNEL.norm(query);
+        float[] norms = new float[count];
+        double[] relevance = new double[count];
+        double[] redundancy = new double[count];
+        for (int i = 0; i < count; i++) {
+            norms[i] = KERNEL.norm(candidates.get(i));
+            relevance[i] = KERNEL.cosine(query, queryNorm, candidates.get(i), norms[i]);
+            redundancy[i] = Double.NEGATIVE_INFINITY;
+        }
+
+        int[] picked = new int[Math.min(topK, count)];
+        boolean[] taken = new boolean[count];
+        for (int step = 0; step < picked.length; step++) {
+            int best = -1;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < count; i++) {
+                if (taken[i]) {
+                    continue;
+                }
+                // Nothing is redundant with an empty selection, so the first pick is the most relevant candidate
+                double score = step == 0 ? relevance[i] : lambda * relevance[i] - (1 - lambda) * redundancy[i];
+                if (score > bestScore) {
+                    best = i;
+                    bestScore = score;
+                }
+            }
+            picked[step] = best;
+            taken[best] = true;
+            for (int i = 0; i < count; i++) {
+                if (!taken[i]) {
+                    double similarity = KERNEL.cosine(candidates.get(best), norms[best], candidates.get(i), norms[i]);
+                    redundancy[i] = Math.max(redundancy[i], similarity);
+                }
+            }
+        }
+        return picked;
+    }
+}
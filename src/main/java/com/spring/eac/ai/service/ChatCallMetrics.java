@@ -0,0 +1,58 @@
+package com.spring.eac.ai.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency and token usage of each chat model call, per endpoint: the {@code llm.call} timer and the
+ * {@code llm.tokens} summaries tagged with the endpoint and the token type ({@code prompt}, {@code completion},
+ * {@code total}). The count of the timer is the number of round-trips, so calls per request and tokens per call can
+ * be compared across releases.
+ */
+class ChatCallMetrics {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatCallMetrics.class);
+
+    private final MeterRegistry meterRegistry;
+
+    ChatCallMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    void record(String endpoint, ChatResponse response, long elapsedNanos) {
+        Timer.builder("llm.call")
+                .description("Chat model round-trips")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        Usage usage = response == null ? null : response.getMetadata().getUsage();
+        if (usage == null) {
+            return;
+        }
+        record(endpoint, "prompt", usage.getPromptTokens());
+        record(endpoint, "completion", usage.getCompletionTokens());
+        record(endpoint, "total", usage.getTotalTokens());
+        log.info("{} call took {} ms: {} prompt + {} completion tokens", endpoint,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), usage.getPromptTokens(), usage.getCompletionTokens());
+    }
+
+    private void record(String endpoint, String type, Integer tokens) {
+        if (tokens == null) {
+            return;
+        }
+        DistributionSummary.builder("llm.tokens")
+                .description("Tokens of one chat model call")
+                .baseUnit("tokens")
+                .tag("endpoint", endpoint)
+                .tag("type", type)
+                .register(meterRegistry)
+                .record(tokens);
+    }
+}
@@ -0,0 +1,116 @@
+package com.spring.eac.ai.service;
+
+import com.spring.eac.ai.function.QRCodeFunction;
+import com.spring.eac.ai.function.StockPriceServiceFunction;
+import com.spring.eac.ai.function.WeatherServiceFunction;
+import com.spring.eac.ai.model.QRCodeRequest;
+import com.spring.eac.ai.model.QRCodeResponse;
+import com.spring.eac.ai.model.StockPriceRequest;
+import com.spring.eac.ai.model.StockPriceResponse;
+import com.spring.eac.ai.model.WeatherRequest;
+import com.spring.eac.ai.model.WeatherResponse;
+import com.spring.eac.ai.property.ApplicationProperties;
+import com.spring.eac.ai.tool.DateTimeTools;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.client.advisor.PromptChatMemoryAdvisor;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.model.ModelOptionsUtils;
+import org.springframework.ai.support.ToolCallbacks;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.ai.tool.function.FunctionToolCallback;
+import org.springframework.ai.tool.metadata.ToolMetadata;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The {@link ChatClient}s of the tool calling services, built once at startup with their tools instead of on every
+ * request. A {@link ChatClient} is immutable and thread-safe, and so are the tool callbacks; their JSON schemas are
+ * computed here once. Everything that varies per request, the user text, the system prompt and the conversation id of
+ * the chat memory, is set on the request spec by the services.
+ */
+@Component
+public class ChatClientRegistry {
+
+    private final ChatClient weather;
+    private final ChatClient stockPrice;
+    private final ChatClient qrCode;
+    private final ChatClient search;
+
+    public ChatClientRegistry(ChatModel chatModel,
+                              ChatMemory chatMemory,
+                              ApplicationProperties applicationProperties,
+                              Function<QRCodeRequest, QRCodeResponse> generateQRCode,
+                              @Qualifier("customerScoreAndAllTools") ToolCallbackProvider toolCallbackProvider) {
+        String ninjasApiKey = applicationProperties.getNinjasApiKey();
+        this.weather = withTools(chatModel, weatherTool(ninjasApiKey)).build();
+        this.stockPrice = withTools(chatModel, stockPriceTool(ninjasApiKey)).build();
+        this.qrCode = withTools(chatModel, qrCodeTool(generateQRCode)).build();
+
+        // The conversation id is a per-request advisor param, so one memory advisor serves every conversation
+        List<ToolCallback> searchTools = new ArrayList<>(Arrays.asList(toolCallbackProvider.getToolCallbacks()));
+        searchTools.addAll(Arrays.asList(ToolCallbacks.from(new DateTimeTools())));
+        this.search = ChatClient.builder(chatModel)
+                .defaultToolCallbacks(searchTools)
+                .defaultAdvisors(PromptChatMemoryAdvisor.builder(chatMemory).build())
+                .build();
+    }
+
+    public ChatClient weather() {
+        return weather;
+    }
+
+    public ChatClient stockPrice() {
+        return stockPrice;
+    }
+
+    public ChatClient qrCode() {
+        return qrCode;
+    }
+
+    /**
+     * Client of {@link OpenAIChatService#search}: the MCP and customer score tools, the date and time tools and the
+     * chat memory.
+     */
+    public ChatClient search() {
+        return search;
+    }
+
+    public static FunctionToolCallback<WeatherRequest, WeatherResponse> weatherTool(String ninjasApiKey) {
+        return FunctionToolCallback
+                .builder("CurrentWeather", new WeatherServiceFunction(ninjasApiKey))
+                .description("Get the current weather for a location base on location, city, coordinates like latitude and longitude.")
+                .inputType(WeatherRequest.class)
+                .inputSchema(ModelOptionsUtils.getJsonSchema(WeatherRequest.class, false))
+                .build();
+    }
+
+    public static FunctionToolCallback<StockPriceRequest, StockPriceResponse> stockPriceTool(String ninjasApiKey) {
+        return FunctionToolCallback
+                .builder("CurrentStockPrice", new StockPriceServiceFunction(ninjasApiKey))
+                .description("Get the current stock price for a stock symbol")
+                .inputType(StockPriceRequest.class)
+                .inputSchema(ModelOptionsUtils.getJsonSchema(StockPriceRequest.class, false))
+                .build();
+    }
+
+    public static FunctionToolCallback<QRCodeRequest, QRCodeResponse> qrCodeTool(
+            Function<QRCodeRequest, QRCodeResponse> generateQRCode) {
+        return FunctionToolCallback
+                .builder(QRCodeFunction.GENERATE_QR_CODE, generateQRCode)
+                .description("Generate a QR Code based on the input data")
+                .inputType(QRCodeRequest.class)
+                .toolMetadata(ToolMetadata.builder().returnDirect(true).build())
+                .build();
+    }
+
+    private static ChatClient.Builder withTools(ChatModel chatModel, ToolCallback toolCallback) {
+        return ChatClient.builder(chatModel).defaultToolCallbacks(toolCallback);
+    }
+}
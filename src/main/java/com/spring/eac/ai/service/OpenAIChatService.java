@@ -1,13 +1,19 @@
 package com.spring.eac.ai.service;
 
+import com.spring.eac.ai.bootstrap.VectorStoreWarmup;
+import com.spring.eac.ai.cache.SemanticCache;
+import com.spring.eac.ai.cache.SingleFlight;
+import com.spring.eac.ai.exception.VectorStoreWarmingException;
 import com.spring.eac.ai.model.*;
+import com.spring.eac.ai.property.ApplicationProperties;
 import com.spring.eac.ai.property.ResourceProperties;
-import com.spring.eac.ai.tool.DateTimeTools;
+import com.spring.eac.ai.retrieval.ContextPacker;
+import com.spring.eac.ai.retrieval.MmrReranker;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.client.ResponseEntity;
-import org.springframework.ai.chat.client.advisor.PromptChatMemoryAdvisor;
 import org.springframework.ai.chat.client.advisor.SimpleLoggerAdvisor;
 import org.springframework.ai.chat.memory.ChatMemory;
 import org.springframework.ai.chat.messages.Message;
@@ -15,17 +21,18 @@ import org.springframework.ai.chat.messages.SystemMessage;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.MessageAggregator;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.chat.prompt.PromptTemplate;
 import org.springframework.ai.converter.BeanOutputConverter;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.tool.ToolCallbackProvider;
+import org.springframework.ai.model.ModelOptionsUtils;
 import org.springframework.ai.vectorstore.SearchRequest;
-import org.springframework.ai.vectorstore.VectorStore;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -37,23 +44,52 @@ public class OpenAIChatService {
     private static final Logger log = LoggerFactory.getLogger(OpenAIChatService.class);
 
     private final ChatModel chatModel;
-    private final ChatMemory chatMemory;
-    private final VectorStore vectorStore;
-    private final ToolCallbackProvider toolCallbackProvider;
+    private final MmrReranker mmrReranker;
+    private final ContextPacker contextPacker;
+    private final ChatClientRegistry chatClientRegistry;
     private final ResourceProperties resourceProperties;
+    private final VectorStoreWarmup vectorStoreWarmup;
+    private final ApplicationProperties.Warmup warmup;
+    private final SemanticCache<Answer> answerCache;
+    private final SemanticCache<GetCapitalResponse> capitalCache;
+    private final SemanticCache<CapitalWithInfo> capitalWithInfoCache;
+    private final ChatCallMetrics chatCallMetrics;
+    private final SingleFlight<ChatResponse> capitalFlight;
+    private final SingleFlight<ChatResponse> answerFlight;
+    private final SingleFlight<ResponseEntity<ChatResponse, CapitalWithInfo>> capitalWithInfoFlight;
     // private final SyncMcpToolCallbackProvider toolCallbackProvider;
     // private final CustomerScoreService customerScoreService;
 
     public OpenAIChatService(ChatModel chatModel,
-                             ChatMemory chatMemory,
-                             VectorStore vectorStore,
-                             @Qualifier("customerScoreAndAllTools") ToolCallbackProvider toolCallbackProvider,
-                             ResourceProperties resourceProperties) {
+                             MmrReranker mmrReranker,
+                             ContextPacker contextPacker,
+                             ChatClientRegistry chatClientRegistry,
+                             ResourceProperties resourceProperties,
+                             VectorStoreWarmup vectorStoreWarmup,
+                             ApplicationProperties applicationProperties,
+                             SemanticCache<Answer> answerCache,
+                             SemanticCache<GetCapitalResponse> capitalCache,
+                             SemanticCache<CapitalWithInfo> capitalWithInfoCache,
+                             MeterRegistry meterRegistry) {
         this.chatModel = chatModel;
-        this.chatMemory = chatMemory;
-        this.vectorStore = vectorStore;
-        this.toolCallbackProvider = toolCallbackProvider;
+        this.mmrReranker = mmrReranker;
+        this.contextPacker = contextPacker;
+        this.chatClientRegistry = chatClientRegistry;
         this.resourceProperties = resourceProperties;
+        this.vectorStoreWarmup = vectorStoreWarmup;
+        this.warmup = applicationProperties.getWarmup();
+        this.answerCache = answerCache;
+        this.capitalCache = capitalCache;
+        this.capitalWithInfoCache = capitalWithInfoCache;
+        this.chatCallMetrics = new ChatCallMetrics(meterRegistry);
+        // Concurrent cache misses for the same question render the same prompt and share one call
+        boolean singleFlight = applicationProperties.getSingleFlight().isEnabled();
+        this.capitalFlight = SingleFlight.<ChatResponse>builder("capital")
+                .enabled(singleFlight).meterRegistry(meterRegistry).build();
+        this.answerFlight = SingleFlight.<ChatResponse>builder("answer")
+                .enabled(singleFlight).meterRegistry(meterRegistry).build();
+        this.capitalWithInfoFlight = SingleFlight.<ResponseEntity<ChatResponse, CapitalWithInfo>>builder("capital-with-info")
+                .enabled(singleFlight).meterRegistry(meterRegistry).build();
     }
 
 //    public OpenAIChatService(ChatModel chatModel,
@@ -67,6 +103,10 @@ public class OpenAIChatService {
 //    }
 
     public CapitalWithInfo getCapitalWithInfo(GetCapitalRequest getCapitalRequest) {
+        return capitalWithInfoCache.get(getCapitalRequest.stateOrCountry(), () -> callCapitalWithInfo(getCapitalRequest));
+    }
+
+    private CapitalWithInfo callCapitalWithInfo(GetCapitalRequest getCapitalRequest) {
         PromptTemplate promptTemplate = new PromptTemplate(resourceProperties.getCapitalPromptWithInfo());
         Prompt prompt = promptTemplate.create(Map.of("stateOrCountry", getCapitalRequest.stateOrCountry()));
         SimpleLoggerAdvisor customLogger = SimpleLoggerAdvisor.builder()
@@ -74,19 +114,27 @@ public class OpenAIChatService {
                 .responseToString(response -> "Custom response: " + response.getResult())
                 .build();
 
-        // Only another test using ResponseEntity and ParameterizedTypeReference
-        ResponseEntity<ChatResponse, CapitalWithInfo> chatResponse = ChatClient.create(chatModel)
-                .prompt()
-                .advisors(customLogger)
-                .system("""
-                        Do not answer any questions not related to capitals.
-                        If the question is not about capitals, set the capital field to "NOT_CAPITAL_RELATED" and 
-                        provide a brief explanation in the stateOrCountry field.
-                        Otherwise, provide detailed information about the capital.
-                        """)
-                .user(prompt.getContents())
-                .call()
-                .responseEntity(new ParameterizedTypeReference<>() {
+        String system = """
+                Do not answer any questions not related to capitals.
+                If the question is not about capitals, set the capital field to "NOT_CAPITAL_RELATED" and 
+                provide a brief explanation in the stateOrCountry field.
+                Otherwise, provide detailed information about the capital.
+                """;
+
+        // One round-trip: the guard and the returned entity come from the same response
+        ResponseEntity<ChatResponse, CapitalWithInfo> chatResponse = capitalWithInfoFlight.execute(
+                SingleFlight.key(system, prompt.getContents()), () -> {
+                    long start = System.nanoTime();
+                    ResponseEntity<ChatResponse, CapitalWithInfo> entity = ChatClient.create(chatModel)
+                            .prompt()
+                            .advisors(customLogger)
+                            .system(system)
+                            .user(prompt.getContents())
+                            .call()
+                            .responseEntity(new ParameterizedTypeReference<>() {
+                            });
+                    chatCallMetrics.record("capital-with-info", entity.getResponse(), System.nanoTime() - start);
+                    return entity;
                 });
 
         if (chatResponse.getEntity() == null ||
@@ -101,17 +149,16 @@ public class OpenAIChatService {
             throw new IllegalArgumentException(errorMessage);
         }
 
-        log.info("Got typed response: {}, Usage: {}", chatResponse.getEntity().toFormattedString(), chatResponse.getResponse().getMetadata().getUsage());
+        log.info("Got typed response: {}", chatResponse.getEntity().toFormattedString());
 
-        return ChatClient.create(chatModel)
-                .prompt()
-                .system("Provide ONLY a JSON response in the format \\{\"capital\n\": \"capital_name\"\\} with no additional text, formatting, or code blocks")
-                .user(prompt.getContents())
-                .call()
-                .entity(CapitalWithInfo.class);
+        return chatResponse.getEntity();
     }
 
     public GetCapitalResponse getCapital(GetCapitalRequest getCapitalRequest) {
+        return capitalCache.get(getCapitalRequest.stateOrCountry(), () -> callCapital(getCapitalRequest));
+    }
+
+    private GetCapitalResponse callCapital(GetCapitalRequest getCapitalRequest) {
         BeanOutputConverter<GetCapitalResponse> parser = new BeanOutputConverter<>(GetCapitalResponse.class);
         /**
          * Your response should be in JSON format.
@@ -140,7 +187,7 @@ public class OpenAIChatService {
                 "stateOrCountry", getCapitalRequest.stateOrCountry(),
                 "format", format));
 
-        ChatResponse response = chatModel.call(prompt);
+        ChatResponse response = call("capital", capitalFlight, prompt);
         String responseText = response.getResult().getOutput().getText();
 
         log.info("Got response: {}", responseText);
@@ -149,26 +196,98 @@ public class OpenAIChatService {
     }
 
     public Answer getAnswer(Question question) {
+        if (!vectorStoreWarmup.isReady()) {
+            return callAnswer(question);
+        }
+        // Paraphrases of a recent question get its answer until the vector store changes
+        String retrieval = question.retrieval() == null ? "" : question.retrieval().name();
+        return answerCache.get(retrieval, question.question(), () -> callAnswer(question));
+    }
+
+    private Answer callAnswer(Question question) {
+        Prompt prompt = answerPrompt(question);
+        if (prompt == null) {
+            return new Answer(warmup.getMessage());
+        }
+
+        ChatResponse response = call("answer", answerFlight, prompt);
+
+        return new Answer(response.getResult().getOutput().getText());
+    }
+
+    /**
+     * One model call for {@code prompt}, shared with the identical calls in flight: same messages and options.
+     */
+    private ChatResponse call(String endpoint, SingleFlight<ChatResponse> flight, Prompt prompt) {
+        List<String> parts = new ArrayList<>();
+        for (Message message : prompt.getInstructions()) {
+            parts.add(message.getMessageType().getValue());
+            parts.add(message.getText());
+        }
+        parts.add(prompt.getOptions() == null ? "" : ModelOptionsUtils.toJsonString(prompt.getOptions()));
+
+        return flight.execute(SingleFlight.key(parts.toArray(String[]::new)), () -> {
+            long start = System.nanoTime();
+            ChatResponse response = chatModel.call(prompt);
+            chatCallMetrics.record(endpoint, response, System.nanoTime() - start);
+            return response;
+        });
+    }
+
+    /**
+     * {@link #getAnswer(Question)} as the model generates it, one text fragment per element. The semantic cache is
+     * not consulted, the point of streaming being a first token within the model's latency rather than a whole answer.
+     * Warm-up rejections are thrown before the stream is returned.
+     */
+    public Flux<String> streamAnswer(Question question) {
+        Prompt prompt = answerPrompt(question);
+        if (prompt == null) {
+            return Flux.just(warmup.getMessage());
+        }
+
+        long start = System.nanoTime();
+        Flux<ChatResponse> responses = new MessageAggregator().aggregate(chatModel.stream(prompt),
+                response -> chatCallMetrics.record("answer-stream", response, System.nanoTime() - start));
+        return responses.mapNotNull(response -> response.getResult() == null ? null
+                : response.getResult().getOutput().getText());
+    }
+
+    /**
+     * The RAG prompt of {@code question}, or {@code null} when the store is warming up and the warm-up message is
+     * the answer.
+     */
+    private Prompt answerPrompt(Question question) {
         PromptTemplate systemPromptTemplate = new PromptTemplate(resourceProperties.getSystemMessageTemplate());
         Prompt systemPrompt = systemPromptTemplate.create();
 
-        SearchRequest searchRequest = SearchRequest.builder().query(question.question()).topK(4).similarityThreshold(0.2).build();
-        List<Document> documents = vectorStore.similaritySearch(searchRequest);
-        List<String> contentList = documents.stream().map(Document::getText).toList();
+        List<Document> documents;
+        if (vectorStoreWarmup.isReady()) {
+            SearchRequest searchRequest = SearchRequest.builder().query(question.question()).topK(4).similarityThreshold(0.2).build();
+            // Over-fetched and re-ranked so near-duplicate chunks do not crowd out distinct context
+            documents = mmrReranker.retrieve(searchRequest, question.retrieval());
+        } else {
+            // The store is still loading in the background, searching it now would miss documents
+            switch (warmup.getAskBehavior()) {
+                case REJECT -> throw new VectorStoreWarmingException(warmup.getMessage(), warmup.getRetryAfter());
+                case MESSAGE -> {
+                    return null;
+                }
+                case WITHOUT_DOCUMENTS -> log.debug("Vector store warming up ({}), answering without documents",
+                        vectorStoreWarmup.phase());
+            }
+            documents = List.of();
+        }
+        // Best documents first within the token budget, long chunks cut at a sentence boundary
+        ContextPacker.PackedContext context = contextPacker.pack(documents);
 
         PromptTemplate promptTemplate = new PromptTemplate(resourceProperties.getRagPromptTemplate());
         Prompt userPrompt = promptTemplate.create(Map.of(
                 "input", question.question(),
-                "documents", String.join("\n", contentList)));
+                "documents", context.text()));
 
-//        contentList.forEach(doc -> log.info("Document: {}", doc));
+//        context.documents().forEach(doc -> log.info("Document: {}", doc.getText()));
 
-        ChatResponse response = chatModel
-                .call(new Prompt(
-                        asList(systemPrompt.getSystemMessage(), userPrompt.getUserMessage())
-                ));
-
-        return new Answer(response.getResult().getOutput().getText());
+        return new Prompt(asList(systemPrompt.getSystemMessage(), userPrompt.getUserMessage()));
     }
 
     /**
@@ -209,27 +328,7 @@ public class OpenAIChatService {
      * @return
      */
     public Answer search(String conversationId, Question question) {
-        /*
-        MessageChatMemoryAdvisor messageChatMemoryAdvisor = MessageChatMemoryAdvisor
-                .builder(chatMemory)
-                .conversationId(conversationId)
-                .build();
-         */
-
-        PromptChatMemoryAdvisor promptChatMemoryAdvisor = PromptChatMemoryAdvisor
-                .builder(chatMemory)
-                .conversationId(conversationId)
-                .build();
-
-        ChatClient chatClient = ChatClient
-                .builder(chatModel)
-                .defaultToolCallbacks(toolCallbackProvider.getToolCallbacks())
-                .defaultAdvisors(promptChatMemoryAdvisor)
-                .defaultTools(new DateTimeTools())
-                // .defaultTools(new CustomerScoreService())
-                .build();
-
-        ResponseEntity<ChatResponse, Answer> response = chatClient
+        ResponseEntity<ChatResponse, Answer> response = chatClientRegistry.search()
                 .prompt(question.question())
                 .system("""
                         When using the tools for Customer Score and the customer does not exist, return:
@@ -242,4 +341,20 @@ public class OpenAIChatService {
 
         return response.getEntity();
     }
-}
\ No newline at end of file
+
+    /**
+     * {@link #search(String, Question)} as the model generates it, one text fragment per element. The question and
+     * the whole answer are added to the conversation's memory once the stream completes.
+     */
+    public Flux<String> streamSearch(String conversationId, Question question) {
+        return chatClientRegistry.search()
+                .prompt(question.question())
+                .system("""
+                        When using the tools for Customer Score and the customer does not exist, return:
+                        Customer does not exist or does not have score.
+                        """)
+                .advisors(a -> a.param(ChatMemory.CONVERSATION_ID, conversationId))
+                .stream()
+                .content();
+    }
+}
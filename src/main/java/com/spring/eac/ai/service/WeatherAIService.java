@@ -1,19 +1,11 @@
 package com.spring.eac.ai.service;
 
-import com.spring.eac.ai.function.WeatherServiceFunction;
 import com.spring.eac.ai.model.Answer;
 import com.spring.eac.ai.model.Question;
-import com.spring.eac.ai.model.WeatherRequest;
-import com.spring.eac.ai.model.WeatherResponse;
-import com.spring.eac.ai.property.ApplicationProperties;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.messages.UserMessage;
-import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.model.ChatResponse;
-import org.springframework.ai.model.ModelOptionsUtils;
-import org.springframework.ai.tool.function.FunctionToolCallback;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -21,26 +13,11 @@ import org.springframework.stereotype.Service;
 @Slf4j
 public class WeatherAIService {
 
-    private final ChatModel chatModel;
-    private final ApplicationProperties applicationProperties;
+    private final ChatClientRegistry chatClientRegistry;
 
     public Answer getWeather(Question question) {
-        var ninjasApiKey = applicationProperties.getNinjasApiKey();
-        var jsonSchema = ModelOptionsUtils.getJsonSchema(WeatherRequest.class, false);
-        FunctionToolCallback<WeatherRequest, WeatherResponse> functionToolCallback = FunctionToolCallback
-                .builder("CurrentWeather", new WeatherServiceFunction(ninjasApiKey))
-                .description("Get the current weather for a location base on location, city, coordinates like latitude and longitude.")
-                .inputType(WeatherRequest.class)
-                .inputSchema(jsonSchema)
-                .build();
-
-        ChatClient chatClient = ChatClient
-                .builder(chatModel)
-                .defaultToolCallbacks(functionToolCallback)
-                .build();
-
         UserMessage userMessage = new UserMessage(question.question());
-        ChatResponse response = chatClient
+        ChatResponse response = chatClientRegistry.weather()
                 .prompt(userMessage.getText())
                 .system("""
                         You are a helpful AI assistant that answers questions about the weather.
@@ -53,7 +30,6 @@ public class WeatherAIService {
                 .chatResponse();
 
         Answer answer = new Answer(response.getResult().getOutput().getText());
-        log.info("Model: {}", chatModel.getDefaultOptions().getModel());
         log.info("Answer: {}", answer.answer());
         return answer;
     }
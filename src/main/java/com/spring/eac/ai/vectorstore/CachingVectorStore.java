@@ -0,0 +1,200 @@
+package com.spring.eac.ai.vectorstore;
+
+import com.spring.eac.ai.embedding.QueryEmbeddingCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.util.Assert;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * {@link VectorStore} decorator that remembers similarity search results, keyed by the normalized query, top k,
+ * similarity threshold and filter expression.
+ * <p>
+ * Every entry is tagged with the index version read before its search ran. Adds and deletes through this store bump
+ * the version once the delegate applied them, and a {@link MappedVectorStore} delegate adds its own
+ * {@link MappedVectorStore#version()}, which also covers writes that reach it directly, such as ingestion. An entry
+ * whose tag is not the current version is never returned, so a result can only be served until the first write
+ * after its search started. Entries hold their own copies of the documents and every caller gets fresh copies, so
+ * advisors that change a document's metadata or score never alter later results. The least recently used entries
+ * are evicted beyond the maximum size. Hits, misses, evictions and the size are published as
+ * {@code vectorstore.search.cache.*} meters.
+ */
+public class CachingVectorStore implements VectorStore {
+
+    private final VectorStore delegate;
+    private final MappedVectorStore mappedDelegate;
+    private final AtomicLong writes = new AtomicLong();
+    private final Map<Key, Entry> entries;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    private CachingVectorStore(Builder builder) {
+        this.delegate = builder.delegate;
+        this.mappedDelegate = delegate instanceof MappedVectorStore mapped ? mapped : null;
+        int maxEntries = builder.maxEntries;
+
+        MeterRegistry meterRegistry = builder.meterRegistry;
+        this.hits = meterRegistry.counter("vectorstore.search.cache.hits");
+        this.misses = meterRegistry.counter("vectorstore.search.cache.misses");
+        this.evictions = meterRegistry.counter("vectorstore.search.cache.evictions");
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        meterRegistry.gauge("vectorstore.search.cache.size", this, CachingVectorStore::size);
+    }
+
+    public static Builder builder(VectorStore delegate) {
+        return new Builder(delegate);
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        return similaritySearch(request, () -> delegate.similaritySearch(request));
+    }
+
+    /**
+     * Similarity search for a query the caller already embedded, passed on to a {@link MappedVectorStore} delegate so
+     * a miss does not embed the query again; other delegates embed it themselves.
+     */
+    public List<Document> similaritySearch(SearchRequest request, float[] query) {
+        return similaritySearch(request, mappedDelegate != null
+                ? () -> mappedDelegate.similaritySearch(request, query)
+                : () -> delegate.similaritySearch(request));
+    }
+
+    private List<Document> similaritySearch(SearchRequest request, Supplier<List<Document>> search) {
+        Key key = new Key(QueryEmbeddingCache.normalize(request.getQuery()), request.getTopK(),
+                request.getSimilarityThreshold(), request.getFilterExpression());
+        // Read before searching: a write racing with the search makes the entry stale instead of wrongly current
+        long version = version();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.version() == version) {
+                hits.increment();
+                return copies(entry.documents());
+            }
+        }
+        misses.increment();
+        List<Document> documents = search.get();
+        synchronized (entries) {
+            entries.put(key, new Entry(version, copies(documents)));
+        }
+        return documents;
+    }
+
+    /**
+     * Copies of {@code documents} with their own metadata maps.
+     */
+    private static List<Document> copies(List<Document> documents) {
+        return documents.stream()
+                .map(document -> document.mutate().metadata(new HashMap<>(document.getMetadata())).build())
+                .toList();
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        try {
+            delegate.add(documents);
+        } finally {
+            writes.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void delete(List<String> idList) {
+        try {
+            delegate.delete(idList);
+        } finally {
+            writes.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void delete(Filter.Expression filterExpression) {
+        try {
+            delegate.delete(filterExpression);
+        } finally {
+            writes.incrementAndGet();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public <T> Optional<T> getNativeClient() {
+        return delegate.getNativeClient();
+    }
+
+    public VectorStore getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Index version results are tagged with; grows with every write.
+     */
+    public long version() {
+        return writes.get() + (mappedDelegate == null ? 0 : mappedDelegate.version());
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private record Key(String query, int topK, double similarityThreshold, Filter.Expression filterExpression) {
+    }
+
+    private record Entry(long version, List<Document> documents) {
+    }
+
+    public static final class Builder {
+
+        private final VectorStore delegate;
+        private int maxEntries = 1000;
+        private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        private Builder(VectorStore delegate) {
+            Assert.notNull(delegate, "delegate must not be null");
+            this.delegate = delegate;
+        }
+
+        public Builder maxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        public Builder meterRegistry(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+            return this;
+        }
+
+        public CachingVectorStore build() {
+            Assert.isTrue(maxEntries > 0, "maxEntries must be positive");
+            return new CachingVectorStore(this);
+        }
+    }
+}
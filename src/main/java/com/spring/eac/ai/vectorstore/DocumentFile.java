@@ -0,0 +1,210 @@
+package com.spring.eac.ai.vectorstore;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Offset-indexed file holding the id, text and metadata of every row of a {@link VectorFile}.
+ * <p>
+ * Layout: {@code [magic:int][version:int][count:int][stamp:int][offsetsPosition:long]}, then one record per row
+ * ({@code [idLength:int][id][textLength:int][text][metadataLength:int][metadata JSON]}), then an offset table of
+ * {@code count + 1} longs. Only the offset table is memory mapped; records are read on demand with positional reads.
+ * The stamp is random per written file, so files derived from it such as the {@link IdIndexFile} can be matched.
+ */
+final class DocumentFile implements Closeable {
+
+    static final int MAGIC = 0x444f4331; // "DOC1"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 24;
+
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {
+    };
+
+    private final FileChannel channel;
+    private final LongBuffer offsets;
+    private final int count;
+    private final int stamp;
+    private final ObjectMapper objectMapper;
+
+    private DocumentFile(FileChannel channel, LongBuffer offsets, int count, int stamp, ObjectMapper objectMapper) {
+        this.channel = channel;
+        this.offsets = offsets;
+        this.count = count;
+        this.stamp = stamp;
+        this.objectMapper = objectMapper;
+    }
+
+    static DocumentFile open(Path path, ObjectMapper objectMapper) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            header.flip();
+
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a document file: " + path);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported document file version " + version + ": " + path);
+            }
+            int count = header.getInt();
+            int stamp = header.getInt();
+            long offsetsPosition = header.getLong();
+
+            LongBuffer offsets = channel.map(FileChannel.MapMode.READ_ONLY, offsetsPosition, (count + 1L) * Long.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asLongBuffer();
+
+            return new DocumentFile(channel, offsets, count, stamp, objectMapper);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    int count() {
+        return count;
+    }
+
+    int stamp() {
+        return stamp;
+    }
+
+    DocumentRecord read(int row) {
+        ByteBuffer record = readRecord(row, (int) (offsets.get(row + 1) - offsets.get(row)));
+        String id = readString(record);
+        String text = readString(record);
+        int metadataLength = record.getInt();
+        try {
+            Map<String, Object> metadata = objectMapper.readValue(record.array(), record.position(), metadataLength, METADATA_TYPE);
+            return new DocumentRecord(id, text, metadata);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read metadata of row " + row, e);
+        }
+    }
+
+    String readId(int row) {
+        ByteBuffer lengthBuffer = readRecord(row, Integer.BYTES);
+        int idLength = lengthBuffer.getInt();
+        ByteBuffer record = readRecord(row, Integer.BYTES + idLength);
+        return readString(record);
+    }
+
+    private ByteBuffer readRecord(int row, int length) {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        long position = offsets.get(row);
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of document file at row " + row);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.flip();
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    static Writer writer(Path path, ObjectMapper objectMapper) throws IOException {
+        return new Writer(path, objectMapper);
+    }
+
+    /**
+     * Streams records to a new document file and appends the offset table on {@link #close()}.
+     * Records are written big-endian by {@link DataOutputStream}, which is what {@link ByteBuffer} reads by default.
+     */
+    static final class Writer implements Closeable {
+
+        private final FileChannel channel;
+        private final DataOutputStream out;
+        private final ObjectMapper objectMapper;
+        private final int stamp = ThreadLocalRandom.current().nextInt();
+        private long[] offsets = new long[1024];
+        private long position = HEADER_BYTES;
+        private int count;
+
+        private Writer(Path path, ObjectMapper objectMapper) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.channel.position(HEADER_BYTES);
+            OutputStream stream = Channels.newOutputStream(channel);
+            this.out = new DataOutputStream(new BufferedOutputStream(stream, 64 * 1024));
+            this.objectMapper = objectMapper;
+        }
+
+        int stamp() {
+            return stamp;
+        }
+
+        void write(DocumentRecord record) throws IOException {
+            if (count + 1 >= offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[count++] = position;
+            position += writeBytes(record.id().getBytes(StandardCharsets.UTF_8));
+            position += writeBytes(record.text() == null ? new byte[0] : record.text().getBytes(StandardCharsets.UTF_8));
+            position += writeBytes(objectMapper.writeValueAsBytes(record.metadata()));
+        }
+
+        private int writeBytes(byte[] bytes) throws IOException {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            return Integer.BYTES + bytes.length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                out.flush();
+                offsets[count] = position;
+
+                ByteBuffer table = ByteBuffer.allocate((count + 1) * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = 0; i <= count; i++) {
+                    table.putLong(offsets[i]);
+                }
+                table.flip();
+                while (table.hasRemaining()) {
+                    channel.write(table, position + table.position());
+                }
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(stamp).putLong(position).flip();
+                channel.write(header, 0);
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
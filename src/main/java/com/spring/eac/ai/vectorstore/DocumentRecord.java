@@ -0,0 +1,30 @@
+package com.spring.eac.ai.vectorstore;
+
+import org.springframework.ai.document.Document;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Id, text and metadata of a stored row, without its embedding.
+ */
+record DocumentRecord(String id, String text, Map<String, Object> metadata) {
+
+    static DocumentRecord from(Document document) {
+        return new DocumentRecord(document.getId(), document.getText(), document.getMetadata());
+    }
+
+    /**
+     * Builds the {@link Document} returned by a search, adding the same {@code distance} metadata as SimpleVectorStore.
+     */
+    Document toDocument(double score) {
+        Map<String, Object> documentMetadata = new HashMap<>(metadata);
+        documentMetadata.put("distance", 1.0 - score);
+        return Document.builder()
+                .id(id)
+                .text(text)
+                .metadata(documentMetadata)
+                .score(score)
+                .build();
+    }
+}
@@ -0,0 +1,398 @@
+package com.spring.eac.ai.vectorstore;
+
+import com.spring.eac.ai.vectorstore.kernel.SimilarityKernel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.function.IntPredicate;
+
+/**
+ * Hierarchical Navigable Small World graph over the rows of a {@link MappedVectorStore}, using cosine distance.
+ * <p>
+ * Node ids are store row numbers, so nodes must be added in row order. Vectors are not copied into the graph; they
+ * are read back from the store through {@link RowVectors}, which keeps the embeddings memory mapped and supplies
+ * their precomputed norms, so a distance costs a single {@link SimilarityKernel#dot} call.
+ * Follows Malkov &amp; Yashunin, "Efficient and robust approximate nearest neighbor search using HNSW graphs"
+ * (https://arxiv.org/abs/1603.09320), with the neighbour selection heuristic and pruned connections kept.
+ */
+final class HnswIndex {
+
+    static final int MAGIC = 0x484e5331; // "HNS1"
+    static final int VERSION = 2;
+
+    record Neighbor(int node, float distance) {
+    }
+
+    private static final Comparator<Neighbor> NEAREST_FIRST = Comparator.comparingDouble(Neighbor::distance);
+    private static final Comparator<Neighbor> FARTHEST_FIRST = NEAREST_FIRST.reversed();
+
+    private final int m;
+    private final int maxConnections0;
+    private final int efConstruction;
+    private final int ef;
+    private final double levelMultiplier;
+    private final RowVectors vectors;
+    private final SimilarityKernel kernel;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    private int[][][] neighbors = new int[16][][];
+    private int size;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    HnswIndex(int m, int efConstruction, int ef, RowVectors vectors, SimilarityKernel kernel) {
+        if (m < 2) {
+            throw new IllegalArgumentException("HNSW M must be at least 2");
+        }
+        this.m = m;
+        this.maxConnections0 = 2 * m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.ef = ef;
+        this.levelMultiplier = 1 / Math.log(m);
+        this.vectors = vectors;
+        this.kernel = kernel;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Inserts the row {@code node}, which must equal {@link #size()}.
+     */
+    void add(int node) {
+        if (node != size) {
+            throw new IllegalArgumentException("Expected node " + size + " but got " + node);
+        }
+        float[] vector = new float[vectors.dimensions()];
+        vectors.read(node, vector);
+        float norm = vectors.norm(node);
+
+        int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+        ensureCapacity(node + 1);
+        neighbors[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            neighbors[node][l] = new int[0];
+        }
+        size++;
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        float[] scratch = new float[vector.length];
+        int current = entryPoint;
+        float currentDistance = distance(vector, norm, current, scratch);
+        for (int l = maxLevel; l > level; l--) {
+            Neighbor nearest = greedyClosest(vector, norm, current, currentDistance, l, scratch);
+            current = nearest.node();
+            currentDistance = nearest.distance();
+        }
+
+        List<Neighbor> entryPoints = List.of(new Neighbor(current, currentDistance));
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            PriorityQueue<Neighbor> candidates = searchLayer(vector, norm, entryPoints, efConstruction, l, scratch);
+            List<Neighbor> sorted = sortedNearestFirst(candidates);
+            int[] selected = selectNeighbors(sorted, m, scratch);
+            neighbors[node][l] = selected;
+            for (int neighbor : selected) {
+                connect(neighbor, node, l, scratch);
+            }
+            entryPoints = sorted;
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    /**
+     * Returns up to {@code k} accepted nodes nearest to {@code query}, nearest first. The search width is widened
+     * when too many visited nodes are rejected by {@code accept} (e.g. deleted rows).
+     */
+    List<Neighbor> search(float[] query, int k, IntPredicate accept) {
+        if (entryPoint < 0 || k <= 0) {
+            return List.of();
+        }
+        float queryNorm = kernel.norm(query);
+        if (queryNorm == 0) {
+            return List.of();
+        }
+        float[] scratch = new float[query.length];
+
+        int current = entryPoint;
+        float currentDistance = distance(query, queryNorm, current, scratch);
+        for (int l = maxLevel; l > 0; l--) {
+            Neighbor nearest = greedyClosest(query, queryNorm, current, currentDistance, l, scratch);
+            current = nearest.node();
+            currentDistance = nearest.distance();
+        }
+
+        List<Neighbor> entryPoints = List.of(new Neighbor(current, currentDistance));
+        int width = Math.max(ef, k);
+        while (true) {
+            List<Neighbor> accepted = sortedNearestFirst(searchLayer(query, queryNorm, entryPoints, width, 0, scratch))
+                    .stream()
+                    .filter(neighbor -> accept.test(neighbor.node()))
+                    .limit(k)
+                    .toList();
+            if (accepted.size() >= k || width >= size) {
+                return accepted;
+            }
+            width = Math.min(size, width * 2);
+        }
+    }
+
+    /**
+     * Drops removed nodes and renumbers the rest, mirroring the row compaction done by {@link MappedVectorStore#save()}.
+     *
+     * @param newIds new id of every current node, or {@code -1} when the node was removed
+     * @param newSize number of surviving nodes
+     */
+    void compact(int[] newIds, int newSize) {
+        int[][][] compactedNeighbors = new int[Math.max(16, newSize)][][];
+        int highestNode = -1;
+        int highestLevel = -1;
+
+        for (int node = 0; node < size; node++) {
+            int newId = newIds[node];
+            if (newId < 0) {
+                continue;
+            }
+            int[][] levels = neighbors[node];
+            int[][] remapped = new int[levels.length][];
+            for (int l = 0; l < levels.length; l++) {
+                remapped[l] = Arrays.stream(levels[l]).map(n -> newIds[n]).filter(n -> n >= 0).toArray();
+            }
+            compactedNeighbors[newId] = remapped;
+            if (levels.length - 1 > highestLevel) {
+                highestNode = newId;
+                highestLevel = levels.length - 1;
+            }
+        }
+
+        // Keep the entry point when it survives, otherwise promote the surviving node with the highest level
+        boolean entryPointSurvives = entryPoint >= 0 && newIds[entryPoint] >= 0;
+        entryPoint = entryPointSurvives ? newIds[entryPoint] : highestNode;
+        maxLevel = entryPointSurvives ? maxLevel : highestLevel;
+        neighbors = compactedNeighbors;
+        size = newSize;
+    }
+
+    void write(Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(m);
+            out.writeInt(efConstruction);
+            out.writeInt(size);
+            out.writeInt(entryPoint);
+            out.writeInt(maxLevel);
+            for (int node = 0; node < size; node++) {
+                out.writeInt(neighbors[node].length);
+                for (int[] level : neighbors[node]) {
+                    out.writeInt(level.length);
+                    for (int neighbor : level) {
+                        out.writeInt(neighbor);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a graph written by {@link #write(Path)}, or returns {@code null} when it was built with other parameters
+     * or for a different number of rows and must be rebuilt.
+     */
+    static HnswIndex read(Path path, int m, int efConstruction, int ef, int expectedSize, RowVectors vectors,
+                          SimilarityKernel kernel) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 64 * 1024))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            int storedM = in.readInt();
+            int storedEfConstruction = in.readInt();
+            int size = in.readInt();
+            if (storedM != m || storedEfConstruction != Math.max(efConstruction, m) || size != expectedSize) {
+                return null;
+            }
+
+            HnswIndex index = new HnswIndex(m, efConstruction, ef, vectors, kernel);
+            index.entryPoint = in.readInt();
+            index.maxLevel = in.readInt();
+            index.ensureCapacity(size);
+            for (int node = 0; node < size; node++) {
+                int[][] levels = new int[in.readInt()][];
+                for (int l = 0; l < levels.length; l++) {
+                    int[] level = new int[in.readInt()];
+                    for (int i = 0; i < level.length; i++) {
+                        level[i] = in.readInt();
+                    }
+                    levels[l] = level;
+                }
+                index.neighbors[node] = levels;
+            }
+            index.size = size;
+            return index;
+        }
+    }
+
+    private Neighbor greedyClosest(float[] query, float queryNorm, int start, float startDistance, int level, float[] scratch) {
+        int current = start;
+        float currentDistance = startDistance;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int neighbor : neighbors[current][level]) {
+                float d = distance(query, queryNorm, neighbor, scratch);
+                if (d < currentDistance) {
+                    current = neighbor;
+                    currentDistance = d;
+                    changed = true;
+                }
+            }
+        }
+        return new Neighbor(current, currentDistance);
+    }
+
+    /**
+     * Best-first search of one layer; returns a max-heap of the {@code width} closest nodes found.
+     */
+    private PriorityQueue<Neighbor> searchLayer(float[] query, float queryNorm, List<Neighbor> entryPoints, int width,
+                                                int level, float[] scratch) {
+        BitSet visited = new BitSet(size);
+        PriorityQueue<Neighbor> candidates = new PriorityQueue<>(NEAREST_FIRST);
+        PriorityQueue<Neighbor> results = new PriorityQueue<>(FARTHEST_FIRST);
+        for (Neighbor entry : entryPoints) {
+            if (!visited.get(entry.node())) {
+                visited.set(entry.node());
+                candidates.add(entry);
+                results.add(entry);
+            }
+        }
+        while (results.size() > width) {
+            results.poll();
+        }
+
+        while (!candidates.isEmpty()) {
+            Neighbor candidate = candidates.poll();
+            if (candidate.distance() > results.peek().distance()) {
+                break;
+            }
+            int[][] levels = neighbors[candidate.node()];
+            if (level >= levels.length) {
+                continue;
+            }
+            for (int neighbor : levels[level]) {
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                float d = distance(query, queryNorm, neighbor, scratch);
+                if (results.size() < width || d < results.peek().distance()) {
+                    Neighbor next = new Neighbor(neighbor, d);
+                    candidates.add(next);
+                    results.add(next);
+                    if (results.size() > width) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Neighbour selection heuristic: keeps a candidate only if it is closer to the base node than to every neighbour
+     * already selected, then tops up with the pruned candidates.
+     */
+    private int[] selectNeighbors(List<Neighbor> nearestFirst, int max, float[] scratch) {
+        if (nearestFirst.size() <= max) {
+            return nearestFirst.stream().mapToInt(Neighbor::node).toArray();
+        }
+        List<Neighbor> selected = new ArrayList<>(max);
+        List<Neighbor> pruned = new ArrayList<>();
+        float[] candidateVector = new float[scratch.length];
+        for (Neighbor candidate : nearestFirst) {
+            if (selected.size() >= max) {
+                break;
+            }
+            vectors.read(candidate.node(), candidateVector);
+            float candidateNorm = vectors.norm(candidate.node());
+            boolean keep = true;
+            for (Neighbor chosen : selected) {
+                if (distance(candidateVector, candidateNorm, chosen.node(), scratch) < candidate.distance()) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected.add(candidate);
+            } else {
+                pruned.add(candidate);
+            }
+        }
+        for (int i = 0; i < pruned.size() && selected.size() < max; i++) {
+            selected.add(pruned.get(i));
+        }
+        return selected.stream().mapToInt(Neighbor::node).toArray();
+    }
+
+    private void connect(int node, int newNeighbor, int level, float[] scratch) {
+        int[] current = neighbors[node][level];
+        int max = level == 0 ? maxConnections0 : m;
+        int[] extended = Arrays.copyOf(current, current.length + 1);
+        extended[current.length] = newNeighbor;
+        if (extended.length <= max) {
+            neighbors[node][level] = extended;
+            return;
+        }
+
+        float[] vector = new float[scratch.length];
+        vectors.read(node, vector);
+        float norm = vectors.norm(node);
+        List<Neighbor> candidates = new ArrayList<>(extended.length);
+        for (int neighbor : extended) {
+            candidates.add(new Neighbor(neighbor, distance(vector, norm, neighbor, scratch)));
+        }
+        candidates.sort(NEAREST_FIRST);
+        neighbors[node][level] = selectNeighbors(candidates, max, scratch);
+    }
+
+    private float distance(float[] query, float queryNorm, int node, float[] scratch) {
+        float nodeNorm = vectors.norm(node);
+        if (nodeNorm == 0 || queryNorm == 0) {
+            return 1;
+        }
+        vectors.read(node, scratch);
+        return 1 - kernel.dot(query, scratch) / (queryNorm * nodeNorm);
+    }
+
+    private static List<Neighbor> sortedNearestFirst(PriorityQueue<Neighbor> queue) {
+        List<Neighbor> sorted = new ArrayList<>(queue);
+        sorted.sort(NEAREST_FIRST);
+        return sorted;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > neighbors.length) {
+            int newCapacity = Math.max(capacity, neighbors.length + (neighbors.length >> 1));
+            neighbors = Arrays.copyOf(neighbors, newCapacity);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.spring.eac.ai.vectorstore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntFunction;
+
+/**
+ * Memory-mapped hash table from document id to row of a {@link DocumentFile}, so ids can be looked up without
+ * reading every record onto the heap.
+ * <p>
+ * Layout: {@code [magic:int][version:int][count:int][stamp:int][capacity:int][reserved:int]}, then {@code capacity}
+ * slots of {@code [hash:int][row + 1:int]} with linear probing; a zero row marks an empty slot. Only hashes are stored,
+ * so a match is confirmed by reading the id of the candidate row. The stamp is the one of the document file the table
+ * was written for, so a table left over from an interrupted save is detected and rebuilt.
+ */
+final class IdIndexFile {
+
+    static final int MAGIC = 0x49445831; // "IDX1"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 24;
+
+    private static final int SLOT_BYTES = 2 * Integer.BYTES;
+    private static final int SLOTS_PER_CHUNK = 1 << 26;
+
+    private final int count;
+    private final int stamp;
+    private final int capacity;
+    private final ByteBuffer[] chunks;
+
+    private IdIndexFile(int count, int stamp, int capacity, ByteBuffer[] chunks) {
+        this.count = count;
+        this.stamp = stamp;
+        this.capacity = capacity;
+        this.chunks = chunks;
+    }
+
+    static IdIndexFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            header.flip();
+
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not an id index file: " + path);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported id index file version " + version + ": " + path);
+            }
+            int count = header.getInt();
+            int stamp = header.getInt();
+            int capacity = header.getInt();
+            if (Integer.bitCount(capacity) != 1 || channel.size() < HEADER_BYTES + (long) capacity * SLOT_BYTES) {
+                throw new IOException("Truncated id index file: " + path);
+            }
+            return new IdIndexFile(count, stamp, capacity, map(channel, FileChannel.MapMode.READ_ONLY, capacity));
+        }
+    }
+
+    private static ByteBuffer[] map(FileChannel channel, FileChannel.MapMode mode, int capacity) throws IOException {
+        int chunkCount = Math.ceilDiv(capacity, SLOTS_PER_CHUNK);
+        ByteBuffer[] chunks = new ByteBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            int slots = Math.min(SLOTS_PER_CHUNK, capacity - i * SLOTS_PER_CHUNK);
+            long position = HEADER_BYTES + (long) i * SLOTS_PER_CHUNK * SLOT_BYTES;
+            chunks[i] = channel.map(mode, position, (long) slots * SLOT_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return chunks;
+    }
+
+    int count() {
+        return count;
+    }
+
+    int stamp() {
+        return stamp;
+    }
+
+    /**
+     * Row holding {@code id}, or -1 when there is none.
+     *
+     * @param ids reads the id of a candidate row, to tell hash collisions apart
+     */
+    int find(String id, IntFunction<String> ids) {
+        int hash = hash(id);
+        for (int slot = hash & (capacity - 1); ; slot = (slot + 1) & (capacity - 1)) {
+            ByteBuffer chunk = chunks[slot / SLOTS_PER_CHUNK];
+            int offset = (slot % SLOTS_PER_CHUNK) * SLOT_BYTES;
+            int row = chunk.getInt(offset + Integer.BYTES) - 1;
+            if (row < 0) {
+                return -1;
+            }
+            if (chunk.getInt(offset) == hash && id.equals(ids.apply(row))) {
+                return row;
+            }
+        }
+    }
+
+    /**
+     * {@link String#hashCode()} spread with the MurmurHash3 finalizer, so similar ids do not fill adjacent slots.
+     */
+    private static int hash(String id) {
+        int h = id.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Power of two keeping the table at most half full.
+     */
+    private static int capacity(int count) {
+        return Integer.highestOneBit(Math.max(1, count) * 2 - 1) << 1;
+    }
+
+    static Writer writer(Path path, int count, int stamp) throws IOException {
+        return new Writer(path, count, stamp);
+    }
+
+    /**
+     * Fills a table sized for {@code count} ids through a writable mapping; the header is written on {@link #close()}.
+     */
+    static final class Writer implements Closeable {
+
+        private final FileChannel channel;
+        private final int count;
+        private final int stamp;
+        private final int capacity;
+        private final ByteBuffer[] chunks;
+        private int written;
+
+        private Writer(Path path, int count, int stamp) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.count = count;
+            this.stamp = stamp;
+            this.capacity = capacity(count);
+            try {
+                this.chunks = map(channel, FileChannel.MapMode.READ_WRITE, capacity);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Adds {@code id} at {@code row}; ids must be unique.
+         */
+        void write(String id, int row) {
+            if (written == count) {
+                throw new IllegalStateException("Id index was sized for " + count + " ids");
+            }
+            int hash = hash(id);
+            for (int slot = hash & (capacity - 1); ; slot = (slot + 1) & (capacity - 1)) {
+                ByteBuffer chunk = chunks[slot / SLOTS_PER_CHUNK];
+                int offset = (slot % SLOTS_PER_CHUNK) * SLOT_BYTES;
+                if (chunk.getInt(offset + Integer.BYTES) == 0) {
+                    chunk.putInt(offset, hash).putInt(offset + Integer.BYTES, row + 1);
+                    written++;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                for (ByteBuffer chunk : chunks) {
+                    ((MappedByteBuffer) chunk).force();
+                }
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION).putInt(written).putInt(stamp).putInt(capacity).putInt(0).flip();
+                channel.write(header, 0);
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,1294 @@
+package com.spring.eac.ai.vectorstore;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.spring.eac.ai.vectorstore.kernel.SimilarityKernel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.observation.conventions.VectorStoreProvider;
+import org.springframework.ai.observation.conventions.VectorStoreSimilarityMetric;
+import org.springframework.ai.util.JacksonUtils;
+import org.springframework.ai.vectorstore.AbstractVectorStoreBuilder;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStoreContent;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionConverter;
+import org.springframework.ai.vectorstore.filter.converter.SimpleVectorStoreFilterExpressionConverter;
+import org.springframework.ai.vectorstore.observation.AbstractObservationVectorStore;
+import org.springframework.ai.vectorstore.observation.VectorStoreObservationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.util.Assert;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.Supplier;
+
+/**
+ * Local {@link org.springframework.ai.vectorstore.VectorStore} persisted in a binary, memory-mapped format instead of
+ * the JSON file written by {@link org.springframework.ai.vectorstore.SimpleVectorStore}.
+ * <p>
+ * Embeddings live in a packed little-endian float file ({@code <name>.vec}) and document text and metadata in an
+ * offset-indexed file ({@code <name>.docs}), whose ids are hashed into {@code <name>.ids} (see {@link IdIndexFile}).
+ * Loading only maps the files, so startup time and heap usage no longer grow with the corpus. Rows added at runtime
+ * are kept on the heap and deletes are tombstoned until {@link #save()} rewrites the files.
+ * <p>
+ * When HNSW parameters are configured, unfiltered searches walk an in-process {@link HnswIndex} persisted in
+ * {@code <name>.hnsw} instead of scanning every row.
+ * <p>
+ * With quantization enabled, saved rows are also kept as int8 codes in {@code <name>.q8} (see
+ * {@link QuantizedVectorFile}). Scans and graph walks then read a quarter of the bytes, and the best
+ * {@code topK * oversampling} candidates are re-ranked with the full-precision floats of the {@code .vec} file.
+ * <p>
+ * Metadata keys configured for indexing get an in-memory {@link MetadataIndex}, built on the first filtered search.
+ * Filters it can answer (equality, {@code IN} and ranges, combined with {@code AND}/{@code OR}) are planned: when the
+ * candidate rows are at most the pre-filter selectivity of the store, only those rows are scored; otherwise the
+ * filter is applied while walking the HNSW graph, or during the scan.
+ * <p>
+ * Scans can be split into shards of contiguous rows, scored in parallel on a {@link ForkJoinPool}. Each shard keeps
+ * its own bounded min-heap and the shard heaps are merged into the global top-k, so one search can use every core.
+ * <p>
+ * With a {@link WriteAheadLog} ({@code <name>.wal}), every add and delete is logged before it is applied and is durable
+ * when the call returns; concurrent writers share fsyncs. {@link #save()} takes a snapshot: the log is rotated, the
+ * files are rewritten while searches and writes go on, and only the swap to the new files holds the write lock.
+ * {@link #load()} replays the logs written since the last complete snapshot.
+ * <p>
+ * Every file of a save carries the stamp of its document file, and a {@code <name>.commit} file naming that stamp is
+ * written once all of them are complete. {@link #load()} finishes the moves of a save that crashed after its commit
+ * and discards the files of one that crashed before, so the files are always mapped from a single save.
+ */
+@Slf4j
+public class MappedVectorStore extends AbstractObservationVectorStore implements AutoCloseable {
+
+    private static final TypeReference<Map<String, SimpleVectorStoreContent>> LEGACY_TYPE = new TypeReference<>() {
+    };
+
+    private final Path vectorFilePath;
+    private final Path documentFilePath;
+    private final Path idIndexFilePath;
+    private final Path indexFilePath;
+    private final Path quantizedFilePath;
+    private final Path commitFilePath;
+    private final Path logFilePath;
+    private final Path snapshotLogFilePath;
+    private final Builder.Hnsw hnsw;
+    private final Builder.Quantization quantization;
+    private final SimilarityKernel kernel;
+    private final List<String> indexedKeys;
+    private final double preFilterSelectivity;
+    private final int shards;
+    private final int minShardRows;
+    private final ForkJoinPool searchPool;
+    private final boolean writeAheadLogEnabled;
+    private final Duration snapshotInterval;
+    private final RowVectors rowVectors = new StoreRowVectors();
+    private final ObjectMapper objectMapper;
+    private final SpelExpressionParser expressionParser = new SpelExpressionParser();
+    private final FilterExpressionConverter filterExpressionConverter = new SimpleVectorStoreFilterExpressionConverter();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock snapshotLock = new ReentrantLock();
+    private final AtomicLong version = new AtomicLong();
+
+    private VectorFile vectorFile;
+    private DocumentFile documentFile;
+    private IdIndexFile idIndex;
+    private QuantizedVectorFile quantizedFile;
+    private final List<AppendedRow> appended = new ArrayList<>();
+    private final BitSet deleted = new BitSet();
+    // Rows of the ids appended since the last save; saved rows are found through the id index
+    private final Map<String, Integer> appendedRows = new HashMap<>();
+    private HnswIndex index;
+    private volatile MetadataIndex metadataIndex;
+    private volatile WriteAheadLog writeAheadLog;
+    // Changes applied while a snapshot writes the files, replayed on top of them after the swap
+    private List<WriteAheadLog.Entry> pendingChanges;
+    private ScheduledExecutorService snapshotScheduler;
+
+    protected MappedVectorStore(Builder builder) {
+        super(builder);
+        Assert.notNull(builder.path, "path must not be null");
+        Path basePath = basePath(builder.path);
+        this.vectorFilePath = basePath.resolveSibling(basePath.getFileName() + ".vec");
+        this.documentFilePath = basePath.resolveSibling(basePath.getFileName() + ".docs");
+        this.idIndexFilePath = basePath.resolveSibling(basePath.getFileName() + ".ids");
+        this.indexFilePath = basePath.resolveSibling(basePath.getFileName() + ".hnsw");
+        this.quantizedFilePath = basePath.resolveSibling(basePath.getFileName() + ".q8");
+        this.commitFilePath = basePath.resolveSibling(basePath.getFileName() + ".commit");
+        this.logFilePath = basePath.resolveSibling(basePath.getFileName() + ".wal");
+        this.snapshotLogFilePath = basePath.resolveSibling(basePath.getFileName() + ".wal.snapshot");
+        this.hnsw = builder.hnsw;
+        this.quantization = builder.quantization;
+        this.kernel = builder.kernel;
+        this.indexedKeys = builder.indexedKeys;
+        this.preFilterSelectivity = builder.preFilterSelectivity;
+        this.shards = builder.shards;
+        this.minShardRows = builder.minShardRows;
+        this.searchPool = builder.searchPool;
+        this.writeAheadLogEnabled = builder.writeAheadLog;
+        this.snapshotInterval = builder.snapshotInterval;
+        this.objectMapper = JsonMapper.builder().addModules(JacksonUtils.instantiateAvailableModules()).build();
+    }
+
+    public static Builder builder(EmbeddingModel embeddingModel) {
+        return new Builder(embeddingModel);
+    }
+
+    /**
+     * Strips a legacy extension such as {@code .json} so the configured path can stay unchanged after the migration.
+     */
+    private static Path basePath(Path path) {
+        String fileName = path.getFileName().toString();
+        int extension = fileName.lastIndexOf('.');
+        return extension > 0 ? path.resolveSibling(fileName.substring(0, extension)) : path;
+    }
+
+    /**
+     * Whether there is a saved store, or a write-ahead log of a store that crashed before its first snapshot.
+     */
+    public boolean exists() {
+        return filesExist() || Files.exists(commitFilePath)
+                || writeAheadLogEnabled && (Files.exists(logFilePath) || Files.exists(snapshotLogFilePath));
+    }
+
+    private static Path tmp(Path file) {
+        return file.resolveSibling(file.getFileName() + ".tmp");
+    }
+
+    private boolean filesExist() {
+        return Files.exists(vectorFilePath) && Files.exists(documentFilePath);
+    }
+
+    /**
+     * Maps the vector and document files and reads the HNSW graph, rebuilding it when it is missing or stale.
+     * Only the file headers and the offset table of the store itself are touched. With a write-ahead log, the adds
+     * and deletes logged after the last snapshot are then replayed.
+     */
+    public void load() {
+        lock.writeLock().lock();
+        try {
+            Integer committed = recoverSave();
+            if (filesExist()) {
+                mapFiles();
+                if (committed != null && committed != documentFile.stamp()) {
+                    throw new IllegalStateException("Committed save " + committed + " but mapped document file "
+                            + documentFile.stamp() + " of " + documentFilePath);
+                }
+            } else {
+                closeFiles();
+                appended.clear();
+                deleted.clear();
+                appendedRows.clear();
+                metadataIndex = null;
+            }
+            index = hnsw == null ? null : readOrBuildIndex();
+            if (writeAheadLogEnabled) {
+                recoverLog();
+            }
+            version.incrementAndGet();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load vector store from " + vectorFilePath, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Brings the files back to a single save after a crash during {@link #save()}. With a commit file, every new file
+     * was complete before the first move, so the moves left undone are finished; without one, the old files were
+     * never replaced and the temporary files of the interrupted save are deleted.
+     *
+     * @return stamp of the save whose moves were finished, or {@code null}
+     */
+    private Integer recoverSave() throws IOException {
+        List<Path> files = List.of(vectorFilePath, documentFilePath, idIndexFilePath, quantizedFilePath);
+        if (!Files.exists(commitFilePath)) {
+            for (Path file : files) {
+                Files.deleteIfExists(tmp(file));
+            }
+            Files.deleteIfExists(tmp(commitFilePath));
+            return null;
+        }
+        int stamp = Integer.parseInt(Files.readString(commitFilePath).strip());
+        for (Path file : files) {
+            if (Files.exists(tmp(file))) {
+                Files.move(tmp(file), file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+        Files.delete(commitFilePath);
+        log.warn("Finished the interrupted save {} of {}", stamp, vectorFilePath);
+        return stamp;
+    }
+
+    /**
+     * Names the save whose files are about to replace the current ones; written once they are all complete.
+     */
+    private void writeCommit(int stamp) throws IOException {
+        Path commitTmp = tmp(commitFilePath);
+        try (FileChannel channel = FileChannel.open(commitTmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(StandardCharsets.UTF_8.encode(Integer.toString(stamp)));
+            channel.force(true);
+        }
+        Files.move(commitTmp, commitFilePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Replays the log of an interrupted snapshot, then the current log, and keeps appending to the latter.
+     */
+    private void recoverLog() throws IOException {
+        closeLog();
+        int replayed = WriteAheadLog.replay(snapshotLogFilePath, objectMapper, this::apply)
+                + WriteAheadLog.replay(logFilePath, objectMapper, this::apply);
+        if (replayed > 0) {
+            log.info("Replayed {} write-ahead log entries, {} rows pending the next snapshot", replayed, appended.size());
+        }
+        openLog();
+    }
+
+    private void openLog() throws IOException {
+        writeAheadLog = WriteAheadLog.open(logFilePath, objectMapper);
+        if (snapshotScheduler == null && snapshotInterval != null && !snapshotInterval.isZero()) {
+            snapshotScheduler = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().daemon().name("vector-store-snapshot").factory());
+            snapshotScheduler.scheduleWithFixedDelay(this::snapshotIfLogged, snapshotInterval.toMillis(),
+                    snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * The log to append to. A store written without {@link #load()} is being rebuilt, so earlier logs are dropped.
+     */
+    private WriteAheadLog writeAheadLog() throws IOException {
+        if (writeAheadLogEnabled && writeAheadLog == null) {
+            Files.deleteIfExists(snapshotLogFilePath);
+            Files.deleteIfExists(logFilePath);
+            openLog();
+        }
+        return writeAheadLog;
+    }
+
+    private void closeLog() throws IOException {
+        if (writeAheadLog != null) {
+            writeAheadLog.close();
+            writeAheadLog = null;
+        }
+    }
+
+    private void mapFiles() {
+        try {
+            closeFiles();
+            vectorFile = VectorFile.open(vectorFilePath, kernel);
+            documentFile = DocumentFile.open(documentFilePath, objectMapper);
+            if (vectorFile.stamp() != null && vectorFile.stamp() != documentFile.stamp()) {
+                throw new IllegalStateException("Vector file " + vectorFilePath + " was saved with document file "
+                        + vectorFile.stamp() + " but the document file is " + documentFile.stamp());
+            }
+            if (vectorFile.count() != documentFile.count()) {
+                throw new IllegalStateException("Vector file has " + vectorFile.count()
+                        + " rows but document file has " + documentFile.count());
+            }
+            quantizedFile = quantization == null ? null : openOrWriteQuantized();
+            idIndex = openOrWriteIdIndex();
+            appended.clear();
+            deleted.clear();
+            appendedRows.clear();
+            metadataIndex = null;
+            log.info("Mapped {} embeddings of {} dimensions from {}", vectorFile.count(), vectorFile.dimensions(), vectorFilePath);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load vector store from " + vectorFilePath, e);
+        }
+    }
+
+    private QuantizedVectorFile openOrWriteQuantized() throws IOException {
+        if (Files.exists(quantizedFilePath)) {
+            try {
+                QuantizedVectorFile stored = QuantizedVectorFile.open(quantizedFilePath);
+                if (stored.count() == vectorFile.count() && stored.dimensions() == vectorFile.dimensions()
+                        && stored.stamp() == documentFile.stamp()) {
+                    return stored;
+                }
+            } catch (IOException e) {
+                log.warn("Failed to read quantized vectors {}, rebuilding them: {}", quantizedFilePath, e.getMessage());
+            }
+        }
+        // Saved without quantization or by an earlier version: derive the codes from the float file
+        Path quantizedTmp = tmp(quantizedFilePath);
+        float[] embedding = new float[vectorFile.dimensions()];
+        try (QuantizedVectorFile.Writer codes = QuantizedVectorFile.writer(quantizedTmp, vectorFile.dimensions(),
+                documentFile.stamp())) {
+            for (int row = 0; row < vectorFile.count(); row++) {
+                vectorFile.read(row, embedding);
+                codes.write(embedding);
+            }
+        }
+        Files.move(quantizedTmp, quantizedFilePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Quantized {} embeddings into {}", vectorFile.count(), quantizedFilePath);
+        return QuantizedVectorFile.open(quantizedFilePath);
+    }
+
+    private IdIndexFile openOrWriteIdIndex() throws IOException {
+        if (Files.exists(idIndexFilePath)) {
+            try {
+                IdIndexFile stored = IdIndexFile.open(idIndexFilePath);
+                if (stored.count() == documentFile.count() && stored.stamp() == documentFile.stamp()) {
+                    return stored;
+                }
+            } catch (IOException e) {
+                log.warn("Failed to read id index {}, rebuilding it: {}", idIndexFilePath, e.getMessage());
+            }
+        }
+        // Saved before the id index existed: hash the ids of the document file
+        Path idIndexTmp = tmp(idIndexFilePath);
+        try (IdIndexFile.Writer ids = IdIndexFile.writer(idIndexTmp, documentFile.count(), documentFile.stamp())) {
+            for (int row = 0; row < documentFile.count(); row++) {
+                ids.write(documentFile.readId(row), row);
+            }
+        }
+        Files.move(idIndexTmp, idIndexFilePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Indexed {} document ids into {}", documentFile.count(), idIndexFilePath);
+        return IdIndexFile.open(idIndexFilePath);
+    }
+
+    private HnswIndex readOrBuildIndex() {
+        int rows = rowCount();
+        if (Files.exists(indexFilePath)) {
+            try {
+                HnswIndex stored = HnswIndex.read(indexFilePath, hnsw.m(), hnsw.efConstruction(), hnsw.ef(), rows,
+                        rowVectors, kernel);
+                if (stored != null) {
+                    log.info("Loaded HNSW index with {} nodes from {}", stored.size(), indexFilePath);
+                    return stored;
+                }
+            } catch (IOException e) {
+                log.warn("Failed to read HNSW index {}, rebuilding it: {}", indexFilePath, e.getMessage());
+            }
+        }
+
+        long start = System.nanoTime();
+        HnswIndex built = newIndex();
+        for (int row = 0; row < rows; row++) {
+            built.add(row);
+        }
+        log.info("Built HNSW index with {} nodes (M={}, efConstruction={}) in {} ms", rows, hnsw.m(),
+                hnsw.efConstruction(), (System.nanoTime() - start) / 1_000_000);
+        writeIndex(built);
+        return built;
+    }
+
+    private HnswIndex newIndex() {
+        return new HnswIndex(hnsw.m(), hnsw.efConstruction(), hnsw.ef(), rowVectors, kernel);
+    }
+
+    private void writeIndex(HnswIndex graph) {
+        Path indexTmp = tmp(indexFilePath);
+        try {
+            graph.write(indexTmp);
+            Files.move(indexTmp, indexFilePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to save HNSW index to " + indexFilePath, e);
+        }
+    }
+
+    /**
+     * Imports a JSON file written by {@link org.springframework.ai.vectorstore.SimpleVectorStore#save(File)}
+     * without calling the embedding model again.
+     */
+    public void importJson(File file) {
+        try {
+            Map<String, SimpleVectorStoreContent> contents = objectMapper.readValue(file, LEGACY_TYPE);
+            lock.writeLock().lock();
+            try {
+                contents.values().forEach(content -> append(
+                        new DocumentRecord(content.getId(), content.getText(), content.getMetadata()),
+                        content.getEmbedding()));
+                version.incrementAndGet();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Imported {} documents from {}", contents.size(), file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to import vector store from " + file, e);
+        }
+    }
+
+    /**
+     * Rewrites the vector and document files with every live row and maps them again.
+     * <p>
+     * The rows are captured and the write-ahead log is rotated under the write lock; the files are then written next
+     * to the current ones without holding it, so searches and writes continue. The swap writes the commit file, moves
+     * the new files into place, maps them and replays the changes made in the meantime. A crash before the commit
+     * leaves the old files and both logs; a crash after it has {@link #load()} finish the moves and replay entries the
+     * new files already contain, which is harmless since adds replace by id.
+     */
+    public void save() {
+        snapshotLock.lock();
+        try {
+            Snapshot snapshot;
+            lock.writeLock().lock();
+            try {
+                snapshot = new Snapshot(vectorFile, documentFile, List.copyOf(appended), (BitSet) deleted.clone(),
+                        rowCount(), dimensions());
+                pendingChanges = new ArrayList<>();
+                rotateLog();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            int[] newRows = new int[snapshot.rows()];
+            WrittenFiles written;
+            try {
+                written = writeFiles(snapshot, newRows);
+            } catch (IOException | RuntimeException e) {
+                // The changes stay applied in memory and logged, the next snapshot picks them up
+                lock.writeLock().lock();
+                try {
+                    pendingChanges = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw e;
+            }
+            swapFiles(snapshot, newRows, written);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to save vector store to " + vectorFilePath, e);
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the live rows of {@code snapshot} to temporary files next to the store files.
+     *
+     * @param newRows filled with the new row of each snapshot row, or -1 when it is deleted
+     */
+    private WrittenFiles writeFiles(Snapshot snapshot, int[] newRows) throws IOException {
+        float[] embedding = new float[snapshot.dimensions()];
+        int live = snapshot.rows() - snapshot.deleted().get(0, snapshot.rows()).cardinality();
+        int written = 0;
+        int stamp;
+
+        try (DocumentFile.Writer documents = DocumentFile.writer(tmp(documentFilePath), objectMapper);
+             VectorFile.Writer vectors = VectorFile.writer(tmp(vectorFilePath), snapshot.dimensions(), documents.stamp());
+             IdIndexFile.Writer ids = IdIndexFile.writer(tmp(idIndexFilePath), live, documents.stamp());
+             QuantizedVectorFile.Writer codes = quantization == null ? null
+                     : QuantizedVectorFile.writer(tmp(quantizedFilePath), snapshot.dimensions(), documents.stamp())) {
+            stamp = documents.stamp();
+            for (int row = 0; row < snapshot.rows(); row++) {
+                if (snapshot.deleted().get(row)) {
+                    newRows[row] = -1;
+                    continue;
+                }
+                snapshot.readEmbedding(row, embedding);
+                vectors.write(embedding, snapshot.norm(row));
+                if (codes != null) {
+                    codes.write(embedding);
+                }
+                DocumentRecord record = snapshot.record(row);
+                documents.write(record);
+                ids.write(record.id(), written);
+                newRows[row] = written++;
+            }
+        }
+        return new WrittenFiles(written, stamp);
+    }
+
+    /**
+     * Rows and document file stamp of the files written by a save.
+     */
+    private record WrittenFiles(int rows, int stamp) {
+    }
+
+    /**
+     * Moves the written files into place, maps them and replays the changes made while they were written.
+     */
+    private void swapFiles(Snapshot snapshot, int[] newRows, WrittenFiles written) throws IOException {
+        lock.writeLock().lock();
+        try {
+            List<WriteAheadLog.Entry> changes = pendingChanges;
+            pendingChanges = null;
+            // From here on a crash is recovered by finishing the moves, never by mixing the old and new files
+            writeCommit(written.stamp());
+            List<Path> files = quantization == null
+                    ? List.of(vectorFilePath, documentFilePath, idIndexFilePath)
+                    : List.of(vectorFilePath, documentFilePath, idIndexFilePath, quantizedFilePath);
+            for (Path file : files) {
+                Files.move(tmp(file), file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            Files.delete(commitFilePath);
+            log.info("Saved {} documents to {}", written.rows(), vectorFilePath);
+
+            // Rows appended since the snapshot are dropped from the graph and added again by the replay
+            int[] remap = Arrays.copyOf(newRows, rowCount());
+            Arrays.fill(remap, snapshot.rows(), remap.length, -1);
+            mapFiles();
+            if (index != null) {
+                index.compact(remap, written.rows());
+                writeIndex(index);
+            }
+            changes.forEach(this::apply);
+            if (writeAheadLog != null) {
+                Files.deleteIfExists(snapshotLogFilePath);
+            }
+            if (!changes.isEmpty()) {
+                log.info("Replayed {} changes made while saving {}", changes.size(), vectorFilePath);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Starts a new log for the changes after a snapshot; the previous one is kept until the snapshot is swapped in.
+     * When an earlier snapshot never got there, its log is extended instead so no entry is lost.
+     */
+    private void rotateLog() throws IOException {
+        WriteAheadLog current = writeAheadLog;
+        if (current == null) {
+            return;
+        }
+        current.close();
+        if (Files.exists(snapshotLogFilePath)) {
+            try (FileChannel source = FileChannel.open(logFilePath, StandardOpenOption.READ);
+                 FileChannel target = FileChannel.open(snapshotLogFilePath, StandardOpenOption.WRITE,
+                         StandardOpenOption.APPEND)) {
+                for (long position = 0; position < source.size(); ) {
+                    position += source.transferTo(position, source.size() - position, target);
+                }
+                target.force(true);
+            }
+            Files.delete(logFilePath);
+        } else {
+            Files.move(logFilePath, snapshotLogFilePath, StandardCopyOption.ATOMIC_MOVE);
+        }
+        writeAheadLog = WriteAheadLog.open(logFilePath, objectMapper);
+    }
+
+    /**
+     * Background snapshot, taken only when something was logged since the last one.
+     */
+    private void snapshotIfLogged() {
+        WriteAheadLog current = writeAheadLog;
+        if (current == null || current.size() == 0) {
+            return;
+        }
+        try {
+            save();
+        } catch (RuntimeException e) {
+            log.warn("Background snapshot of {} failed, changes stay in the write-ahead log", vectorFilePath, e);
+        }
+    }
+
+    /**
+     * Stops background snapshots and closes the write-ahead log; everything logged is already durable.
+     */
+    @Override
+    public void close() {
+        if (snapshotScheduler != null) {
+            snapshotScheduler.shutdown();
+            try {
+                snapshotScheduler.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            closeLog();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close write-ahead log " + logFilePath, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Counter bumped by every change of the stored documents, so caches of search results can tell stale entries.
+     */
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Number of live documents in the store.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rowCount() - deleted.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stored embeddings of the live documents with these ids, leaving out unknown ids, so re-ranking stages can
+     * compare search results without embedding them again.
+     */
+    public Map<String, float[]> embeddings(Collection<String> ids) {
+        lock.readLock().lock();
+        try {
+            Map<String, float[]> embeddings = new HashMap<>();
+            for (String id : ids) {
+                int row = rowOf(id);
+                if (row >= 0) {
+                    float[] embedding = new float[dimensions()];
+                    readEmbedding(row, embedding);
+                    embeddings.put(id, embedding);
+                }
+            }
+            return embeddings;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Text and metadata of the live documents with these ids, leaving out unknown ids, so indexes kept next to the
+     * store, such as the BM25 index, need not hold their own copy.
+     */
+    public Map<String, Document> documents(Collection<String> ids) {
+        lock.readLock().lock();
+        try {
+            Map<String, Document> documents = new HashMap<>();
+            for (String id : ids) {
+                int row = rowOf(id);
+                if (row >= 0) {
+                    DocumentRecord record = record(row);
+                    documents.put(id, new Document(record.id(), record.text(), new HashMap<>(record.metadata())));
+                }
+            }
+            return documents;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void doAdd(List<Document> documents) {
+        Assert.notNull(documents, "Documents list cannot be null");
+        if (documents.isEmpty()) {
+            return;
+        }
+
+        List<float[]> embeddings = this.embeddingModel.embed(documents, EmbeddingOptionsBuilder.builder().build(),
+                this.batchingStrategy);
+        add(documents, embeddings);
+    }
+
+    /**
+     * Adds documents whose embeddings were already computed by the caller, e.g. by the ingestion pipeline, so the
+     * embedding model is not called under the store lock. Documents with an existing id replace it.
+     */
+    public void add(List<Document> documents, List<float[]> embeddings) {
+        Assert.isTrue(documents.size() == embeddings.size(), "Expected one embedding per document");
+        List<DocumentRecord> records = documents.stream().map(DocumentRecord::from).toList();
+        commit(() -> new WriteAheadLog.Add(records, List.copyOf(embeddings)));
+    }
+
+    @Override
+    public void doDelete(List<String> idList) {
+        commit(() -> new WriteAheadLog.Delete(List.copyOf(idList)));
+    }
+
+    @Override
+    protected void doDelete(Filter.Expression filterExpression) {
+        Assert.notNull(filterExpression, "Filter expression must not be null");
+        commit(() -> {
+            MetadataIndex.Plan plan = plan(filterExpression);
+            IntPredicate filter = filterPredicate(filterExpression, plan);
+            List<String> ids = new ArrayList<>();
+            BitSet rows = plan.rows();
+            for (int row = rows == null ? 0 : rows.nextSetBit(0); row >= 0 && row < rowCount();
+                 row = rows == null ? row + 1 : rows.nextSetBit(row + 1)) {
+                if (!deleted.get(row) && filter.test(row)) {
+                    ids.add(record(row).id());
+                }
+            }
+            return new WriteAheadLog.Delete(ids);
+        });
+    }
+
+    /**
+     * Logs and applies the change built by {@code change} under the write lock, then waits for the log outside of
+     * it, so searches are not held up by the fsync and concurrent writers can share one.
+     */
+    private void commit(Supplier<WriteAheadLog.Entry> change) {
+        WriteAheadLog changeLog;
+        long position = 0;
+        lock.writeLock().lock();
+        try {
+            WriteAheadLog.Entry entry = change.get();
+            changeLog = writeAheadLog();
+            if (changeLog != null) {
+                position = changeLog.append(entry);
+            }
+            if (pendingChanges != null) {
+                pendingChanges.add(entry);
+            }
+            apply(entry);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to write-ahead log " + logFilePath, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (changeLog != null) {
+            try {
+                changeLog.sync(position);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to sync write-ahead log " + logFilePath, e);
+            }
+        }
+    }
+
+    /**
+     * Applies a logged change to the rows in memory; adds replace documents with the same id.
+     */
+    private void apply(WriteAheadLog.Entry entry) {
+        switch (entry) {
+            case WriteAheadLog.Add add -> {
+                for (int i = 0; i < add.records().size(); i++) {
+                    DocumentRecord record = add.records().get(i);
+                    int existing = rowOf(record.id());
+                    if (existing >= 0) {
+                        deleted.set(existing);
+                    }
+                    append(record, add.embeddings().get(i));
+                }
+            }
+            case WriteAheadLog.Delete delete -> {
+                for (String id : delete.ids()) {
+                    int row = rowOf(id);
+                    if (row >= 0) {
+                        deleted.set(row);
+                        appendedRows.remove(id);
+                    }
+                }
+            }
+        }
+        version.incrementAndGet();
+    }
+
+    @Override
+    public List<Document> doSimilaritySearch(SearchRequest request) {
+        return similaritySearch(request, this.embeddingModel.embed(request.getQuery()));
+    }
+
+    /**
+     * Similarity search for a query the caller already embedded with this store's model, so a stage that needs the
+     * query embedding itself, such as re-ranking, does not embed the query twice. Not observed, unlike
+     * {@link #similaritySearch(SearchRequest)}.
+     */
+    public List<Document> similaritySearch(SearchRequest request, float[] query) {
+        Assert.notNull(query, "query must not be null");
+        lock.readLock().lock();
+        try {
+            int rows = rowCount();
+            if (rows == 0) {
+                return List.of();
+            }
+            float[] embedding = new float[dimensions()];
+            float queryNorm = kernel.norm(query);
+            int candidates = quantizedFile == null ? request.getTopK() : request.getTopK() * quantization.oversampling();
+            PriorityQueue<ScoredRow> topK = new PriorityQueue<>(Comparator.comparingDouble(ScoredRow::score));
+
+            IntPredicate filter = row -> true;
+            if (request.hasFilterExpression()) {
+                MetadataIndex.Plan plan = plan(request.getFilterExpression());
+                filter = filterPredicate(request.getFilterExpression(), plan);
+                BitSet matching = plan.rows();
+                if (matching != null && matching.cardinality() <= preFilterSelectivity * (rows - deleted.cardinality())) {
+                    // Selective filter: score only the candidate rows
+                    for (int row = matching.nextSetBit(0); row >= 0; row = matching.nextSetBit(row + 1)) {
+                        if (!deleted.get(row) && filter.test(row)) {
+                            offerExact(topK, row, query, queryNorm, embedding, request);
+                        }
+                    }
+                    return toDocuments(topK);
+                }
+            }
+
+            if (index != null) {
+                IntPredicate accept = filter;
+                List<HnswIndex.Neighbor> neighbors = index.search(query, candidates,
+                        row -> !deleted.get(row) && accept.test(row));
+                if (quantizedFile == null) {
+                    return neighbors.stream()
+                            .filter(neighbor -> 1 - neighbor.distance() >= request.getSimilarityThreshold())
+                            .map(neighbor -> record(neighbor.node()).toDocument(1 - neighbor.distance()))
+                            .toList();
+                }
+                for (HnswIndex.Neighbor neighbor : neighbors) {
+                    offerExact(topK, neighbor.node(), query, queryNorm, embedding, request);
+                }
+                return toDocuments(topK);
+            }
+
+            IntPredicate live = filter;
+            int firstExactRow = 0;
+            if (quantizedFile != null) {
+                // Rank the mapped rows by their codes, then re-score the best candidates with the floats
+                float querySum = kernel.sum(query);
+                firstExactRow = mappedCount();
+                PriorityQueue<ScoredRow> approximate = scan(0, firstExactRow, candidates, () -> {
+                    byte[] codes = new byte[dimensions()];
+                    return row -> {
+                        float norm = norm(row);
+                        if (deleted.get(row) || norm == 0 || queryNorm == 0 || !live.test(row)) {
+                            return Double.NaN;
+                        }
+                        return quantizedFile.dot(row, query, querySum, codes, kernel) / ((double) queryNorm * norm);
+                    };
+                });
+                for (ScoredRow candidate : approximate) {
+                    offerExact(topK, candidate.row(), query, queryNorm, embedding, request);
+                }
+            }
+
+            PriorityQueue<ScoredRow> exact = scan(firstExactRow, rows, request.getTopK(), () -> {
+                float[] scratch = new float[dimensions()];
+                return row -> {
+                    if (deleted.get(row) || !live.test(row)) {
+                        return Double.NaN;
+                    }
+                    readEmbedding(row, scratch);
+                    double score = kernel.cosine(query, queryNorm, scratch, norm(row));
+                    return score >= request.getSimilarityThreshold() ? score : Double.NaN;
+                };
+            });
+            for (ScoredRow scored : exact) {
+                offer(topK, scored.row(), scored.score(), request.getTopK());
+            }
+            return toDocuments(topK);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The {@code k} best rows of {@code [from, to)}. Large ranges are split into shards of at least
+     * {@code minShardRows} rows; all but the last are forked to the search pool while the calling thread scores the
+     * last one, then the shard heaps are merged. Scorers hold per-thread scratch buffers, so every shard gets its own
+     * and returns {@code NaN} for rows to skip.
+     */
+    private PriorityQueue<ScoredRow> scan(int from, int to, int k, Supplier<IntToDoubleFunction> scorers) {
+        int count = Math.min(shards, (to - from) / minShardRows);
+        if (count <= 1) {
+            return scanShard(from, to, k, scorers.get());
+        }
+
+        int shardRows = Math.ceilDiv(to - from, count);
+        List<ForkJoinTask<PriorityQueue<ScoredRow>>> forked = new ArrayList<>(count - 1);
+        int start = from;
+        for (; start + shardRows < to; start += shardRows) {
+            int shardStart = start;
+            forked.add(searchPool.submit(() -> scanShard(shardStart, shardStart + shardRows, k, scorers.get())));
+        }
+        PriorityQueue<ScoredRow> merged = scanShard(start, to, k, scorers.get());
+        for (ForkJoinTask<PriorityQueue<ScoredRow>> shard : forked) {
+            for (ScoredRow scored : shard.join()) {
+                offer(merged, scored.row(), scored.score(), k);
+            }
+        }
+        return merged;
+    }
+
+    private static PriorityQueue<ScoredRow> scanShard(int from, int to, int k, IntToDoubleFunction scorer) {
+        PriorityQueue<ScoredRow> heap = new PriorityQueue<>(Comparator.comparingDouble(ScoredRow::score));
+        for (int row = from; row < to; row++) {
+            double score = scorer.applyAsDouble(row);
+            if (!Double.isNaN(score)) {
+                offer(heap, row, score, k);
+            }
+        }
+        return heap;
+    }
+
+    private void offerExact(PriorityQueue<ScoredRow> topK, int row, float[] query, float queryNorm, float[] scratch,
+                            SearchRequest request) {
+        readEmbedding(row, scratch);
+        double score = kernel.cosine(query, queryNorm, scratch, norm(row));
+        if (score >= request.getSimilarityThreshold()) {
+            offer(topK, row, score, request.getTopK());
+        }
+    }
+
+    /**
+     * Keeps the {@code k} best rows in a min-heap.
+     */
+    private static void offer(PriorityQueue<ScoredRow> heap, int row, double score, int k) {
+        if (heap.size() < k) {
+            heap.add(new ScoredRow(row, score));
+        } else if (score > heap.peek().score()) {
+            heap.poll();
+            heap.add(new ScoredRow(row, score));
+        }
+    }
+
+    private List<Document> toDocuments(PriorityQueue<ScoredRow> topK) {
+        List<ScoredRow> ranked = new ArrayList<>(topK);
+        ranked.sort(Comparator.comparingDouble(ScoredRow::score).reversed());
+        return ranked.stream()
+                .map(scored -> record(scored.row()).toDocument(scored.score()))
+                .toList();
+    }
+
+    /**
+     * Candidate rows of {@code filterExpression} according to the metadata index.
+     */
+    private MetadataIndex.Plan plan(Filter.Expression filterExpression) {
+        MetadataIndex metadata = metadataIndex();
+        MetadataIndex.Plan plan = metadata == null ? MetadataIndex.Plan.ALL : metadata.plan(filterExpression);
+        log.debug("Planned filter {}: {} candidate rows{}", filterExpression,
+                plan.rows() == null ? "all" : plan.rows().cardinality(), plan.exact() ? " (exact)" : "");
+        return plan;
+    }
+
+    /**
+     * Predicate of {@code filterExpression}; evaluated with SpEL unless the plan already gives the exact rows.
+     */
+    private IntPredicate filterPredicate(Filter.Expression filterExpression, MetadataIndex.Plan plan) {
+        if (plan.exact()) {
+            return plan.rows()::get;
+        }
+        IntPredicate expression = filterPredicate(filterExpression);
+        BitSet rows = plan.rows();
+        return rows == null ? expression : row -> rows.get(row) && expression.test(row);
+    }
+
+    private IntPredicate filterPredicate(Filter.Expression filterExpression) {
+        Expression expression = expressionParser.parseExpression(
+                filterExpressionConverter.convertExpression(filterExpression));
+        return row -> {
+            StandardEvaluationContext context = new StandardEvaluationContext();
+            context.setVariable("metadata", record(row).metadata());
+            return Boolean.TRUE.equals(expression.getValue(context, Boolean.class));
+        };
+    }
+
+    private int mappedCount() {
+        return vectorFile == null ? 0 : vectorFile.count();
+    }
+
+    private int rowCount() {
+        return mappedCount() + appended.size();
+    }
+
+    /**
+     * Index of the configured metadata keys, built on first use from every row. Searches hold the read lock, so the
+     * build is synchronized; appends hold the write lock and update a built index.
+     */
+    private MetadataIndex metadataIndex() {
+        if (indexedKeys.isEmpty()) {
+            return null;
+        }
+        MetadataIndex built = metadataIndex;
+        if (built == null) {
+            synchronized (this) {
+                built = metadataIndex;
+                if (built == null) {
+                    long start = System.nanoTime();
+                    built = new MetadataIndex(indexedKeys);
+                    for (int row = 0; row < rowCount(); row++) {
+                        if (!deleted.get(row)) {
+                            built.add(row, record(row).metadata());
+                        }
+                    }
+                    log.info("Built metadata index on {} over {} rows in {} ms", indexedKeys, rowCount(),
+                            (System.nanoTime() - start) / 1_000_000);
+                    metadataIndex = built;
+                }
+            }
+        }
+        return built;
+    }
+
+    private int dimensions() {
+        if (vectorFile != null) {
+            return vectorFile.dimensions();
+        }
+        return appended.isEmpty() ? this.embeddingModel.dimensions() : appended.get(0).embedding().length;
+    }
+
+    private void readEmbedding(int row, float[] dst) {
+        int mapped = mappedCount();
+        if (row < mapped) {
+            vectorFile.read(row, dst);
+        } else {
+            float[] embedding = appended.get(row - mapped).embedding();
+            System.arraycopy(embedding, 0, dst, 0, embedding.length);
+        }
+    }
+
+    private float norm(int row) {
+        int mapped = mappedCount();
+        return row < mapped ? vectorFile.norm(row) : appended.get(row - mapped).norm();
+    }
+
+    private DocumentRecord record(int row) {
+        int mapped = mappedCount();
+        return row < mapped ? documentFile.read(row) : appended.get(row - mapped).record();
+    }
+
+    private int append(DocumentRecord record, float[] embedding) {
+        if (rowCount() > 0 && embedding.length != dimensions()) {
+            throw new IllegalArgumentException("Expected " + dimensions() + " dimensions but got " + embedding.length);
+        }
+        appended.add(new AppendedRow(record, embedding, kernel.norm(embedding)));
+        int row = rowCount() - 1;
+        appendedRows.put(record.id(), row);
+        if (metadataIndex != null) {
+            metadataIndex.add(row, record.metadata());
+        }
+        if (hnsw != null) {
+            if (index == null) {
+                index = newIndex();
+            }
+            index.add(row);
+        }
+        return row;
+    }
+
+    /**
+     * Live row of {@code id}, or -1. Rows appended since the last save are looked up on the heap, saved rows in the
+     * mapped id index, so only the changes since the last snapshot cost heap.
+     */
+    private int rowOf(String id) {
+        Integer appendedRow = appendedRows.get(id);
+        int row = appendedRow != null ? appendedRow : idIndex == null ? -1 : idIndex.find(id, documentFile::readId);
+        return row >= 0 && !deleted.get(row) ? row : -1;
+    }
+
+    private void closeFiles() throws IOException {
+        if (documentFile != null) {
+            documentFile.close();
+        }
+        documentFile = null;
+        idIndex = null;
+        vectorFile = null;
+        quantizedFile = null;
+    }
+
+    @Override
+    public VectorStoreObservationContext.Builder createObservationContextBuilder(String operationName) {
+        return VectorStoreObservationContext.builder(VectorStoreProvider.SIMPLE.value(), operationName)
+                .collectionName(vectorFilePath.getFileName().toString())
+                .similarityMetric(VectorStoreSimilarityMetric.COSINE.value());
+    }
+
+    private record ScoredRow(int row, double score) {
+    }
+
+    /**
+     * Rows captured by {@link #save()}; mapped files and appended rows are immutable, so they are read without the
+     * store lock while the files are written.
+     */
+    private record Snapshot(VectorFile vectors, DocumentFile documents, List<AppendedRow> appended, BitSet deleted,
+                            int rows, int dimensions) {
+
+        private int mapped() {
+            return vectors == null ? 0 : vectors.count();
+        }
+
+        void readEmbedding(int row, float[] dst) {
+            if (row < mapped()) {
+                vectors.read(row, dst);
+            } else {
+                float[] embedding = appended.get(row - mapped()).embedding();
+                System.arraycopy(embedding, 0, dst, 0, embedding.length);
+            }
+        }
+
+        float norm(int row) {
+            return row < mapped() ? vectors.norm(row) : appended.get(row - mapped()).norm();
+        }
+
+        DocumentRecord record(int row) {
+            return row < mapped() ? documents.read(row) : appended.get(row - mapped()).record();
+        }
+    }
+
+    /**
+     * Row added since the last save, with its norm computed once at insert time.
+     */
+    private record AppendedRow(DocumentRecord record, float[] embedding, float norm) {
+    }
+
+    private final class StoreRowVectors implements RowVectors {
+
+        @Override
+        public int dimensions() {
+            return MappedVectorStore.this.dimensions();
+        }
+
+        /**
+         * Saved rows are read from their int8 codes when quantization is on, so graph walks stay on the small file.
+         */
+        @Override
+        public void read(int row, float[] dst) {
+            if (quantizedFile != null && row < quantizedFile.count()) {
+                quantizedFile.read(row, dst);
+            } else {
+                readEmbedding(row, dst);
+            }
+        }
+
+        @Override
+        public float norm(int row) {
+            return MappedVectorStore.this.norm(row);
+        }
+    }
+
+    public static final class Builder extends AbstractVectorStoreBuilder<Builder> {
+
+        private Path path;
+        private Hnsw hnsw;
+        private Quantization quantization;
+        private SimilarityKernel kernel = SimilarityKernel.detect();
+        private List<String> indexedKeys = List.of();
+        private double preFilterSelectivity = 0.1;
+        private int shards = 1;
+        private int minShardRows = 4096;
+        private ForkJoinPool searchPool = ForkJoinPool.commonPool();
+        private boolean writeAheadLog;
+        private Duration snapshotInterval;
+
+        private Builder(EmbeddingModel embeddingModel) {
+            super(embeddingModel);
+        }
+
+        /**
+         * Base path of the store files; any extension (e.g. the legacy {@code .json}) is replaced by
+         * {@code .vec} and {@code .docs}.
+         */
+        public Builder path(Path path) {
+            this.path = path;
+            return this;
+        }
+
+        /**
+         * Enables the HNSW index. Uses the same knobs as the Milvus HNSW index: {@code M} (links per node),
+         * {@code efConstruction} (build-time candidate list) and {@code ef} (query-time candidate list).
+         */
+        public Builder hnsw(int m, int efConstruction, int ef) {
+            this.hnsw = new Hnsw(m, efConstruction, ef);
+            return this;
+        }
+
+        /**
+         * Enables int8 scalar quantization of saved rows. Searches collect {@code topK * oversampling} candidates
+         * from the codes and re-rank them with the full-precision embeddings.
+         */
+        public Builder quantization(int oversampling) {
+            Assert.isTrue(oversampling >= 1, "oversampling must be at least 1");
+            this.quantization = new Quantization(oversampling);
+            return this;
+        }
+
+        /**
+         * Kernel used for dot products and norms; defaults to {@link SimilarityKernel#detect()}.
+         */
+        public Builder similarityKernel(SimilarityKernel kernel) {
+            this.kernel = kernel;
+            return this;
+        }
+
+        /**
+         * Maintains an inverted index on the values of {@code keys}, so filters on them only visit matching rows.
+         */
+        public Builder metadataIndex(List<String> keys) {
+            Assert.notNull(keys, "keys must not be null");
+            this.indexedKeys = List.copyOf(keys);
+            return this;
+        }
+
+        /**
+         * Largest share of the live rows a filter may match for the search to score only those rows. Less selective
+         * filters are applied while walking the HNSW graph or scanning. Defaults to 0.1.
+         */
+        public Builder preFilterSelectivity(double preFilterSelectivity) {
+            Assert.isTrue(preFilterSelectivity >= 0 && preFilterSelectivity <= 1,
+                    "preFilterSelectivity must be between 0 and 1");
+            this.preFilterSelectivity = preFilterSelectivity;
+            return this;
+        }
+
+        /**
+         * Splits scans into up to {@code shards} ranges of at least {@code minShardRows} rows, scored in parallel on
+         * the {@link #searchPool(ForkJoinPool) search pool}. Defaults to a single shard, i.e. a sequential scan.
+         */
+        public Builder parallelSearch(int shards, int minShardRows) {
+            Assert.isTrue(shards >= 1, "shards must be at least 1");
+            Assert.isTrue(minShardRows >= 1, "minShardRows must be at least 1");
+            this.shards = shards;
+            this.minShardRows = minShardRows;
+            return this;
+        }
+
+        /**
+         * Pool the shards of a parallel scan are forked to; defaults to {@link ForkJoinPool#commonPool()}.
+         */
+        public Builder searchPool(ForkJoinPool searchPool) {
+            Assert.notNull(searchPool, "searchPool must not be null");
+            this.searchPool = searchPool;
+            return this;
+        }
+
+        /**
+         * Logs adds and deletes to {@code <name>.wal} before applying them and takes a snapshot with {@link #save()}
+         * every {@code snapshotInterval} when something was logged; {@link Duration#ZERO} leaves snapshots to the
+         * caller.
+         */
+        public Builder writeAheadLog(Duration snapshotInterval) {
+            Assert.notNull(snapshotInterval, "snapshotInterval must not be null");
+            Assert.isTrue(!snapshotInterval.isNegative(), "snapshotInterval must not be negative");
+            this.writeAheadLog = true;
+            this.snapshotInterval = snapshotInterval;
+            return this;
+        }
+
+        @Override
+        public MappedVectorStore build() {
+            return new MappedVectorStore(this);
+        }
+
+        private record Hnsw(int m, int efConstruction, int ef) {
+        }
+
+        private record Quantization(int oversampling) {
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.spring.eac.ai.vectorstore;
+
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Inverted index from the values of selected metadata keys to the rows holding them, used to narrow down the rows a
+ * filter expression can match before any vector is scored.
+ * <p>
+ * Numbers are ordered numerically (so {@code 3458} and {@code 3458.0} are the same value, as in the SpEL filter), and
+ * strings and booleans naturally; values of different kinds never match each other, also as in SpEL. Lists and other
+ * values are not indexed. Deleted rows are not removed: the store checks its tombstones for every candidate.
+ */
+final class MetadataIndex {
+
+    private final Map<String, NavigableMap<Object, BitSet>> postings = new HashMap<>();
+
+    MetadataIndex(Collection<String> keys) {
+        keys.forEach(key -> postings.put(key, new TreeMap<>(MetadataIndex::compare)));
+    }
+
+    void add(int row, Map<String, Object> metadata) {
+        postings.forEach((key, values) -> {
+            Object value = metadata.get(key);
+            if (rank(value) >= 0) {
+                values.computeIfAbsent(value, v -> new BitSet()).set(row);
+            }
+        });
+    }
+
+    /**
+     * Rows that can match {@code expression}.
+     *
+     * @return the plan, whose rows are {@code null} when the index cannot narrow the expression down
+     */
+    Plan plan(Filter.Expression expression) {
+        return switch (expression.type()) {
+            case AND -> and(plan(expression.left()), plan(expression.right()));
+            case OR -> or(plan(expression.left()), plan(expression.right()));
+            case EQ, IN, GT, GTE, LT, LTE -> lookup(expression);
+            default -> Plan.ALL;
+        };
+    }
+
+    private Plan plan(Filter.Operand operand) {
+        if (operand instanceof Filter.Expression expression) {
+            return plan(expression);
+        }
+        if (operand instanceof Filter.Group group) {
+            return plan(group.content());
+        }
+        return Plan.ALL;
+    }
+
+    private static Plan and(Plan left, Plan right) {
+        if (left.rows() == null) {
+            return new Plan(right.rows(), false);
+        }
+        if (right.rows() == null) {
+            return new Plan(left.rows(), false);
+        }
+        BitSet rows = (BitSet) left.rows().clone();
+        rows.and(right.rows());
+        return new Plan(rows, left.exact() && right.exact());
+    }
+
+    private static Plan or(Plan left, Plan right) {
+        if (left.rows() == null || right.rows() == null) {
+            return Plan.ALL;
+        }
+        BitSet rows = (BitSet) left.rows().clone();
+        rows.or(right.rows());
+        return new Plan(rows, left.exact() && right.exact());
+    }
+
+    private Plan lookup(Filter.Expression expression) {
+        if (!(expression.left() instanceof Filter.Key key) || !(expression.right() instanceof Filter.Value value)) {
+            return Plan.ALL;
+        }
+        NavigableMap<Object, BitSet> values = postings.get(unquote(key.key()));
+        if (values == null) {
+            return Plan.ALL;
+        }
+
+        Object bound = value.value();
+        List<?> bounds = bound instanceof List<?> list ? list : Collections.singletonList(bound);
+        boolean in = expression.type() == Filter.ExpressionType.IN;
+        if (in != (bound instanceof List) || bounds.stream().anyMatch(b -> rank(b) < 0)) {
+            // Values such as dates are not indexed, so rows holding them could be missed
+            return Plan.ALL;
+        }
+
+        BitSet rows = new BitSet();
+        switch (expression.type()) {
+            case EQ, IN -> union(rows, values, bounds);
+            case GT -> range(rows, values.tailMap(bound, false), bound);
+            case GTE -> range(rows, values.tailMap(bound, true), bound);
+            case LT -> range(rows, values.headMap(bound, false).descendingMap(), bound);
+            case LTE -> range(rows, values.headMap(bound, true).descendingMap(), bound);
+            default -> {
+                return Plan.ALL;
+            }
+        }
+        return new Plan(rows, true);
+    }
+
+    private static void union(BitSet rows, NavigableMap<Object, BitSet> values, List<?> keys) {
+        for (Object key : keys) {
+            BitSet matching = values.get(key);
+            if (matching != null) {
+                rows.or(matching);
+            }
+        }
+    }
+
+    /**
+     * Adds the rows of {@code values}, walked away from {@code bound}, until the values are of another kind.
+     */
+    private static void range(BitSet rows, NavigableMap<Object, BitSet> values, Object bound) {
+        int rank = rank(bound);
+        for (Map.Entry<Object, BitSet> entry : values.entrySet()) {
+            if (rank(entry.getKey()) != rank) {
+                break;
+            }
+            rows.or(entry.getValue());
+        }
+    }
+
+    private static int compare(Object a, Object b) {
+        int byRank = Integer.compare(rank(a), rank(b));
+        if (byRank != 0) {
+            return byRank;
+        }
+        if (a instanceof Number x && b instanceof Number y) {
+            return Double.compare(x.doubleValue(), y.doubleValue());
+        }
+        if (a instanceof String x && b instanceof String y) {
+            return x.compareTo(y);
+        }
+        return Boolean.compare((Boolean) a, (Boolean) b);
+    }
+
+    /**
+     * Kind of value: numbers, strings and booleans are indexed, anything else is {@code -1}.
+     */
+    private static int rank(Object value) {
+        if (value instanceof Number) {
+            return 0;
+        }
+        if (value instanceof String) {
+            return 1;
+        }
+        return value instanceof Boolean ? 2 : -1;
+    }
+
+    private static String unquote(String key) {
+        if (key.length() > 1 && (key.startsWith("'") && key.endsWith("'") || key.startsWith("\"") && key.endsWith("\""))) {
+            return key.substring(1, key.length() - 1);
+        }
+        return key;
+    }
+
+    /**
+     * @param rows superset of the matching rows, or {@code null} for every row
+     * @param exact whether {@code rows} are exactly the matching rows, so the filter need not be evaluated again
+     */
+    record Plan(BitSet rows, boolean exact) {
+
+        static final Plan ALL = new Plan(null, false);
+    }
+}
@@ -0,0 +1,217 @@
+package com.spring.eac.ai.vectorstore;
+
+import com.spring.eac.ai.vectorstore.kernel.SimilarityKernel;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Int8 scalar-quantized copy of a {@link VectorFile}, a quarter of its size.
+ * <p>
+ * Every row is stored as {@code dimensions} signed byte codes plus its own {@code scale} and {@code offset}, so that
+ * {@code x[i] ≈ offset + scale * code[i]}. The offset is the midpoint of the row's value range and the scale maps
+ * that range onto {@code [-127, 127]}. A dot product against a float query then only needs the codes:
+ * {@code dot(q, x) ≈ offset * sum(q) + scale * dot(q, code)}.
+ * <p>
+ * Layout: {@code [magic:int][version:int][dimensions:int][count:int][stamp:int][reserved:int]},
+ * {@code count * dimensions} codes, then {@code count} pairs of {@code [scale:float][offset:float]}. The stamp is the
+ * one of the {@link DocumentFile} of the rows, so codes left over from another save are detected and rebuilt.
+ */
+final class QuantizedVectorFile {
+
+    static final int MAGIC = 0x51385631; // "Q8V1"
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 24;
+
+    private static final long MAX_CHUNK_BYTES = 1L << 30;
+    private static final int MAX_CODE = 127;
+
+    private final int dimensions;
+    private final int count;
+    private final int stamp;
+    private final int rowsPerChunk;
+    private final ByteBuffer[] chunks;
+    private final FloatBuffer parameters;
+
+    private QuantizedVectorFile(int dimensions, int count, int stamp, int rowsPerChunk, ByteBuffer[] chunks,
+                                FloatBuffer parameters) {
+        this.dimensions = dimensions;
+        this.count = count;
+        this.stamp = stamp;
+        this.rowsPerChunk = rowsPerChunk;
+        this.chunks = chunks;
+        this.parameters = parameters;
+    }
+
+    static QuantizedVectorFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            header.flip();
+
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a quantized vector file: " + path);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported quantized vector file version " + version + ": " + path);
+            }
+            int dimensions = header.getInt();
+            int count = header.getInt();
+            int stamp = header.getInt();
+
+            int rowsPerChunk = (int) Math.max(1, MAX_CHUNK_BYTES / dimensions);
+            int chunkCount = count == 0 ? 0 : (count + rowsPerChunk - 1) / rowsPerChunk;
+            ByteBuffer[] chunks = new ByteBuffer[chunkCount];
+            for (int i = 0; i < chunkCount; i++) {
+                int rows = Math.min(rowsPerChunk, count - i * rowsPerChunk);
+                long position = HEADER_BYTES + (long) i * rowsPerChunk * dimensions;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, (long) rows * dimensions);
+            }
+            FloatBuffer parameters = channel.map(FileChannel.MapMode.READ_ONLY,
+                            HEADER_BYTES + (long) count * dimensions, 2L * count * Float.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asFloatBuffer();
+            return new QuantizedVectorFile(dimensions, count, stamp, rowsPerChunk, chunks, parameters);
+        }
+    }
+
+    int dimensions() {
+        return dimensions;
+    }
+
+    int count() {
+        return count;
+    }
+
+    int stamp() {
+        return stamp;
+    }
+
+    /**
+     * Copies the codes of {@code row} into {@code dst}, which must hold at least {@link #dimensions()} bytes.
+     */
+    void readCodes(int row, byte[] dst) {
+        ByteBuffer chunk = chunks[row / rowsPerChunk];
+        chunk.get((row % rowsPerChunk) * dimensions, dst, 0, dimensions);
+    }
+
+    float scale(int row) {
+        return parameters.get(2 * row);
+    }
+
+    float offset(int row) {
+        return parameters.get(2 * row + 1);
+    }
+
+    /**
+     * Approximate {@code dot(query, row)} computed from the codes only.
+     *
+     * @param querySum sum of the query components, computed once per query
+     * @param codes scratch buffer of {@link #dimensions()} bytes
+     */
+    float dot(int row, float[] query, float querySum, byte[] codes, SimilarityKernel kernel) {
+        readCodes(row, codes);
+        return offset(row) * querySum + scale(row) * kernel.dot(query, codes);
+    }
+
+    /**
+     * Reconstructs the approximate embedding of {@code row} into {@code dst}.
+     */
+    void read(int row, float[] dst) {
+        ByteBuffer chunk = chunks[row / rowsPerChunk];
+        int base = (row % rowsPerChunk) * dimensions;
+        float scale = scale(row);
+        float offset = offset(row);
+        for (int i = 0; i < dimensions; i++) {
+            dst[i] = offset + scale * chunk.get(base + i);
+        }
+    }
+
+    static Writer writer(Path path, int dimensions, int stamp) throws IOException {
+        return new Writer(path, dimensions, stamp);
+    }
+
+    /**
+     * Quantizes and streams rows to a new file; the per-row parameters and the row count are written on {@link #close()}.
+     */
+    static final class Writer implements Closeable {
+
+        private final FileChannel channel;
+        private final int dimensions;
+        private final int stamp;
+        private final ByteBuffer buffer;
+        private float[] parameters = new float[2048];
+        private int count;
+
+        private Writer(Path path, int dimensions, int stamp) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.dimensions = dimensions;
+            this.stamp = stamp;
+            this.buffer = ByteBuffer.allocate(Math.max(HEADER_BYTES, 1024 * dimensions)).order(ByteOrder.LITTLE_ENDIAN);
+            this.channel.position(HEADER_BYTES);
+        }
+
+        void write(float[] embedding) throws IOException {
+            if (embedding.length != dimensions) {
+                throw new IllegalArgumentException("Expected " + dimensions + " dimensions but got " + embedding.length);
+            }
+            if (buffer.remaining() < dimensions) {
+                flush();
+            }
+            float min = Float.POSITIVE_INFINITY;
+            float max = Float.NEGATIVE_INFINITY;
+            for (float value : embedding) {
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            float offset = (max + min) / 2;
+            float scale = (max - min) / (2 * MAX_CODE);
+            for (float value : embedding) {
+                int code = scale == 0 ? 0 : Math.round((value - offset) / scale);
+                buffer.put((byte) Math.max(-MAX_CODE, Math.min(MAX_CODE, code)));
+            }
+            if (2 * count == parameters.length) {
+                parameters = Arrays.copyOf(parameters, parameters.length * 2);
+            }
+            parameters[2 * count] = scale;
+            parameters[2 * count + 1] = offset;
+            count++;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+                for (int i = 0; i < 2 * count; i++) {
+                    if (buffer.remaining() < Float.BYTES) {
+                        flush();
+                    }
+                    buffer.putFloat(parameters[i]);
+                }
+                flush();
+                buffer.putInt(MAGIC).putInt(VERSION).putInt(dimensions).putInt(count).putInt(stamp).putInt(0).flip();
+                channel.write(buffer, 0);
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.spring.eac.ai.vectorstore;
+
+/**
+ * Random access to the embeddings of a store by row number, without copying them onto the heap.
+ */
+interface RowVectors {
+
+    int dimensions();
+
+    /**
+     * Copies the embedding of {@code row} into {@code dst}.
+     */
+    void read(int row, float[] dst);
+
+    /**
+     * L2 norm of the embedding of {@code row}, precomputed when the row was added.
+     */
+    float norm(int row);
+}
@@ -0,0 +1,206 @@
+package com.spring.eac.ai.vectorstore;
+
+import com.spring.eac.ai.vectorstore.kernel.SimilarityKernel;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Packed little-endian float file holding one embedding per row.
+ * <p>
+ * Layout: {@code [magic:int][version:int][dimensions:int][count:int][stamp:int][reserved:int]} followed by
+ * {@code count * dimensions} floats and the {@code count} precomputed L2 norms of the rows. The stamp is the one of
+ * the {@link DocumentFile} written in the same save, so a vector file is never paired with documents of another save.
+ * Version 2 files have a 16-byte header without the stamp, version 1 files also lack the norms.
+ * The file is memory mapped in chunks of at most 1 GB, so corpora larger than the 2 GB limit of a single
+ * {@link java.nio.MappedByteBuffer} can still be addressed. Nothing but the chunk table lives on the heap.
+ */
+final class VectorFile {
+
+    static final int MAGIC = 0x56454331; // "VEC1"
+    static final int VERSION = 3;
+    private static final int VERSION_WITHOUT_STAMP = 2;
+    private static final int VERSION_WITHOUT_NORMS = 1;
+    static final int HEADER_BYTES = 24;
+    private static final int UNSTAMPED_HEADER_BYTES = 16;
+
+    private static final long MAX_CHUNK_BYTES = 1L << 30;
+
+    private final int dimensions;
+    private final int count;
+    private final Integer stamp;
+    private final int rowsPerChunk;
+    private final FloatBuffer[] chunks;
+    private final FloatBuffer norms;
+
+    private VectorFile(int dimensions, int count, Integer stamp, int rowsPerChunk, FloatBuffer[] chunks,
+                       FloatBuffer norms) {
+        this.dimensions = dimensions;
+        this.count = count;
+        this.stamp = stamp;
+        this.rowsPerChunk = rowsPerChunk;
+        this.chunks = chunks;
+        this.norms = norms;
+    }
+
+    static VectorFile open(Path path, SimilarityKernel kernel) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            header.flip();
+
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a vector file: " + path);
+            }
+            int version = header.getInt();
+            if (version != VERSION && version != VERSION_WITHOUT_STAMP && version != VERSION_WITHOUT_NORMS) {
+                throw new IOException("Unsupported vector file version " + version + ": " + path);
+            }
+            int dimensions = header.getInt();
+            int count = header.getInt();
+            Integer stamp = version == VERSION ? header.getInt() : null;
+            int headerBytes = version == VERSION ? HEADER_BYTES : UNSTAMPED_HEADER_BYTES;
+
+            int rowsPerChunk = (int) Math.max(1, MAX_CHUNK_BYTES / (dimensions * (long) Float.BYTES));
+            int chunkCount = count == 0 ? 0 : (count + rowsPerChunk - 1) / rowsPerChunk;
+            FloatBuffer[] chunks = new FloatBuffer[chunkCount];
+
+            for (int i = 0; i < chunkCount; i++) {
+                int rows = Math.min(rowsPerChunk, count - i * rowsPerChunk);
+                long position = headerBytes + (long) i * rowsPerChunk * dimensions * Float.BYTES;
+                // The mapping stays valid after the channel is closed
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, (long) rows * dimensions * Float.BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN)
+                        .asFloatBuffer();
+            }
+
+            FloatBuffer norms;
+            long vectorBytes = (long) count * dimensions * Float.BYTES;
+            if (version != VERSION_WITHOUT_NORMS) {
+                norms = channel.map(FileChannel.MapMode.READ_ONLY, headerBytes + vectorBytes, (long) count * Float.BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN)
+                        .asFloatBuffer();
+            } else {
+                norms = FloatBuffer.allocate(count);
+            }
+
+            VectorFile vectorFile = new VectorFile(dimensions, count, stamp, rowsPerChunk, chunks, norms);
+            if (version == VERSION_WITHOUT_NORMS) {
+                // Files written before norms were stored: compute them once, they are persisted on the next save
+                float[] row = new float[dimensions];
+                for (int i = 0; i < count; i++) {
+                    vectorFile.read(i, row);
+                    norms.put(i, kernel.norm(row));
+                }
+            }
+            return vectorFile;
+        }
+    }
+
+    int dimensions() {
+        return dimensions;
+    }
+
+    int count() {
+        return count;
+    }
+
+    /**
+     * Stamp of the document file written with this file, or {@code null} for files saved before it was recorded.
+     */
+    Integer stamp() {
+        return stamp;
+    }
+
+    /**
+     * Copies the embedding stored at {@code row} into {@code dst}, which must hold at least {@link #dimensions()} floats.
+     */
+    void read(int row, float[] dst) {
+        FloatBuffer chunk = chunks[row / rowsPerChunk];
+        chunk.get((row % rowsPerChunk) * dimensions, dst, 0, dimensions);
+    }
+
+    /**
+     * L2 norm of the embedding stored at {@code row}, computed when the row was written.
+     */
+    float norm(int row) {
+        return norms.get(row);
+    }
+
+    static Writer writer(Path path, int dimensions, int stamp) throws IOException {
+        return new Writer(path, dimensions, stamp);
+    }
+
+    /**
+     * Streams rows to a new vector file; the norms and the row count are written on {@link #close()}.
+     */
+    static final class Writer implements Closeable {
+
+        private final FileChannel channel;
+        private final int dimensions;
+        private final int stamp;
+        private final ByteBuffer buffer;
+        private float[] norms = new float[1024];
+        private int count;
+
+        private Writer(Path path, int dimensions, int stamp) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.dimensions = dimensions;
+            this.stamp = stamp;
+            this.buffer = ByteBuffer.allocate(Math.max(HEADER_BYTES, 256 * dimensions * Float.BYTES))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            this.channel.position(HEADER_BYTES);
+        }
+
+        void write(float[] embedding, float norm) throws IOException {
+            if (embedding.length != dimensions) {
+                throw new IllegalArgumentException("Expected " + dimensions + " dimensions but got " + embedding.length);
+            }
+            if (buffer.remaining() < dimensions * Float.BYTES) {
+                flush();
+            }
+            for (float value : embedding) {
+                buffer.putFloat(value);
+            }
+            if (count == norms.length) {
+                norms = Arrays.copyOf(norms, count * 2);
+            }
+            norms[count++] = norm;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+                for (int i = 0; i < count; i++) {
+                    if (buffer.remaining() < Float.BYTES) {
+                        flush();
+                    }
+                    buffer.putFloat(norms[i]);
+                }
+                flush();
+                buffer.putInt(MAGIC).putInt(VERSION).putInt(dimensions).putInt(count).putInt(stamp).putInt(0).flip();
+                channel.write(buffer, 0);
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
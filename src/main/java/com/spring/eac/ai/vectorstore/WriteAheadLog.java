@@ -0,0 +1,264 @@
+package com.spring.eac.ai.vectorstore;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of the adds and deletes applied to a {@link MappedVectorStore} since its last snapshot.
+ * <p>
+ * Each entry is framed as {@code [int length][int crc32c][payload]}, so a tail torn by a crash is detected and cut off
+ * on {@link #replay}. Appends only write to the file; {@link #sync(long)} makes them durable with group commit: one
+ * writer forces the file for every append that reached it, and the writers that queued behind return without another
+ * fsync.
+ */
+@Slf4j
+final class WriteAheadLog implements Closeable {
+
+    private static final byte ADD = 1;
+    private static final byte DELETE = 2;
+    private static final int FRAME_BYTES = 2 * Integer.BYTES;
+    private static final TypeReference<Map<String, Object>> METADATA_TYPE = new TypeReference<>() {
+    };
+
+    private final Path path;
+    private final FileChannel channel;
+    private final ObjectMapper objectMapper;
+    private final Object syncLock = new Object();
+    private long written;
+    private volatile long synced;
+    private boolean closed;
+
+    private WriteAheadLog(Path path, FileChannel channel, ObjectMapper objectMapper) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.objectMapper = objectMapper;
+        this.written = channel.size();
+        this.synced = written;
+    }
+
+    /**
+     * Opens the log at {@code path} for appending, creating it when missing.
+     */
+    static WriteAheadLog open(Path path, ObjectMapper objectMapper) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        return new WriteAheadLog(path, channel, objectMapper);
+    }
+
+    /**
+     * Reads every complete entry of the log at {@code path} in order and truncates a torn or corrupt tail.
+     *
+     * @return number of entries replayed
+     */
+    static int replay(Path path, ObjectMapper objectMapper, Consumer<Entry> consumer) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        int entries = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long position = 0;
+            ByteBuffer frame = ByteBuffer.allocate(FRAME_BYTES);
+            while (position + FRAME_BYTES <= size) {
+                frame.clear();
+                readFully(channel, frame, position);
+                int length = frame.getInt(0);
+                int crc = frame.getInt(Integer.BYTES);
+                if (length < 1 || position + FRAME_BYTES + length > size) {
+                    break;
+                }
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                readFully(channel, payload, position + FRAME_BYTES);
+                if (crc(payload.array()) != crc) {
+                    break;
+                }
+                consumer.accept(decode(payload.flip(), objectMapper));
+                position += FRAME_BYTES + length;
+                entries++;
+            }
+            if (position < size) {
+                log.warn("Truncating {} bytes of torn write-ahead log tail at offset {} of {}", size - position,
+                        position, path);
+                channel.truncate(position);
+                channel.force(true);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Appends {@code entry} without waiting for it to be durable.
+     *
+     * @return log position to pass to {@link #sync(long)}
+     */
+    synchronized long append(Entry entry) throws IOException {
+        byte[] payload = encode(entry);
+        ByteBuffer buffer = ByteBuffer.allocate(FRAME_BYTES + payload.length);
+        buffer.putInt(payload.length).putInt(crc(payload)).put(payload).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        written += buffer.limit();
+        return written;
+    }
+
+    /**
+     * Returns once everything up to {@code position} is on disk.
+     */
+    void sync(long position) throws IOException {
+        if (synced >= position) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (synced >= position) {
+                return;
+            }
+            long target;
+            synchronized (this) {
+                target = written;
+            }
+            channel.force(false);
+            synced = target;
+        }
+    }
+
+    synchronized long size() {
+        return written;
+    }
+
+    Path path() {
+        return path;
+    }
+
+    /**
+     * Forces and closes the log; later {@link #sync(long)} calls for its positions return immediately.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                channel.force(false);
+                synced = written;
+                channel.close();
+            }
+        }
+    }
+
+    private byte[] encode(Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        switch (entry) {
+            case Add add -> {
+                out.writeByte(ADD);
+                out.writeInt(add.records().size());
+                for (int i = 0; i < add.records().size(); i++) {
+                    DocumentRecord record = add.records().get(i);
+                    writeBytes(out, record.id().getBytes(StandardCharsets.UTF_8));
+                    writeBytes(out, record.text() == null ? new byte[0] : record.text().getBytes(StandardCharsets.UTF_8));
+                    writeBytes(out, objectMapper.writeValueAsBytes(record.metadata()));
+                    float[] embedding = add.embeddings().get(i);
+                    out.writeInt(embedding.length);
+                    for (float value : embedding) {
+                        out.writeFloat(value);
+                    }
+                }
+            }
+            case Delete delete -> {
+                out.writeByte(DELETE);
+                out.writeInt(delete.ids().size());
+                for (String id : delete.ids()) {
+                    writeBytes(out, id.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Entry decode(ByteBuffer payload, ObjectMapper objectMapper) throws IOException {
+        byte type = payload.get();
+        int count = payload.getInt();
+        if (type == DELETE) {
+            List<String> ids = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                ids.add(readString(payload));
+            }
+            return new Delete(ids);
+        }
+        List<DocumentRecord> records = new ArrayList<>(count);
+        List<float[]> embeddings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String id = readString(payload);
+            String text = readString(payload);
+            int metadataLength = payload.getInt();
+            Map<String, Object> metadata = objectMapper.readValue(payload.array(), payload.position(), metadataLength,
+                    METADATA_TYPE);
+            payload.position(payload.position() + metadataLength);
+            float[] embedding = new float[payload.getInt()];
+            for (int d = 0; d < embedding.length; d++) {
+                embedding[d] = payload.getFloat();
+            }
+            records.add(new DocumentRecord(id, text, metadata));
+            embeddings.add(embedding);
+        }
+        return new Add(records, embeddings);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Change recorded in the log.
+     */
+    sealed interface Entry permits Add, Delete {
+    }
+
+    record Add(List<DocumentRecord> records, List<float[]> embeddings) implements Entry {
+    }
+
+    record Delete(List<String> ids) implements Entry {
+    }
+}
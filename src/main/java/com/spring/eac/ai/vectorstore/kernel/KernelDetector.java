@@ -0,0 +1,34 @@
+package com.spring.eac.ai.vectorstore.kernel;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Picks the similarity kernel once per JVM.
+ */
+@Slf4j
+final class KernelDetector {
+
+    static final SimilarityKernel KERNEL = detect();
+
+    private KernelDetector() {
+    }
+
+    private static SimilarityKernel detect() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                // Loaded reflectively so nothing links against the incubator module when it is absent
+                SimilarityKernel kernel = (SimilarityKernel) Class
+                        .forName("com.spring.eac.ai.vectorstore.kernel.VectorApiSimilarityKernel")
+                        .getDeclaredConstructor()
+                        .newInstance();
+                log.info("Using {} similarity kernel", kernel.name());
+                return kernel;
+            } catch (ReflectiveOperationException | LinkageError e) {
+                log.warn("Vector API is present but could not be used, falling back to scalar kernel: {}", e.toString());
+            }
+        } else {
+            log.info("Module jdk.incubator.vector is not enabled, using scalar similarity kernel");
+        }
+        return new ScalarSimilarityKernel();
+    }
+}
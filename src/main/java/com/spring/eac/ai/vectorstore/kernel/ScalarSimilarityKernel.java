@@ -0,0 +1,59 @@
+package com.spring.eac.ai.vectorstore.kernel;
+
+/**
+ * Portable kernel. The loop is unrolled over four independent accumulators so the JIT can pipeline the
+ * multiply-adds instead of waiting on a single running sum.
+ */
+public class ScalarSimilarityKernel implements SimilarityKernel {
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    @Override
+    public float dot(float[] x, float[] y) {
+        if (x.length != y.length) {
+            throw new IllegalArgumentException("Vectors lengths must be equal");
+        }
+        float sum0 = 0;
+        float sum1 = 0;
+        float sum2 = 0;
+        float sum3 = 0;
+        int i = 0;
+        int bound = x.length & ~3;
+        for (; i < bound; i += 4) {
+            sum0 += x[i] * y[i];
+            sum1 += x[i + 1] * y[i + 1];
+            sum2 += x[i + 2] * y[i + 2];
+            sum3 += x[i + 3] * y[i + 3];
+        }
+        for (; i < x.length; i++) {
+            sum0 += x[i] * y[i];
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+
+    @Override
+    public float dot(float[] x, byte[] codes) {
+        if (x.length != codes.length) {
+            throw new IllegalArgumentException("Vectors lengths must be equal");
+        }
+        float sum0 = 0;
+        float sum1 = 0;
+        float sum2 = 0;
+        float sum3 = 0;
+        int i = 0;
+        int bound = x.length & ~3;
+        for (; i < bound; i += 4) {
+            sum0 += x[i] * codes[i];
+            sum1 += x[i + 1] * codes[i + 1];
+            sum2 += x[i + 2] * codes[i + 2];
+            sum3 += x[i + 3] * codes[i + 3];
+        }
+        for (; i < x.length; i++) {
+            sum0 += x[i] * codes[i];
+        }
+        return (sum0 + sum1) + (sum2 + sum3);
+    }
+}
@@ -0,0 +1,49 @@
+package com.spring.eac.ai.vectorstore.kernel;
+
+/**
+ * Dot product and norm primitives used to score embeddings in the local vector store.
+ * <p>
+ * Cosine similarity is computed as {@code dot(x, y) / (norm(x) * norm(y))}; stores precompute the norm of every row
+ * at insert time, so a scan only pays for one dot product per row.
+ */
+public interface SimilarityKernel {
+
+    /**
+     * Name reported in logs and benchmarks.
+     */
+    String name();
+
+    float dot(float[] x, float[] y);
+
+    /**
+     * Dot product of a float vector with int8 codes, used to scan scalar-quantized embeddings.
+     */
+    float dot(float[] x, byte[] codes);
+
+    default float sum(float[] vector) {
+        float result = 0;
+        for (float value : vector) {
+            result += value;
+        }
+        return result;
+    }
+
+    default float norm(float[] vector) {
+        return (float) Math.sqrt(dot(vector, vector));
+    }
+
+    default double cosine(float[] x, float xNorm, float[] y, float yNorm) {
+        if (xNorm == 0 || yNorm == 0) {
+            return 0;
+        }
+        return dot(x, y) / ((double) xNorm * yNorm);
+    }
+
+    /**
+     * Returns the SIMD kernel when the JVM was started with {@code --add-modules jdk.incubator.vector},
+     * otherwise the scalar kernel.
+     */
+    static SimilarityKernel detect() {
+        return KernelDetector.KERNEL;
+    }
+}
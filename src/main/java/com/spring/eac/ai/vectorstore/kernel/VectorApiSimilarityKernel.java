@@ -0,0 +1,76 @@
+package com.spring.eac.ai.vectorstore.kernel;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD kernel built on the incubating Java Vector API, using the widest vector shape of the CPU
+ * (e.g. 8 floats with AVX2, 16 with AVX-512).
+ * <p>
+ * Only instantiate through {@link SimilarityKernel#detect()}: referencing this class links against
+ * {@code jdk.incubator.vector}, which requires {@code --add-modules jdk.incubator.vector} at runtime.
+ */
+public class VectorApiSimilarityKernel implements SimilarityKernel {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    // One byte lane per float lane where possible; 64 bits is the narrowest byte vector, so on 128-bit CPUs one
+    // load of codes widens into several float vectors
+    private static final VectorSpecies<Byte> CODE_SPECIES =
+            VectorSpecies.of(byte.class, VectorShape.forBitSize(Math.max(64, SPECIES.length() * Byte.SIZE)));
+
+    @Override
+    public String name() {
+        return "vector-api-" + SPECIES.vectorBitSize();
+    }
+
+    @Override
+    public float dot(float[] x, float[] y) {
+        if (x.length != y.length) {
+            throw new IllegalArgumentException("Vectors lengths must be equal");
+        }
+        FloatVector sum0 = FloatVector.zero(SPECIES);
+        FloatVector sum1 = FloatVector.zero(SPECIES);
+        int step = SPECIES.length();
+        int i = 0;
+        int bound = SPECIES.loopBound(x.length - step);
+        for (; i < bound; i += 2 * step) {
+            sum0 = FloatVector.fromArray(SPECIES, x, i).fma(FloatVector.fromArray(SPECIES, y, i), sum0);
+            sum1 = FloatVector.fromArray(SPECIES, x, i + step).fma(FloatVector.fromArray(SPECIES, y, i + step), sum1);
+        }
+        for (; i < SPECIES.loopBound(x.length); i += step) {
+            sum0 = FloatVector.fromArray(SPECIES, x, i).fma(FloatVector.fromArray(SPECIES, y, i), sum0);
+        }
+        float result = sum0.add(sum1).reduceLanes(VectorOperators.ADD);
+        for (; i < x.length; i++) {
+            result += x[i] * y[i];
+        }
+        return result;
+    }
+
+    @Override
+    public float dot(float[] x, byte[] codes) {
+        if (x.length != codes.length) {
+            throw new IllegalArgumentException("Vectors lengths must be equal");
+        }
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int step = SPECIES.length();
+        int codeStep = CODE_SPECIES.length();
+        int parts = codeStep / step;
+        int i = 0;
+        for (; i < CODE_SPECIES.loopBound(x.length); i += codeStep) {
+            ByteVector block = ByteVector.fromArray(CODE_SPECIES, codes, i);
+            for (int part = 0; part < parts; part++) {
+                FloatVector widened = (FloatVector) block.convertShape(VectorOperators.B2F, SPECIES, part);
+                sum = FloatVector.fromArray(SPECIES, x, i + part * step).fma(widened, sum);
+            }
+        }
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < x.length; i++) {
+            result += x[i] * codes[i];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,79 @@
+package com.spring.eac.ai.bootstrap;
+
+import com.spring.eac.ai.property.ApplicationProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VectorStoreWarmupTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Should report the phase and ingestion progress while loading and become ready when the loader returns")
+    void start_ShouldReportProgressUntilReady() throws InterruptedException {
+        VectorStoreWarmup warmup = new VectorStoreWarmup(new ApplicationProperties(), meterRegistry);
+        CountDownLatch ingesting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        warmup.expect();
+        assertThat(warmup.isReady()).isFalse();
+        Thread loader = warmup.start(w -> {
+            w.phase(VectorStoreWarmup.Phase.INGESTING);
+            meterRegistry.counter("ingestion.chunks.written").increment(42);
+            ingesting.countDown();
+            release.await();
+        });
+        ingesting.await();
+
+        Health health = warmup.health();
+        assertThat(warmup.isReady()).isFalse();
+        // Without gate-readiness the instance keeps receiving traffic for the endpoints that do not need the store
+        assertThat(health.getStatus()).isEqualTo(Status.UP);
+        assertThat(health.getDetails())
+                .containsEntry("phase", VectorStoreWarmup.Phase.INGESTING)
+                .containsEntry("chunksWritten", 42L)
+                .containsKey("elapsedMs");
+
+        release.countDown();
+        loader.join();
+        assertThat(warmup.isReady()).isTrue();
+        assertThat(warmup.health().getDetails()).containsEntry("phase", VectorStoreWarmup.Phase.READY);
+    }
+
+    @Test
+    @DisplayName("Should be out of service until ready when readiness is gated")
+    void health_WithGateReadiness_ShouldBeOutOfServiceWhileWarming() {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getWarmup().setGateReadiness(true);
+        VectorStoreWarmup warmup = new VectorStoreWarmup(properties, meterRegistry);
+
+        assertThat(warmup.health().getStatus()).isEqualTo(Status.UP);
+        warmup.expect();
+        assertThat(warmup.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+    }
+
+    @Test
+    @DisplayName("Should report DOWN with the error when the loader fails")
+    void start_WhenLoaderFails_ShouldBeDown() throws InterruptedException {
+        VectorStoreWarmup warmup = new VectorStoreWarmup(new ApplicationProperties(), meterRegistry);
+
+        warmup.start(w -> {
+            throw new IOException("disk full");
+        }).join();
+
+        assertThat(warmup.isReady()).isFalse();
+        assertThat(warmup.phase()).isEqualTo(VectorStoreWarmup.Phase.FAILED);
+        Health health = warmup.health();
+        assertThat(health.getStatus()).isEqualTo(Status.DOWN);
+        assertThat(String.valueOf(health.getDetails().get("error"))).contains("disk full");
+    }
+}
@@ -0,0 +1,49 @@
+package com.spring.eac.ai.bootstrap;
+
+import com.spring.eac.ai.ingestion.DirectoryWatcher;
+import com.spring.eac.ai.property.ApplicationProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WatchedDirectoryIngestionTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Should fail changes right away and report it when the initial load failed")
+    void update_WhenInitialLoadFailed_ShouldNotWaitForPipeline() throws Exception {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getIngestion().getWatch().setDirectory(dir.toString());
+        properties.getIngestion().getWatch().setDebounce(Duration.ofMillis(100));
+        WatchedDirectoryIngestion ingestion = new WatchedDirectoryIngestion(properties, new SimpleMeterRegistry());
+        try {
+            ingestion.start();
+            ingestion.failed(new IllegalStateException("embedding API unavailable"));
+
+            assertThat(ingestion.ingestion().lastFailure()).contains("Initial load failed", "embedding API unavailable");
+
+            Files.writeString(dir.resolve("brochure.txt"), "Sportsman 212");
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (ingestion.ingestion().batches() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+            }
+
+            DirectoryWatcher.Stats stats = ingestion.ingestion();
+            assertThat(stats.failures()).isEqualTo(1);
+            assertThat(stats.backlog()).isZero();
+            assertThat(stats.lastFailure()).contains("Initial load failed");
+            assertThat(stats.running()).isTrue();
+        } finally {
+            ingestion.destroy();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.spring.eac.ai.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SemanticCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    @DisplayName("Should answer a paraphrase from the cache and call the model for a different question")
+    void get_WithParaphrase_ShouldHit() {
+        SemanticCache<String> cache = SemanticCache.<String>builder("capital", new PhraseEmbeddingModel())
+                .similarityThreshold(0.95)
+                .meterRegistry(meterRegistry)
+                .build();
+
+        String first = cache.get("capital of France", () -> call("Paris"));
+        String paraphrase = cache.get("France's capital city", () -> call("Paris?"));
+        String other = cache.get("capital of Germany", () -> call("Berlin"));
+
+        assertThat(List.of(first, paraphrase, other)).containsExactly("Paris", "Paris", "Berlin");
+        assertThat(calls).hasValue(2);
+        assertThat(meterRegistry.get("semantic.cache.hits").tag("cache", "capital").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("semantic.cache.misses").tag("cache", "capital").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("semantic.cache.latency.saved").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should call the model again after the time to live or a version change")
+    void get_AfterExpiryOrNewVersion_ShouldMiss() {
+        MutableClock clock = new MutableClock();
+        AtomicLong version = new AtomicLong();
+        SemanticCache<String> cache = SemanticCache.<String>builder("answer", new PhraseEmbeddingModel())
+                .timeToLive(Duration.ofMinutes(10))
+                .version(version::get)
+                .clock(clock)
+                .build();
+
+        cache.get("capital of France", () -> call("Paris"));
+        clock.advance(Duration.ofMinutes(9));
+        cache.get("capital of France", () -> call("Paris"));
+        clock.advance(Duration.ofMinutes(2));
+        cache.get("capital of France", () -> call("Paris"));
+        version.incrementAndGet();
+        cache.get("capital of France", () -> call("Paris"));
+
+        assertThat(calls).hasValue(3);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should only match within a partition and evict the least recently used entries")
+    void get_ShouldRespectPartitionsAndMaxEntries() {
+        SemanticCache<String> cache = SemanticCache.<String>builder("answer", new PhraseEmbeddingModel())
+                .maxEntries(2)
+                .meterRegistry(meterRegistry)
+                .build();
+
+        cache.get("HYBRID", "capital of France", () -> call("Paris"));
+        cache.get("VECTOR", "capital of France", () -> call("Paris"));
+        cache.get("HYBRID", "capital of France", () -> call("Paris"));
+        cache.get("HYBRID", "capital of Germany", () -> call("Berlin"));
+
+        assertThat(calls).hasValue(3);
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(meterRegistry.get("semantic.cache.evictions").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should only return the capital of the same normalized entity, however close the embeddings")
+    void get_WithNormalizedTextMatchKey_ShouldNotConfuseNearbyEntities() {
+        SemanticCache<String> cache = SemanticCache.<String>builder("capital", new PhraseEmbeddingModel())
+                .matchKey(SemanticCache::normalizedText)
+                .build();
+
+        String north = cache.get("North Dakota", () -> call("Bismarck"));
+        String south = cache.get("South Dakota", () -> call("Pierre"));
+        String respelled = cache.get("  north   DAKOTA ", () -> call("Bismarck?"));
+
+        assertThat(List.of(north, south, respelled)).containsExactly("Bismarck", "Pierre", "Bismarck");
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Should look exact entries up by match key without embedding the question")
+    void get_WhenExact_ShouldHitOnMatchKeyWithoutEmbedding() {
+        PhraseEmbeddingModel embeddingModel = new PhraseEmbeddingModel();
+        SemanticCache<String> cache = SemanticCache.<String>builder("capital", embeddingModel)
+                .matchKey(SemanticCache::normalizedText)
+                .exact(true)
+                .meterRegistry(meterRegistry)
+                .build();
+
+        String north = cache.get("North Dakota", () -> call("Bismarck"));
+        String south = cache.get("South Dakota", () -> call("Pierre"));
+        String respelled = cache.get("  north   DAKOTA ", () -> call("Bismarck?"));
+
+        assertThat(List.of(north, south, respelled)).containsExactly("Bismarck", "Pierre", "Bismarck");
+        assertThat(calls).hasValue(2);
+        assertThat(embeddingModel.requests).isEmpty();
+        assertThat(meterRegistry.get("semantic.cache.hits").tag("cache", "capital").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should not share an answer between questions about different model numbers")
+    void get_WithIdentifiersMatchKey_ShouldMissNearIdenticalProductQuestions() {
+        SemanticCache<String> cache = SemanticCache.<String>builder("answer", new PhraseEmbeddingModel())
+                .similarityThreshold(0.98)
+                .matchKey(SemanticCache::identifiers)
+                .build();
+
+        String first = cache.get("How much does the Sportsman 212 weigh?", () -> call("3,458 lbs"));
+        String other = cache.get("How much does the Sportsman 232 weigh?", () -> call("5,001 lbs"));
+        String paraphrase = cache.get("What is the weight of the Sportsman 212?", () -> call("3,458 lbs?"));
+
+        assertThat(List.of(first, other, paraphrase)).containsExactly("3,458 lbs", "5,001 lbs", "3,458 lbs");
+        assertThat(calls).hasValue(2);
+        assertThat(SemanticCache.identifiers("Can an F-150 tow the Sportsman 212 in 2024?")).isEqualTo("2024 212 f-150");
+        assertThat(SemanticCache.identifiers("Which truck can tow the boat?")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should neither embed nor cache when disabled")
+    void get_WhenDisabled_ShouldAlwaysCall() {
+        PhraseEmbeddingModel embeddingModel = new PhraseEmbeddingModel();
+        SemanticCache<String> cache = SemanticCache.<String>builder("capital", embeddingModel).enabled(false).build();
+
+        cache.get("capital of France", () -> call("Paris"));
+        cache.get("capital of France", () -> call("Paris"));
+
+        assertThat(calls).hasValue(2);
+        assertThat(embeddingModel.requests).isEmpty();
+    }
+
+    private String call(String answer) {
+        calls.incrementAndGet();
+        return answer;
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2025-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    /**
+     * Fixed embeddings: the two France phrasings are close (cosine 0.98), Germany is far from both. The near-miss
+     * pairs, the Dakotas and the two Sportsman models, are closer still (0.99 and above).
+     */
+    private static class PhraseEmbeddingModel implements EmbeddingModel {
+
+        private static final Map<String, float[]> EMBEDDINGS = Map.of(
+                "capital of France", new float[]{1, 0, 0},
+                "France's capital city", new float[]{0.98f, 0.199f, 0},
+                "capital of Germany", new float[]{0.6f, 0, 0.8f},
+                "North Dakota", new float[]{1, 0, 0},
+                "  north   DAKOTA ", new float[]{1, 0, 0},
+                "South Dakota", new float[]{0.99f, 0.141f, 0},
+                "How much does the Sportsman 212 weigh?", new float[]{0, 1, 0},
+                "How much does the Sportsman 232 weigh?", new float[]{0, 0.995f, 0.0999f},
+                "What is the weight of the Sportsman 212?", new float[]{0, 0.99f, 0.141f});
+
+        private final List<String> requests = new ArrayList<>();
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            for (int i = 0; i < request.getInstructions().size(); i++) {
+                String text = request.getInstructions().get(i);
+                requests.add(text);
+                embeddings.add(new Embedding(EMBEDDINGS.get(text), i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return embed(document.getText());
+        }
+    }
+}
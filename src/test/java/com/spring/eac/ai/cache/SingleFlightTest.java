@@ -0,0 +1,147 @@
+package com.spring.eac.ai.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private static final int FOLLOWERS = 8;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final SingleFlight<String> flight = SingleFlight.<String>builder("capital")
+            .meterRegistry(meterRegistry)
+            .build();
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should make one call for concurrent identical requests and give every caller its result")
+    void execute_Concurrent_ShouldShareOneCall() throws Exception {
+        Future<String> leader = executor.submit(() -> flight.execute("france", blockingCall(() -> "Paris")));
+        started.await();
+        List<Future<String>> followers = followers("france", () -> "Lyon");
+
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("Paris");
+        for (Future<String> follower : followers) {
+            assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("Paris");
+        }
+        assertThat(calls).hasValue(1);
+        assertThat(meterRegistry.get("single.flight.calls").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("single.flight.in.flight").gauge().value()).isZero();
+
+        // Nothing is cached: the next request calls again
+        assertThat(flight.execute("france", () -> "Paris again")).isEqualTo("Paris again");
+    }
+
+    @Test
+    @DisplayName("Should throw the exception of the shared call to every caller")
+    void execute_WhenCallFails_ShouldPropagateToEveryCaller() throws Exception {
+        Future<String> leader = executor.submit(() -> flight.execute("france", blockingCall(() -> {
+            throw new IllegalStateException("Rate limited");
+        })));
+        started.await();
+        List<Future<String>> followers = followers("france", () -> "Lyon");
+
+        release.countDown();
+
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+                .hasRootCauseMessage("Rate limited");
+        for (Future<String> follower : followers) {
+            assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+                    .cause().isInstanceOf(IllegalStateException.class).hasMessage("Rate limited");
+        }
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Should let an interrupted caller stop waiting without cancelling the shared call")
+    void execute_WhenFollowerInterrupted_ShouldOnlyCancelThatCaller() throws Exception {
+        Future<String> leader = executor.submit(() -> flight.execute("france", blockingCall(() -> "Paris")));
+        started.await();
+        List<Future<String>> followers = followers("france", () -> "Lyon");
+
+        followers.getFirst().cancel(true);
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("Paris");
+        for (Future<String> follower : followers.subList(1, followers.size())) {
+            assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("Paris");
+        }
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Should call separately for different keys and derive distinct keys from differently split parts")
+    void execute_WithDifferentKeys_ShouldNotCoalesce() throws Exception {
+        Future<String> france = executor.submit(() -> flight.execute(SingleFlight.key("France"), blockingCall(() -> "Paris")));
+        started.await();
+
+        String germany = flight.execute(SingleFlight.key("Germany"), () -> "Berlin");
+        release.countDown();
+
+        assertThat(germany).isEqualTo("Berlin");
+        assertThat(france.get(5, TimeUnit.SECONDS)).isEqualTo("Paris");
+        assertThat(meterRegistry.get("single.flight.coalesced").counter().count()).isZero();
+        assertThat(SingleFlight.key("ab", "c")).isNotEqualTo(SingleFlight.key("a", "bc"));
+        assertThat(SingleFlight.key("ab", "c")).isEqualTo(SingleFlight.key("ab", "c"));
+    }
+
+    /**
+     * Starts the followers and waits until all of them are waiting for the call in flight.
+     */
+    private List<Future<String>> followers(String key, Supplier<String> call) throws InterruptedException {
+        List<Future<String>> followers = new ArrayList<>();
+        for (int i = 0; i < FOLLOWERS; i++) {
+            followers.add(executor.submit(() -> flight.execute(key, call)));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("single.flight.coalesced").counter().count() < FOLLOWERS
+                && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(meterRegistry.get("single.flight.coalesced").counter().count()).isEqualTo(FOLLOWERS);
+        return followers;
+    }
+
+    private Supplier<String> blockingCall(Supplier<String> result) {
+        return () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            return result.get();
+        };
+    }
+}
@@ -0,0 +1,95 @@
+package com.spring.eac.ai.config;
+
+import com.spring.eac.ai.property.ApplicationProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmbeddingCacheConfigTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Should cache whichever embedding model is configured, also when the test configuration aliases it")
+    void primaryEmbeddingModel_ShouldWrapConfiguredModel() {
+        ProviderEmbeddingModel provider = new ProviderEmbeddingModel();
+        ApplicationProperties applicationProperties = new ApplicationProperties();
+        applicationProperties.getEmbeddingCache().setPath(tempDir.resolve("cache.bin").toString());
+
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            // As the provider's auto-configuration and ChatModelConfig register it
+            context.registerBean("ollamaEmbeddingModel", EmbeddingModel.class, () -> provider);
+            context.registerBean("embeddingModel", EmbeddingModel.class, () -> provider);
+            context.registerBean(ApplicationProperties.class, () -> applicationProperties);
+            context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+            context.register(EmbeddingCacheConfig.class);
+            context.refresh();
+
+            EmbeddingModel primary = context.getBean(EmbeddingModel.class);
+            primary.embed(List.of("boat", "truck"));
+            primary.embed(List.of("boat", "truck"));
+
+            assertThat(primary).isNotSameAs(provider);
+            assertThat(provider.requests).containsExactly(List.of("boat", "truck"));
+        }
+    }
+
+    @Test
+    @DisplayName("Should key the cache by the embedding model configured for the selected provider")
+    void modelName_ShouldComeFromProviderConfiguration() {
+        ProviderEmbeddingModel provider = new ProviderEmbeddingModel();
+
+        assertThat(EmbeddingCacheConfig.modelName(new MockEnvironment()
+                .withProperty("spring.ai.openai.embedding.options.model", "text-embedding-3-small"), provider))
+                .isEqualTo("text-embedding-3-small");
+        assertThat(EmbeddingCacheConfig.modelName(new MockEnvironment()
+                .withProperty("spring.ai.model.embedding", "ollama")
+                .withProperty("spring.ai.openai.embedding.options.model", "text-embedding-3-small")
+                .withProperty("spring.ai.ollama.embedding.options.model", "nomic-embed-text"), provider))
+                .isEqualTo("nomic-embed-text");
+        assertThat(EmbeddingCacheConfig.modelName(new MockEnvironment(), provider))
+                .isEqualTo(ProviderEmbeddingModel.class.getName());
+    }
+
+    // Records every request it receives
+    private static class ProviderEmbeddingModel implements EmbeddingModel {
+
+        private final List<List<String>> requests = new ArrayList<>();
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            requests.add(request.getInstructions());
+            List<Embedding> embeddings = new ArrayList<>();
+            for (int i = 0; i < request.getInstructions().size(); i++) {
+                embeddings.add(new Embedding(new float[]{request.getInstructions().get(i).length()}, i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return embed(document.getText());
+        }
+
+        @Override
+        public int dimensions() {
+            return 1;
+        }
+    }
+}
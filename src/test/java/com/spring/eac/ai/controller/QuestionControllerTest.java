@@ -0,0 +1,97 @@
+package com.spring.eac.ai.controller;
+
+import com.spring.eac.ai.model.Question;
+import com.spring.eac.ai.service.OpenAIChatService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import reactor.core.publisher.Flux;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class QuestionControllerTest {
+
+    private static final String QUESTION = "{\"question\": \"How heavy is the Sportsman 212?\"}";
+
+    @Mock
+    private OpenAIChatService openAIChatService;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(new QuestionController(openAIChatService)).build();
+    }
+
+    @Test
+    @DisplayName("Should send one JSON answer fragment per event, keeping leading spaces")
+    void askQuestionStream_ShouldSendJsonFragments() throws Exception {
+        when(openAIChatService.streamAnswer(new Question("How heavy is the Sportsman 212?")))
+                .thenReturn(Flux.just("It", " weighs", " 3,458 lbs"));
+
+        String body = stream("/api/v1/ask/stream").getResponse().getContentAsString();
+
+        assertThat(body.split("\n\n")).containsExactly(
+                "data:{\"answer\":\"It\"}",
+                "data:{\"answer\":\" weighs\"}",
+                "data:{\"answer\":\" 3,458 lbs\"}");
+    }
+
+    @Test
+    @DisplayName("Should end the stream with a generic error event when the model fails mid-answer")
+    void askQuestionStream_WhenModelFails_ShouldSendErrorEvent() throws Exception {
+        when(openAIChatService.streamAnswer(any()))
+                .thenReturn(Flux.concat(Flux.just("It"), Flux.error(new IllegalStateException("model unavailable"))));
+
+        String body = stream("/api/v1/ask/stream").getResponse().getContentAsString();
+
+        assertThat(body.split("\n\n")).containsExactly(
+                "data:{\"answer\":\"It\"}",
+                "event:error\ndata:{\"message\":\"The answer could not be completed, please try again.\","
+                        + "\"errorType\":\"Stream Failed\"}");
+        assertThat(body).doesNotContain("model unavailable");
+    }
+
+    @Test
+    @DisplayName("Should stream the search answer of the given conversation and return its id")
+    void searchStream_ShouldStreamConversation() throws Exception {
+        when(openAIChatService.streamSearch(eq("user-1"), any())).thenReturn(Flux.just("42", " points"));
+
+        MvcResult result = stream("/api/v1/search/stream?userId=user-1");
+
+        assertThat(result.getResponse().getHeader("X-Conversation-Id")).isEqualTo("user-1");
+        assertThat(result.getResponse().getContentAsString().split("\n\n")).containsExactly(
+                "data:{\"answer\":\"42\"}",
+                "data:{\"answer\":\" points\"}");
+    }
+
+    private MvcResult stream(String path) throws Exception {
+        MvcResult result = mockMvc.perform(post(path)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .content(QUESTION))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM));
+        return result;
+    }
+}
@@ -0,0 +1,140 @@
+package com.spring.eac.ai.embedding;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptionsBuilder;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CachingEmbeddingModelTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Should send only the texts that miss the cache and keep the response in request order")
+    void call_ShouldEmbedOnlyMisses() {
+        CountingEmbeddingModel delegate = new CountingEmbeddingModel();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CachingEmbeddingModel model = newModel(delegate, 10).meterRegistry(meterRegistry).build();
+
+        model.embed(List.of("a", "bb"));
+        List<float[]> embeddings = model.embed(List.of("ccc", "a", "bb", "dddd"));
+
+        assertThat(embeddings).extracting(embedding -> embedding[0]).containsExactly(3f, 1f, 2f, 4f);
+        assertThat(delegate.requests).containsExactly(List.of("a", "bb"), List.of("ccc", "dddd"));
+        assertThat(meterRegistry.get("embedding.cache.hits").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("embedding.cache.misses").counter().count()).isEqualTo(4);
+        assertThat(meterRegistry.get("embedding.cache.size").gauge().value()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Should serve embeddings from the file after a restart without calling the model")
+    void call_AfterReopen_ShouldHitPersistedEntries() {
+        CachingEmbeddingModel first = newModel(new CountingEmbeddingModel(), 10).build();
+        first.embed(List.of(new Document("a"), new Document("bb")), EmbeddingOptionsBuilder.builder().build(),
+                batch -> List.of(batch));
+        first.close();
+
+        CountingEmbeddingModel delegate = new CountingEmbeddingModel();
+        CachingEmbeddingModel second = newModel(delegate, 10).build();
+
+        assertThat(second.size()).isEqualTo(2);
+        assertThat(second.embed("bb")).containsExactly(2f);
+        assertThat(delegate.requests).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should key entries by model name so another model is not served stale vectors")
+    void call_WithOtherModel_ShouldMiss() {
+        CountingEmbeddingModel delegate = new CountingEmbeddingModel();
+        CachingEmbeddingModel model = newModel(delegate, 10).build();
+
+        model.embed("a");
+        model.call(new EmbeddingRequest(List.of("a"), EmbeddingOptionsBuilder.builder().withModel("other").build()));
+
+        assertThat(delegate.requests).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used entries and compact the file")
+    void call_WhenFull_ShouldEvictLeastRecentlyUsed() throws IOException {
+        CountingEmbeddingModel delegate = new CountingEmbeddingModel();
+        CachingEmbeddingModel model = newModel(delegate, 2).build();
+
+        model.embed("a");
+        model.embed("bb");
+        model.embed("a");
+        model.embed("ccc");
+        model.embed("a");
+        model.embed("bb");
+        model.close();
+
+        assertThat(delegate.requests).containsExactly(List.of("a"), List.of("bb"), List.of("ccc"), List.of("bb"));
+        assertThat(newModel(new CountingEmbeddingModel(), 2).build().size()).isEqualTo(2);
+        // Header and two records of a 75 character key and one float
+        assertThat(Files.size(tempDir.resolve("cache.bin"))).isEqualTo(8 + 2 * (2 + 75 + 4 + 4));
+    }
+
+    @Test
+    @DisplayName("Should drop a record truncated by a crash and keep the ones before it")
+    void open_WithTruncatedRecord_ShouldKeepCompleteRecords() throws IOException {
+        CachingEmbeddingModel first = newModel(new CountingEmbeddingModel(), 10).build();
+        first.embed(List.of("a", "bb"));
+        Path path = tempDir.resolve("cache.bin");
+        Files.write(path, new byte[]{5, 0, 'x'}, StandardOpenOption.APPEND);
+
+        CachingEmbeddingModel second = newModel(new CountingEmbeddingModel(), 10).build();
+
+        assertThat(second.size()).isEqualTo(2);
+        second.embed("ccc");
+        assertThat(newModel(new CountingEmbeddingModel(), 10).build().size()).isEqualTo(3);
+    }
+
+    private CachingEmbeddingModel.Builder newModel(EmbeddingModel delegate, int maxEntries) {
+        return CachingEmbeddingModel.builder(delegate)
+                .path(tempDir.resolve("cache.bin"))
+                .defaultModel("test-model")
+                .maxEntries(maxEntries);
+    }
+
+    // Embeds a text as its length, and records every request it receives
+    private static class CountingEmbeddingModel implements EmbeddingModel {
+
+        private final List<List<String>> requests = new ArrayList<>();
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            requests.add(request.getInstructions());
+            List<Embedding> embeddings = new ArrayList<>();
+            for (int i = 0; i < request.getInstructions().size(); i++) {
+                embeddings.add(new Embedding(new float[]{request.getInstructions().get(i).length()}, i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return embed(document.getText());
+        }
+
+        @Override
+        public int dimensions() {
+            return 1;
+        }
+    }
+}
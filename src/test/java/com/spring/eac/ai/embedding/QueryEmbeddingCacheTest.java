@@ -0,0 +1,137 @@
+package com.spring.eac.ai.embedding;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryEmbeddingCacheTest {
+
+    @Test
+    @DisplayName("Should answer questions differing only in case and spacing from one embedding call")
+    void embed_WithNormalizedDuplicate_ShouldHit() {
+        CountingEmbeddingModel delegate = new CountingEmbeddingModel();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        QueryEmbeddingCache cache = QueryEmbeddingCache.builder(delegate).meterRegistry(meterRegistry).build();
+
+        cache.embed("What boat can my truck tow?");
+        cache.embed("  what boat can my   TRUCK tow?\n");
+
+        assertThat(delegate.requests).hasSize(1);
+        assertThat(meterRegistry.get("embedding.query.cache.hits").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("embedding.query.cache.hit.ratio").gauge().value()).isEqualTo(0.5);
+        assertThat(meterRegistry.get("embedding.query.cache.size").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should embed again once an entry is older than the time to live")
+    void embed_AfterTimeToLive_ShouldMiss() {
+        CountingEmbeddingModel delegate = new CountingEmbeddingModel();
+        MutableClock clock = new MutableClock();
+        QueryEmbeddingCache cache = QueryEmbeddingCache.builder(delegate)
+                .timeToLive(Duration.ofMinutes(5))
+                .clock(clock)
+                .build();
+
+        cache.embed("boat");
+        clock.advance(Duration.ofMinutes(4));
+        cache.embed("boat");
+        clock.advance(Duration.ofMinutes(2));
+        cache.embed("boat");
+
+        assertThat(delegate.requests).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used query beyond the maximum size")
+    void embed_WhenFull_ShouldEvictLeastRecentlyUsed() {
+        CountingEmbeddingModel delegate = new CountingEmbeddingModel();
+        QueryEmbeddingCache cache = QueryEmbeddingCache.builder(delegate).maxEntries(2).build();
+
+        cache.embed("a");
+        cache.embed("b");
+        cache.embed("a");
+        cache.embed("c");
+        cache.embed("a");
+        cache.embed("b");
+
+        assertThat(delegate.requests).containsExactly(List.of("a"), List.of("b"), List.of("c"), List.of("b"));
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should pass batched requests through without caching them")
+    void call_ShouldBypassCache() {
+        CountingEmbeddingModel delegate = new CountingEmbeddingModel();
+        QueryEmbeddingCache cache = QueryEmbeddingCache.builder(delegate).build();
+
+        cache.embed(List.of("a", "b"));
+        cache.embed(List.of("a", "b"));
+
+        assertThat(delegate.requests).hasSize(2);
+        assertThat(cache.size()).isZero();
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2025-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    private static class CountingEmbeddingModel implements EmbeddingModel {
+
+        private final List<List<String>> requests = new ArrayList<>();
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            requests.add(request.getInstructions());
+            List<Embedding> embeddings = new ArrayList<>();
+            for (int i = 0; i < request.getInstructions().size(); i++) {
+                embeddings.add(new Embedding(new float[]{request.getInstructions().get(i).length()}, i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return embed(document.getText());
+        }
+
+        @Override
+        public int dimensions() {
+            return 1;
+        }
+    }
+}
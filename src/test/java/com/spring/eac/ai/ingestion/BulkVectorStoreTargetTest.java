@@ -0,0 +1,173 @@
+package com.spring.eac.ai.ingestion;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.Filter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BulkVectorStoreTargetTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Should regroup pipeline batches into inserts of at most max rows")
+    void write_ShouldBatchByRows() {
+        StandInVectorStore store = new StandInVectorStore(Duration.ZERO, 0);
+        BulkVectorStoreTarget target = target(store).maxRows(5).build();
+
+        target.write(documents(0, 4, 10), null);
+        target.write(documents(4, 4, 10), null);
+        target.write(documents(8, 4, 10), null);
+        target.flush();
+
+        assertThat(store.insertSizes).containsExactlyInAnyOrder(5, 5, 2);
+        assertThat(store.rows).hasSize(12);
+        assertThat(store.deletes).hasValue(0);
+    }
+
+    @Test
+    @DisplayName("Should start a new insert before max bytes would be exceeded")
+    void write_ShouldBatchByBytes() {
+        StandInVectorStore store = new StandInVectorStore(Duration.ZERO, 0);
+        // About 1 KB of text plus 16 bytes of embedding per chunk
+        BulkVectorStoreTarget target = target(store).maxBytes(2500).embeddingDimensions(4).build();
+
+        target.write(documents(0, 5, 1000), null);
+        target.flush();
+
+        assertThat(store.insertSizes).containsExactlyInAnyOrder(2, 2, 1);
+    }
+
+    @Test
+    @DisplayName("Should keep at most max in flight inserts running and wait for all of them on flush")
+    void write_ShouldBoundInFlightInserts() {
+        StandInVectorStore store = new StandInVectorStore(Duration.ofMillis(20), 0);
+        BulkVectorStoreTarget target = target(store).maxRows(1).maxInFlight(3).build();
+
+        target.write(documents(0, 12, 10), null);
+        target.flush();
+
+        assertThat(store.rows).hasSize(12);
+        assertThat(store.maxConcurrent.get()).isBetween(2, 3);
+    }
+
+    @Test
+    @DisplayName("Should retry a failed insert without duplicating rows and flush the store once at the end")
+    void flush_AfterTransientFailure_ShouldRetryIdempotently() {
+        // Every insert writes its rows, then the first two attempts fail, as a timed out Milvus insert may
+        StandInVectorStore store = new StandInVectorStore(Duration.ZERO, 2);
+        AtomicInteger flushes = new AtomicInteger();
+        BulkVectorStoreTarget target = target(store).maxRows(10).onFlush(flushes::incrementAndGet).build();
+
+        target.write(documents(0, 3, 10), null);
+        target.flush();
+
+        assertThat(store.rows).hasSize(3);
+        assertThat(store.adds.get()).isEqualTo(3);
+        assertThat(store.deletes).hasValue(2);
+        assertThat(meterRegistry.get("ingestion.bulk.retries").counter().count()).isEqualTo(2);
+        assertThat(flushes).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Should fail the flush when an insert keeps failing, and start clean afterwards")
+    void flush_WhenAttemptsExhausted_ShouldThrow() {
+        StandInVectorStore store = new StandInVectorStore(Duration.ZERO, 2);
+        AtomicInteger flushes = new AtomicInteger();
+        BulkVectorStoreTarget target = target(store).maxAttempts(2).onFlush(flushes::incrementAndGet).build();
+
+        target.write(documents(0, 3, 10), null);
+
+        assertThatThrownBy(target::flush).isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("after 2 attempts");
+        assertThat(flushes).hasValue(0);
+
+        target.write(documents(3, 1, 10), null);
+        target.flush();
+        assertThat(store.rows).containsKey("doc-3");
+        assertThat(flushes).hasValue(1);
+    }
+
+    private BulkVectorStoreTarget.Builder target(VectorStore store) {
+        return BulkVectorStoreTarget.builder(store)
+                .retryBackoff(Duration.ofMillis(1))
+                .meterRegistry(meterRegistry);
+    }
+
+    private static List<Document> documents(int from, int count, int textLength) {
+        return IntStream.range(from, from + count)
+                .mapToObj(i -> new Document("doc-" + i, "x".repeat(textLength), Map.of()))
+                .toList();
+    }
+
+    /**
+     * In-memory stand-in for Milvus: rows keyed by id, optionally slow, failing the first adds after writing them.
+     */
+    private static class StandInVectorStore implements VectorStore {
+
+        private final Duration latency;
+        private final AtomicInteger failuresLeft;
+        private final Map<String, Document> rows = new ConcurrentHashMap<>();
+        private final List<Integer> insertSizes = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger adds = new AtomicInteger();
+        private final AtomicInteger deletes = new AtomicInteger();
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger maxConcurrent = new AtomicInteger();
+
+        private StandInVectorStore(Duration latency, int failures) {
+            this.latency = latency;
+            this.failuresLeft = new AtomicInteger(failures);
+        }
+
+        @Override
+        public void add(List<Document> documents) {
+            maxConcurrent.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(latency);
+                adds.incrementAndGet();
+                documents.forEach(document -> rows.put(document.getId(), document));
+                if (failuresLeft.getAndDecrement() > 0) {
+                    throw new IllegalStateException("Insert timed out");
+                }
+                insertSizes.add(documents.size());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void delete(List<String> idList) {
+            deletes.incrementAndGet();
+            idList.forEach(rows::remove);
+        }
+
+        @Override
+        public void delete(Filter.Expression filterExpression) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Document> similaritySearch(SearchRequest request) {
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.spring.eac.ai.ingestion;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamResource;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvDocumentReaderTest {
+
+    private static final String MOVIES = """
+            id,title,genres,overview,budget
+            19995,Avatar,Action-Adventure,"A paraplegic Marine is dispatched to the moon Pandora, on a ""unique"" mission.",237000000
+            299534,Avengers: Endgame,Adventure,"After the devastating events
+            the universe is in ruins.",356000000\r
+            \r
+            597,Titanic,Drama-Romance,,200000000
+            """;
+
+    @Test
+    @DisplayName("Should emit one document per row with the text columns as text and the other columns as metadata")
+    void get_ShouldMapColumnsOfEachRow() {
+        List<Document> documents = new CsvDocumentReader(csv(MOVIES), List.of("title", "overview"), List.of(), 1).get();
+
+        assertThat(documents).extracting(Document::getText).containsExactly(
+                "title: Avatar\noverview: A paraplegic Marine is dispatched to the moon Pandora, on a \"unique\" mission.",
+                "title: Avengers: Endgame\noverview: After the devastating events\nthe universe is in ruins.",
+                "title: Titanic");
+        assertThat(documents.get(0).getMetadata())
+                .containsEntry("id", "19995")
+                .containsEntry("genres", "Action-Adventure")
+                .containsEntry("budget", "237000000")
+                .containsEntry(CsvDocumentReader.ROW, 1)
+                .doesNotContainKeys("title", "overview");
+        assertThat(documents.get(2).getMetadata()).containsEntry(CsvDocumentReader.ROW, 3);
+    }
+
+    @Test
+    @DisplayName("Should group rows into one document and keep only the metadata they share")
+    void get_WithRowsPerDocument_ShouldGroupRows() {
+        String csv = "title,genre,year\nHeat,Crime,1995\nRonin,Crime,1998\nUp,Animation,2009\n";
+
+        List<Document> documents = new CsvDocumentReader(csv(csv), List.of("title"), List.of("genre", "year"), 2).get();
+
+        assertThat(documents).extracting(Document::getText).containsExactly("title: Heat\n\ntitle: Ronin", "title: Up");
+        assertThat(documents.get(0).getMetadata()).containsOnlyKeys("genre", CsvDocumentReader.ROW)
+                .containsEntry("genre", "Crime");
+        assertThat(documents.get(1).getMetadata()).containsEntry("year", "2009").containsEntry(CsvDocumentReader.ROW, 3);
+    }
+
+    @Test
+    @DisplayName("Should read rows lazily instead of loading the whole export")
+    void stream_ShouldReadOnlyConsumedRows() {
+        AtomicLong generated = new AtomicLong();
+        InputStream export = new InputStream() {
+            private byte[] row = "title,overview\n".getBytes(StandardCharsets.UTF_8);
+            private int position;
+
+            @Override
+            public int read() {
+                if (position == row.length) {
+                    row = ("Movie " + generated.incrementAndGet() + ",A long overview\n").getBytes(StandardCharsets.UTF_8);
+                    position = 0;
+                }
+                return row[position++];
+            }
+        };
+
+        try (Stream<Document> documents = new CsvDocumentReader(new InputStreamResource(export)).stream()) {
+            assertThat(documents.limit(3)).extracting(Document::getText)
+                    .containsExactly("title: Movie 1\noverview: A long overview", "title: Movie 2\noverview: A long overview",
+                            "title: Movie 3\noverview: A long overview");
+        }
+        // Only the read-ahead of the character decoder and the buffered reader was generated
+        assertThat(generated.get()).isLessThan(1_000);
+    }
+
+    private static ByteArrayResource csv(String content) {
+        return new ByteArrayResource(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,98 @@
+package com.spring.eac.ai.ingestion;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DirectoryWatcherTest {
+
+    @TempDir
+    Path dir;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BlockingQueue<Batch> batches = new LinkedBlockingQueue<>();
+
+    @Test
+    @DisplayName("Should report a file written several times once, after its debounce period")
+    void watch_ShouldDebounceRepeatedEvents() throws Exception {
+        try (DirectoryWatcher watcher = watcher()) {
+            watcher.start();
+            Path brochure = dir.resolve("brochure.txt");
+            for (int i = 0; i < 5; i++) {
+                Files.writeString(brochure, "Sportsman 212 ".repeat(i + 1));
+            }
+
+            Batch batch = batches.poll(10, TimeUnit.SECONDS);
+
+            assertThat(batch).isEqualTo(new Batch(List.of(brochure), List.of()));
+            assertThat(batches.poll(500, TimeUnit.MILLISECONDS)).isNull();
+            watcher.close();
+            assertThat(watcher.stats().filesChanged()).isEqualTo(1);
+            assertThat(watcher.backlog()).isZero();
+        }
+    }
+
+    @Test
+    @DisplayName("Should report deleted files that existed and ignore hidden ones")
+    void watch_ShouldReportDeletionsAndIgnoreHiddenFiles() throws Exception {
+        Path existing = Files.writeString(dir.resolve("existing.txt"), "towing");
+        try (DirectoryWatcher watcher = watcher()) {
+            watcher.start();
+            assertThat(watcher.files()).containsExactly(existing);
+
+            Files.writeString(dir.resolve(".partial.txt"), "ignored");
+            Files.delete(existing);
+
+            assertThat(batches.poll(10, TimeUnit.SECONDS)).isEqualTo(new Batch(List.of(), List.of(existing)));
+            watcher.close();
+            assertThat(meterRegistry.get("ingestion.watch.files").tag("change", "deleted").counter().count())
+                    .isEqualTo(1);
+        }
+    }
+
+    @Test
+    @DisplayName("Should count a failed batch and keep watching")
+    void watch_WhenListenerFails_ShouldKeepWatching() throws Exception {
+        try (DirectoryWatcher watcher = DirectoryWatcher.builder(dir, (changed, deleted) -> {
+                    if (changed.contains(dir.resolve("bad.txt"))) {
+                        throw new IllegalStateException("Embedding failed");
+                    }
+                    batches.add(new Batch(changed, deleted));
+                })
+                .debounce(Duration.ofMillis(100))
+                .meterRegistry(meterRegistry)
+                .build()) {
+            watcher.start();
+            Files.writeString(dir.resolve("bad.txt"), "bad");
+            Thread.sleep(400);
+            Path good = Files.writeString(dir.resolve("good.txt"), "good");
+
+            assertThat(batches.poll(10, TimeUnit.SECONDS)).isEqualTo(new Batch(List.of(good), List.of()));
+            assertThat(watcher.stats().failures()).isEqualTo(1);
+            assertThat(watcher.stats().lastFailure()).contains("Embedding failed");
+            assertThat(watcher.isRunning()).isTrue();
+        }
+    }
+
+    private DirectoryWatcher watcher() {
+        return DirectoryWatcher.builder(dir, (changed, deleted) -> batches.add(new Batch(changed, deleted)))
+                .debounce(Duration.ofMillis(300))
+                .meterRegistry(meterRegistry)
+                .build();
+    }
+
+    private record Batch(List<Path> changed, List<Path> deleted) {
+    }
+}
@@ -0,0 +1,362 @@
+package com.spring.eac.ai.ingestion;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.content.MediaContent;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentReader;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.ai.transformer.splitter.TextSplitter;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IngestionPipelineTest {
+
+    // One document per line and one chunk per word
+    private static final Function<Resource, DocumentReader> LINE_READER = resource -> () -> {
+        try {
+            return resource.getContentAsString(StandardCharsets.UTF_8).lines().map(Document::new).toList();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    };
+
+    private static final TextSplitter WORD_SPLITTER = new TextSplitter() {
+        @Override
+        protected List<String> splitText(String text) {
+            return Arrays.asList(text.split(" "));
+        }
+    };
+
+    private static final TokenCountEstimator ONE_TOKEN_PER_CHUNK = new TokenCountEstimator() {
+        @Override
+        public int estimate(String text) {
+            return 1;
+        }
+
+        @Override
+        public int estimate(MediaContent content) {
+            return 1;
+        }
+
+        @Override
+        public int estimate(Iterable<MediaContent> messages) {
+            return 1;
+        }
+    };
+
+    @Test
+    @DisplayName("Should write every chunk in batches within the token budget and publish throughput meters")
+    void ingest_ShouldWriteAllChunksInTokenBatches() {
+        RecordingTarget target = new RecordingTarget(false);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        IngestionResult result = pipeline(target)
+                .maxBatchTokens(10)
+                .meterRegistry(meterRegistry)
+                .build()
+                .ingest(resources(8, 5, 20));
+
+        assertThat(result.resources()).isEqualTo(8);
+        assertThat(result.documents()).isEqualTo(40);
+        assertThat(result.chunks()).isEqualTo(800);
+        assertThat(target.written).hasSize(800).doesNotHaveDuplicates();
+        assertThat(target.batchSizes).allMatch(size -> size <= 10);
+        assertThat(target.written.get(0).getMetadata()).containsKeys("source_file", "ingestion_timestamp");
+        assertThat(meterRegistry.get("ingestion.chunks.written").counter().count()).isEqualTo(800);
+        assertThat(meterRegistry.get("ingestion.embedding.batch").timer().count()).isEqualTo(result.batches());
+    }
+
+    @Test
+    @DisplayName("Should report the queues of the current run, not those of the first run")
+    void ingest_ShouldGaugeQueuesOfCurrentRun() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        RecordingTarget target = new RecordingTarget(false) {
+            @Override
+            public List<float[]> embed(List<Document> batch) {
+                try {
+                    // Hold the embedding stage of the second run so its chunk queue fills up
+                    if (runs.get() == 2) {
+                        release.await();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+                return super.embed(batch);
+            }
+        };
+        IngestionPipeline pipeline = pipeline(target)
+                .maxBatchTokens(5)
+                .embeddingConcurrency(1)
+                .meterRegistry(meterRegistry)
+                .build();
+        Supplier<Double> chunkQueue = () -> meterRegistry.get("ingestion.queue.size").tag("queue", "chunks").gauge().value();
+
+        runs.set(1);
+        pipeline.ingest(resources(2, 5, 20));
+        runs.set(2);
+        CompletableFuture<IngestionResult> second = CompletableFuture.supplyAsync(() -> pipeline.ingest(resources(2, 5, 20)));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (chunkQueue.get() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        double filled = chunkQueue.get();
+        release.countDown();
+        second.get(10, TimeUnit.SECONDS);
+
+        assertThat(filled).isPositive();
+        assertThat(chunkQueue.get()).isZero();
+        assertThat(meterRegistry.find("ingestion.queue.size").gauges()).hasSize(3);
+    }
+
+    @Test
+    @DisplayName("Should embed several batches at once but never more than the configured concurrency")
+    void ingest_ShouldBoundEmbeddingConcurrency() {
+        RecordingTarget target = new RecordingTarget(true);
+
+        pipeline(target)
+                .maxBatchTokens(5)
+                .embeddingConcurrency(3)
+                .build()
+                .ingest(resources(4, 5, 20));
+
+        assertThat(target.maxInFlight.get()).isBetween(2, 3);
+        assertThat(target.written).hasSize(400);
+    }
+
+    @Test
+    @DisplayName("Should stop all stages and rethrow when embedding fails")
+    void ingest_WhenEmbeddingFails_ShouldRethrow() {
+        IngestionTarget failing = new IngestionTarget() {
+            @Override
+            public List<float[]> embed(List<Document> batch) {
+                throw new IllegalStateException("embedding API unavailable");
+            }
+
+            @Override
+            public void write(List<Document> batch, List<float[]> embeddings) {
+            }
+
+            @Override
+            public void delete(List<String> ids) {
+            }
+
+            @Override
+            public void deleteSource(String sourceFile) {
+            }
+        };
+
+        assertThatThrownBy(() -> pipeline(failing).queueCapacity(2).build().ingest(resources(8, 50, 20)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("embedding API unavailable");
+    }
+
+    @Test
+    @DisplayName("Should skip unchanged resources and embed only new chunks when a manifest is given")
+    void ingest_WithManifest_ShouldEmbedOnlyChangedChunks(@TempDir Path dir) {
+        IngestionManifest manifest = IngestionManifest.load(dir.resolve("manifest.json"));
+        RecordingTarget first = new RecordingTarget(false);
+        pipeline(first).manifest(manifest).build().ingest(List.of(resource("a.txt", "one two"), resource("b.txt", "x y")));
+        manifest.save();
+
+        RecordingTarget second = new RecordingTarget(false);
+        IngestionResult result = pipeline(second)
+                .manifest(IngestionManifest.load(dir.resolve("manifest.json")))
+                .build()
+                .ingest(List.of(resource("a.txt", "one three"), resource("b.txt", "x y")));
+
+        assertThat(first.deletedSources).containsExactlyInAnyOrder("a.txt", "b.txt");
+        assertThat(second.deletedSources).isEmpty();
+        assertThat(second.written).extracting(Document::getText).containsExactly("three");
+        assertThat(second.deleted).containsExactly(idOf(first, "two"));
+        assertThat(result.unchangedResources()).isEqualTo(1);
+        assertThat(result.unchangedChunks()).isEqualTo(1);
+        assertThat(result.deletedChunks()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should delete every chunk of a source that is no longer configured")
+    void ingest_WithManifest_ShouldDeleteRemovedSources(@TempDir Path dir) {
+        IngestionManifest manifest = IngestionManifest.load(dir.resolve("manifest.json"));
+        RecordingTarget first = new RecordingTarget(false);
+        pipeline(first).manifest(manifest).build().ingest(List.of(resource("a.txt", "one"), resource("b.txt", "x y")));
+
+        RecordingTarget second = new RecordingTarget(false);
+        IngestionResult result = pipeline(second).manifest(manifest).build().ingest(List.of(resource("a.txt", "one")));
+
+        assertThat(second.written).isEmpty();
+        assertThat(second.deleted).containsExactlyInAnyOrder(idOf(first, "x"), idOf(first, "y"));
+        assertThat(manifest.sourceNames()).containsExactly("a.txt");
+        assertThat(result.changed()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should ingest changed sources and delete removed ones without touching the others on update")
+    void update_WithManifest_ShouldOnlyTouchGivenSources(@TempDir Path dir) {
+        IngestionManifest manifest = IngestionManifest.load(dir.resolve("manifest.json"));
+        RecordingTarget first = new RecordingTarget(false);
+        pipeline(first).manifest(manifest).build()
+                .ingest(List.of(resource("a.txt", "one"), resource("b.txt", "x y"), resource("c.txt", "z")));
+
+        RecordingTarget second = new RecordingTarget(false);
+        IngestionResult result = pipeline(second).manifest(manifest).build()
+                .update(List.of(resource("a.txt", "one two")), List.of("b.txt"));
+
+        assertThat(second.written).extracting(Document::getText).containsExactly("two");
+        assertThat(second.deleted).containsExactlyInAnyOrder(idOf(first, "x"), idOf(first, "y"));
+        assertThat(manifest.sourceNames()).containsExactlyInAnyOrder("a.txt", "c.txt");
+        assertThat(result.deletedChunks()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should give repeated chunk text distinct but stable ids")
+    void ingest_ShouldDeriveStableIds() {
+        RecordingTarget first = new RecordingTarget(false);
+        RecordingTarget second = new RecordingTarget(false);
+        pipeline(first).build().ingest(List.of(resource("a.txt", "same same")));
+        pipeline(second).build().ingest(List.of(resource("a.txt", "same same")));
+
+        assertThat(first.written).extracting(Document::getId).doesNotHaveDuplicates()
+                .containsExactlyInAnyOrderElementsOf(second.written.stream().map(Document::getId).toList());
+    }
+
+    @Test
+    @DisplayName("Should stream CSV rows as whole chunks and hash files on disk without buffering them")
+    void ingest_WithCsvFile_ShouldNotSplitRows(@TempDir Path dir) throws Exception {
+        Path movies = dir.resolve("movies.csv");
+        Files.writeString(movies, "title,overview,year\nHeat,A crew of thieves and a detective,1995\nUp,A flying house,2009\n");
+        IngestionManifest manifest = IngestionManifest.load(dir.resolve("manifest.json"));
+        RecordingTarget first = new RecordingTarget(false);
+        RecordingTarget second = new RecordingTarget(false);
+
+        IngestionResult result = pipeline(first)
+                .documentReader(CsvDocumentReader.forCsvFiles(List.of("title", "overview"), List.of(), 1, LINE_READER))
+                .manifest(manifest)
+                .build()
+                .ingest(List.of(new FileSystemResource(movies)));
+        IngestionResult unchanged = pipeline(second)
+                .documentReader(CsvDocumentReader.forCsvFiles(List.of("title", "overview"), List.of(), 1, LINE_READER))
+                .manifest(manifest)
+                .build()
+                .ingest(List.of(new FileSystemResource(movies)));
+
+        assertThat(result.chunks()).isEqualTo(2);
+        assertThat(first.written).extracting(Document::getText)
+                .containsExactlyInAnyOrder("title: Heat\noverview: A crew of thieves and a detective", "title: Up\noverview: A flying house");
+        assertThat(first.written).allSatisfy(document -> assertThat(document.getMetadata())
+                .containsEntry("source_file", "movies.csv")
+                .containsKeys("year", CsvDocumentReader.ROW));
+        assertThat(unchanged.unchangedResources()).isEqualTo(1);
+        assertThat(second.written).isEmpty();
+    }
+
+    private static String idOf(RecordingTarget target, String text) {
+        return target.written.stream().filter(document -> text.equals(document.getText())).findFirst().orElseThrow().getId();
+    }
+
+    private static Resource resource(String filename, String content) {
+        return new ByteArrayResource(content.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+        };
+    }
+
+    private static IngestionPipeline.Builder pipeline(IngestionTarget target) {
+        return IngestionPipeline.builder(target)
+                .documentReader(LINE_READER)
+                .textSplitter(WORD_SPLITTER)
+                .tokenCountEstimator(ONE_TOKEN_PER_CHUNK)
+                .queueCapacity(16);
+    }
+
+    private static List<Resource> resources(int count, int lines, int words) {
+        return IntStream.range(0, count)
+                .mapToObj(r -> (Resource) new ByteArrayResource(IntStream.range(0, lines)
+                        .mapToObj(l -> String.join(" ", IntStream.range(0, words)
+                                .mapToObj(w -> "r" + r + "l" + l + "w" + w)
+                                .toList()))
+                        .reduce((a, b) -> a + "\n" + b)
+                        .orElseThrow()
+                        .getBytes(StandardCharsets.UTF_8)) {
+                    @Override
+                    public String getFilename() {
+                        return "resource-" + r + ".txt";
+                    }
+                })
+                .toList();
+    }
+
+    private static class RecordingTarget implements IngestionTarget {
+
+        private final boolean slow;
+        private final List<Document> written = Collections.synchronizedList(new ArrayList<>());
+        private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> deleted = Collections.synchronizedList(new ArrayList<>());
+        private final List<String> deletedSources = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+
+        private RecordingTarget(boolean slow) {
+            this.slow = slow;
+        }
+
+        @Override
+        public List<float[]> embed(List<Document> batch) {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                if (slow) {
+                    Thread.sleep(5);
+                }
+                batchSizes.add(batch.size());
+                return batch.stream().map(document -> new float[]{document.getText().length()}).toList();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void write(List<Document> batch, List<float[]> embeddings) {
+            assertThat(embeddings).hasSameSizeAs(batch);
+            written.addAll(batch);
+        }
+
+        @Override
+        public void delete(List<String> ids) {
+            deleted.addAll(ids);
+        }
+
+        @Override
+        public void deleteSource(String sourceFile) {
+            deletedSources.add(sourceFile);
+        }
+    }
+}
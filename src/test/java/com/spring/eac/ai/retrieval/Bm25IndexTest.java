@@ -0,0 +1,128 @@
+package com.spring.eac.ai.retrieval;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Bm25IndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Stands in for the vector store the index reads its results from.
+     */
+    private final Map<String, Document> store = new HashMap<>();
+    private final DocumentLookup lookup = ids -> ids.stream()
+            .filter(store::containsKey)
+            .collect(Collectors.toMap(id -> id, store::get));
+
+    private Bm25Index index;
+
+    @BeforeEach
+    void setUp() {
+        index = new Bm25Index(tempDir.resolve("bm25.json"), lookup);
+        add(List.of(
+                new Document("heat", "Heat (1995). Starring Al Pacino and Robert De Niro. A crime thriller.",
+                        Map.of("source_file", "movies.csv")),
+                new Document("godfather", "The Godfather (1972). Starring Marlon Brando and Al Pacino. A crime drama.",
+                        Map.of("source_file", "movies.csv")),
+                new Document("up", "Up (2009). An animated adventure with a flying house.",
+                        Map.of("source_file", "movies.csv")),
+                new Document("sportsman", "Sportsman 232 with a Yamaha F300. Weight 5,001 lbs.",
+                        Map.of("source_file", "232.pdf"))));
+    }
+
+    @Test
+    @DisplayName("Should rank documents containing the rarer query terms first and ignore stop words")
+    void search_ShouldRankByBm25() {
+        List<Document> results = index.search("The movie with Robert De Niro", 3, null);
+
+        assertThat(results).extracting(Document::getId).containsExactly("heat");
+        assertThat(index.search("Al Pacino crime", 3, null)).extracting(Document::getId)
+                .containsExactlyInAnyOrder("heat", "godfather");
+        assertThat(results.get(0).getScore()).isPositive();
+    }
+
+    @Test
+    @DisplayName("Should apply filter expressions and drop deleted, replaced and per-source deleted chunks")
+    void search_AfterDeletes_ShouldOnlyReturnLiveMatchingChunks() {
+        assertThat(index.search("Yamaha", 3, new FilterExpressionBuilder().eq("source_file", "movies.csv").build()))
+                .isEmpty();
+
+        index.delete(List.of("heat"));
+        add(List.of(new Document("up", "Up (2009). Carl flies his house with balloons.", Map.of())));
+        index.deleteSource("232.pdf");
+
+        assertThat(index.search("Pacino", 3, null)).extracting(Document::getId).containsExactly("godfather");
+        assertThat(index.search("adventure", 3, null)).isEmpty();
+        assertThat(index.search("balloons", 3, null)).extracting(Document::getId).containsExactly("up");
+        assertThat(index.search("Yamaha", 3, null)).isEmpty();
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should rank the same after saving and loading the postings, without saving text or metadata")
+    void save_ThenLoad_ShouldRestoreIndex() throws IOException {
+        index.save();
+
+        assertThat(Files.readString(tempDir.resolve("bm25.json"))).doesNotContain("Pacino", "crime thriller");
+        Bm25Index reloaded = new Bm25Index(tempDir.resolve("bm25.json"), lookup);
+        assertThat(reloaded.exists()).isTrue();
+        reloaded.load();
+
+        assertThat(reloaded.size()).isEqualTo(4);
+        assertThat(reloaded.search("Pacino", 3, null)).extracting(Document::getId)
+                .containsExactlyElementsOf(index.search("Pacino", 3, null).stream().map(Document::getId).toList());
+        assertThat(reloaded.search("Sportsman 232", 1, null)).singleElement()
+                .satisfies(document -> assertThat(document.getMetadata()).containsEntry("source_file", "232.pdf"));
+        reloaded.deleteSource("232.pdf");
+        assertThat(reloaded.size()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Should read results from the store and skip chunks it no longer holds")
+    void search_ShouldResolveDocumentsThroughStore() {
+        store.remove("heat");
+
+        assertThat(index.search("Al Pacino", 1, null)).singleElement()
+                .satisfies(document -> {
+                    assertThat(document.getId()).isEqualTo("godfather");
+                    assertThat(document.getText()).startsWith("The Godfather");
+                });
+    }
+
+    @Test
+    @DisplayName("Should index the text of a file saved with the chunk text and drop the text")
+    void load_WithTextFile_ShouldTokenizeStoredText() throws IOException {
+        Path legacy = tempDir.resolve("legacy.json");
+        Files.writeString(legacy, """
+                [{"id":"heat","text":"Heat (1995). Starring Al Pacino.","metadata":{"source_file":"movies.csv"}}]
+                """);
+        Bm25Index reloaded = new Bm25Index(legacy, lookup);
+
+        reloaded.load();
+        reloaded.save();
+
+        assertThat(reloaded.search("Pacino", 1, null)).extracting(Document::getId).containsExactly("heat");
+        assertThat(Files.readString(legacy)).doesNotContain("Pacino").contains("movies.csv");
+    }
+
+    private void add(List<Document> documents) {
+        documents.forEach(document -> store.put(document.getId(), document));
+        index.add(documents);
+    }
+}
@@ -0,0 +1,125 @@
+package com.spring.eac.ai.retrieval;
+
+import com.knuddels.jtokkit.api.EncodingType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.content.MediaContent;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContextPackerTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Should put every document in the given order when they fit in the budget")
+    void pack_WithinBudget_ShouldKeepAllDocumentsInOrder() {
+        ContextPacker packer = packer(100);
+
+        ContextPacker.PackedContext context = packer.pack(List.of(
+                document("boat", "The Sportsman 212 weighs 3,458 lbs.", 0.9),
+                document("towing", "Tow ratings of trucks.", 0.5)));
+
+        assertThat(context.text()).isEqualTo("The Sportsman 212 weighs 3,458 lbs.\nTow ratings of trucks.");
+        assertThat(context.tokens()).isEqualTo(6 + 1 + 4);
+        assertThat(context.tokensSaved()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should cut a document over the remaining budget after its last whole sentence that fits")
+    void pack_OverBudget_ShouldTrimAtSentenceBoundary() {
+        ContextPacker packer = packer(13);
+
+        ContextPacker.PackedContext context = packer.pack(List.of(
+                document("boat", "The Sportsman 212 weighs 3,458 lbs.", 0.9),
+                document("brochure", "The F150 is an inline four. It weighs 476 lbs. It has a 2.8 liter block.", 0.7)));
+
+        assertThat(context.text()).isEqualTo("The Sportsman 212 weighs 3,458 lbs.\nThe F150 is an inline four.");
+        assertThat(context.tokens()).isEqualTo(6 + 1 + 6);
+        assertThat(context.tokensSaved()).isEqualTo(10);
+        assertThat(meterRegistry.get("rag.context.tokens.saved").summary().totalAmount()).isEqualTo(10);
+        assertThat(meterRegistry.get("rag.context.documents.trimmed").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should skip a document whose first sentence does not fit and keep filling with shorter ones")
+    void pack_WhenFirstSentenceDoesNotFit_ShouldSkipDocument() {
+        ContextPacker packer = packer(8);
+
+        ContextPacker.PackedContext context = packer.pack(List.of(
+                document("long", "One two three four five six seven eight nine ten.", 0.9),
+                document("short", "Tow ratings of trucks.", 0.5)));
+
+        assertThat(context.documents()).extracting(Document::getId).containsExactly("short");
+        assertThat(context.tokensSaved()).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("Should fill the budget in MMR order rather than re-sorting by similarity score")
+    void pack_WithMmrOrder_ShouldNotResortByScore() {
+        ContextPacker packer = packer(14);
+
+        // MMR moved the distinct trailer page above the near-duplicate engine page that scores higher
+        ContextPacker.PackedContext context = packer.pack(List.of(
+                document("page-1", "The F150 engine is an inline four.", 0.95),
+                document("trailer", "Trailer weights are listed per hitch.", 0.6),
+                document("overlap", "F150 engine: an inline four.", 0.94)));
+
+        assertThat(context.documents()).extracting(Document::getId).containsExactly("page-1", "trailer");
+        assertThat(context.text()).isEqualTo("The F150 engine is an inline four.\nTrailer weights are listed per hitch.");
+    }
+
+    @Test
+    @DisplayName("Should count tokens with o200k_base for GPT-4o and later models and cl100k_base before")
+    void encodingFor_ShouldMatchModelGeneration() {
+        assertThat(ContextPacker.encodingFor("gpt-4.1-2025-04-14")).isEqualTo(EncodingType.O200K_BASE);
+        assertThat(ContextPacker.encodingFor("gpt-4o-mini")).isEqualTo(EncodingType.O200K_BASE);
+        assertThat(ContextPacker.encodingFor("gpt-3.5-turbo")).isEqualTo(EncodingType.CL100K_BASE);
+    }
+
+    private ContextPacker packer(int maxTokens) {
+        return ContextPacker.builder()
+                .tokenCountEstimator(new WordCountEstimator())
+                .maxTokens(maxTokens)
+                .meterRegistry(meterRegistry)
+                .build();
+    }
+
+    private static Document document(String id, String text, double score) {
+        return Document.builder().id(id).text(text).metadata(Map.of()).score(score).build();
+    }
+
+    /**
+     * One token per word and one per line break.
+     */
+    private static class WordCountEstimator implements TokenCountEstimator {
+
+        @Override
+        public int estimate(String text) {
+            int lineBreaks = (int) text.chars().filter(c -> c == '\n').count();
+            String words = text.strip();
+            return lineBreaks + (words.isEmpty() ? 0 : words.split("\\s+").length);
+        }
+
+        @Override
+        public int estimate(MediaContent content) {
+            return estimate(content.getText());
+        }
+
+        @Override
+        public int estimate(Iterable<MediaContent> messages) {
+            int tokens = 0;
+            for (MediaContent message : messages) {
+                tokens += estimate(message);
+            }
+            return tokens;
+        }
+    }
+}
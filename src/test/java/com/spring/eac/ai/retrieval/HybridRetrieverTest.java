@@ -0,0 +1,109 @@
+package com.spring.eac.ai.retrieval;
+
+import com.spring.eac.ai.model.RetrievalMode;
+import com.spring.eac.ai.property.ApplicationProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class HybridRetrieverTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private VectorStore vectorStore;
+
+    @Mock
+    private ObjectProvider<Bm25Index> bm25IndexProvider;
+
+    private ApplicationProperties applicationProperties;
+    private HybridRetriever retriever;
+
+    @BeforeEach
+    void setUp() {
+        List<Document> documents = List.of(
+                new Document("heat", "Heat (1995). Starring Al Pacino and Robert De Niro.", Map.of()),
+                new Document("ronin", "Ronin (1998). Starring Robert De Niro and Jean Reno.", Map.of()),
+                new Document("up", "Up (2009). An animated adventure.", Map.of()));
+        Map<String, Document> stored = documents.stream().collect(Collectors.toMap(Document::getId, document -> document));
+        Bm25Index bm25Index = new Bm25Index(tempDir.resolve("bm25.json"), ids -> ids.stream()
+                .collect(Collectors.toMap(id -> id, stored::get)));
+        bm25Index.add(documents);
+        applicationProperties = ApplicationProperties.builder().build();
+        applicationProperties.getRetrieval().setCandidates(10);
+        when(bm25IndexProvider.getIfAvailable()).thenReturn(bm25Index);
+        retriever = new HybridRetriever(vectorStore, bm25IndexProvider, applicationProperties);
+    }
+
+    @Test
+    @DisplayName("Should fuse rankings by reciprocal rank so documents ranked well by both come first")
+    void fuse_ShouldScoreByReciprocalRank() {
+        List<Document> semantic = List.of(document("a"), document("b"), document("c"));
+        List<Document> lexical = List.of(document("c"), document("d"), document("b"));
+
+        List<Document> fused = HybridRetriever.fuse(List.of(semantic, lexical), 60, 3);
+
+        assertThat(fused).extracting(Document::getId).containsExactly("c", "b", "a");
+        assertThat(fused.get(0).getScore()).isEqualTo(1.0 / 63 + 1.0 / 61);
+    }
+
+    @Test
+    @DisplayName("Should add exact name matches from BM25 to the vector candidates in hybrid mode")
+    void retrieve_WithHybrid_ShouldFuseVectorAndLexicalCandidates() {
+        when(vectorStore.similaritySearch(any(SearchRequest.class)))
+                .thenReturn(List.of(document("up"), document("heat"), document("other")));
+
+        List<Document> documents = retriever.retrieve(
+                SearchRequest.builder().query("Al Pacino and Robert De Niro").topK(3).build(), RetrievalMode.HYBRID);
+
+        ArgumentCaptor<SearchRequest> request = ArgumentCaptor.forClass(SearchRequest.class);
+        verify(vectorStore).similaritySearch(request.capture());
+        assertThat(request.getValue().getTopK()).isEqualTo(10);
+        assertThat(documents).extracting(Document::getId).containsExactly("heat", "up", "ronin");
+    }
+
+    @Test
+    @DisplayName("Should use the vector store alone in the default vector mode")
+    void retrieve_WithDefaultMode_ShouldOnlySearchVectors() {
+        SearchRequest request = SearchRequest.builder().query("Robert De Niro").topK(2).build();
+        when(vectorStore.similaritySearch(request)).thenReturn(List.of(document("up")));
+
+        assertThat(retriever.retrieve(request, null)).extracting(Document::getId).containsExactly("up");
+    }
+
+    @Test
+    @DisplayName("Should fall back to the vector store alone when hybrid is asked for without a BM25 index")
+    void retrieve_WithHybridWithoutIndex_ShouldOnlySearchVectors() {
+        when(bm25IndexProvider.getIfAvailable()).thenReturn(null);
+        HybridRetriever vectorOnly = new HybridRetriever(vectorStore, bm25IndexProvider, applicationProperties);
+        SearchRequest request = SearchRequest.builder().query("Robert De Niro").topK(2).build();
+        when(vectorStore.similaritySearch(request)).thenReturn(List.of(document("up")));
+
+        assertThat(vectorOnly.retrieve(request, RetrievalMode.HYBRID)).extracting(Document::getId).containsExactly("up");
+    }
+
+    private static Document document(String id) {
+        return new Document(id, "text of " + id, Map.of());
+    }
+}
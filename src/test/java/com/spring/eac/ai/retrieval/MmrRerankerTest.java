@@ -0,0 +1,163 @@
+package com.spring.eac.ai.retrieval;
+
+import com.spring.eac.ai.model.RetrievalMode;
+import com.spring.eac.ai.property.ApplicationProperties;
+import com.spring.eac.ai.vectorstore.MappedVectorStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MmrRerankerTest {
+
+    private static final String QUESTION = "boat engine";
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private HybridRetriever hybridRetriever;
+
+    @Mock
+    private VectorStore vectorStore;
+
+    @Mock
+    private ObjectProvider<Bm25Index> noBm25Index;
+
+    private FixedEmbeddingModel embeddingModel;
+    private ApplicationProperties applicationProperties;
+
+    @BeforeEach
+    void setUp() {
+        embeddingModel = new FixedEmbeddingModel(Map.of(
+                QUESTION, new float[]{1, 0.3f, 0},
+                "F150 engine page 1", new float[]{1, 0, 0},
+                "F150 engine page 1 (overlap)", new float[]{1, 0.05f, 0},
+                "Trailer weights", new float[]{0.6f, 0.8f, 0}));
+        applicationProperties = ApplicationProperties.builder().build();
+        applicationProperties.getRetrieval().getMmr().setFetchMultiplier(5);
+    }
+
+    @Test
+    @DisplayName("Should trade relevance for distinctness with lambda below 1 and keep the plain ranking at 1")
+    void select_ShouldSkipNearDuplicates() {
+        float[] query = {1, 0.3f, 0};
+        List<float[]> candidates = List.of(new float[]{1, 0, 0}, new float[]{1, 0.05f, 0}, new float[]{0.6f, 0.8f, 0});
+
+        assertThat(MmrReranker.select(query, candidates, 2, 1.0)).containsExactly(1, 0);
+        assertThat(MmrReranker.select(query, candidates, 2, 0.5)).containsExactly(1, 2);
+        assertThat(MmrReranker.select(query, candidates, 5, 0.5)).hasSize(3);
+    }
+
+    @Test
+    @DisplayName("Should over-fetch candidates and embed the ones the store does not hold in one batch")
+    void retrieve_ShouldOverFetchAndRerank() {
+        when(hybridRetriever.retrieve(any(), isNull(), any())).thenReturn(candidates());
+        MmrReranker reranker = new MmrReranker(hybridRetriever, vectorStore, embeddingModel, applicationProperties);
+
+        List<Document> documents = reranker.retrieve(SearchRequest.builder().query(QUESTION).topK(2).build(), null);
+
+        assertThat(documents).extracting(Document::getId).containsExactly("overlap", "trailer");
+        ArgumentCaptor<SearchRequest> request = ArgumentCaptor.forClass(SearchRequest.class);
+        verify(hybridRetriever).retrieve(request.capture(), isNull(), eq(embeddingModel.vectors.get(QUESTION)));
+        assertThat(request.getValue().getTopK()).isEqualTo(10);
+        assertThat(embeddingModel.requests).containsExactly(
+                List.of(QUESTION), List.of("F150 engine page 1", "F150 engine page 1 (overlap)", "Trailer weights"));
+    }
+
+    @Test
+    @DisplayName("Should reuse the embeddings held by the local store instead of embedding the candidates again")
+    void retrieve_WithMappedVectorStore_ShouldReuseStoredEmbeddings() {
+        MappedVectorStore store = MappedVectorStore.builder(embeddingModel).path(tempDir.resolve("store")).build();
+        store.add(candidates());
+        embeddingModel.requests.clear();
+        when(hybridRetriever.retrieve(any(), isNull(), any())).thenReturn(candidates());
+        MmrReranker reranker = new MmrReranker(hybridRetriever, store, embeddingModel, applicationProperties);
+
+        List<Document> documents = reranker.retrieve(SearchRequest.builder().query(QUESTION).topK(2).build(), null);
+
+        assertThat(documents).extracting(Document::getId).containsExactly("overlap", "trailer");
+        assertThat(embeddingModel.requests).containsExactly(List.of(QUESTION));
+    }
+
+    @Test
+    @DisplayName("Should embed the question once for both the local store search and the MMR relevance")
+    void retrieve_ThroughLocalStore_ShouldEmbedQuestionOnce() {
+        MappedVectorStore store = MappedVectorStore.builder(embeddingModel).path(tempDir.resolve("store")).build();
+        store.add(candidates());
+        embeddingModel.requests.clear();
+        MmrReranker reranker = new MmrReranker(new HybridRetriever(store, noBm25Index, applicationProperties), store,
+                embeddingModel, applicationProperties);
+
+        List<Document> documents = reranker.retrieve(SearchRequest.builder().query(QUESTION).topK(2).build(),
+                RetrievalMode.VECTOR);
+
+        assertThat(documents).extracting(Document::getId).containsExactly("overlap", "trailer");
+        assertThat(embeddingModel.requests).containsExactly(List.of(QUESTION));
+    }
+
+    private static List<Document> candidates() {
+        return List.of(
+                new Document("page-1", "F150 engine page 1", Map.of()),
+                new Document("overlap", "F150 engine page 1 (overlap)", Map.of()),
+                new Document("trailer", "Trailer weights", Map.of()));
+    }
+
+    /**
+     * Embeds known texts to fixed vectors and records every request.
+     */
+    private static class FixedEmbeddingModel implements EmbeddingModel {
+
+        private final Map<String, float[]> vectors;
+        private final List<List<String>> requests = new ArrayList<>();
+
+        private FixedEmbeddingModel(Map<String, float[]> vectors) {
+            this.vectors = vectors;
+        }
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            requests.add(request.getInstructions());
+            List<Embedding> embeddings = new ArrayList<>();
+            for (String text : request.getInstructions()) {
+                embeddings.add(new Embedding(vectors.getOrDefault(text, new float[]{0, 0, 1}), embeddings.size()));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return embed(document.getText());
+        }
+
+        @Override
+        public int dimensions() {
+            return 3;
+        }
+    }
+}
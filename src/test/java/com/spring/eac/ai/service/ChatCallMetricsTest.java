@@ -0,0 +1,52 @@
+package com.spring.eac.ai.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChatCallMetricsTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ChatCallMetrics metrics = new ChatCallMetrics(meterRegistry);
+
+    @Test
+    @DisplayName("Should time each call and record its prompt, completion and total tokens per endpoint")
+    void record_ShouldPublishLatencyAndTokensPerEndpoint() {
+        metrics.record("capital-with-info", response(120, 30), TimeUnit.MILLISECONDS.toNanos(800));
+        metrics.record("capital-with-info", response(100, 20), TimeUnit.MILLISECONDS.toNanos(600));
+        metrics.record("answer", response(900, 50), TimeUnit.MILLISECONDS.toNanos(1500));
+
+        assertThat(meterRegistry.get("llm.call").tag("endpoint", "capital-with-info").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("llm.tokens").tags("endpoint", "capital-with-info", "type", "prompt")
+                .summary().totalAmount()).isEqualTo(220);
+        assertThat(meterRegistry.get("llm.tokens").tags("endpoint", "capital-with-info", "type", "total")
+                .summary().totalAmount()).isEqualTo(270);
+        assertThat(meterRegistry.get("llm.tokens").tags("endpoint", "answer", "type", "completion")
+                .summary().totalAmount()).isEqualTo(50);
+    }
+
+    @Test
+    @DisplayName("Should still time a call whose response reports no usage")
+    void record_WithoutUsage_ShouldOnlyTime() {
+        metrics.record("capital", null, TimeUnit.MILLISECONDS.toNanos(300));
+
+        assertThat(meterRegistry.get("llm.call").tag("endpoint", "capital").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.find("llm.tokens").summaries()).isEmpty();
+    }
+
+    private static ChatResponse response(int promptTokens, int completionTokens) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage("Paris"))),
+                ChatResponseMetadata.builder().usage(new DefaultUsage(promptTokens, completionTokens)).build());
+    }
+}
@@ -0,0 +1,114 @@
+package com.spring.eac.ai.service;
+
+import com.spring.eac.ai.model.QRCodeResponse;
+import com.spring.eac.ai.property.ApplicationProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.chat.memory.ChatMemory;
+import org.springframework.ai.chat.memory.MessageWindowChatMemory;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.model.tool.ToolCallingChatOptions;
+import org.springframework.ai.tool.StaticToolCallbackProvider;
+import org.springframework.ai.tool.ToolCallback;
+import org.springframework.ai.tool.function.FunctionToolCallback;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ChatClientRegistryTest {
+
+    @Mock
+    private ChatModel chatModel;
+
+    private ChatMemory chatMemory;
+    private ChatClientRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        when(chatModel.getDefaultOptions()).thenReturn(ToolCallingChatOptions.builder().build());
+        ToolCallback customerScore = FunctionToolCallback.builder("customerScore", (String name) -> 42)
+                .description("Score of a customer")
+                .inputType(String.class)
+                .build();
+        chatMemory = MessageWindowChatMemory.builder().build();
+        registry = new ChatClientRegistry(chatModel,
+                chatMemory,
+                ApplicationProperties.builder().ninjasApiKey("test-key").build(),
+                request -> new QRCodeResponse(new byte[0]),
+                new StaticToolCallbackProvider(customerScore));
+    }
+
+    @Test
+    @DisplayName("Should send the tools built at startup with every request of a shared client")
+    void weather_ShouldReuseClientAndTools() {
+        when(chatModel.call(any(Prompt.class)))
+                .thenReturn(new ChatResponse(List.of(new Generation(new AssistantMessage("Sunny")))));
+
+        registry.weather().prompt("Weather in Lisbon?").call().content();
+        registry.weather().prompt("Weather in Porto?").call().content();
+
+        ArgumentCaptor<Prompt> prompts = ArgumentCaptor.forClass(Prompt.class);
+        verify(chatModel, times(2)).call(prompts.capture());
+        List<ToolCallback> first = toolCallbacks(prompts.getAllValues().get(0));
+        List<ToolCallback> second = toolCallbacks(prompts.getAllValues().get(1));
+        assertThat(first).extracting(callback -> callback.getToolDefinition().name()).containsExactly("CurrentWeather");
+        assertThat(second.get(0)).isSameAs(first.get(0));
+        assertThat(registry.weather()).isSameAs(registry.weather());
+    }
+
+    @Test
+    @DisplayName("Should give search the provider tools, the date and time tools and the conversation's memory")
+    void search_ShouldCombineToolsAndMemory() {
+        when(chatModel.call(any(Prompt.class)))
+                .thenReturn(new ChatResponse(List.of(new Generation(new AssistantMessage("42")))));
+
+        registry.search().prompt("Score of Jane?")
+                .advisors(a -> a.param(ChatMemory.CONVERSATION_ID, "jane"))
+                .call()
+                .content();
+
+        ArgumentCaptor<Prompt> prompt = ArgumentCaptor.forClass(Prompt.class);
+        verify(chatModel).call(prompt.capture());
+        assertThat(toolCallbacks(prompt.getValue())).extracting(callback -> callback.getToolDefinition().name())
+                .containsExactlyInAnyOrder("customerScore", "getCurrentDateTime", "setAlarm");
+    }
+
+    @Test
+    @DisplayName("Should add the question and the whole streamed answer to the conversation's memory once the stream completes")
+    void search_Stream_ShouldPersistAnswerToMemory() {
+        when(chatModel.stream(any(Prompt.class))).thenReturn(Flux.just("Jane", "'s score", " is 42.")
+                .map(text -> new ChatResponse(List.of(new Generation(new AssistantMessage(text))))));
+
+        List<String> fragments = registry.search().prompt("Score of Jane?")
+                .advisors(a -> a.param(ChatMemory.CONVERSATION_ID, "jane"))
+                .stream()
+                .content()
+                .collectList()
+                .block();
+
+        assertThat(fragments).containsExactly("Jane", "'s score", " is 42.");
+        assertThat(chatMemory.get("jane")).extracting(Message::getText)
+                .containsExactly("Score of Jane?", "Jane's score is 42.");
+    }
+
+    private static List<ToolCallback> toolCallbacks(Prompt prompt) {
+        return ((ToolCallingChatOptions) prompt.getOptions()).getToolCallbacks();
+    }
+}
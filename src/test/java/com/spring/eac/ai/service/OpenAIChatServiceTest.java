@@ -0,0 +1,128 @@
+package com.spring.eac.ai.service;
+
+import com.spring.eac.ai.bootstrap.VectorStoreWarmup;
+import com.spring.eac.ai.cache.SemanticCache;
+import com.spring.eac.ai.exception.VectorStoreWarmingException;
+import com.spring.eac.ai.model.Answer;
+import com.spring.eac.ai.model.CapitalWithInfo;
+import com.spring.eac.ai.model.GetCapitalResponse;
+import com.spring.eac.ai.model.Question;
+import com.spring.eac.ai.property.ApplicationProperties;
+import com.spring.eac.ai.property.ResourceProperties;
+import com.spring.eac.ai.retrieval.ContextPacker;
+import com.spring.eac.ai.retrieval.MmrReranker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.document.Document;
+import org.springframework.core.io.ClassPathResource;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OpenAIChatServiceTest {
+
+    @Mock
+    private ChatModel chatModel;
+    @Mock
+    private MmrReranker mmrReranker;
+    @Mock
+    private ChatClientRegistry chatClientRegistry;
+    @Mock
+    private SemanticCache<Answer> answerCache;
+    @Mock
+    private SemanticCache<GetCapitalResponse> capitalCache;
+    @Mock
+    private SemanticCache<CapitalWithInfo> capitalWithInfoCache;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ApplicationProperties applicationProperties = new ApplicationProperties();
+    private VectorStoreWarmup vectorStoreWarmup;
+    private OpenAIChatService service;
+
+    @BeforeEach
+    void setUp() {
+        ResourceProperties resourceProperties = new ResourceProperties();
+        resourceProperties.setRagPromptTemplate(new ClassPathResource("templates/rag-prompt-template-meta.st"));
+        resourceProperties.setSystemMessageTemplate(new ClassPathResource("templates/system-message.st"));
+        vectorStoreWarmup = new VectorStoreWarmup(applicationProperties, meterRegistry);
+        service = new OpenAIChatService(chatModel, mmrReranker, ContextPacker.builder().build(), chatClientRegistry,
+                resourceProperties, vectorStoreWarmup, applicationProperties, answerCache, capitalCache,
+                capitalWithInfoCache, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should stream the fragments of the RAG answer and record the aggregated usage once")
+    void streamAnswer_ShouldStreamFragmentsAndRecordUsage() {
+        when(mmrReranker.retrieve(any(), any())).thenReturn(List.of(new Document("The Sportsman 212 weighs 3,458 lbs")));
+        when(chatModel.stream(any(Prompt.class))).thenReturn(Flux.just(
+                fragment("It", null),
+                fragment(" weighs", null),
+                fragment(" 3,458 lbs", new DefaultUsage(120, 3))));
+
+        List<String> fragments = service.streamAnswer(new Question("How heavy is the Sportsman 212?")).collectList().block();
+
+        assertThat(fragments).containsExactly("It", " weighs", " 3,458 lbs");
+        ArgumentCaptor<Prompt> prompt = ArgumentCaptor.forClass(Prompt.class);
+        verify(chatModel).stream(prompt.capture());
+        assertThat(prompt.getValue().getUserMessage().getText())
+                .contains("How heavy is the Sportsman 212?", "The Sportsman 212 weighs 3,458 lbs");
+        assertThat(meterRegistry.get("llm.call").tag("endpoint", "answer-stream").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("llm.tokens").tags("endpoint", "answer-stream", "type", "prompt")
+                .summary().totalAmount()).isEqualTo(120);
+    }
+
+    @Test
+    @DisplayName("Should stream the warm-up message without calling the model while the store loads")
+    void streamAnswer_WhileWarmingWithMessage_ShouldStreamMessage() {
+        applicationProperties.getWarmup().setAskBehavior(ApplicationProperties.Warmup.AskBehavior.MESSAGE);
+        vectorStoreWarmup.expect();
+
+        List<String> fragments = service.streamAnswer(new Question("How heavy is the Sportsman 212?")).collectList().block();
+
+        assertThat(fragments).containsExactly(applicationProperties.getWarmup().getMessage());
+        verify(chatModel, never()).stream(any(Prompt.class));
+        assertThat(meterRegistry.find("llm.call").timers()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should reject before returning a stream while the store loads")
+    void streamAnswer_WhileWarmingWithReject_ShouldThrow() {
+        applicationProperties.getWarmup().setAskBehavior(ApplicationProperties.Warmup.AskBehavior.REJECT);
+        vectorStoreWarmup.expect();
+
+        assertThatThrownBy(() -> service.streamAnswer(new Question("How heavy is the Sportsman 212?")))
+                .isInstanceOf(VectorStoreWarmingException.class)
+                .hasMessage(applicationProperties.getWarmup().getMessage());
+        verify(chatModel, never()).stream(any(Prompt.class));
+    }
+
+    private static ChatResponse fragment(String text, DefaultUsage usage) {
+        ChatResponseMetadata.Builder metadata = ChatResponseMetadata.builder();
+        if (usage != null) {
+            metadata.usage(usage);
+        }
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))), metadata.build());
+    }
+}
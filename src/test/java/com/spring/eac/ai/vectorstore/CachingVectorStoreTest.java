@@ -0,0 +1,127 @@
+package com.spring.eac.ai.vectorstore;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CachingVectorStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private VectorStore delegate;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Should answer repeated searches from the cache and key them by normalized query, top k, threshold and filter")
+    void similaritySearch_ShouldCacheByRequest() {
+        when(delegate.similaritySearch(any(SearchRequest.class))).thenReturn(List.of(new Document("boat", "A boat", Map.of())));
+        CachingVectorStore store = CachingVectorStore.builder(delegate).meterRegistry(meterRegistry).build();
+
+        store.similaritySearch(SearchRequest.builder().query("Which boat?").topK(4).build());
+        List<Document> cached = store.similaritySearch(SearchRequest.builder().query("  which   BOAT? ").topK(4).build());
+        store.similaritySearch(SearchRequest.builder().query("Which boat?").topK(8).build());
+        store.similaritySearch(SearchRequest.builder().query("Which boat?").topK(4).similarityThreshold(0.5).build());
+        store.similaritySearch(SearchRequest.builder().query("Which boat?").topK(4)
+                .filterExpression(new FilterExpressionBuilder().eq("source_file", "brochure-1.pdf").build()).build());
+
+        assertThat(cached).extracting(Document::getId).containsExactly("boat");
+        verify(delegate, times(4)).similaritySearch(any(SearchRequest.class));
+        assertThat(meterRegistry.get("vectorstore.search.cache.hits").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("vectorstore.search.cache.misses").counter().count()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Should never serve an entry cached before an add or delete")
+    void similaritySearch_AfterWrite_ShouldSearchAgain() {
+        when(delegate.similaritySearch(any(SearchRequest.class))).thenReturn(List.of());
+        CachingVectorStore store = CachingVectorStore.builder(delegate).meterRegistry(meterRegistry).build();
+        SearchRequest request = SearchRequest.builder().query("boat").build();
+
+        store.similaritySearch(request);
+        store.add(List.of(new Document("boat", "A boat", Map.of())));
+        store.similaritySearch(request);
+        store.delete(List.of("boat"));
+        store.similaritySearch(request);
+        store.similaritySearch(request);
+
+        verify(delegate, times(3)).similaritySearch(any(SearchRequest.class));
+        assertThat(store.version()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should give every caller its own copies, so changing a result never alters a cached one")
+    void similaritySearch_ShouldReturnCopiesOfCachedDocuments() {
+        Document boat = Document.builder().id("boat").text("A boat").metadata(Map.of("weight", 3458)).score(0.9).build();
+        when(delegate.similaritySearch(any(SearchRequest.class))).thenReturn(List.of(boat));
+        CachingVectorStore store = CachingVectorStore.builder(delegate).meterRegistry(meterRegistry).build();
+        SearchRequest request = SearchRequest.builder().query("Which boat?").build();
+
+        Document first = store.similaritySearch(request).get(0);
+        first.getMetadata().put("weight", 0);
+        Document second = store.similaritySearch(request).get(0);
+        second.getMetadata().put("reranked", true);
+        Document third = store.similaritySearch(request).get(0);
+
+        assertThat(third).isNotSameAs(second);
+        assertThat(third.getMetadata()).containsOnly(Map.entry("weight", 3458));
+        assertThat(third.getScore()).isEqualTo(0.9);
+        verify(delegate, times(1)).similaritySearch(any(SearchRequest.class));
+    }
+
+    @Test
+    @DisplayName("Should follow the version of a local store written directly, as ingestion does")
+    void similaritySearch_WithMappedVectorStore_ShouldSeeDirectWrites() {
+        MappedVectorStore mapped = MappedVectorStore.builder(new MappedVectorStoreTest.KeywordEmbeddingModel())
+                .path(tempDir.resolve("vectorstore.json"))
+                .build();
+        mapped.add(List.of(new Document("truck", "A trailer to tow your truck", Map.of())));
+        CachingVectorStore store = CachingVectorStore.builder(mapped).meterRegistry(meterRegistry).build();
+        SearchRequest request = SearchRequest.builder().query("boat").topK(1).build();
+
+        assertThat(store.similaritySearch(request)).extracting(Document::getId).containsExactly("truck");
+        mapped.add(List.of(new Document("boat", "A boat for the lake", Map.of())));
+
+        assertThat(store.similaritySearch(request)).extracting(Document::getId).containsExactly("boat");
+        assertThat(meterRegistry.get("vectorstore.search.cache.hits").counter().count()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used entries beyond the maximum size")
+    void similaritySearch_BeyondMaxEntries_ShouldEvictLeastRecentlyUsed() {
+        when(delegate.similaritySearch(any(SearchRequest.class))).thenReturn(List.of());
+        CachingVectorStore store = CachingVectorStore.builder(delegate).maxEntries(2).meterRegistry(meterRegistry).build();
+
+        store.similaritySearch(SearchRequest.builder().query("boat").build());
+        store.similaritySearch(SearchRequest.builder().query("truck").build());
+        store.similaritySearch(SearchRequest.builder().query("boat").build());
+        store.similaritySearch(SearchRequest.builder().query("lake").build());
+        store.similaritySearch(SearchRequest.builder().query("boat").build());
+
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(meterRegistry.get("vectorstore.search.cache.evictions").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("vectorstore.search.cache.hits").counter().count()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,152 @@
+package com.spring.eac.ai.vectorstore;
+
+import com.spring.eac.ai.vectorstore.kernel.ScalarSimilarityKernel;
+import com.spring.eac.ai.vectorstore.kernel.SimilarityKernel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HnswIndexTest {
+
+    private static final int DIMENSIONS = 32;
+    private static final int ROWS = 2_000;
+
+    @TempDir
+    Path tempDir;
+
+    private final SimilarityKernel kernel = new ScalarSimilarityKernel();
+    private final RowVectors rowVectors = new ArrayRowVectors();
+
+    private float[][] vectors;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(7);
+        vectors = new float[ROWS][DIMENSIONS];
+        for (float[] vector : vectors) {
+            for (int i = 0; i < DIMENSIONS; i++) {
+                vector[i] = (float) random.nextGaussian();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should find nearly all exact top-4 neighbours")
+    void search_ShouldMatchBruteForceRecall() {
+        HnswIndex index = buildIndex();
+
+        int hits = 0;
+        int queries = 100;
+        for (int q = 0; q < queries; q++) {
+            float[] query = vectors[q * 7];
+            List<Integer> expected = bruteForce(query, 4, row -> true);
+            List<Integer> actual = index.search(query, 4, row -> true).stream().map(HnswIndex.Neighbor::node).toList();
+            hits += (int) actual.stream().filter(expected::contains).count();
+        }
+
+        assertThat(hits / (double) (queries * 4)).isGreaterThan(0.95);
+    }
+
+    @Test
+    @DisplayName("Should skip rejected nodes and still return k results")
+    void search_WithRejectedNodes_ShouldReturnOnlyAcceptedNodes() {
+        HnswIndex index = buildIndex();
+
+        List<HnswIndex.Neighbor> results = index.search(vectors[10], 4, row -> row % 2 == 1);
+
+        assertThat(results).hasSize(4).allMatch(neighbor -> neighbor.node() % 2 == 1);
+    }
+
+    @Test
+    @DisplayName("Should renumber surviving nodes when rows are compacted")
+    void compact_ShouldDropRemovedNodes() {
+        HnswIndex index = buildIndex();
+        int[] newIds = new int[ROWS];
+        int survivors = 0;
+        for (int row = 0; row < ROWS; row++) {
+            newIds[row] = row % 3 == 0 ? -1 : survivors++;
+        }
+        float[][] compacted = IntStream.range(0, ROWS).filter(row -> row % 3 != 0).mapToObj(row -> vectors[row])
+                .toArray(float[][]::new);
+        vectors = compacted;
+
+        index.compact(newIds, survivors);
+
+        assertThat(index.size()).isEqualTo(survivors);
+        List<HnswIndex.Neighbor> results = index.search(vectors[5], 1, row -> true);
+        assertThat(results).extracting(HnswIndex.Neighbor::node).containsExactly(5);
+    }
+
+    @Test
+    @DisplayName("Should read back a persisted graph and reject one built with other parameters")
+    void writeThenRead_ShouldRestoreGraph() throws Exception {
+        HnswIndex index = buildIndex();
+        Path file = tempDir.resolve("index.hnsw");
+        index.write(file);
+
+        HnswIndex restored = HnswIndex.read(file, 8, 64, 32, ROWS, rowVectors, kernel);
+
+        assertThat(restored).isNotNull();
+        assertThat(restored.search(vectors[42], 4, row -> true))
+                .isEqualTo(index.search(vectors[42], 4, row -> true));
+        assertThat(HnswIndex.read(file, 16, 64, 32, ROWS, rowVectors, kernel)).isNull();
+        assertThat(HnswIndex.read(file, 8, 64, 32, ROWS + 1, rowVectors, kernel)).isNull();
+    }
+
+    private HnswIndex buildIndex() {
+        HnswIndex index = new HnswIndex(8, 64, 32, rowVectors, kernel);
+        for (int row = 0; row < ROWS; row++) {
+            index.add(row);
+        }
+        return index;
+    }
+
+    private final class ArrayRowVectors implements RowVectors {
+
+        @Override
+        public int dimensions() {
+            return DIMENSIONS;
+        }
+
+        @Override
+        public void read(int row, float[] dst) {
+            System.arraycopy(vectors[row], 0, dst, 0, DIMENSIONS);
+        }
+
+        @Override
+        public float norm(int row) {
+            return kernel.norm(vectors[row]);
+        }
+    }
+
+    private List<Integer> bruteForce(float[] query, int k, IntPredicate accept) {
+        return IntStream.range(0, vectors.length)
+                .filter(accept)
+                .boxed()
+                .sorted(Comparator.comparingDouble((Integer row) -> cosine(query, vectors[row])).reversed())
+                .limit(k)
+                .toList();
+    }
+
+    private static double cosine(float[] x, float[] y) {
+        double dot = 0;
+        double normX = 0;
+        double normY = 0;
+        for (int i = 0; i < x.length; i++) {
+            dot += x[i] * y[i];
+            normX += x[i] * x[i];
+            normY += y[i] * y[i];
+        }
+        return dot / (Math.sqrt(normX) * Math.sqrt(normY));
+    }
+}
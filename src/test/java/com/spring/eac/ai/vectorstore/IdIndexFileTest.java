@@ -0,0 +1,47 @@
+package com.spring.eac.ai.vectorstore;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdIndexFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Should find the row of every written id and nothing for unknown ids")
+    void find_ShouldReturnRowOfEveryId() throws Exception {
+        List<String> ids = IntStream.range(0, 5_000).mapToObj(i -> "chunk-" + i).toList();
+        Path path = tempDir.resolve("vectorstore.ids");
+        try (IdIndexFile.Writer writer = IdIndexFile.writer(path, ids.size(), 42)) {
+            for (int row = 0; row < ids.size(); row++) {
+                writer.write(ids.get(row), row);
+            }
+        }
+
+        IdIndexFile index = IdIndexFile.open(path);
+
+        assertThat(index.count()).isEqualTo(ids.size());
+        assertThat(index.stamp()).isEqualTo(42);
+        for (int row = 0; row < ids.size(); row++) {
+            assertThat(index.find(ids.get(row), ids::get)).isEqualTo(row);
+        }
+        assertThat(index.find("chunk-5000", ids::get)).isEqualTo(-1);
+    }
+
+    @Test
+    @DisplayName("Should open an empty index")
+    void find_OnEmptyIndex_ShouldReturnMinusOne() throws Exception {
+        Path path = tempDir.resolve("empty.ids");
+        IdIndexFile.writer(path, 0, 0).close();
+
+        assertThat(IdIndexFile.open(path).find("boat", row -> "boat")).isEqualTo(-1);
+    }
+}
@@ -0,0 +1,455 @@
+package com.spring.eac.ai.vectorstore;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MappedVectorStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private EmbeddingModel embeddingModel;
+
+    @BeforeEach
+    void setUp() {
+        embeddingModel = new KeywordEmbeddingModel();
+    }
+
+    @Test
+    @DisplayName("Should return the closest documents first with their text, metadata and score")
+    void similaritySearch_ShouldRankByCosineSimilarity() {
+        MappedVectorStore store = newStore();
+        store.add(documents());
+
+        List<Document> results = store.similaritySearch(SearchRequest.builder().query("boat").topK(2).build());
+
+        assertThat(results).extracting(Document::getId).containsExactly("boat", "boat-trailer");
+        assertThat(results.get(0).getMetadata()).containsEntry("source_file", "brochure-1.pdf");
+        assertThat(results.get(0).getScore()).isGreaterThan(results.get(1).getScore());
+    }
+
+    @Test
+    @DisplayName("Should find the same documents after saving and mapping the files again")
+    void save_ThenLoad_ShouldRestoreDocuments() {
+        MappedVectorStore store = newStore();
+        store.add(documents());
+        store.save();
+
+        MappedVectorStore reloaded = newStore();
+        assertThat(reloaded.exists()).isTrue();
+        reloaded.load();
+
+        assertThat(reloaded.size()).isEqualTo(3);
+        List<Document> results = reloaded.similaritySearch(SearchRequest.builder().query("truck").topK(1).build());
+        assertThat(results).extracting(Document::getText).containsExactly("A trailer to tow your truck");
+        assertThat(results.get(0).getMetadata()).containsEntry("weight", 3458);
+    }
+
+    @Test
+    @DisplayName("Should drop deleted and replaced rows from searches and from the saved files")
+    void delete_ShouldRemoveDocumentsBeforeAndAfterSave() {
+        MappedVectorStore store = newStore();
+        store.add(documents());
+        store.save();
+
+        store.delete(List.of("boat"));
+        store.add(List.of(new Document("truck", "A truck with a boat", Map.of())));
+
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(store.similaritySearch(SearchRequest.builder().query("boat").topK(3).build()))
+                .extracting(Document::getId)
+                .containsExactlyInAnyOrder("boat-trailer", "truck");
+
+        store.save();
+        assertThat(newStore()).satisfies(reloaded -> {
+            reloaded.load();
+            assertThat(reloaded.size()).isEqualTo(2);
+        });
+    }
+
+    @Test
+    @DisplayName("Should delete every document matching a filter expression")
+    void delete_WithFilterExpression_ShouldRemoveMatchingDocuments() {
+        MappedVectorStore store = newStore();
+        store.add(documents());
+        store.save();
+
+        store.delete(new FilterExpressionBuilder().eq("source_file", "brochure-2.pdf").build());
+
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(store.similaritySearch(SearchRequest.builder().query("truck").topK(3).build()))
+                .extracting(Document::getId)
+                .containsExactly("boat");
+    }
+
+    @Test
+    @DisplayName("Should apply filter expressions against the stored metadata")
+    void similaritySearch_WithFilterExpression_ShouldOnlyReturnMatchingDocuments() {
+        MappedVectorStore store = newStore();
+        store.add(documents());
+        store.save();
+
+        List<Document> results = store.similaritySearch(SearchRequest.builder()
+                .query("boat")
+                .topK(3)
+                .filterExpression("source_file == 'brochure-2.pdf'")
+                .build());
+
+        assertThat(results).extracting(Document::getId).containsExactlyInAnyOrder("boat-trailer", "truck");
+    }
+
+    @Test
+    @DisplayName("Should plan filters on indexed metadata and return the same documents as the SpEL scan")
+    void similaritySearch_WithMetadataIndex_ShouldMatchUnindexedResults() {
+        MappedVectorStore indexed = MappedVectorStore.builder(embeddingModel)
+                .path(tempDir.resolve("indexed.json"))
+                .hnsw(4, 16, 8)
+                .metadataIndex(List.of("source_file", "weight"))
+                .preFilterSelectivity(0.5)
+                .build();
+        MappedVectorStore scanned = newStore();
+        for (MappedVectorStore store : List.of(indexed, scanned)) {
+            store.add(documents());
+            store.save();
+            store.add(List.of(new Document("lake", "A lake for the boat", Map.of("source_file", "brochure-3.pdf"))));
+        }
+
+        for (String filter : List.of("source_file == 'brochure-3.pdf'", "source_file in ['brochure-1.pdf', 'brochure-3.pdf']",
+                "weight >= 3000 && source_file == 'brochure-2.pdf'", "source_file != 'brochure-2.pdf'")) {
+            SearchRequest request = SearchRequest.builder().query("boat").topK(4).filterExpression(filter).build();
+            assertThat(indexed.similaritySearch(request))
+                    .as(filter)
+                    .extracting(Document::getId)
+                    .containsExactlyElementsOf(scanned.similaritySearch(request).stream().map(Document::getId).toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Should look up embeddings by id in the saved id index and among rows added since, rebuilding a missing index")
+    void embeddings_ShouldFindSavedAndAppendedRowsById() throws Exception {
+        MappedVectorStore store = newStore();
+        store.add(documents());
+        store.save();
+        assertThat(Files.exists(tempDir.resolve("vectorstore.ids"))).isTrue();
+
+        store.delete(List.of("boat"));
+        store.add(List.of(new Document("lake", "A lake", Map.of())));
+
+        assertThat(store.embeddings(List.of("boat", "truck", "lake", "unknown")))
+                .containsOnlyKeys("truck", "lake")
+                .hasEntrySatisfying("lake", embedding -> assertThat(embedding).isEqualTo(embeddingModel.embed("A lake")));
+
+        store.save();
+        Files.delete(tempDir.resolve("vectorstore.ids"));
+        MappedVectorStore reloaded = newStore();
+        reloaded.load();
+        reloaded.add(List.of(new Document("truck", "A truck with a boat", Map.of())));
+
+        assertThat(Files.exists(tempDir.resolve("vectorstore.ids"))).isTrue();
+        assertThat(reloaded.size()).isEqualTo(3);
+        assertThat(reloaded.embeddings(List.of("boat-trailer", "truck")).get("truck"))
+                .isEqualTo(embeddingModel.embed("A truck with a boat"));
+    }
+
+    @Test
+    @DisplayName("Should finish the moves of a save that crashed after writing its commit file")
+    void load_AfterCrashDuringSwap_ShouldFinishCommittedSave() throws Exception {
+        MappedVectorStore store = newStore();
+        store.add(documents());
+        store.save();
+        Path previous = Files.createDirectory(tempDir.resolve("previous"));
+        for (String suffix : List.of(".docs", ".ids")) {
+            Files.copy(tempDir.resolve("vectorstore" + suffix), previous.resolve("vectorstore" + suffix));
+        }
+        store.add(List.of(new Document("lake", "A lake", Map.of())));
+        store.save();
+
+        // Crash after the vectors were moved: the new documents and ids are still temporary files
+        int stamp = DocumentFile.open(tempDir.resolve("vectorstore.docs"), new ObjectMapper()).stamp();
+        for (String suffix : List.of(".docs", ".ids")) {
+            Files.move(tempDir.resolve("vectorstore" + suffix), tempDir.resolve("vectorstore" + suffix + ".tmp"));
+            Files.copy(previous.resolve("vectorstore" + suffix), tempDir.resolve("vectorstore" + suffix));
+        }
+        Files.writeString(tempDir.resolve("vectorstore.commit"), Integer.toString(stamp));
+
+        MappedVectorStore reloaded = newStore();
+        reloaded.load();
+
+        assertThat(reloaded.size()).isEqualTo(4);
+        assertThat(reloaded.embeddings(List.of("lake"))).containsOnlyKeys("lake");
+        try (var files = Files.list(tempDir)) {
+            assertThat(files.map(path -> path.getFileName().toString()))
+                    .noneMatch(name -> name.endsWith(".tmp") || name.endsWith(".commit"));
+        }
+    }
+
+    @Test
+    @DisplayName("Should refuse to map a vector file saved with another document file")
+    void load_WithVectorFileOfAnotherSave_ShouldFail() throws Exception {
+        MappedVectorStore store = newStore();
+        store.add(documents());
+        store.save();
+        Path previous = Files.copy(tempDir.resolve("vectorstore.vec"), tempDir.resolve("previous.vec"));
+        store.delete(List.of("boat"));
+        store.add(List.of(new Document("lake", "A lake", Map.of())));
+        store.save();
+
+        Files.move(previous, tempDir.resolve("vectorstore.vec"), StandardCopyOption.REPLACE_EXISTING);
+
+        assertThatThrownBy(() -> newStore().load())
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("vectorstore.vec");
+    }
+
+    @Test
+    @DisplayName("Should migrate a JSON file written by SimpleVectorStore without embedding again")
+    void importJson_ShouldMigrateSimpleVectorStoreFile() {
+        SimpleVectorStore legacy = SimpleVectorStore.builder(embeddingModel).build();
+        legacy.add(documents());
+        Path json = tempDir.resolve("vectorstore.json");
+        legacy.save(json.toFile());
+
+        MappedVectorStore store = newStore();
+        store.importJson(json.toFile());
+        store.save();
+
+        assertThat(Files.exists(tempDir.resolve("vectorstore.vec"))).isTrue();
+        assertThat(Files.exists(tempDir.resolve("vectorstore.docs"))).isTrue();
+        assertThat(store.size()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Should answer from the HNSW index and persist it next to the store files")
+    void similaritySearch_WithHnsw_ShouldMatchScanAndPersistIndex() {
+        MappedVectorStore store = MappedVectorStore.builder(embeddingModel)
+                .path(tempDir.resolve("vectorstore.json"))
+                .hnsw(4, 16, 8)
+                .build();
+        store.add(documents());
+        store.delete(List.of("truck"));
+        store.save();
+
+        assertThat(Files.exists(tempDir.resolve("vectorstore.hnsw"))).isTrue();
+        assertThat(store.similaritySearch(SearchRequest.builder().query("boat").topK(3).build()))
+                .extracting(Document::getId)
+                .containsExactly("boat", "boat-trailer");
+    }
+
+    @Test
+    @DisplayName("Should write int8 codes on save and re-rank quantized candidates with the full-precision scores")
+    void similaritySearch_WithQuantization_ShouldMatchFullPrecisionScores() {
+        MappedVectorStore exact = newStore();
+        exact.add(documents());
+        exact.save();
+        List<Document> expected = exact.similaritySearch(SearchRequest.builder().query("boat").topK(2).build());
+
+        MappedVectorStore quantized = MappedVectorStore.builder(embeddingModel)
+                .path(tempDir.resolve("vectorstore.json"))
+                .quantization(2)
+                .build();
+        quantized.load();
+        List<Document> results = quantized.similaritySearch(SearchRequest.builder().query("boat").topK(2).build());
+
+        assertThat(Files.exists(tempDir.resolve("vectorstore.q8"))).isTrue();
+        assertThat(results).extracting(Document::getId).containsExactly("boat", "boat-trailer");
+        assertThat(results).extracting(Document::getScore).isEqualTo(expected.stream().map(Document::getScore).toList());
+    }
+
+    @Test
+    @DisplayName("Should merge the top-k of parallel shards into the same results as a sequential scan")
+    void similaritySearch_WithParallelSearch_ShouldMatchSequentialScan() {
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            MappedVectorStore sharded = MappedVectorStore.builder(embeddingModel)
+                    .path(tempDir.resolve("sharded.json"))
+                    .quantization(2)
+                    .parallelSearch(4, 50)
+                    .searchPool(pool)
+                    .build();
+            MappedVectorStore sequential = MappedVectorStore.builder(embeddingModel)
+                    .path(tempDir.resolve("sequential.json"))
+                    .quantization(2)
+                    .build();
+            Random random = new Random(42);
+            List<Document> saved = new ArrayList<>();
+            List<float[]> embeddings = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                saved.add(new Document("doc-" + i, "document " + i, Map.of("source_file", "brochure-" + i % 3 + ".pdf")));
+                float[] embedding = new float[6];
+                for (int d = 0; d < embedding.length; d++) {
+                    embedding[d] = (float) random.nextGaussian();
+                }
+                embeddings.add(embedding);
+            }
+            for (MappedVectorStore store : List.of(sharded, sequential)) {
+                store.add(saved.subList(0, 700), embeddings.subList(0, 700));
+                store.save();
+                store.add(saved.subList(700, 1000), embeddings.subList(700, 1000));
+                store.delete(List.of("doc-3", "doc-800"));
+            }
+
+            for (SearchRequest request : List.of(
+                    SearchRequest.builder().query("boat").topK(10).similarityThresholdAll().build(),
+                    SearchRequest.builder().query("tow trailer").topK(7).filterExpression("source_file == 'brochure-1.pdf'").build())) {
+                assertThat(sharded.similaritySearch(request))
+                        .extracting(Document::getId)
+                        .containsExactlyElementsOf(sequential.similaritySearch(request).stream().map(Document::getId).toList());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Should recover logged adds and deletes after a crash and cut off a torn log tail")
+    void load_WithWriteAheadLog_ShouldReplayChangesSinceLastSnapshot() throws Exception {
+        MappedVectorStore store = loggedStore();
+        store.add(documents());
+        store.save();
+        store.add(List.of(new Document("lake", "A lake", Map.of("source_file", "brochure-3.pdf"))));
+        store.delete(List.of("truck"));
+        // Crash in the middle of the next append
+        Files.write(tempDir.resolve("vectorstore.wal"), new byte[]{0, 0, 1, 0, 42}, StandardOpenOption.APPEND);
+
+        MappedVectorStore recovered = loggedStore();
+        assertThat(recovered.exists()).isTrue();
+        recovered.load();
+
+        assertThat(recovered.size()).isEqualTo(3);
+        assertThat(recovered.similaritySearch(SearchRequest.builder().query("lake").topK(1).build()))
+                .extracting(Document::getId)
+                .containsExactly("lake");
+        recovered.add(List.of(new Document("tow", "tow", Map.of())));
+        MappedVectorStore again = loggedStore();
+        again.load();
+        assertThat(again.size()).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Should keep every write made while snapshots rewrite the files and truncate the log behind them")
+    void save_WithConcurrentWrites_ShouldLoseNothing() throws Exception {
+        MappedVectorStore store = loggedStore();
+        store.add(documents());
+        ExecutorService writers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int writer = 0; writer < 4; writer++) {
+                int first = writer * 50;
+                futures.add(writers.submit(() -> {
+                    for (int i = first; i < first + 50; i++) {
+                        store.add(List.of(new Document("doc-" + i, "boat " + i, Map.of())));
+                        if (i % 10 == 0) {
+                            store.delete(List.of("doc-" + (i - 1)));
+                        }
+                    }
+                }));
+            }
+            for (int i = 0; i < 5; i++) {
+                store.save();
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            writers.shutdown();
+        }
+        store.save();
+        assertThat(Files.size(tempDir.resolve("vectorstore.wal"))).isZero();
+        assertThat(Files.exists(tempDir.resolve("vectorstore.wal.snapshot"))).isFalse();
+        store.close();
+
+        MappedVectorStore reloaded = loggedStore();
+        reloaded.load();
+        // 3 documents plus 200 added, minus doc-9, doc-19, ... whenever the previous id was already written
+        long deletes = IntStream.range(0, 200).filter(i -> i % 10 == 0 && i % 50 != 0).count();
+        assertThat(reloaded.size()).isEqualTo(store.size()).isEqualTo(203 - deletes);
+    }
+
+    private MappedVectorStore loggedStore() {
+        return MappedVectorStore.builder(embeddingModel)
+                .path(tempDir.resolve("vectorstore.json"))
+                .hnsw(4, 16, 8)
+                .writeAheadLog(Duration.ZERO)
+                .build();
+    }
+
+    private MappedVectorStore newStore() {
+        return MappedVectorStore.builder(embeddingModel)
+                .path(tempDir.resolve("vectorstore.json"))
+                .build();
+    }
+
+    private static List<Document> documents() {
+        return List.of(
+                new Document("boat", "A boat for the lake", Map.of("source_file", "brochure-1.pdf", "weight", 3458)),
+                new Document("boat-trailer", "A trailer to tow your boat", Map.of("source_file", "brochure-2.pdf")),
+                new Document("truck", "A trailer to tow your truck", Map.of("source_file", "brochure-2.pdf", "weight", 3458)));
+    }
+
+    /**
+     * Deterministic embedding with one dimension per keyword, so the tests run offline.
+     */
+    static class KeywordEmbeddingModel implements EmbeddingModel {
+
+        private static final List<String> KEYWORDS = List.of("boat", "trailer", "truck", "lake", "tow");
+
+        @Override
+        public EmbeddingResponse call(EmbeddingRequest request) {
+            List<Embedding> embeddings = new ArrayList<>();
+            for (int i = 0; i < request.getInstructions().size(); i++) {
+                embeddings.add(new Embedding(embed(request.getInstructions().get(i)), i));
+            }
+            return new EmbeddingResponse(embeddings);
+        }
+
+        @Override
+        public float[] embed(String text) {
+            float[] embedding = new float[KEYWORDS.size() + 1];
+            String lowerCase = text.toLowerCase();
+            for (int i = 0; i < KEYWORDS.size(); i++) {
+                embedding[i] = lowerCase.contains(KEYWORDS.get(i)) ? 1 : 0;
+            }
+            embedding[KEYWORDS.size()] = 0.1f;
+            return embedding;
+        }
+
+        @Override
+        public float[] embed(Document document) {
+            return embed(document.getText());
+        }
+
+        @Override
+        public int dimensions() {
+            return KEYWORDS.size() + 1;
+        }
+    }
+}
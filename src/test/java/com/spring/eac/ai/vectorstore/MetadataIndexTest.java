@@ -0,0 +1,70 @@
+package com.spring.eac.ai.vectorstore;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.vectorstore.filter.Filter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionTextParser;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetadataIndexTest {
+
+    private final FilterExpressionTextParser parser = new FilterExpressionTextParser();
+    private MetadataIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new MetadataIndex(List.of("source_file", "weight"));
+        index.add(0, Map.of("source_file", "212.pdf", "weight", 3458));
+        index.add(1, Map.of("source_file", "232.pdf", "weight", 5001));
+        index.add(2, Map.of("source_file", "322.pdf", "weight", 12469.0));
+        index.add(3, Map.of("source_file", "towvehicles.txt", "weight", "unknown"));
+        index.add(4, Map.of("source_file", "212.pdf", "color", "white"));
+    }
+
+    @Test
+    @DisplayName("Should answer equality and IN filters exactly from the postings")
+    void plan_WithEqualityAndIn_ShouldReturnExactRows() {
+        assertThat(plan("source_file == '212.pdf'")).isEqualTo(new MetadataIndex.Plan(rows(0, 4), true));
+        assertThat(plan("source_file in ['232.pdf', '322.pdf', 'missing.pdf']"))
+                .isEqualTo(new MetadataIndex.Plan(rows(1, 2), true));
+        assertThat(plan("weight == 12469")).isEqualTo(new MetadataIndex.Plan(rows(2), true));
+    }
+
+    @Test
+    @DisplayName("Should compare ranges numerically and never match values of another kind")
+    void plan_WithRange_ShouldStayWithinValueKind() {
+        assertThat(plan("weight > 5000")).isEqualTo(new MetadataIndex.Plan(rows(1, 2), true));
+        assertThat(plan("weight <= 5001")).isEqualTo(new MetadataIndex.Plan(rows(0, 1), true));
+        assertThat(plan("source_file >= '3'")).isEqualTo(new MetadataIndex.Plan(rows(2, 3), true));
+    }
+
+    @Test
+    @DisplayName("Should intersect AND, fall back to a superset for unindexed keys and give up on negations")
+    void plan_WithCompoundExpressions_ShouldCombinePlans() {
+        assertThat(plan("source_file == '212.pdf' && weight < 4000")).isEqualTo(new MetadataIndex.Plan(rows(0), true));
+        assertThat(plan("source_file == '212.pdf' && color == 'white'")).isEqualTo(new MetadataIndex.Plan(rows(0, 4), false));
+        assertThat(plan("(weight > 10000 || source_file == 'towvehicles.txt')"))
+                .isEqualTo(new MetadataIndex.Plan(rows(2, 3), true));
+        assertThat(plan("source_file == '212.pdf' || color == 'white'")).isEqualTo(MetadataIndex.Plan.ALL);
+        assertThat(plan("source_file != '212.pdf'")).isEqualTo(MetadataIndex.Plan.ALL);
+    }
+
+    private MetadataIndex.Plan plan(String filter) {
+        Filter.Expression expression = parser.parse(filter);
+        return index.plan(expression);
+    }
+
+    private static BitSet rows(int... rows) {
+        BitSet bits = new BitSet();
+        for (int row : rows) {
+            bits.set(row);
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,108 @@
+package com.spring.eac.ai.vectorstore;
+
+import com.spring.eac.ai.vectorstore.kernel.ScalarSimilarityKernel;
+import com.spring.eac.ai.vectorstore.kernel.SimilarityKernel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntToDoubleFunction;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class QuantizedVectorFileTest {
+
+    private static final int DIMENSIONS = 256;
+    private static final int ROWS = 2_000;
+
+    @TempDir
+    Path tempDir;
+
+    private final SimilarityKernel kernel = new ScalarSimilarityKernel();
+    private float[][] vectors;
+    private QuantizedVectorFile file;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Random random = new Random(11);
+        vectors = new float[ROWS][DIMENSIONS];
+        for (float[] vector : vectors) {
+            for (int i = 0; i < DIMENSIONS; i++) {
+                vector[i] = (float) (random.nextGaussian() * 0.05 + (i % 7 == 0 ? 0.02 : 0));
+            }
+        }
+        Path path = tempDir.resolve("vectors.q8");
+        try (QuantizedVectorFile.Writer writer = QuantizedVectorFile.writer(path, DIMENSIONS, 42)) {
+            for (float[] vector : vectors) {
+                writer.write(vector);
+            }
+        }
+        file = QuantizedVectorFile.open(path);
+    }
+
+    @Test
+    @DisplayName("Should store one byte per dimension plus scale and offset per row")
+    void write_ShouldCutSizeByFour() throws Exception {
+        long floatBytes = (long) ROWS * DIMENSIONS * Float.BYTES;
+
+        assertThat(file.count()).isEqualTo(ROWS);
+        assertThat(file.stamp()).isEqualTo(42);
+        assertThat(Files.size(tempDir.resolve("vectors.q8"))).isLessThan(floatBytes / 4 + ROWS * 8L + 64);
+    }
+
+    @Test
+    @DisplayName("Should reconstruct every component within half a quantization step")
+    void read_ShouldReconstructWithinHalfStep() {
+        float[] restored = new float[DIMENSIONS];
+        for (int row = 0; row < ROWS; row += 97) {
+            file.read(row, restored);
+            for (int i = 0; i < DIMENSIONS; i++) {
+                assertThat(restored[i]).isCloseTo(vectors[row][i], within(file.scale(row) / 2 + 1e-6f));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep recall@4 above 99% when re-ranking 4x oversampled candidates")
+    void dot_WithReRanking_ShouldKeepRecall() {
+        Random random = new Random(3);
+        byte[] codes = new byte[DIMENSIONS];
+        int hits = 0;
+        int queries = 100;
+        for (int q = 0; q < queries; q++) {
+            float[] query = vectors[random.nextInt(ROWS)].clone();
+            for (int i = 0; i < DIMENSIONS; i++) {
+                query[i] += (float) (random.nextGaussian() * 0.02);
+            }
+            float querySum = kernel.sum(query);
+
+            List<Integer> exact = topK(4, row -> kernel.dot(query, vectors[row]) / kernel.norm(vectors[row]));
+            List<Integer> candidates = topK(16,
+                    row -> file.dot(row, query, querySum, codes, kernel) / kernel.norm(vectors[row]));
+            List<Integer> reRanked = candidates.stream()
+                    .sorted(Comparator.comparingDouble((Integer row) -> kernel.dot(query, vectors[row]) / kernel.norm(vectors[row]))
+                            .reversed())
+                    .limit(4)
+                    .toList();
+            hits += (int) reRanked.stream().filter(exact::contains).count();
+        }
+
+        assertThat(hits / (double) (queries * 4)).isGreaterThanOrEqualTo(0.99);
+    }
+
+    private List<Integer> topK(int k, IntToDoubleFunction score) {
+        return IntStream.range(0, ROWS)
+                .boxed()
+                .sorted(Comparator.comparingDouble((Integer row) -> score.applyAsDouble(row)).reversed())
+                .limit(k)
+                .toList();
+    }
+}
@@ -0,0 +1,77 @@
+package com.spring.eac.ai.vectorstore.kernel;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class SimilarityKernelTest {
+
+    private final SimilarityKernel scalar = new ScalarSimilarityKernel();
+    private final SimilarityKernel vectorApi = new VectorApiSimilarityKernel();
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 7, 8, 17, 31, 384, 1536, 3071})
+    @DisplayName("Should compute the same dot product with both kernels, including the tail lanes")
+    void dot_ShouldAgreeWithPlainLoop(int dimensions) {
+        Random random = new Random(dimensions);
+        float[] x = new float[dimensions];
+        float[] y = new float[dimensions];
+        double expected = 0;
+        for (int i = 0; i < dimensions; i++) {
+            x[i] = (float) random.nextGaussian();
+            y[i] = (float) random.nextGaussian();
+            expected += (double) x[i] * y[i];
+        }
+
+        assertThat((double) scalar.dot(x, y)).isCloseTo(expected, within(1e-3 * dimensions));
+        assertThat((double) vectorApi.dot(x, y)).isCloseTo(expected, within(1e-3 * dimensions));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 7, 8, 15, 33, 1536})
+    @DisplayName("Should compute the same float-by-int8 dot product with both kernels")
+    void dotCodes_ShouldAgreeWithPlainLoop(int dimensions) {
+        Random random = new Random(dimensions);
+        float[] x = new float[dimensions];
+        byte[] codes = new byte[dimensions];
+        double expected = 0;
+        for (int i = 0; i < dimensions; i++) {
+            x[i] = (float) random.nextGaussian();
+            codes[i] = (byte) (random.nextInt(255) - 127);
+            expected += (double) x[i] * codes[i];
+        }
+
+        assertThat((double) scalar.dot(x, codes)).isCloseTo(expected, within(0.1 * dimensions));
+        assertThat((double) vectorApi.dot(x, codes)).isCloseTo(expected, within(0.1 * dimensions));
+    }
+
+    @Test
+    @DisplayName("Should score parallel vectors 1 and vectors with a zero norm 0")
+    void cosine_ShouldUsePrecomputedNorms() {
+        float[] x = {1, 2, 3};
+        float[] y = {2, 4, 6};
+
+        assertThat(vectorApi.cosine(x, vectorApi.norm(x), y, vectorApi.norm(y))).isCloseTo(1.0, within(1e-6));
+        assertThat(scalar.cosine(x, scalar.norm(x), new float[3], 0)).isZero();
+    }
+
+    @Test
+    @DisplayName("Should reject vectors of different lengths")
+    void dot_WithDifferentLengths_ShouldThrow() {
+        assertThatThrownBy(() -> scalar.dot(new float[2], new float[3])).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> vectorApi.dot(new float[2], new float[3])).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("Should detect the Vector API kernel when the incubator module is enabled")
+    void detect_ShouldPickVectorApiKernel() {
+        assertThat(SimilarityKernel.detect().name()).startsWith("vector-api-");
+    }
+}